@@ -28,7 +28,6 @@ import javax.swing.UIManager;
 import com.pump.blog.Blurb;
 import com.pump.geom.area.AreaXBody;
 import com.pump.geom.area.CrossingsX;
-import com.pump.geom.area.CurveX;
 
 /** This class is a direct branch from the <code>java.awt.geom.Area</code>.
  * <p>
@@ -106,6 +105,14 @@ import com.pump.geom.area.CurveX;
  * However you can also change the <i>default</i> rules for all
  * future <code>AreaX</code> objects by calling:
  * <code>UIManager.put("AreaX.rules", myRules)</code>.
+ * <p>Methods that only read this shape (such as <code>contains()</code>,
+ * <code>intersects()</code>, <code>getBounds2D()</code> and
+ * <code>getPathIterator()</code>) do not lock this object if there are no
+ * pending operations. Each <code>AreaXBody</code> is never modified once it
+ * is published, so these methods consult the most recent body without
+ * blocking (or being blocked by) other readers. Methods that modify this
+ * shape are still synchronized, and the first read after a modification
+ * locks this object to process the queue.
 
  * @see <a href="https://javagraphics.java.net/areax/">https://javagraphics.java.net/areax/</a>
  */
@@ -146,7 +153,12 @@ public class AreaX implements  Shape, Cloneable {
 		}
 	}
 
+	/** The current geometry. This is only accessed while synchronized on this object. */
 	private AreaXBody body;
+	/** This is either <code>body</code>, or null if there are pending
+	 * operations. This can be read without synchronizing.
+	 */
+	private volatile AreaXBody snapshot;
 	private List<AreaXOperation> queue = new LinkedList<AreaXOperation>();
 	private AreaXRules rules = getDefaultRules();
 
@@ -154,13 +166,13 @@ public class AreaX implements  Shape, Cloneable {
 	 * Default constructor which creates an empty area.
 	 */
 	public AreaX() {
-		body = emptyBody;
+		setBody(emptyBody);
 	}
 
 	/** Create a new <code>AreaX</code> pointing to a <code>AreaXBody</code>.
 	 */
 	public AreaX(AreaXBody body) {
-		this.body = body;
+		setBody(body);
 	}
 
 	/**
@@ -177,13 +189,20 @@ public class AreaX implements  Shape, Cloneable {
 	public AreaX(Shape s) {
 		if (s instanceof  AreaX) {
 			AreaX area = (AreaX)s;
-			area.processQueue();
-			body = area.body;
+			setBody(area.getBody());
 		} else {
-			body = AreaXBody.create(s.getPathIterator(null), true);
+			setBody(AreaXBody.create(s.getPathIterator(null), true));
 		}
 	}
 	
+	/** Replace the body of this shape and publish it to readers.
+	 * This must be called while synchronized on this object (or from a constructor).
+	 */
+	private void setBody(AreaXBody body) {
+		this.body = body;
+		snapshot = body;
+	}
+	
 	public synchronized void setRules(AreaXRules rules) {
 		if(rules==null)
 			rules = minimalRules;
@@ -205,18 +224,24 @@ public class AreaX implements  Shape, Cloneable {
 		
 		AreaXOperation[] ops = queue.toArray(new AreaXOperation[queueSize]);
 		queue.clear();
-		body = rules.execute(body, ops);
+		setBody(rules.execute(body, ops));
 	}
 	
 	/** This returns the <code>AreaXBody</code> that currently
 	 * expressed the data in this <code>AreaX</code>.
 	 * This object will constantly be replaced as new operations
 	 * are performed.
-	 * <p>This forces any pending operations to be performed.
-	 */
-	public synchronized AreaXBody getBody() {
-		processQueue();
-		return body;
+	 * <p>This forces any pending operations to be performed. If there
+	 * are no pending operations this does not lock this object.
+	 */
+	public AreaXBody getBody() {
+		AreaXBody b = snapshot;
+		if(b!=null)
+			return b;
+		synchronized(this) {
+			processQueue();
+			return body;
+		}
 	}
 
 	/**
@@ -251,6 +276,7 @@ public class AreaX implements  Shape, Cloneable {
 	 */
 	public synchronized void add(Shape rhs) {
 		queue.add( new AreaXOperation(rhs, AreaXOperation.ADD) );
+		snapshot = null;
 	}
 	
 	/** This uses <code>getRelationship()</code> to determine if the argument
@@ -259,7 +285,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @param shape 
 	 * @return true whether the argument is completely contained inside this shape.
 	 */
-	public synchronized boolean contains(Shape shape) {
+	public boolean contains(Shape shape) {
 		return getRelationship(null, shape, null) == RELATIONSHIP_LHS_CONTAINS;
 	}
 
@@ -270,7 +296,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @param transform a transform to apply to the argument shape.
 	 * @return true whether the argument (when transformed) is completely contained inside this shape.
 	 */
-	public synchronized boolean contains(Shape shape,AffineTransform transform) {
+	public boolean contains(Shape shape,AffineTransform transform) {
 		return getRelationship(null, shape, transform) == RELATIONSHIP_LHS_CONTAINS;
 	}
 
@@ -282,7 +308,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @param transform an optional transform to apply to the argument shape.
 	 * @return true whether the argument (when transformed) is completely contained inside this shape.
 	 */
-	public synchronized boolean contains(AffineTransform lhsTransform,Shape shape,AffineTransform transform) {
+	public boolean contains(AffineTransform lhsTransform,Shape shape,AffineTransform transform) {
 		return getRelationship(lhsTransform, shape, transform) == RELATIONSHIP_LHS_CONTAINS;
 	}
 
@@ -292,7 +318,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @param shape 
 	 * @return true whether the argument (when transformed) intersects this shape.
 	 */
-	public synchronized boolean intersects(Shape shape) {
+	public boolean intersects(Shape shape) {
 		int r = getRelationship(null, shape, null);
 		return r != RELATIONSHIP_NONE;
 	}
@@ -304,7 +330,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @param transform a transform to apply to the argument shape.
 	 * @return true whether the argument (when transformed) intersects this shape.
 	 */
-	public synchronized boolean intersects(Shape shape,AffineTransform transform) {
+	public boolean intersects(Shape shape,AffineTransform transform) {
 		int r = getRelationship(null, shape, transform);
 		return r != RELATIONSHIP_NONE;
 	}
@@ -317,7 +343,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @param transform an optional transform to apply to the argument shape.
 	 * @return true whether the argument (when transformed) intersects this shape.
 	 */
-	public synchronized boolean intersects(AffineTransform lhsTransform,Shape shape,AffineTransform transform) {
+	public boolean intersects(AffineTransform lhsTransform,Shape shape,AffineTransform transform) {
 		int r = getRelationship(lhsTransform, shape, transform);
 		return r != RELATIONSHIP_NONE;
 	}
@@ -331,7 +357,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return one of the 4 relationship constants: RELATIONSHIP_LHS_CONTAINS, RELATIONSHIP_RHS_CONTAINS,
 	 * RELATIONSHIP_NONE, or RELATIONSHIP_COMPLEX.
 	 */
-	public synchronized int getRelationship(AffineTransform lhsTransform, Shape shape,AffineTransform transform) {
+	public int getRelationship(AffineTransform lhsTransform, Shape shape,AffineTransform transform) {
 		return getBody().getRelationship(lhsTransform, shape, transform );
 	}
 
@@ -366,7 +392,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @throws NullPointerException if <code>rhs</code> is null
 	 */
 	public synchronized void executeAdd(AreaX rhs) {
-		body = getBody().add( rhs.getBody() );
+		setBody(getBody().add( rhs.getBody() ));
 	}
 
 	/**
@@ -400,6 +426,7 @@ public class AreaX implements  Shape, Cloneable {
 	 */
 	public synchronized void subtract(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.SUBTRACT));
+		snapshot = null;
 	}
 
 	/**
@@ -432,7 +459,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @throws NullPointerException if <code>rhs</code> is null
 	 */
 	public synchronized void executeSubtract(AreaX rhs) {
-		body = getBody().subtract( rhs.getBody() );
+		setBody(getBody().subtract( rhs.getBody() ));
 	}
 
 	/**
@@ -466,6 +493,7 @@ public class AreaX implements  Shape, Cloneable {
 	 */
 	public synchronized void intersect(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.INTERSECT));
+		snapshot = null;
 	}
 
 	/**
@@ -498,7 +526,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @throws NullPointerException if <code>rhs</code> is null
 	 */
 	public synchronized void executeIntersect(AreaX rhs) {
-		body = getBody().intersect( rhs.getBody() );
+		setBody(getBody().intersect( rhs.getBody() ));
 	}
 
 	/**
@@ -533,6 +561,7 @@ public class AreaX implements  Shape, Cloneable {
 	 */
 	public synchronized void exclusiveOr(Shape rhs) {
 		queue.add(new AreaXOperation(rhs, AreaXOperation.XOR));
+		snapshot = null;
 	}
 
 	/**
@@ -566,7 +595,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @throws NullPointerException if <code>rhs</code> is null
 	 */
 	public synchronized void executeExclusiveOr(AreaX rhs) {
-		body = getBody().xor( rhs.getBody() );
+		setBody(getBody().xor( rhs.getBody() ));
 	}
 
 	/**
@@ -575,7 +604,7 @@ public class AreaX implements  Shape, Cloneable {
 	 */
 	public synchronized void reset() {
 		queue.clear();
-		body = emptyBody;
+		setBody(emptyBody);
 	}
 
 	/**
@@ -584,9 +613,8 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return    <code>true</code> if this <code>AreaX</code> object
 	 * represents an empty area; <code>false</code> otherwise.
 	 */
-	public synchronized boolean isEmpty() {
-		processQueue();
-		return (body.size() == 0);
+	public boolean isEmpty() {
+		return getBody().isEmpty();
 	}
 
 	/**
@@ -597,10 +625,10 @@ public class AreaX implements  Shape, Cloneable {
 	 * <code>AreaX</code> consists entirely of line segments;
 	 * <code>false</code> otherwise.
 	 */
-	public synchronized boolean isPolygonal() {
-		processQueue();
+	public boolean isPolygonal() {
+		AreaXBody body = getBody();
 		for(int a = 0; a<body.size(); a++) {
-			if (body.get(a).getOrder() > 1) {
+			if (body.getOrder(a) > 1) {
 				return false;
 			}
 		}
@@ -614,8 +642,8 @@ public class AreaX implements  Shape, Cloneable {
 	 * <code>AreaX</code> is rectangular in shape; <code>false</code>
 	 * otherwise.
 	 */
-	public synchronized boolean isRectangular() {
-		processQueue();
+	public boolean isRectangular() {
+		AreaXBody body = getBody();
 		int size = body.size();
 		if (size == 0) {
 			return true;
@@ -623,17 +651,15 @@ public class AreaX implements  Shape, Cloneable {
 		if (size > 3) {
 			return false;
 		}
-		CurveX c1 = body.get(1);
-		CurveX c2 = body.get(2);
-		if (c1.getOrder() != 1 || c2.getOrder() != 1) {
+		if (body.getOrder(1) != 1 || body.getOrder(2) != 1) {
 			return false;
 		}
-		if (c1.getXTop() != c1.getXBot()
-				|| c2.getXTop() != c2.getXBot()) {
+		if (body.getXTop(1) != body.getXBot(1)
+				|| body.getXTop(2) != body.getXBot(2)) {
 			return false;
 		}
-		if (c1.getYTop() != c2.getYTop()
-				|| c1.getYBot() != c2.getYBot()) {
+		if (body.getYTop(1) != body.getYTop(2)
+				|| body.getYBot(1) != body.getYBot(2)) {
 //			One might be able to prove that this is impossible...
 			return false;
 		}
@@ -651,13 +677,13 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return    <code>true</code> if the <code>AreaX</code> is comprised
 	 * of a single basic geometry; <code>false</code> otherwise.
 	 */
-	public synchronized boolean isSingular() {
-		processQueue();
+	public boolean isSingular() {
+		AreaXBody body = getBody();
 		if (body.size() < 3) {
 			return true;
 		}
 		for(int a = 1; a<body.size(); a++) {
-			if (body.get(a).getOrder() == 0) {
+			if (body.getOrder(a) == 0) {
 				return false;
 			}
 		}
@@ -677,9 +703,8 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return    the bounding <code>Rectangle2D</code> for the
 	 * <code>AreaX</code>.
 	 */
-	public synchronized Rectangle2D getBounds2D() {
-		processQueue();
-		return body.getBounds2D(null);
+	public Rectangle2D getBounds2D() {
+		return getBody().getBounds2D(null);
 	}
 
 	/**
@@ -698,9 +723,8 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return    the bounding <code>Rectangle</code> for the
 	 * <code>AreaX</code>.
 	 */
-	public synchronized  Rectangle getBounds() {
-		processQueue();
-		return body.getBounds(null);
+	public Rectangle getBounds() {
+		return getBody().getBounds(null);
 	}
 
 	/**
@@ -709,8 +733,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return    Created clone object
 	 */
 	@Override
-	public synchronized AreaX clone() {
-		processQueue();
+	public AreaX clone() {
 		return new AreaX(this);
 	}
 
@@ -724,7 +747,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return  <code>true</code> if the two geometries are equal;
 	 *		<code>false</code> otherwise.
 	 */
-	public synchronized boolean equals(AreaX other) {
+	public boolean equals(AreaX other) {
 		return getBody().equals(other.getBody());
 	}
 
@@ -741,7 +764,7 @@ public class AreaX implements  Shape, Cloneable {
 			throw new NullPointerException("transform must not be null");
 		}
 		
-		body = getBody().transform(t);
+		setBody(getBody().transform(t));
 	}
 
 	/**
@@ -756,7 +779,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * @return   a new <code>AreaX</code> object representing the transformed
 	 *           geometry.
 	 */
-	public synchronized AreaX createTransformedArea(AffineTransform t) {
+	public AreaX createTransformedArea(AffineTransform t) {
 		AreaX a = new AreaX(this);
 		a.transform(t);
 		return a;
@@ -766,7 +789,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * {@inheritDoc}
 	 * <p>This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(double x, double y) {
+	public boolean contains(double x, double y) {
 		return getBody().contains(x, y);
 	}
 
@@ -774,7 +797,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * {@inheritDoc}
 	 * <p>This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(Point2D p) {
+	public boolean contains(Point2D p) {
 		return contains(p.getX(), p.getY());
 	}
 
@@ -782,11 +805,11 @@ public class AreaX implements  Shape, Cloneable {
 	 * {@inheritDoc}
 	 * <p>This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(double x, double y, double w, double h) {
+	public boolean contains(double x, double y, double w, double h) {
 		if (w < 0 || h < 0) {
 			return false;
 		}
-		processQueue();
+		AreaXBody body = getBody();
 		if (!body.boundsContains(x, y, w, h)) {
 			return false;
 		}
@@ -799,7 +822,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * {@inheritDoc}
 	 * <p>This forces any pending operations to be performed.
 	 */
-	public synchronized boolean contains(Rectangle2D r) {
+	public boolean contains(Rectangle2D r) {
 		return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
 	}
 
@@ -807,11 +830,11 @@ public class AreaX implements  Shape, Cloneable {
 	 * {@inheritDoc}
 	 * <p>This forces any pending operations to be performed.
 	 */
-	public synchronized boolean intersects(double x, double y, double w, double h) {
+	public boolean intersects(double x, double y, double w, double h) {
 		if (w < 0 || h < 0) {
 			return false;
 		}
-		processQueue();
+		AreaXBody body = getBody();
 		if (!body.boundsIntersects(x, y, w, h)) {
 			return false;
 		}
@@ -824,7 +847,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * {@inheritDoc}
 	 * <p>This forces any pending operations to be performed.
 	 */
-	public synchronized boolean intersects(Rectangle2D r) {
+	public boolean intersects(Rectangle2D r) {
 		return intersects(r.getX(), r.getY(), r.getWidth(), r
 				.getHeight());
 	}
@@ -840,9 +863,8 @@ public class AreaX implements  Shape, Cloneable {
 	 *		geometry of the outline of this <code>AreaX</code>, one
 	 *		segment at a time.
 	 */
-	public synchronized PathIterator getPathIterator(AffineTransform at) {
-		processQueue();
-		return body.getPathIterator(at);
+	public PathIterator getPathIterator(AffineTransform at) {
+		return getBody().getPathIterator(at);
 	}
 
 	/**
@@ -862,7 +884,7 @@ public class AreaX implements  Shape, Cloneable {
 	 * geometry of the outline of this <code>AreaX</code>, one segment
 	 * at a time.
 	 */
-	public synchronized PathIterator getPathIterator(AffineTransform at,
+	public PathIterator getPathIterator(AffineTransform at,
 			double flatness) {
 		return new FlatteningPathIterator(getPathIterator(at), flatness);
 	}
@@ -13,7 +13,12 @@ package com.pump.geom;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.pump.geom.area.AreaXBody;
 
@@ -27,9 +32,15 @@ import com.pump.geom.area.AreaXBody;
  * <li>Inner Shapes: if an outer shape contains the bounds of an inner
  * shape, then the inner shape is dropped.  (Adding it would make no
  * difference to the final result.)</li></ul>
+ * <p>The bounds are indexed in a grid, so overlapping operands are found
+ * without comparing every pair of operands. Operands whose bounds overlap
+ * (directly or through other operands) form a cluster, and each cluster is
+ * combined with a balanced tree of operations instead of one operation
+ * after another. When thousands of small shapes are added this scales
+ * close to n*log(n) instead of n*n.
  * <p>These rules are only tested against the addition of shapes.  They
  * should work for other operations, but the performance gains might
- * be negligible.
+ * be negligible. (Intersections are performed one at a time.)
  */
 public class BoundsRules extends AreaXRules {
 	boolean lookForDisconnectedShapes;
@@ -56,7 +67,6 @@ public class BoundsRules extends AreaXRules {
 	
 	@Override
 	public AreaXBody execute(AreaXBody body, AreaXOperation[] operations) {
-		List<Object> vector = new ArrayList<Object>();
 		int startOfRun = getStartingIndex(-1,operations);
 		while(startOfRun!=-1 && startOfRun<operations.length) {
 			int operator = operations[startOfRun].operator;
@@ -76,7 +86,7 @@ public class BoundsRules extends AreaXRules {
 					k++;
 				}
 			}
-			body = executeRun(body, operator, startOfRun, endOfRun, operations, vector);
+			body = executeRun(body, operator, startOfRun, endOfRun, operations);
 			startOfRun = getStartingIndex(endOfRun+1, operations);
 		}
 		return body;
@@ -94,9 +104,10 @@ public class BoundsRules extends AreaXRules {
 		return k;
 	}
 
-	private AreaXBody executeRun(AreaXBody body, int operator, int startIndex, int endIndex, AreaXOperation[] operations, List<Object> vector) {
+	private AreaXBody executeRun(AreaXBody body, int operator, int startIndex, int endIndex, AreaXOperation[] operations) {
 		//The truck clip art (see AddRulesTest) performed very badly if we didn't convert everything to an AreaX up front:
 		for(int a = startIndex; a<=endIndex; a++) {
+			if(operations[a]==null) continue;
 			Shape shape = operations[a].getOperand();
 			if(!(shape instanceof AreaX)) {
 				AreaXBody newBody = AreaXBody.create( shape.getPathIterator( null ), false);
@@ -104,63 +115,340 @@ public class BoundsRules extends AreaXRules {
 			}
 		}
 		
-		if(lookForDisconnectedShapes || lookForInnerShapes) {
-			boolean canSearchInnerShapes = operator==AreaXOperation.ADD || operator==AreaXOperation.SUBTRACT;
-			List<Object> listOfUnconnectedShapes = vector;
-			if(operator!=AreaXOperation.INTERSECT) {
-				for(int a = startIndex; a<endIndex; a++) {
-					listOfUnconnectedShapes.clear();
-					
-					if(operations[a]!=null) {
-						AreaX base = (AreaX)operations[a].getOperand();
-						Rectangle2D baseBounds = operations[a].getBounds();
-						vector.add(operations[a]);
-						for(int b = a+1; b<=endIndex; b++) {
-							Rectangle2D bBounds = operations[b]!=null ? operations[b].getBounds() : null;
-							//here we remove shapes that lie inside operand A
-							if(lookForInnerShapes && canSearchInnerShapes && operations[b]!=null && baseBounds.contains(bBounds)) {
-								if(base.contains(operations[b].getBounds())) {
-									operations[b] = null;
-								}
-							}
-							
-							//here we search for shapes that aren't connected:
-							if(lookForDisconnectedShapes && operations[b]!=null) {
-								boolean failed = false;
-								for(int c = 0; failed==false && c<vector.size(); c++) {
-									AreaXOperation op = (AreaXOperation)vector.get(c);
-									if(bBounds.intersects(op.getBounds())) {
-										failed = true;
-									}
-								}
-								if(!failed) {
-									listOfUnconnectedShapes.add(operations[b]);
-									operations[b] = null;
-								}
-							}
-						}
-						if(listOfUnconnectedShapes.size()>1) {
-							AreaXBody newBody;
-							if(base!=null) {
-								newBody = base.getBody();
-							} else {
-								newBody = ((AreaX)operations[a].getOperand()).getBody();
-							}
-							int size = listOfUnconnectedShapes.size();
-							//(the zeroeth element is another copy of operations[a])
-							for(int b = 1; b<size; b++) {
-								Shape shape = ((AreaXOperation)listOfUnconnectedShapes.get(b)).getOperand();
-								AreaXBody bodyB = ((AreaX)shape).getBody();
-								vector.set(b, bodyB);
+		if((!lookForDisconnectedShapes && !lookForInnerShapes) || operator==AreaXOperation.INTERSECT) {
+			return super.execute(body, startIndex, endIndex, operations);
+		}
+		
+		List<AreaXOperation> ops = new ArrayList<AreaXOperation>(endIndex-startIndex+1);
+		for(int a = startIndex; a<=endIndex; a++) {
+			if(operations[a]!=null)
+				ops.add(operations[a]);
+		}
+		if(ops.size()<2) {
+			return super.execute(body, startIndex, endIndex, operations);
+		}
+		
+		//adding or subtracting several shapes is the same as adding or subtracting their union:
+		boolean union = operator==AreaXOperation.ADD || operator==AreaXOperation.SUBTRACT;
+		List<List<AreaXOperation>> clusters = getClusters(ops, lookForInnerShapes && union, lookForDisconnectedShapes);
+
+		List<Object> disjointBodies = new ArrayList<Object>();
+		List<Object> otherBodies = new ArrayList<Object>();
+		Rectangle2D bodyBounds = body.isEmpty() ? null : body.getBounds2D(null);
+		List<AreaXBody[]> clusterBodies = new ArrayList<AreaXBody[]>(clusters.size());
+		for(List<AreaXOperation> cluster : clusters) {
+			AreaXBody[] bodies = new AreaXBody[cluster.size()];
+			for(int a = 0; a<bodies.length; a++) {
+				bodies[a] = ((AreaX)cluster.get(a).getOperand()).getBody();
+			}
+			clusterBodies.add(bodies);
+		}
+		AreaXBody[] reducedClusters = reduce(clusterBodies, union);
+		for(int a = 0; a<clusters.size(); a++) {
+			List<AreaXOperation> cluster = clusters.get(a);
+			AreaXBody clusterBody = reducedClusters[a];
+			//clusters that don't touch the body can be merged with it
+			if(operator==AreaXOperation.ADD && !overlaps(bodyBounds, getBounds(cluster))) {
+				disjointBodies.add(clusterBody);
+			} else {
+				otherBodies.add(clusterBody);
+			}
+		}
+		
+		if(otherBodies.size()>0) {
+			//the shapes in different clusters don't overlap, so they can be merged
+			AreaXBody operand = ((AreaXBody)otherBodies.get(0)).merge(otherBodies, 1, otherBodies.size()-1);
+			if(operator==AreaXOperation.ADD) {
+				body = body.add(operand);
+			} else if(operator==AreaXOperation.SUBTRACT) {
+				body = body.subtract(operand);
+			} else {
+				body = body.xor(operand);
+			}
+		}
+		if(disjointBodies.size()>0) {
+			body = body.merge(disjointBodies, 0, disjointBodies.size()-1);
+		}
+		return body;
+	}
+	
+	/** Combine the operands of each cluster.
+	 * <p>Subclasses may override this to change how (or where) this work
+	 * is performed, but the results must be the same as this implementation's.
+	 * 
+	 * @param clusters the operands of each cluster. The bodies in
+	 * different clusters do not overlap.
+	 * @param union if true the operands are added together, otherwise they are xor'ed.
+	 * @return the combined body of each cluster.
+	 */
+	protected AreaXBody[] reduce(List<AreaXBody[]> clusters,boolean union) {
+		AreaXBody[] results = new AreaXBody[clusters.size()];
+		for(int a = 0; a<results.length; a++) {
+			AreaXBody[] bodies = clusters.get(a);
+			results[a] = reduce(bodies, 0, bodies.length-1, union);
+		}
+		return results;
+	}
+	
+	/** Combine a range of operands with a balanced tree of operations,
+	 * so each operand takes part in about log(n) operations (instead of
+	 * the final operands being applied to a body that contains everything
+	 * before them).
+	 * 
+	 * @param union if true the operands are added together, otherwise they are xor'ed.
+	 */
+	protected static AreaXBody reduce(AreaXBody[] bodies,int startIndex,int endIndex,boolean union) {
+		if(startIndex==endIndex)
+			return bodies[startIndex];
+		int middle = getMiddle(startIndex, endIndex);
+		AreaXBody lhs = reduce(bodies, startIndex, middle, union);
+		AreaXBody rhs = reduce(bodies, middle+1, endIndex, union);
+		return combine(lhs, rhs, union);
+	}
+	
+	/** Return the last index of the left half of a range in {@link #reduce(AreaXBody[], int, int, boolean)}. */
+	protected static int getMiddle(int startIndex,int endIndex) {
+		return (startIndex+endIndex)/2;
+	}
+	
+	/** Add or xor two bodies. */
+	protected static AreaXBody combine(AreaXBody lhs,AreaXBody rhs,boolean union) {
+		return union ? lhs.add(rhs) : lhs.xor(rhs);
+	}
+	
+	/** Split operands into clusters whose bounds overlap.
+	 * <p>The bounds of operands in different clusters never overlap,
+	 * so the results of different clusters can be merged.
+	 * 
+	 * @param dropInnerShapes if true then operands that lie inside
+	 * another operand are omitted.
+	 * @param split if false then all operands are returned in one cluster.
+	 * @return the clusters. The operands in each cluster are sorted
+	 * from left to right, so neighboring operands are combined first.
+	 */
+	private static List<List<AreaXOperation>> getClusters(List<AreaXOperation> ops,boolean dropInnerShapes,boolean split) {
+		int size = ops.size();
+		Rectangle2D[] bounds = new Rectangle2D[size];
+		Integer[] order = new Integer[size];
+		for(int a = 0; a<size; a++) {
+			bounds[a] = ops.get(a).getBounds();
+			order[a] = a;
+		}
+		if(dropInnerShapes) {
+			//visit bigger shapes first, so a shape can only lie inside a shape we've already visited
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer i1, Integer i2) {
+					return Double.compare(getArea(bounds[i2]), getArea(bounds[i1]));
+				}
+			});
+		}
+		
+		BoundsGrid grid = new BoundsGrid(bounds);
+		int[] parents = new int[size];
+		boolean[] dropped = new boolean[size];
+		int[] neighbors = new int[16];
+		for(int a = 0; a<size; a++) {
+			parents[a] = a;
+		}
+		for(int a = 0; a<size; a++) {
+			int i = order[a];
+			int neighborCount = grid.getNeighbors(i, neighbors);
+			if(neighborCount>neighbors.length) {
+				neighbors = new int[neighborCount];
+				neighborCount = grid.getNeighbors(i, neighbors);
+			}
+			if(dropInnerShapes) {
+				for(int b = 0; b<neighborCount && !dropped[i]; b++) {
+					int j = neighbors[b];
+					if(bounds[j].contains(bounds[i]) && ((AreaX)ops.get(j).getOperand()).contains(bounds[i])) {
+						dropped[i] = true;
+					}
+				}
+				if(dropped[i])
+					continue;
+			}
+			for(int b = 0; b<neighborCount; b++) {
+				int root1 = getRoot(parents, i);
+				int root2 = getRoot(parents, neighbors[b]);
+				if(root1!=root2)
+					parents[root2] = root1;
+			}
+			grid.add(i);
+		}
+		
+		Map<Integer, List<AreaXOperation>> clusterTable = new LinkedHashMap<Integer, List<AreaXOperation>>();
+		List<AreaXOperation> singleCluster = new ArrayList<AreaXOperation>(size);
+		for(int a = 0; a<size; a++) {
+			if(dropped[a]) continue;
+			List<AreaXOperation> cluster = singleCluster;
+			if(split) {
+				int root = getRoot(parents, a);
+				cluster = clusterTable.get(root);
+				if(cluster==null) {
+					cluster = new ArrayList<AreaXOperation>();
+					clusterTable.put(root, cluster);
+				}
+			}
+			cluster.add(ops.get(a));
+		}
+		List<List<AreaXOperation>> clusters = split ? new ArrayList<List<AreaXOperation>>(clusterTable.values()) : Collections.singletonList(singleCluster);
+		for(List<AreaXOperation> cluster : clusters) {
+			Collections.sort(cluster, new Comparator<AreaXOperation>() {
+				public int compare(AreaXOperation op1, AreaXOperation op2) {
+					return Double.compare(op1.getBounds().getCenterX(), op2.getBounds().getCenterX());
+				}
+			});
+		}
+		return clusters;
+	}
+	
+	private static int getRoot(int[] parents,int i) {
+		while(parents[i]!=i) {
+			parents[i] = parents[parents[i]];
+			i = parents[i];
+		}
+		return i;
+	}
+	
+	private static double getArea(Rectangle2D r) {
+		return r.getWidth()*r.getHeight();
+	}
+	
+	private static Rectangle2D getBounds(List<AreaXOperation> ops) {
+		Rectangle2D sum = null;
+		for(AreaXOperation op : ops) {
+			if(sum==null) {
+				sum = (Rectangle2D)op.getBounds().clone();
+			} else {
+				sum.add(op.getBounds());
+			}
+		}
+		return sum;
+	}
+	
+	/** Return true if two rectangles overlap or touch.
+	 * <p>Shapes that only share an edge can't be merged (their common edge
+	 * has to be removed), so this is stricter than <code>Rectangle2D.intersects()</code>.
+	 */
+	static boolean overlaps(Rectangle2D r1,Rectangle2D r2) {
+		if(r1==null || r2==null) return false;
+		return r1.getMinX()<=r2.getMaxX() && r2.getMinX()<=r1.getMaxX() &&
+				r1.getMinY()<=r2.getMaxY() && r2.getMinY()<=r1.getMaxY();
+	}
+	
+	/** A uniform grid of buckets that finds which rectangles overlap
+	 * a given rectangle without comparing every pair of rectangles.
+	 * <p>The cells are about the size of the average rectangle, so most
+	 * rectangles only touch a few cells.
+	 */
+	static class BoundsGrid {
+		final Rectangle2D[] bounds;
+		final double minX, minY, cellWidth, cellHeight;
+		final int columns, rows;
+		final int[][] cells;
+		final int[] cellSizes;
+		
+		/** The last query each rectangle was seen in, so a rectangle in several cells is only reported once. */
+		final int[] visits;
+		int visit = 0;
+		
+		BoundsGrid(Rectangle2D[] bounds) {
+			this.bounds = bounds;
+			double x1 = Double.MAX_VALUE, y1 = Double.MAX_VALUE, x2 = -Double.MAX_VALUE, y2 = -Double.MAX_VALUE;
+			double widthSum = 0, heightSum = 0;
+			for(Rectangle2D r : bounds) {
+				x1 = Math.min(x1, r.getMinX());
+				y1 = Math.min(y1, r.getMinY());
+				x2 = Math.max(x2, r.getMaxX());
+				y2 = Math.max(y2, r.getMaxY());
+				widthSum += r.getWidth();
+				heightSum += r.getHeight();
+			}
+			minX = x1;
+			minY = y1;
+			double w = Math.max(widthSum/bounds.length, (x2-x1)/bounds.length);
+			double h = Math.max(heightSum/bounds.length, (y2-y1)/bounds.length);
+			if(!(w>0)) w = 1;
+			if(!(h>0)) h = 1;
+			
+			//keep the number of cells proportional to the number of rectangles:
+			double maxCells = 4.0*bounds.length;
+			double cellCount = Math.ceil((x2-x1)/w+1)*Math.ceil((y2-y1)/h+1);
+			if(cellCount>maxCells) {
+				double k = Math.sqrt(cellCount/maxCells);
+				w *= k;
+				h *= k;
+			}
+			cellWidth = w;
+			cellHeight = h;
+			columns = Math.max(1, (int)((x2-x1)/w)+1);
+			rows = Math.max(1, (int)((y2-y1)/h)+1);
+			cells = new int[columns*rows][];
+			cellSizes = new int[columns*rows];
+			visits = new int[bounds.length];
+		}
+		
+		private int getColumn(double x) {
+			return Math.max(0, Math.min(columns-1, (int)((x-minX)/cellWidth)));
+		}
+		
+		private int getRow(double y) {
+			return Math.max(0, Math.min(rows-1, (int)((y-minY)/cellHeight)));
+		}
+		
+		/** Add a rectangle to every cell it touches. */
+		void add(int index) {
+			Rectangle2D r = bounds[index];
+			int col2 = getColumn(r.getMaxX());
+			int row2 = getRow(r.getMaxY());
+			for(int row = getRow(r.getMinY()); row<=row2; row++) {
+				for(int col = getColumn(r.getMinX()); col<=col2; col++) {
+					int cell = row*columns+col;
+					int[] list = cells[cell];
+					if(list==null) {
+						list = new int[4];
+						cells[cell] = list;
+					} else if(cellSizes[cell]==list.length) {
+						list = Arrays.copyOf(list, list.length*2);
+						cells[cell] = list;
+					}
+					list[cellSizes[cell]++] = index;
+				}
+			}
+		}
+		
+		/** Find the rectangles in this grid that overlap a rectangle.
+		 * 
+		 * @param index the rectangle to search for.
+		 * @param dest the array to store the indices of overlapping rectangles in.
+		 * @return the number of overlapping rectangles. If this is larger than
+		 * <code>dest.length</code>, then only some of them were stored and
+		 * you should call this method again with a larger array.
+		 */
+		int getNeighbors(int index,int[] dest) {
+			visit++;
+			int count = 0;
+			Rectangle2D r = bounds[index];
+			int col2 = getColumn(r.getMaxX());
+			int row2 = getRow(r.getMaxY());
+			for(int row = getRow(r.getMinY()); row<=row2; row++) {
+				for(int col = getColumn(r.getMinX()); col<=col2; col++) {
+					int cell = row*columns+col;
+					int[] list = cells[cell];
+					for(int a = 0; a<cellSizes[cell]; a++) {
+						int j = list[a];
+						if(visits[j]!=visit) {
+							visits[j] = visit;
+							if(overlaps(r, bounds[j])) {
+								if(count<dest.length)
+									dest[count] = j;
+								count++;
 							}
-							newBody = newBody.merge( vector, 1, size-1 );
-							operations[a] = new AreaXOperation(new AreaX(newBody), operator);
 						}
 					}
 				}
 			}
+			return count;
 		}
-		
-		return super.execute(body, startIndex, endIndex, operations);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.pump.geom.area.AreaXBody;
+
+/**
+ * These <code>BoundsRules</code> combine the operands of a large queue on
+ * several threads.
+ * <p>
+ * The operands are clustered exactly as the <code>BoundsRules</code> cluster
+ * them, and each cluster is reduced with the same balanced tree of
+ * operations. The only difference is that independent branches of these trees
+ * (and independent clusters) are computed on a <code>ForkJoinPool</code>, so
+ * the results are identical to the results of the <code>BoundsRules</code>.
+ * <p>
+ * The calling thread still holds the lock on the <code>AreaX</code> while
+ * this work happens, and it waits for the pool to finish.
+ * <p>
+ * This is not the default, because small queues (or machines with one core)
+ * gain nothing from it. To use these rules call
+ * <code>myArea.setRules(new ParallelBoundsRules())</code>.
+ */
+public class ParallelBoundsRules extends BoundsRules {
+
+	/**
+	 * Subtrees with this many operands (or fewer) are computed on one thread.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 8;
+
+	protected final ForkJoinPool pool;
+
+	/**
+	 * Creates a new <code>ParallelBoundsRules</code> object with all possible
+	 * optimizations that uses the common <code>ForkJoinPool</code>.
+	 */
+	public ParallelBoundsRules() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new <code>ParallelBoundsRules</code> object with all possible
+	 * optimizations.
+	 * 
+	 * @param pool
+	 *            the pool to combine operands on. If this is null then the
+	 *            common pool is used.
+	 */
+	public ParallelBoundsRules(ForkJoinPool pool) {
+		this(pool, true, true);
+	}
+
+	/**
+	 * Creates a new <code>ParallelBoundsRules</code> object.
+	 * 
+	 * @param pool
+	 *            the pool to combine operands on. If this is null then the
+	 *            common pool is used.
+	 * @param lookForInnerShapes
+	 *            if this is true then these rules will look for inner shapes
+	 *            and ignore them.
+	 * @param lookForDisconnectedShapes
+	 *            if this is true then these rules will look for disconnected
+	 *            shapes and merge them.
+	 */
+	public ParallelBoundsRules(ForkJoinPool pool, boolean lookForInnerShapes,
+			boolean lookForDisconnectedShapes) {
+		super(lookForInnerShapes, lookForDisconnectedShapes);
+		this.pool = pool == null ? ForkJoinPool.commonPool() : pool;
+	}
+
+	@Override
+	protected AreaXBody[] reduce(List<AreaXBody[]> clusters, boolean union) {
+		int operandCount = 0;
+		for (AreaXBody[] bodies : clusters) {
+			operandCount += bodies.length;
+		}
+		if (operandCount <= SEQUENTIAL_THRESHOLD
+				|| pool.getParallelism() <= 1)
+			return super.reduce(clusters, union);
+
+		validateSharedBodies(clusters);
+		AreaXBody[] results = new AreaXBody[clusters.size()];
+		pool.invoke(new ClusterRange(clusters, 0, clusters.size(), union,
+				results));
+		return results;
+	}
+
+	/**
+	 * If the same body is queued more than once, validate it now so two
+	 * threads don't both try to validate (and cache) it later.
+	 */
+	private static void validateSharedBodies(List<AreaXBody[]> clusters) {
+		Map<AreaXBody, Boolean> seen = new IdentityHashMap<>();
+		for (AreaXBody[] bodies : clusters) {
+			for (int a = 0; a < bodies.length; a++) {
+				if (seen.put(bodies[a], Boolean.TRUE) != null) {
+					bodies[a].validate();
+				}
+			}
+		}
+	}
+
+	/**
+	 * This reduces a range of clusters, splitting the range until it contains
+	 * only a few operands.
+	 */
+	private static class ClusterRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final List<AreaXBody[]> clusters;
+		final int startIndex, endIndex;
+		final boolean union;
+		final AreaXBody[] results;
+
+		/**
+		 * @param startIndex
+		 *            the first cluster to reduce.
+		 * @param endIndex
+		 *            the index after the last cluster to reduce.
+		 */
+		ClusterRange(List<AreaXBody[]> clusters, int startIndex, int endIndex,
+				boolean union, AreaXBody[] results) {
+			this.clusters = clusters;
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+			this.union = union;
+			this.results = results;
+		}
+
+		@Override
+		protected void compute() {
+			int operandCount = 0;
+			for (int a = startIndex; a < endIndex; a++) {
+				operandCount += clusters.get(a).length;
+			}
+			if (endIndex - startIndex > 1
+					&& operandCount > SEQUENTIAL_THRESHOLD) {
+				int middle = (startIndex + endIndex) / 2;
+				invokeAll(new ClusterRange(clusters, startIndex, middle,
+						union, results), new ClusterRange(clusters, middle,
+						endIndex, union, results));
+				return;
+			}
+			for (int a = startIndex; a < endIndex; a++) {
+				AreaXBody[] bodies = clusters.get(a);
+				results[a] = new Reduction(bodies, 0, bodies.length - 1, union)
+						.compute();
+			}
+		}
+	}
+
+	/**
+	 * This mirrors {@link BoundsRules#reduce(AreaXBody[], int, int, boolean)},
+	 * but it computes both halves of large ranges in parallel.
+	 */
+	private static class Reduction extends RecursiveTask<AreaXBody> {
+		private static final long serialVersionUID = 1L;
+
+		final AreaXBody[] bodies;
+		final int startIndex, endIndex;
+		final boolean union;
+
+		Reduction(AreaXBody[] bodies, int startIndex, int endIndex,
+				boolean union) {
+			this.bodies = bodies;
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+			this.union = union;
+		}
+
+		@Override
+		protected AreaXBody compute() {
+			if (endIndex - startIndex + 1 <= SEQUENTIAL_THRESHOLD)
+				return BoundsRules.reduce(bodies, startIndex, endIndex, union);
+			int middle = getMiddle(startIndex, endIndex);
+			Reduction lhs = new Reduction(bodies, startIndex, middle, union);
+			Reduction rhs = new Reduction(bodies, middle + 1, endIndex, union);
+			rhs.fork();
+			AreaXBody lhsBody = lhs.compute();
+			AreaXBody rhsBody = rhs.join();
+			return combine(lhsBody, rhsBody, union);
+		}
+	}
+}
@@ -10,8 +10,6 @@
  */
 package com.pump.geom.area;
 
-import java.util.Comparator;
-
 public abstract class AreaOpX {
 	public static abstract class CAGOp extends AreaOpX {
 		boolean inLeft;
@@ -26,8 +24,8 @@ public abstract class AreaOpX {
 		}
 
 		@Override
-		public int classify(EdgeX e) {
-			if (e.getCurveTag() == CTAG_LEFT) {
+		int classify(EdgeList edges, int e) {
+			if (edges.curveTags[e] == CTAG_LEFT) {
 				inLeft = !inLeft;
 			} else {
 				inRight = !inRight;
@@ -86,12 +84,12 @@ public abstract class AreaOpX {
 		}
 
 		@Override
-		public int classify(EdgeX e) {
+		int classify(EdgeList edges, int e) {
 //			Note: the right curves should be an empty set with this op...
-//			assert(e.getCurveTag() == CTAG_LEFT);
+//			assert(edges.curveTags[e] == CTAG_LEFT);
 			int newCount = count;
 			int type = (newCount == 0 ? ETAG_ENTER : ETAG_IGNORE);
-			newCount += e.getCurve().getDirection();
+			newCount += edges.getDirection(e);
 			count = newCount;
 			return (newCount == 0 ? ETAG_EXIT : type);
 		}
@@ -111,9 +109,9 @@ public abstract class AreaOpX {
 		}
 
 		@Override
-		public int classify(EdgeX e) {
+		int classify(EdgeList edges, int e) {
 //			Note: the right curves should be an empty set with this op...
-//			assert(e.getCurveTag() == CTAG_LEFT);
+//			assert(edges.curveTags[e] == CTAG_LEFT);
 			boolean newInside = !inside;
 			inside = newInside;
 			return (newInside ? ETAG_ENTER : ETAG_EXIT);
@@ -143,7 +141,7 @@ public abstract class AreaOpX {
 
 	public abstract void newRow();
 
-	public abstract int classify(EdgeX e);
+	abstract int classify(EdgeList edges, int e);
 
 	public abstract int getState();
 
@@ -153,46 +151,28 @@ public abstract class AreaOpX {
 			right = right.validate();
 		}
 		
-		RawEdgeArrayList edges = new RawSortedEdgeArrayList(left.size()+right.size(), YXTopComparator);
+		EdgeList edges = new EdgeList(left, right);
 		addEdges(edges, left, AreaOpX.CTAG_LEFT);
 		addEdges(edges, right, AreaOpX.CTAG_RIGHT);
 		AreaXBody newCurves = pruneEdges(edges);
 		return newCurves;
 	}
 
-	private static void addEdges(RawEdgeArrayList edges, AreaXBody curves, int curvetag) {
+	private static void addEdges(EdgeList edges, AreaXBody curves, int curvetag) {
 		for(int a = 0; a<curves.size(); a++) {
-			CurveX curve = curves.get(a);
-			if (curve.getOrder() > 0) {
-				edges.add(new EdgeX(curve, curvetag));
+			if (curves.getOrder(a) > 0) {
+				edges.add(curvetag, a);
 			}
 		}
 	}
 
-	private static Comparator<EdgeX> YXTopComparator = new Comparator<EdgeX>() {
-		public int compare(EdgeX o1, EdgeX o2) {
-			CurveX c1 = (o1).getCurve();
-			CurveX c2 = (o2).getCurve();
-			double v1, v2;
-			if ((v1 = c1.getYTop()) == (v2 = c2.getYTop())) {
-				if ((v1 = c1.getXTop()) == (v2 = c2.getXTop())) {
-					return 0;
-				}
-			}
-			if (v1 < v2) {
-				return -1;
-			}
-			return 1;
-		}
-	};
-
-	private AreaXBody pruneEdges(RawEdgeArrayList edges) {
+	private AreaXBody pruneEdges(EdgeList edges) {
 		int numedges = edges.size();
 		if (numedges < 2) {
 			return new AreaXBody(null, 0);
 		}
-		EdgeX[] edgelist = edges.getArray();
-		EdgeX e;
+		int[] edgelist = edges.getSortedIndices();
+		int e;
 		int left = 0;
 		int right = 0;
 		int cur = 0;
@@ -207,7 +187,7 @@ public abstract class AreaOpX {
 //			Prune active edges that fall off the top of the active y range
 			for (cur = next = right - 1; cur >= left; cur--) {
 				e = edgelist[cur];
-				if (e.getCurve().getYBot() > y) {
+				if (edges.yBot[e] > y) {
 					if (next > cur) {
 						edgelist[next] = e;
 					}
@@ -220,7 +200,7 @@ public abstract class AreaOpX {
 				if (right >= numedges) {
 					break;
 				}
-				y = edgelist[right].getCurve().getYTop();
+				y = edges.yTop[edgelist[right]];
 				if (y > yrange[0]) {
 					finalizeSubCurves(subcurves, chains);
 				}
@@ -229,7 +209,7 @@ public abstract class AreaOpX {
 //			Incorporate new active edges that enter the active y range
 			while (right < numedges) {
 				e = edgelist[right];
-				if (e.getCurve().getYTop() > y) {
+				if (edges.yTop[e] > y) {
 					break;
 				}
 				right++;
@@ -237,9 +217,9 @@ public abstract class AreaOpX {
 //			Sort the current active edges by their X values and
 //			determine the maximum valid Y range where the X ordering
 //			is correct
-			yrange[1] = edgelist[left].getCurve().getYBot();
+			yrange[1] = edges.yBot[edgelist[left]];
 			if (right < numedges) {
-				y = edgelist[right].getCurve().getYTop();
+				y = edges.yTop[edgelist[right]];
 				if (yrange[1] > y) {
 					yrange[1] = y;
 				}
@@ -249,10 +229,10 @@ public abstract class AreaOpX {
 			int nexteq = 1;
 			for (cur = left; cur < right; cur++) {
 				e = edgelist[cur];
-				e.setEquivalence(0);
+				edges.equivalences[e] = 0;
 				for (next = cur; next > left; next--) {
-					EdgeX prevedge = edgelist[next-1];
-					int ordering = e.compareTo(prevedge, yrange);
+					int prevedge = edgelist[next-1];
+					int ordering = edges.compare(e, prevedge, yrange);
 					if (yrange[1] <= yrange[0]) {
 						throw new InternalError("backstepping to "+yrange[1]+
 								" from "+yrange[0]);
@@ -263,12 +243,12 @@ public abstract class AreaOpX {
 //							deleted later if they cancel each other
 //							out so that we avoid having extraneous
 //							curve segments.
-							int eq = prevedge.getEquivalence();
+							int eq = edges.equivalences[prevedge];
 							if (eq == 0) {
 								eq = nexteq++;
-								prevedge.setEquivalence(eq);
+								edges.equivalences[prevedge] = eq;
 							}
-							e.setEquivalence(eq);
+							edges.equivalences[e] = eq;
 						}
 						break;
 					}
@@ -287,7 +267,7 @@ public abstract class AreaOpX {
 			for (cur = left; cur < right; cur++) {
 				e = edgelist[cur];
 				int etag;
-				int eq = e.getEquivalence();
+				int eq = edges.equivalences[e];
 				if (eq != 0) {
 //					Find one of the segments in the "equal" range
 //					with the right transition state and prefer an
@@ -298,37 +278,38 @@ public abstract class AreaOpX {
 					etag = (origstate == AreaOpX.RSTAG_INSIDE
 							? AreaOpX.ETAG_EXIT
 									: AreaOpX.ETAG_ENTER);
-					EdgeX activematch = null;
-					EdgeX longestmatch = e;
+					int activematch = -1;
+					int longestmatch = e;
 					double furthesty = yend;
 					do {
 //						Note: classify() must be called
 //						on every edge we consume here.
-						classify(e);
-						if (activematch == null &&
-								e.isActiveFor(ystart, etag))
+						classify(edges, e);
+						if (activematch == -1 &&
+								edges.isActiveFor(e, ystart, etag))
 						{
 							activematch = e;
 						}
-						y = e.getCurve().getYBot();
+						y = edges.yBot[e];
 						if (y > furthesty) {
 							longestmatch = e;
 							furthesty = y;
 						}
 					} while (++cur < right &&
-							(e = edgelist[cur]).getEquivalence() == eq);
+							edges.equivalences[e = edgelist[cur]] == eq);
 					--cur;
 					if (getState() == origstate) {
 						etag = AreaOpX.ETAG_IGNORE;
 					} else {
-						e = (activematch != null ? activematch : longestmatch);
+						e = (activematch != -1 ? activematch : longestmatch);
 					}
 				} else {
-					etag = classify(e);
+					etag = classify(edges, e);
 				}
 				if (etag != AreaOpX.ETAG_IGNORE) {
-					e.record(yend, etag);
-					links.add(new CurveLinkX(e.getCurve(), ystart, yend, etag));
+					edges.record(e, yend, etag);
+					links.add(new CurveLinkX(edges.getCurves(e),
+							edges.curveIndices[e], ystart, yend, etag));
 				}
 			}
 //			assert(getState() == AreaOp.RSTAG_OUTSIDE);
@@ -339,14 +320,14 @@ public abstract class AreaOpX {
 				System.out.println("y top = "+yrange[0]);
 				if (right < numedges) {
 					System.out.println("y top of next curve = "+
-							edgelist[right].getCurve().getYTop());
+							edges.yTop[edgelist[right]]);
 				} else {
 					System.out.println("no more curves");
 				}
 				for (cur = left; cur < right; cur++) {
 					e = edgelist[cur];
-					System.out.println(e);
-					int eq = e.getEquivalence();
+					System.out.println(edges.toString(e));
+					int eq = edges.equivalences[e];
 					if (eq != 0) {
 						System.out.println("  was equal to "+eq+"...");
 					}
@@ -364,15 +345,15 @@ public abstract class AreaOpX {
 		CurveLinkX[] linklist = subcurves.getArray();
 		for(int i = 0; i<numlinks; i++) {
 			CurveLinkX link = linklist[i];
-			ret.add(link.getMoveto());
+			link.addMoveto(ret);
 			CurveLinkX nextlink = link;
 			while ((nextlink = nextlink.getNext()) != null) {
 				if (!link.absorb(nextlink)) {
-					ret.add(link.getSubCurve());
+					link.addSubCurve(ret);
 					link = nextlink;
 				}
 			}
-			ret.add(link.getSubCurve());
+			link.addSubCurve(ret);
 		}
 		return ret;
 	}
@@ -24,7 +24,7 @@ import com.pump.geom.Intersections;
 import com.pump.geom.ShapeBounds;
 import com.pump.math.MathG;
 
-/** This is a list of <code>CurveX</code> segments that makes up the shape
+/** This is a list of curve segments that makes up the shape
  * of an <code>AreaX</code>.
  * <p>This is based on the <code>Vector</code> named "curves" in the
  * original <code>java.awt.geom.Area</code> class.  However this class
@@ -37,7 +37,9 @@ import com.pump.math.MathG;
  * <li>This object adds the concept of validation (more on this below).</li>
  * <li>This object is not synchronized.  The <code>AreaX</code> class is,
  * but this class is not.  This is for internal behind-the-scenes work:
- * it is the caller's responsibility to synchronize method calls safely.</li></ul>
+ * it is the caller's responsibility to synchronize method calls safely.
+ * Once a body is returned to other classes it is never modified, though,
+ * so several threads can read (and validate) the same body.</li></ul>
  * <h3>Validation</h3>
  * This concept is new to the <code>AreaX</code> package, but the code is
  * not new.  The original <code>Area</code> class automatically validated everything
@@ -57,7 +59,7 @@ public class AreaXBody extends CurveList {
 	
 	private Rectangle2D bounds = new Rectangle2D.Double();
 	private final AreaOpX validationOperator;
-	private AreaXBody validatedBody;
+	private volatile AreaXBody validatedBody;
 	
 	/** Used only for the merge method. */
 	private AreaXBody() {
@@ -87,8 +89,7 @@ public class AreaXBody extends CurveList {
 		int crossings = 0;
 		int size = size();
 		for(int a = 0; a<size; a++) {
-			CurveX c = elementData[a];
-			crossings += c.crossingsFor(x, y);
+			crossings += crossingsFor(a, x, y);
 		}
 		return ((crossings & 1) == 1);
 	}
@@ -198,9 +199,9 @@ public class AreaXBody extends CurveList {
 			
 			relationship = -1; //start over
 			for(int a = 0; a<elementCount; a++) {
-				if(elementData[a] instanceof Order0X) {
+				if(orders[a]==0) {
 					int newRelationship;
-					if(rhs.contains( elementData[a].getX0(), elementData[a].getY0())) {
+					if(rhs.contains( getX0(a), getY0(a))) {
 						newRelationship = AreaX.RELATIONSHIP_RHS_CONTAINS;
 					} else {
 						newRelationship = AreaX.RELATIONSHIP_NONE;
@@ -312,9 +313,9 @@ public class AreaXBody extends CurveList {
 			
 			relationship = -1; //start over
 			for(int a = 0; a<elementCount; a++) {
-				if(elementData[a] instanceof Order0X) {
+				if(orders[a]==0) {
 					int newRelationship;
-					if(rhs.contains( elementData[a].getX0(), elementData[a].getY0())) {
+					if(rhs.contains( getX0(a), getY0(a))) {
 						newRelationship = AreaX.RELATIONSHIP_RHS_CONTAINS;
 					} else {
 						newRelationship = AreaX.RELATIONSHIP_NONE;
@@ -460,12 +461,11 @@ public class AreaXBody extends CurveList {
 	
 	
 	@Override
-	protected void add(CurveX o) {
-		if(size()==0) {
-			bounds.setFrame(o.getX0(), o.getY0(), 0, 0);
+	protected void curveAdded(int index) {
+		if(index==0) {
+			bounds.setFrame(getX0(index), getY0(index), 0, 0);
 		}
-		super.add(o);
-		o.enlarge(bounds);
+		enlarge(index, bounds);
 	}
 
 
@@ -627,9 +627,65 @@ public class AreaXBody extends CurveList {
 		return bounds.intersects(x, y, w, h);
 	}
 
+	/** Returns the order of a curve in this body: 0 for a moveto, 1 for a line,
+	 * 2 for a quadratic curve and 3 for a cubic curve.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException index is out of range (index
+	 * 		  &lt; 0 || index &gt;= size()).
+	 */
+	@Override
+	public int getOrder(int index) {
+		checkIndex(index);
+		return super.getOrder(index);
+	}
+
+	/** Returns the x-value at the top of a curve in this body.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException index is out of range (index
+	 * 		  &lt; 0 || index &gt;= size()).
+	 */
+	@Override
+	public double getXTop(int index) {
+		checkIndex(index);
+		return super.getXTop(index);
+	}
+
+	/** Returns the y-value at the top of a curve in this body.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException index is out of range (index
+	 * 		  &lt; 0 || index &gt;= size()).
+	 */
 	@Override
-	public CurveX get(int index) {
-		return super.get(index);
+	public double getYTop(int index) {
+		checkIndex(index);
+		return super.getYTop(index);
+	}
+
+	/** Returns the x-value at the bottom of a curve in this body.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException index is out of range (index
+	 * 		  &lt; 0 || index &gt;= size()).
+	 */
+	@Override
+	public double getXBot(int index) {
+		checkIndex(index);
+		return super.getXBot(index);
+	}
+
+	/** Returns the y-value at the bottom of a curve in this body.
+	 * 
+	 * @exception ArrayIndexOutOfBoundsException index is out of range (index
+	 * 		  &lt; 0 || index &gt;= size()).
+	 */
+	@Override
+	public double getYBot(int index) {
+		checkIndex(index);
+		return super.getYBot(index);
+	}
+
+	private void checkIndex(int index) {
+		if (index >= elementCount)
+			throw new ArrayIndexOutOfBoundsException(index);
 	}
 
 	@Override
@@ -653,54 +709,59 @@ public class AreaXBody extends CurveList {
 			AreaXBody newBody = new AreaXBody(validationOperator, size);
 			boolean failed = false;
 			int increasing = scaleY>0 ? CurveX.INCREASING : CurveX.DECREASING;
+			double[] c = coords;
 			for(int a = 0; failed==false && a<size; a++) {
-				CurveX curve = get(a);
-				CurveX newCurve;
-				if(curve instanceof Order0X) {
-					double x0 = scaleX*curve.getX0()+translateX;
-					double y0 = scaleY*curve.getY0()+translateY;
-					newCurve = new Order0X( x0, y0);
-				} else if(curve instanceof Order1X) {
-					double x0 = scaleX*curve.getX0()+translateX;
-					double y0 = scaleY*curve.getY0()+translateY;
-					double x1 = scaleX*curve.getX1()+translateX;
-					double y1 = scaleY*curve.getY1()+translateY;
-					if(curve.getDirection()==increasing) {
-						newCurve = new Order1X( x0, y0, x1, y1, curve.getDirection());
-					} else {
-						newCurve = new Order1X( x1, y1, x0, y0, curve.getDirection());
-					}
-				} else if(curve instanceof Order2X) {
-					Order2X quad = (Order2X)curve;
-					double x0 = scaleX*curve.getX0()+translateX;
-					double y0 = scaleY*curve.getY0()+translateY;
-					double cx0 = scaleX*quad.getCX0()+translateX;
-					double cy0 = scaleY*quad.getCY0()+translateY;
-					double x1 = scaleX*curve.getX1()+translateX;
-					double y1 = scaleY*curve.getY1()+translateY;
-					if(curve.getDirection()==increasing) {
-						newCurve = new Order2X( x0, y0, cx0, cy0, x1, y1, curve.getDirection());
+				int order = orders[a];
+				int direction = directions[a];
+				int o = a*COORDS_PER_CURVE;
+				//the coordinates of the new curve, in the order they are traced
+				double x0, y0, cx0 = 0, cy0 = 0, cx1 = 0, cy1 = 0, x1, y1;
+				if(direction==CurveX.INCREASING) {
+					x0 = c[o];
+					y0 = c[o+1];
+					x1 = c[o+6];
+					y1 = c[o+7];
+				} else {
+					x0 = c[o+6];
+					y0 = c[o+7];
+					x1 = c[o];
+					y1 = c[o+1];
+				}
+				boolean wasHorizontal = y0==y1;
+				x0 = scaleX*x0+translateX;
+				y0 = scaleY*y0+translateY;
+				x1 = scaleX*x1+translateX;
+				y1 = scaleY*y1+translateY;
+				if(order==2) {
+					cx0 = scaleX*c[o+2]+translateX;
+					cy0 = scaleY*c[o+3]+translateY;
+				} else if(order==3) {
+					int first = direction==CurveX.INCREASING ? 2 : 4;
+					cx0 = scaleX*c[o+first]+translateX;
+					cy0 = scaleY*c[o+first+1]+translateY;
+					cx1 = scaleX*c[o+6-first]+translateX;
+					cy1 = scaleY*c[o+7-first]+translateY;
+				}
+				if(order==0) {
+					newBody.addMove( x0, y0);
+				} else if(direction==increasing) {
+					if(order==1) {
+						newBody.addLine( x0, y0, x1, y1, direction);
+					} else if(order==2) {
+						newBody.addQuad( x0, y0, cx0, cy0, x1, y1, direction);
 					} else {
-						newCurve = new Order2X( x1, y1, cx0, cy0, x0, y0, curve.getDirection());
+						newBody.addCubic( x0, y0, cx0, cy0, cx1, cy1, x1, y1, direction);
 					}
-				} else { //if(curve instanceof Order3X) {
-					Order3X cubic = (Order3X)curve;
-					double x0 = scaleX*curve.getX0()+translateX;
-					double y0 = scaleY*curve.getY0()+translateY;
-					double cx0 = scaleX*cubic.getCX0()+translateX;
-					double cy0 = scaleY*cubic.getCY0()+translateY;
-					double cx1 = scaleX*cubic.getCX1()+translateX;
-					double cy1 = scaleY*cubic.getCY1()+translateY;
-					double x1 = scaleX*curve.getX1()+translateX;
-					double y1 = scaleY*curve.getY1()+translateY;
-					if(curve.getDirection()==increasing) {
-						newCurve = new Order3X( x0, y0, cx0, cy0, cx1, cy1, x1, y1, curve.getDirection());
+				} else {
+					if(order==1) {
+						newBody.addLine( x1, y1, x0, y0, direction);
+					} else if(order==2) {
+						newBody.addQuad( x1, y1, cx0, cy0, x0, y0, direction);
 					} else {
-						newCurve = new Order3X( x1, y1, cx1, cy1, cx0, cy0, x0, y0, curve.getDirection());
+						newBody.addCubic( x1, y1, cx1, cy1, cx0, cy0, x0, y0, direction);
 					}
 				}
-				if( (newCurve.getY0()==newCurve.getY1()) !=
-					(curve.getY0()==curve.getY1())) {
+				if( (newBody.getY0(a)==newBody.getY1(a)) != wasHorizontal) {
 					/** This can happen as a rare result
 					 * of computer error when multiplying.
 					 * 
@@ -711,7 +772,6 @@ public class AreaXBody extends CurveList {
 					 */
 					failed = true;
 				}
-				newBody.add(newCurve);
 			}
 			if(!failed) {
 				return newBody;
@@ -786,15 +846,9 @@ public class AreaXBody extends CurveList {
 		AreaXBody lhs = this.validate();
 		rhs = rhs.validate();
 		
-		int lhSize = lhs.size();
-		int rhSize = rhs.size();
-		newBody.ensureCapacity(lhSize+rhSize);
-		for(int a = 0; a<lhSize; a++) {
-			newBody.add(lhs.elementData[a]);
-		}
-		for(int a = 0; a<rhSize; a++) {
-			newBody.add(rhs.elementData[a]);
-		}
+		newBody.ensureCapacity(lhs.size()+rhs.size());
+		newBody.addAll(lhs);
+		newBody.addAll(rhs);
 		return newBody;
 	}
 
@@ -820,14 +874,9 @@ public class AreaXBody extends CurveList {
 			}
 		}
 		newBody.ensureCapacity(lhSize+rhSize);
-		for(int a = 0; a<lhSize; a++) {
-			newBody.add(lhs.elementData[a]);
-		}
+		newBody.addAll(lhs);
 		for(int a = startIndex; a<=endIndex; a++) {
-			AreaXBody t = (AreaXBody)rhs.get(a);
-			for(int b = 0; b<t.elementCount; b++) {
-				newBody.add(t.elementData[b]);
-			}
+			newBody.addAll((AreaXBody)rhs.get(a));
 		}
 		return newBody;
 	}
@@ -946,8 +995,10 @@ class AreaXIterator implements  PathIterator {
 	private AffineTransform transform;
 	protected AreaXBody curves;
 	private int index;
-	private CurveX prevcurve;
-	private CurveX curve;
+	/** The index of the previous curve, or -1. */
+	private int prevcurve = -1;
+	/** The index of the current curve, or -1. */
+	private int curve = -1;
 
 	/** This creates an empty iterator.  This is generally useless
 	 * unless you call <code>reset()</code> to define a body to
@@ -967,11 +1018,11 @@ class AreaXIterator implements  PathIterator {
 		this.curves = curves;
 		this.transform = at;
 		if (curves.size() >= 1) {
-			curve = curves.get(0);
+			curve = 0;
 		} else {
-			curve = null;
+			curve = -1;
 		}
-		prevcurve = null;
+		prevcurve = -1;
 		index = 0;
 	}
 
@@ -983,24 +1034,24 @@ class AreaXIterator implements  PathIterator {
 	}
 
 	public boolean isDone() {
-		return (prevcurve == null && curve == null);
+		return (prevcurve == -1 && curve == -1);
 	}
 
 	public void next() {
-		if (prevcurve != null) {
-			prevcurve = null;
+		if (prevcurve != -1) {
+			prevcurve = -1;
 		} else {
 			prevcurve = curve;
 			index++;
 			if (index < curves.size()) {
-				curve = curves.get(index);
-				if (curve.getOrder() != 0
-						&& prevcurve.getX1() == curve.getX0()
-						&& prevcurve.getY1() == curve.getY0()) {
-					prevcurve = null;
+				curve = index;
+				if (curves.getOrder(curve) != 0
+						&& curves.getX1(prevcurve) == curves.getX0(curve)
+						&& curves.getY1(prevcurve) == curves.getY0(curve)) {
+					prevcurve = -1;
 				}
 			} else {
-				curve = null;
+				curve = -1;
 			}
 		}
 	}
@@ -1020,21 +1071,21 @@ class AreaXIterator implements  PathIterator {
 	public int currentSegment(double coords[]) {
 		int segtype;
 		int numpoints;
-		if (prevcurve != null) {
+		if (prevcurve != -1) {
 //			Need to finish off junction between curves
-			if (curve == null || curve.getOrder() == 0) {
+			if (curve == -1 || curves.getOrder(curve) == 0) {
 				return SEG_CLOSE;
 			}
-			coords[0] = curve.getX0();
-			coords[1] = curve.getY0();
+			coords[0] = curves.getX0(curve);
+			coords[1] = curves.getY0(curve);
 			segtype = SEG_LINETO;
 			numpoints = 1;
-		} else if (curve == null) {
+		} else if (curve == -1) {
 			throw new NoSuchElementException(
 			"area iterator out of bounds");
 		} else {
-			segtype = curve.getSegment(coords);
-			numpoints = curve.getOrder();
+			segtype = curves.getSegment(curve, coords);
+			numpoints = curves.getOrder(curve);
 			if (numpoints == 0) {
 				numpoints = 1;
 			}
@@ -65,9 +65,9 @@ public abstract class CrossingsX {
 			double xhi, double yhi)
 	{
 		CrossingsX cross = new EvenOdd(xlo, ylo, xhi, yhi);
-		for(int a = 0; a<body.size(); a++) {
-			CurveX c = body.get(a);
-			if (c.accumulateCrossings(cross)) {
+		int size = body.size();
+		for(int a = 0; a<size; a++) {
+			if (body.accumulateCrossings(a, cross)) {
 				return null;
 			}
 		}
@@ -241,8 +241,7 @@ public abstract class CrossingsX {
 		}
 		CurveX.insertQuad(tmp, x0, y0, coords);
 		for(int a = 0; a<tmp.size(); a++) {
-			CurveX c = tmp.get(a);
-			if (c.accumulateCrossings(this)) {
+			if (tmp.accumulateCrossings(a, this)) {
 				return true;
 			}
 		}
@@ -278,8 +277,7 @@ public abstract class CrossingsX {
 		}
 		CurveX.insertCubic(tmp, x0, y0, coords);
 		for(int a = 0; a<tmp.size(); a++) {
-			CurveX c = tmp.get(a);
-			if (c.accumulateCrossings(this)) {
+			if (tmp.accumulateCrossings(a, this)) {
 				return true;
 			}
 		}
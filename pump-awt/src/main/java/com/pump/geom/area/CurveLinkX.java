@@ -11,35 +11,37 @@
 package com.pump.geom.area;
 
 final class CurveLinkX {
-	CurveX curve;
+	CurveList curves;
+	int index;
 	double ytop;
 	double ybot;
 	int etag;
 
 	CurveLinkX next;
 
-	public CurveLinkX(CurveX curve, double ystart, double yend, int etag) {
-		this.curve = curve;
+	public CurveLinkX(CurveList curves, int index, double ystart, double yend, int etag) {
+		this.curves = curves;
+		this.index = index;
 		this.ytop = ystart;
 		this.ybot = yend;
 		this.etag = etag;
-		if (ytop < curve.getYTop() || ybot > curve.getYBot()) {
-			throw new InternalError("bad curvelink ["+ytop+"=>"+ybot+"] for "+curve);
+		if (ytop < curves.getYTop(index) || ybot > curves.getYBot(index)) {
+			throw new InternalError("bad curvelink ["+ytop+"=>"+ybot+"] for "+curves.toString(index));
 		}
 	}
 
 	public boolean absorb(CurveLinkX link) {
-		return absorb(link.curve, link.ytop, link.ybot, link.etag);
+		return absorb(link.curves, link.index, link.ytop, link.ybot, link.etag);
 	}
 
-	public boolean absorb(CurveX curve, double ystart, double yend, int etag) {
-		if (this.curve != curve || this.etag != etag ||
+	public boolean absorb(CurveList curves, int index, double ystart, double yend, int etag) {
+		if (this.curves != curves || this.index != index || this.etag != etag ||
 				ybot < ystart || ytop > yend)
 		{
 			return false;
 		}
-		if (ystart < curve.getYTop() || yend > curve.getYBot()) {
-			throw new InternalError("bad curvelink ["+ystart+"=>"+yend+"] for "+curve);
+		if (ystart < curves.getYTop(index) || yend > curves.getYBot(index)) {
+			throw new InternalError("bad curvelink ["+ystart+"=>"+yend+"] for "+curves.toString(index));
 		}
 		this.ytop = Math.min(ytop, ystart);
 		this.ybot = Math.max(ybot, yend);
@@ -50,23 +52,22 @@ final class CurveLinkX {
 		return (ytop == ybot);
 	}
 
-	public CurveX getCurve() {
-		return curve;
-	}
-
-	public CurveX getSubCurve() {
-		if (ytop == curve.getYTop() && ybot == curve.getYBot()) {
-			return curve.getWithDirection(etag);
+	/** Append the section of the curve this link covers to a list. */
+	public void addSubCurve(CurveList dest) {
+		if (ytop == curves.getYTop(index) && ybot == curves.getYBot(index)) {
+			dest.add(curves, index, etag);
+		} else {
+			dest.addSubCurve(curves, index, ytop, ybot, etag);
 		}
-		return curve.getSubCurve(ytop, ybot, etag);
 	}
 
-	public CurveX getMoveto() {
-		return new Order0X(getXTop(), getYTop());
+	/** Append a moveto to the top of this link to a list. */
+	public void addMoveto(CurveList dest) {
+		dest.addMove(getXTop(), getYTop());
 	}
 
 	public double getXTop() {
-		return curve.XforY(ytop);
+		return curves.XforY(index, ytop);
 	}
 
 	public double getYTop() {
@@ -74,7 +75,7 @@ final class CurveLinkX {
 	}
 
 	public double getXBot() {
-		return curve.XforY(ybot);
+		return curves.XforY(index, ybot);
 	}
 
 	public double getYBot() {
@@ -82,7 +83,7 @@ final class CurveLinkX {
 	}
 
 	public double getX() {
-		return curve.XforY(ytop);
+		return curves.XforY(index, ytop);
 	}
 
 	public int getEdgeTag() {
@@ -10,56 +10,76 @@
  */
 package com.pump.geom.area;
 
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+
+/** A list of curves that are monotonic in y.
+ * <p>The curves are not stored as objects: each curve is an index into
+ * parallel arrays of primitives. The coordinates of a curve occupy
+ * <code>COORDS_PER_CURVE</code> consecutive elements of <code>coords</code>,
+ * always ordered from the top of the curve to its bottom:
+ * <code>x0, y0, cx0, cy0, cx1, cy1, x1, y1</code>. Lines leave the control
+ * points unused, quadratic curves only use <code>cx0</code> and <code>cy0</code>,
+ * and a moveto stores its point as both its top and its bottom.
+ * <p>The math for each order lives in <code>Order1X</code>, <code>Order2X</code>
+ * and <code>Order3X</code>; the methods here dispatch to them.
+ */
 abstract class CurveList {
 
-	private static CurveX[] emptyCurves = new CurveX[0];
-	
+	static final int COORDS_PER_CURVE = 8;
+
+	private static double[] emptyCoords = new double[0];
+	private static byte[] emptyOrders = new byte[0];
+	private static int[] emptyDirections = new int[0];
+
+	/**
+	 * The coordinates of all the curves in this list. The coordinates of
+	 * curve <code>i</code> start at <code>i*COORDS_PER_CURVE</code>.
+	 */
+	protected double[] coords;
+
 	/**
-	 * The array buffer into which the components of the list are
-	 * stored. The capacity of the list is the length of this array buffer, 
-	 * and is at least large enough to contain all the list elements.<p>
-	 * This array must be of type <code>type</code>.<p>
-	 * Any array elements following the last element in the list are null.
-	 */
-	protected CurveX[] elementData;
-	
+	 * The order of each curve: 0 (a moveto), 1 (a line), 2 (a quadratic
+	 * curve) or 3 (a cubic curve).
+	 */
+	protected byte[] orders;
+
 	/**
-	 * The number of valid components in this list. 
-	 * Components <tt>elementData[0]</tt> through 
-	 * <tt>elementData[elementCount-1]</tt> are the actual items.
+	 * The direction of each curve: either <code>CurveX.INCREASING</code>
+	 * or <code>CurveX.DECREASING</code>.
+	 */
+	protected int[] directions;
+
+	/**
+	 * The number of curves in this list.
 	 */
 	protected int elementCount;
-	
-	private static final long serialVersionUID = 1;
 
-	
 	/**
 	 * Constructs an empty list with the specified initial capacity.
 	 *
-	 * @param   type                the type of the array this list uses.
 	 * @param   initialCapacity     the initial capacity of the list.
-	 * @exception IllegalArgumentException if the specified initial capacity
+	 * @exception NegativeArraySizeException if the specified initial capacity
 	 *               is negative
 	 */
 	protected CurveList(int initialCapacity) {
 		if(initialCapacity==0) {
-			this.elementData = emptyCurves;
+			coords = emptyCoords;
+			orders = emptyOrders;
+			directions = emptyDirections;
 		} else {
-			this.elementData = new CurveX[initialCapacity];
+			coords = new double[initialCapacity*COORDS_PER_CURVE];
+			orders = new byte[initialCapacity];
+			directions = new int[initialCapacity];
 		}
 	}
 
 	/**
-	 * Increases the capacity of this list, if necessary, to ensure 
-	 * that it can hold at least the number of components specified by 
+	 * Increases the capacity of this list, if necessary, to ensure
+	 * that it can hold at least the number of curves specified by
 	 * the minimum capacity argument.
 	 *
-	 * <p>If the current capacity of this list is less than
-	 * <tt>minCapacity</tt>, then its capacity is increased by replacing its
-	 * internal data array, kept in the field <tt>elementData</tt>, with a
-	 * larger one.  The size of the new data array will be the old size plus
-	 * <tt>capacityIncrement</tt>, unless the value of
-	 * <tt>capacityIncrement</tt> is less than or equal to zero, in which case
+	 * <p>If the current capacity is less than <tt>minCapacity</tt> then
 	 * the new capacity will be twice the old capacity; but if this new size
 	 * is still smaller than <tt>minCapacity</tt>, then the new capacity will
 	 * be <tt>minCapacity</tt>.
@@ -67,62 +87,429 @@ abstract class CurveList {
 	 * @param minCapacity the desired minimum capacity.
 	 */
 	protected void ensureCapacity(int minCapacity) {
-		int oldCapacity = elementData.length;
+		int oldCapacity = orders.length;
 		if (minCapacity > oldCapacity) {
-			Object oldData[] = elementData;
 			int newCapacity = (oldCapacity * 2);
 			if (newCapacity < minCapacity) {
 				newCapacity = minCapacity;
 			}
 			if(newCapacity<4) newCapacity = 4;
-			
-			elementData = new CurveX[newCapacity];
-			System.arraycopy(oldData, 0, elementData, 0, elementCount);
+
+			double[] newCoords = new double[newCapacity*COORDS_PER_CURVE];
+			System.arraycopy(coords, 0, newCoords, 0, elementCount*COORDS_PER_CURVE);
+			coords = newCoords;
+
+			byte[] newOrders = new byte[newCapacity];
+			System.arraycopy(orders, 0, newOrders, 0, elementCount);
+			orders = newOrders;
+
+			int[] newDirections = new int[newCapacity];
+			System.arraycopy(directions, 0, newDirections, 0, elementCount);
+			directions = newDirections;
 		}
 	}
 
 	/**
-	 * Returns the number of components in this list.
+	 * Returns the number of curves in this list.
 	 *
-	 * @return  the number of components in this list.
+	 * @return  the number of curves in this list.
 	 */
 	protected int size() {
 		return elementCount;
 	}
 
 	/**
-	 * Returns the element at the specified position in this list.
+	 * Tests if this list has no curves.
+	 *
+	 * @return  <code>true</code> if and only if this list has
+	 *          no curves, that is, its size is zero;
+	 *          <code>false</code> otherwise.
+	 */
+	protected boolean isEmpty() {
+		return elementCount == 0;
+	}
+
+	/** This is called after a curve is appended to this list.
 	 *
-	 * @param index index of the element to return.
-	 * @return object at the specified index
-	 * @exception ArrayIndexOutOfBoundsException index is out of range (index
-	 * 		  &lt; 0 || index &gt;= size()).
+	 * @param index the index of the new curve.
 	 */
-	protected CurveX get(int index) {
-		if (index >= elementCount)
-			throw new ArrayIndexOutOfBoundsException(index);
+	protected void curveAdded(int index) {}
 
-		return elementData[index];
+	/** Appends a curve with the given order and direction and returns the
+	 * offset its coordinates should be stored at.
+	 */
+	private int append(int order,int direction) {
+		ensureCapacity(elementCount + 1);
+		orders[elementCount] = (byte)order;
+		directions[elementCount] = direction;
+		return (elementCount++)*COORDS_PER_CURVE;
 	}
 
-	/**
-	 * Tests if this list has no components.
+	/** Appends a moveto. */
+	protected void addMove(double x,double y) {
+		int o = append(0, CurveX.INCREASING);
+		coords[o] = coords[o+6] = x;
+		coords[o+1] = coords[o+7] = y;
+		curveAdded(elementCount-1);
+	}
+
+	/** Appends a line from (x0, y0) at the top to (x1, y1) at the bottom. */
+	protected void addLine(double x0, double y0,
+			double x1, double y1,
+			int direction) {
+		int o = append(1, direction);
+		coords[o] = x0;
+		coords[o+1] = y0;
+		coords[o+6] = x1;
+		coords[o+7] = y1;
+		curveAdded(elementCount-1);
+	}
+
+	/** Appends a quadratic curve from (x0, y0) at the top to (x1, y1) at
+	 * the bottom.
+	 */
+	protected void addQuad(double x0, double y0,
+			double cx0, double cy0,
+			double x1, double y1,
+			int direction) {
+//		REMIND: Better accuracy in the root finding methods would
+//		ensure that cy0 is in range.  As it stands, it is never
+//		more than "1 mantissa bit" out of range...
+		if (cy0 < y0) {
+			cy0 = y0;
+		} else if (cy0 > y1) {
+			cy0 = y1;
+		}
+		int o = append(2, direction);
+		coords[o] = x0;
+		coords[o+1] = y0;
+		coords[o+2] = cx0;
+		coords[o+3] = cy0;
+		coords[o+6] = x1;
+		coords[o+7] = y1;
+		curveAdded(elementCount-1);
+	}
+
+	/** Appends a cubic curve from (x0, y0) at the top to (x1, y1) at
+	 * the bottom.
+	 */
+	protected void addCubic(double x0, double y0,
+			double cx0, double cy0,
+			double cx1, double cy1,
+			double x1, double y1,
+			int direction) {
+//		REMIND: Better accuracy in the root finding methods would
+//		ensure that cys are in range.  As it stands, they are never
+//		more than "1 mantissa bit" out of range...
+		if (cy0 < y0) cy0 = y0;
+		if (cy1 > y1) cy1 = y1;
+		int o = append(3, direction);
+		coords[o] = x0;
+		coords[o+1] = y0;
+		coords[o+2] = cx0;
+		coords[o+3] = cy0;
+		coords[o+4] = cx1;
+		coords[o+5] = cy1;
+		coords[o+6] = x1;
+		coords[o+7] = y1;
+		curveAdded(elementCount-1);
+	}
+
+	/** Appends a copy of a curve from another list with the given direction. */
+	protected void add(CurveList src,int index,int direction) {
+		int o = append(src.orders[index], direction);
+		System.arraycopy(src.coords, index*COORDS_PER_CURVE, coords, o, COORDS_PER_CURVE);
+		curveAdded(elementCount-1);
+	}
+
+	/** Appends a copy of every curve in another list. */
+	protected void addAll(CurveList src) {
+		int start = elementCount;
+		int count = src.elementCount;
+		ensureCapacity(start + count);
+		System.arraycopy(src.coords, 0, coords, start*COORDS_PER_CURVE, count*COORDS_PER_CURVE);
+		System.arraycopy(src.orders, 0, orders, start, count);
+		System.arraycopy(src.directions, 0, directions, start, count);
+		elementCount += count;
+		for(int a = start; a<elementCount; a++) {
+			curveAdded(a);
+		}
+	}
+
+	/** Appends the section of a curve from another list between
+	 * <code>ystart</code> and <code>yend</code>.
+	 */
+	protected void addSubCurve(CurveList src,int index,double ystart,double yend,int direction) {
+		int o = index*COORDS_PER_CURVE;
+		switch(src.orders[index]) {
+		case 0:
+			add(src, index, direction);
+			break;
+		case 1:
+			Order1X.addSubCurve(this, src.coords, o, ystart, yend, direction);
+			break;
+		case 2:
+			Order2X.addSubCurve(this, src.coords, o, ystart, yend, direction);
+			break;
+		default:
+			Order3X.addSubCurve(this, src, index, ystart, yend, direction);
+		}
+	}
+
+	int getOrder(int index) {
+		return orders[index];
+	}
+
+	int getDirection(int index) {
+		return directions[index];
+	}
+
+	double getXTop(int index) {
+		return coords[index*COORDS_PER_CURVE];
+	}
+
+	double getYTop(int index) {
+		return coords[index*COORDS_PER_CURVE+1];
+	}
+
+	double getXBot(int index) {
+		return coords[index*COORDS_PER_CURVE+6];
+	}
+
+	double getYBot(int index) {
+		return coords[index*COORDS_PER_CURVE+7];
+	}
+
+	double getXMin(int index) {
+		double[] c = coords;
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			return c[o];
+		case 1:
+			return (c[o] < c[o+6]) ? c[o] : c[o+6];
+		case 2:
+			return Math.min(Math.min(c[o], c[o+6]), c[o+2]);
+		default:
+			return Math.min(Math.min(c[o], c[o+6]), Math.min(c[o+2], c[o+4]));
+		}
+	}
+
+	double getXMax(int index) {
+		double[] c = coords;
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			return c[o];
+		case 1:
+			return (c[o] < c[o+6]) ? c[o+6] : c[o];
+		case 2:
+			return Math.max(Math.max(c[o], c[o+6]), c[o+2]);
+		default:
+			return Math.max(Math.max(c[o], c[o+6]), Math.max(c[o+2], c[o+4]));
+		}
+	}
+
+	/** Returns the x-value this curve starts at (which is its top if it is increasing). */
+	double getX0(int index) {
+		return coords[index*COORDS_PER_CURVE + (directions[index] == CurveX.INCREASING ? 0 : 6)];
+	}
+
+	/** Returns the y-value this curve starts at (which is its top if it is increasing). */
+	double getY0(int index) {
+		return coords[index*COORDS_PER_CURVE + (directions[index] == CurveX.INCREASING ? 1 : 7)];
+	}
+
+	/** Returns the x-value this curve ends at (which is its bottom if it is increasing). */
+	double getX1(int index) {
+		return coords[index*COORDS_PER_CURVE + (directions[index] == CurveX.DECREASING ? 0 : 6)];
+	}
+
+	/** Returns the y-value this curve ends at (which is its bottom if it is increasing). */
+	double getY1(int index) {
+		return coords[index*COORDS_PER_CURVE + (directions[index] == CurveX.DECREASING ? 1 : 7)];
+	}
+
+	double XforY(int index, double y) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			return coords[o];
+		case 1:
+			return Order1X.XforY(coords, o, y);
+		case 2:
+			return Order2X.XforY(coords, o, y);
+		default:
+			return Order3X.XforY(this, index, y);
+		}
+	}
+
+	/** Return the parametric value of a curve at a given y-value.
+	 * <p>Solving a cubic curve is expensive, so <code>RootCachingCurveList</code>
+	 * overrides this to remember recent solutions.
+	 */
+	double TforY(int index, double y) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			return 0;
+		case 1:
+			return Order1X.TforY(coords, o, y);
+		case 2:
+			return Order2X.TforY(coords, o, y);
+		default:
+			return Order3X.TforY(coords, o, y);
+		}
+	}
+
+	double XforT(int index, double t) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			return coords[o];
+		case 1:
+			return Order1X.XforT(coords, o, t);
+		case 2:
+			return Order2X.XforT(coords, o, t);
+		default:
+			return Order3X.XforT(coords, o, t);
+		}
+	}
+
+	double YforT(int index, double t) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			return coords[o+1];
+		case 1:
+			return Order1X.YforT(coords, o, t);
+		case 2:
+			return Order2X.YforT(coords, o, t);
+		default:
+			return Order3X.YforT(coords, o, t);
+		}
+	}
+
+	double nextVertical(int index, double t0, double t1) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 2:
+			return Order2X.nextVertical(coords, o, t0, t1);
+		case 3:
+			return Order3X.nextVertical(coords, o, t0, t1);
+		default:
+			return t1;
+		}
+	}
+
+	void enlarge(int index, Rectangle2D r) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			r.add(coords[o], coords[o+1]);
+			break;
+		case 1:
+			r.add(coords[o], coords[o+1]);
+			r.add(coords[o+6], coords[o+7]);
+			break;
+		case 2:
+			Order2X.enlarge(coords, o, r);
+			break;
+		default:
+			Order3X.enlarge(coords, o, r);
+		}
+	}
+
+	/** Stores the coordinates of a curve the way
+	 * <code>PathIterator.currentSegment()</code> does.
 	 *
-	 * @return  <code>true</code> if and only if this list has 
-	 *          no components, that is, its size is zero;
-	 *          <code>false</code> otherwise.
+	 * @return the <code>PathIterator</code> segment type.
 	 */
-	protected boolean isEmpty() {
-		return elementCount == 0;
+	int getSegment(int index, double dest[]) {
+		int o = index*COORDS_PER_CURVE;
+		int direction = directions[index];
+		switch(orders[index]) {
+		case 0:
+			dest[0] = coords[o];
+			dest[1] = coords[o+1];
+			return PathIterator.SEG_MOVETO;
+		case 1:
+			if (direction == CurveX.INCREASING) {
+				dest[0] = coords[o+6];
+				dest[1] = coords[o+7];
+			} else {
+				dest[0] = coords[o];
+				dest[1] = coords[o+1];
+			}
+			return PathIterator.SEG_LINETO;
+		case 2:
+			return Order2X.getSegment(coords, o, direction, dest);
+		default:
+			return Order3X.getSegment(coords, o, direction, dest);
+		}
 	}
 
-	/**
-	 * Appends the specified element to the end of this list.
+	int crossingsFor(int index, double x, double y) {
+		if (orders[index] == 0) {
+			return 0;
+		}
+		if (y >= getYTop(index) && y < getYBot(index)) {
+			if (x < getXMax(index) && (x < getXMin(index) || x < XforY(index, y))) {
+				return 1;
+			}
+		}
+		return 0;
+	}
+
+	boolean accumulateCrossings(int index, CrossingsX c) {
+		int o = index*COORDS_PER_CURVE;
+		switch(orders[index]) {
+		case 0:
+			double x = coords[o];
+			double y = coords[o+1];
+			return (x > c.getXLo() &&
+					x < c.getXHi() &&
+					y > c.getYLo() &&
+					y < c.getYHi());
+		case 1:
+			return Order1X.accumulateCrossings(coords, o, directions[index], c);
+		default:
+			return CurveX.accumulateCrossings(this, index, c);
+		}
+	}
+
+	/** Compares a curve in this list with a curve in another list over a
+	 * range of y-values.
 	 *
-	 * @param o element to be appended to this list.
+	 * @see CurveX#compareTo(CurveList, int, CurveList, int, double[])
 	 */
-	protected void add(CurveX o) {
-		ensureCapacity(elementCount + 1);
-		elementData[elementCount++] = o;
+	int compareTo(int index, CurveList that, int thatIndex, double yrange[]) {
+		if (orders[index] == 1 && that.orders[thatIndex] == 1) {
+			return Order1X.compareTo(coords, index*COORDS_PER_CURVE,
+					that.coords, thatIndex*COORDS_PER_CURVE, yrange);
+		}
+		return CurveX.compareTo(this, index, that, thatIndex, yrange);
+	}
+
+	String toString(int index) {
+		int o = index*COORDS_PER_CURVE;
+		String controlPoints;
+		if (orders[index] == 2) {
+			controlPoints = "("+coords[o+2]+", "+coords[o+3]+"), ";
+		} else if (orders[index] == 3) {
+			int first = directions[index] == CurveX.INCREASING ? 2 : 4;
+			int second = 6 - first;
+			controlPoints = "("+coords[o+first]+", "+coords[o+first+1]+"), "+
+					"("+coords[o+second]+", "+coords[o+second+1]+"), ";
+		} else {
+			controlPoints = "";
+		}
+		return ("Curve["+
+				orders[index]+", "+
+				("("+getX0(index)+", "+getY0(index)+"), ")+
+				controlPoints+
+				("("+getX1(index)+", "+getY1(index)+"), ")+
+				(directions[index] == CurveX.INCREASING ? "D" : "U")+
+		"]");
 	}
 }
\ No newline at end of file
@@ -12,16 +12,20 @@ package com.pump.geom.area;
 
 import java.awt.geom.IllegalPathStateException;
 import java.awt.geom.PathIterator;
-import java.awt.geom.Rectangle2D;
 
-public abstract class CurveX {
+/** Constants and static methods for the curves stored in a
+ * <code>CurveList</code>.
+ * <p>Curves are not represented by objects: the methods that operate on a
+ * curve take its list and its index in that list.
+ */
+public final class CurveX {
 	public static final int INCREASING = 1;
 	public static final int DECREASING = -1;
 
-	protected int direction;
+	private CurveX() {}
 
 	public static void insertMove(AreaXBody curves, double x, double y) {
-		curves.add(new Order0X(x, y));
+		curves.addMove(x, y);
 	}
 
 	public static void insertLine(AreaXBody curves,
@@ -29,13 +33,13 @@ public abstract class CurveX {
 			double x1, double y1)
 	{
 		if (y0 < y1) {
-			curves.add(new Order1X(x0, y0,
+			curves.addLine(x0, y0,
 					x1, y1,
-					INCREASING));
+					INCREASING);
 		} else if (y0 > y1) {
-			curves.add(new Order1X(x1, y1,
+			curves.addLine(x1, y1,
 					x0, y0,
-					DECREASING));
+					DECREASING);
 		} else {
 //			Do not add horizontal lines
 		}
@@ -694,18 +698,6 @@ public abstract class CurveX {
 		return crossings;
 	}
 
-	public CurveX(int direction) {
-		this.direction = direction;
-	}
-
-	public final int getDirection() {
-		return direction;
-	}
-
-	public final CurveX getWithDirection(int direction) {
-		return (this.direction == direction ? this : getReversedCurve());
-	}
-
 	public static double round(double v) {
 //		return Math.rint(v*10)/10;
 		return v;
@@ -735,71 +727,30 @@ public abstract class CurveX {
 		return Double.longBitsToDouble(Double.doubleToLongBits(v)+1);
 	}
 
-	@Override
-	public String toString() {
-		return ("Curve["+
-				getOrder()+", "+
-				("("+round(getX0())+", "+round(getY0())+"), ")+
-				controlPointString()+
-				("("+round(getX1())+", "+round(getY1())+"), ")+
-				(direction == INCREASING ? "D" : "U")+
-		"]");
-	}
-
-	public String controlPointString() {
-		return "";
-	}
-
-	public abstract int getOrder();
-
-	public abstract double getXTop();
-	public abstract double getYTop();
-	public abstract double getXBot();
-	public abstract double getYBot();
-
-	public abstract double getXMin();
-	public abstract double getXMax();
-
-	public abstract double getX0();
-	public abstract double getY0();
-	public abstract double getX1();
-	public abstract double getY1();
-
-	public abstract double XforY(double y);
-	public abstract double TforY(double y);
-	public abstract double XforT(double t);
-	public abstract double YforT(double t);
-	public abstract double dXforT(double t, int deriv);
-	public abstract double dYforT(double t, int deriv);
-
-	public abstract double nextVertical(double t0, double t1);
-
-	public int crossingsFor(double x, double y) {
-		if (y >= getYTop() && y < getYBot()) {
-			if (x < getXMax() && (x < getXMin() || x < XforY(y))) {
-				return 1;
-			}
-		}
-		return 0;
-	}
-
-	public boolean accumulateCrossings(CrossingsX c) {
+	/**
+	 * Accumulate the crossings of a curve with the shadow extending to the
+	 * right of the rectangle of a <code>CrossingsX</code>.
+	 *
+	 * @return true if the curve passes through the interior of the
+	 * rectangle.
+	 */
+	static boolean accumulateCrossings(CurveList curves, int index, CrossingsX c) {
 		double xhi = c.getXHi();
-		if (getXMin() >= xhi) {
+		if (curves.getXMin(index) >= xhi) {
 			return false;
 		}
 		double xlo = c.getXLo();
 		double ylo = c.getYLo();
 		double yhi = c.getYHi();
-		double y0 = getYTop();
-		double y1 = getYBot();
+		double y0 = curves.getYTop(index);
+		double y1 = curves.getYBot(index);
 		double tstart, ystart, tend, yend;
 		if (y0 < ylo) {
 			if (y1 <= ylo) {
 				return false;
 			}
 			ystart = ylo;
-			tstart = TforY(ylo);
+			tstart = curves.TforY(index, ylo);
 		} else {
 			if (y0 >= yhi) {
 				return false;
@@ -809,7 +760,7 @@ public abstract class CurveX {
 		}
 		if (y1 > yhi) {
 			yend = yhi;
-			tend = TforY(yhi);
+			tend = curves.TforY(index, yhi);
 		} else {
 			yend = y1;
 			tend = 1;
@@ -817,7 +768,7 @@ public abstract class CurveX {
 		boolean hitLo = false;
 		boolean hitHi = false;
 		while (true) {
-			double x = XforT(tstart);
+			double x = curves.XforT(index, tstart);
 			if (x < xhi) {
 				if (hitHi || x > xlo) {
 					return true;
@@ -832,45 +783,44 @@ public abstract class CurveX {
 			if (tstart >= tend) {
 				break;
 			}
-			tstart = nextVertical(tstart, tend);
+			tstart = curves.nextVertical(index, tstart, tend);
 		}
 		if (hitLo) {
-			c.record(ystart, yend, direction);
+			c.record(ystart, yend, curves.getDirection(index));
 		}
 		return false;
 	}
 
-	public abstract void enlarge(Rectangle2D r);
-
-	public CurveX getSubCurve(double ystart, double yend) {
-		return getSubCurve(ystart, yend, direction);
-	}
-
-	public abstract CurveX getReversedCurve();
-	public abstract CurveX getSubCurve(double ystart, double yend, int dir);
-
-	public int compareTo(CurveX that, double yrange[]) {
+	/**
+	 * Compare the x-values of two curves, possibly from different lists.
+	 * <p>This returns -1 if the first curve is to the left of the second,
+	 * 1 if it is to the right, or 0 if they coincide. The comparison is
+	 * only valid from <code>yrange[0]</code> until <code>yrange[1]</code>,
+	 * so if the curves cross (or stop coinciding) before
+	 * <code>yrange[1]</code> then this reduces <code>yrange[1]</code>.
+	 */
+	static int compareTo(CurveList a, int i, CurveList b, int j, double yrange[]) {
 		/*
-System.out.println(this+".compareTo("+that+")");
+System.out.println(a.toString(i)+".compareTo("+b.toString(j)+")");
 System.out.println("target range = "+yrange[0]+"=>"+yrange[1]);
 		 */
 		double y0 = yrange[0];
 		double y1 = yrange[1];
-		y1 = Math.min(Math.min(y1, this.getYBot()), that.getYBot());
+		y1 = Math.min(Math.min(y1, a.getYBot(i)), b.getYBot(j));
 		if (y1 <= yrange[0]) {
-			System.err.println("this == "+this);
-			System.err.println("that == "+that);
+			System.err.println("this == "+a.toString(i));
+			System.err.println("that == "+b.toString(j));
 			System.out.println("target range = "+yrange[0]+"=>"+yrange[1]);
 			throw new InternalError("backstepping from "+yrange[0]+" to "+y1);
 		}
 		yrange[1] = y1;
-		if (this.getXMax() <= that.getXMin()) {
-			if (this.getXMin() == that.getXMax()) {
+		if (a.getXMax(i) <= b.getXMin(j)) {
+			if (a.getXMin(i) == b.getXMax(j)) {
 				return 0;
 			}
 			return -1;
 		}
-		if (this.getXMin() >= that.getXMax()) {
+		if (a.getXMin(i) >= b.getXMax(j)) {
 			return 1;
 		}
 //		Parameter s for thi(s) curve and t for tha(t) curve
@@ -879,30 +829,30 @@ System.out.println("target range = "+yrange[0]+"=>"+yrange[1]);
 //		[st]h = parameters for hypothesis point
 //		[d][xy]s = valuations of thi(s) curve at sh
 //		[d][xy]t = valuations of tha(t) curve at th
-		double s0 = this.TforY(y0);
-		double ys0 = this.YforT(s0);
+		double s0 = a.TforY(i, y0);
+		double ys0 = a.YforT(i, s0);
 		if (ys0 < y0) {
-			s0 = refineTforY(s0, ys0, y0);
-			ys0 = this.YforT(s0);
+			s0 = refineTforY(a, i, s0, ys0, y0);
+			ys0 = a.YforT(i, s0);
 		}
-		double s1 = this.TforY(y1);
-		if (this.YforT(s1) < y0) {
-			s1 = refineTforY(s1, this.YforT(s1), y0);
+		double s1 = a.TforY(i, y1);
+		if (a.YforT(i, s1) < y0) {
+			s1 = refineTforY(a, i, s1, a.YforT(i, s1), y0);
 //			System.out.println("s1 problem!");
 		}
-		double t0 = that.TforY(y0);
-		double yt0 = that.YforT(t0);
+		double t0 = b.TforY(j, y0);
+		double yt0 = b.YforT(j, t0);
 		if (yt0 < y0) {
-			t0 = that.refineTforY(t0, yt0, y0);
-			yt0 = that.YforT(t0);
+			t0 = refineTforY(b, j, t0, yt0, y0);
+			yt0 = b.YforT(j, t0);
 		}
-		double t1 = that.TforY(y1);
-		if (that.YforT(t1) < y0) {
-			t1 = that.refineTforY(t1, that.YforT(t1), y0);
+		double t1 = b.TforY(j, y1);
+		if (b.YforT(j, t1) < y0) {
+			t1 = refineTforY(b, j, t1, b.YforT(j, t1), y0);
 //			System.out.println("t1 problem!");
 		}
-		double xs0 = this.XforT(s0);
-		double xt0 = that.XforT(t0);
+		double xs0 = a.XforT(i, s0);
+		double xt0 = b.XforT(j, t0);
 		double scale = Math.max(Math.abs(y0), Math.abs(y1));
 		double ymin = Math.max(scale * 1E-14, 1E-300);
 		if (fairlyClose(xs0, xt0)) {
@@ -910,7 +860,7 @@ System.out.println("target range = "+yrange[0]+"=>"+yrange[1]);
 			double maxbump = Math.min(ymin * 1E13, (y1 - y0) * .1);
 			double y = y0 + bump;
 			while (y <= y1) {
-				if (fairlyClose(this.XforY(y), that.XforY(y))) {
+				if (fairlyClose(a.XforY(i, y), b.XforY(j, y))) {
 					if ((bump *= 2) > maxbump) {
 						bump = maxbump;
 					}
@@ -922,7 +872,7 @@ System.out.println("target range = "+yrange[0]+"=>"+yrange[1]);
 						if (newy <= y) {
 							break;
 						}
-						if (fairlyClose(this.XforY(newy), that.XforY(newy))) {
+						if (fairlyClose(a.XforY(i, newy), b.XforY(j, newy))) {
 							y = newy;
 						}
 					}
@@ -946,18 +896,18 @@ System.out.println("s range = "+s0+" to "+s1);
 System.out.println("t range = "+t0+" to "+t1);
 		 */
 		while (s0 < s1 && t0 < t1) {
-			double sh = this.nextVertical(s0, s1);
-			double xsh = this.XforT(sh);
-			double ysh = this.YforT(sh);
-			double th = that.nextVertical(t0, t1);
-			double xth = that.XforT(th);
-			double yth = that.YforT(th);
+			double sh = a.nextVertical(i, s0, s1);
+			double xsh = a.XforT(i, sh);
+			double ysh = a.YforT(i, sh);
+			double th = b.nextVertical(j, t0, t1);
+			double xth = b.XforT(j, th);
+			double yth = b.YforT(j, th);
 			/*
 System.out.println("sh = "+sh);
 System.out.println("th = "+th);
 			 */
 			try {
-				if (findIntersect(that, yrange, ymin, 0, 0,
+				if (findIntersect(a, i, b, j, yrange, ymin, 0, 0,
 						s0, xs0, ys0, sh, xsh, ysh,
 						t0, xt0, yt0, th, xth, yth)) {
 					break;
@@ -998,22 +948,23 @@ System.out.println("final this["+s0+", "+sh+", "+s1+"]");
 System.out.println("final    y["+ys0+", "+ysh+"]");
 System.out.println("final that["+t0+", "+th+", "+t1+"]");
 System.out.println("final    y["+yt0+", "+yth+"]");
-System.out.println("final order = "+orderof(this.XforY(ymid),
-that.XforY(ymid)));
+System.out.println("final order = "+orderof(a.XforY(i, ymid),
+b.XforY(j, ymid)));
 System.out.println("final range = "+yrange[0]+"=>"+yrange[1]);
 		 */
 		/*
-System.out.println("final sx = "+this.XforY(ymid));
-System.out.println("final tx = "+that.XforY(ymid));
-System.out.println("final order = "+orderof(this.XforY(ymid),
-that.XforY(ymid)));
+System.out.println("final sx = "+a.XforY(i, ymid));
+System.out.println("final tx = "+b.XforY(j, ymid));
+System.out.println("final order = "+orderof(a.XforY(i, ymid),
+b.XforY(j, ymid)));
 		 */
-		return orderof(this.XforY(ymid), that.XforY(ymid));
+		return orderof(a.XforY(i, ymid), b.XforY(j, ymid));
 	}
 
 	public static final double TMIN = 1E-3;
 
-	public boolean findIntersect(CurveX that, double yrange[], double ymin,
+	static boolean findIntersect(CurveList a, int i, CurveList b, int j,
+			double yrange[], double ymin,
 			int slevel, int tlevel,
 			double s0, double xs0, double ys0,
 			double s1, double xs1, double ys1,
@@ -1047,8 +998,8 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 //		intensive algorithm).
 		if (s1 - s0 > TMIN) {
 			double s = (s0 + s1) / 2;
-			double xs = this.XforT(s);
-			double ys = this.YforT(s);
+			double xs = a.XforT(i, s);
+			double ys = a.YforT(i, s);
 			if (s == s0 || s == s1) {
 				System.out.println("s0 = "+s0);
 				System.out.println("s1 = "+s1);
@@ -1056,36 +1007,36 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 			}
 			if (t1 - t0 > TMIN) {
 				double t = (t0 + t1) / 2;
-				double xt = that.XforT(t);
-				double yt = that.YforT(t);
+				double xt = b.XforT(j, t);
+				double yt = b.YforT(j, t);
 				if (t == t0 || t == t1) {
 					System.out.println("t0 = "+t0);
 					System.out.println("t1 = "+t1);
 					throw new InternalError("no t progress!");
 				}
 				if (ys >= yt0 && yt >= ys0) {
-					if (findIntersect(that, yrange, ymin, slevel+1, tlevel+1,
+					if (findIntersect(a, i, b, j, yrange, ymin, slevel+1, tlevel+1,
 							s0, xs0, ys0, s, xs, ys,
 							t0, xt0, yt0, t, xt, yt)) {
 						return true;
 					}
 				}
 				if (ys >= yt) {
-					if (findIntersect(that, yrange, ymin, slevel+1, tlevel+1,
+					if (findIntersect(a, i, b, j, yrange, ymin, slevel+1, tlevel+1,
 							s0, xs0, ys0, s, xs, ys,
 							t, xt, yt, t1, xt1, yt1)) {
 						return true;
 					}
 				}
 				if (yt >= ys) {
-					if (findIntersect(that, yrange, ymin, slevel+1, tlevel+1,
+					if (findIntersect(a, i, b, j, yrange, ymin, slevel+1, tlevel+1,
 							s, xs, ys, s1, xs1, ys1,
 							t0, xt0, yt0, t, xt, yt)) {
 						return true;
 					}
 				}
 				if (ys1 >= yt && yt1 >= ys) {
-					if (findIntersect(that, yrange, ymin, slevel+1, tlevel+1,
+					if (findIntersect(a, i, b, j, yrange, ymin, slevel+1, tlevel+1,
 							s, xs, ys, s1, xs1, ys1,
 							t, xt, yt, t1, xt1, yt1)) {
 						return true;
@@ -1093,14 +1044,14 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 				}
 			} else {
 				if (ys >= yt0) {
-					if (findIntersect(that, yrange, ymin, slevel+1, tlevel,
+					if (findIntersect(a, i, b, j, yrange, ymin, slevel+1, tlevel,
 							s0, xs0, ys0, s, xs, ys,
 							t0, xt0, yt0, t1, xt1, yt1)) {
 						return true;
 					}
 				}
 				if (yt1 >= ys) {
-					if (findIntersect(that, yrange, ymin, slevel+1, tlevel,
+					if (findIntersect(a, i, b, j, yrange, ymin, slevel+1, tlevel,
 							s, xs, ys, s1, xs1, ys1,
 							t0, xt0, yt0, t1, xt1, yt1)) {
 						return true;
@@ -1109,22 +1060,22 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 			}
 		} else if (t1 - t0 > TMIN) {
 			double t = (t0 + t1) / 2;
-			double xt = that.XforT(t);
-			double yt = that.YforT(t);
+			double xt = b.XforT(j, t);
+			double yt = b.YforT(j, t);
 			if (t == t0 || t == t1) {
 				System.out.println("t0 = "+t0);
 				System.out.println("t1 = "+t1);
 				throw new InternalError("no t progress!");
 			}
 			if (yt >= ys0) {
-				if (findIntersect(that, yrange, ymin, slevel, tlevel+1,
+				if (findIntersect(a, i, b, j, yrange, ymin, slevel, tlevel+1,
 						s0, xs0, ys0, s1, xs1, ys1,
 						t0, xt0, yt0, t, xt, yt)) {
 					return true;
 				}
 			}
 			if (ys1 >= yt) {
-				if (findIntersect(that, yrange, ymin, slevel, tlevel+1,
+				if (findIntersect(a, i, b, j, yrange, ymin, slevel, tlevel+1,
 						s0, xs0, ys0, s1, xs1, ys1,
 						t, xt, yt, t1, xt1, yt1)) {
 					return true;
@@ -1149,7 +1100,7 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 					if (s < 0 || s > 1 || t < 0 || t > 1) {
 						System.out.println("Uh oh!");
 					}
-					double y = (this.YforT(s) + that.YforT(t)) / 2;
+					double y = (a.YforT(i, s) + b.YforT(j, t)) / 2;
 					if (y <= yrange[1] && y > yrange[0]) {
 						yrange[1] = y;
 						return true;
@@ -1161,14 +1112,15 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 		return false;
 	}
 
-	public double refineTforY(double t0, double yt0, double y0) {
+	static double refineTforY(CurveList curves, int index,
+			double t0, double yt0, double y0) {
 		double t1 = 1;
 		while (true) {
 			double th = (t0 + t1) / 2;
 			if (th == t0 || th == t1) {
 				return t1;
 			}
-			double y = YforT(th);
+			double y = curves.YforT(index, th);
 			if (y < y0) {
 				t0 = th;
 				yt0 = y;
@@ -1180,10 +1132,8 @@ System.out.println(pad.substring(0, tlevel)+(t1-t0));
 		}
 	}
 
-	public boolean fairlyClose(double v1, double v2) {
+	static boolean fairlyClose(double v1, double v2) {
 		return (Math.abs(v1 - v2) <
 				Math.max(Math.abs(v1), Math.abs(v2)) * 1E-10);
 	}
-
-	public abstract int getSegment(double coords[]);
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+/** The edges an <code>AreaOpX</code> sweeps over.
+ * <p>Each edge is identified by its index, and its attributes are stored
+ * in parallel arrays instead of in one object per edge. An edge refers to a
+ * curve by its index in the left or right <code>CurveList</code> (as
+ * indicated by its curve tag). The values the sweep reads most often (the
+ * top and bottom of each curve) are copied out of the lists when the edge
+ * is added.
+ */
+final class EdgeList {
+	int size = 0;
+	/** Views of the left and right lists, indexed by curve tag. */
+	final CurveList[] lists = new CurveList[2];
+	int[] curveIndices;
+	byte[] curveTags;
+	byte[] edgeTags;
+	int[] equivalences;
+	double[] activeY;
+	double[] yTop;
+	double[] yBot;
+	double[] xTop;
+
+	/* The last result of compare(), cached per edge. */
+	int[] lastEdge;
+	int[] lastResult;
+	double[] lastLimit;
+
+	EdgeList(CurveList left,CurveList right) {
+		CurveList leftView = new RootCachingCurveList(left);
+		lists[AreaOpX.CTAG_LEFT] = leftView;
+		lists[AreaOpX.CTAG_RIGHT] = right == left ? leftView : new RootCachingCurveList(right);
+		int capacity = left.size() + right.size();
+		curveIndices = new int[capacity];
+		curveTags = new byte[capacity];
+		edgeTags = new byte[capacity];
+		equivalences = new int[capacity];
+		activeY = new double[capacity];
+		yTop = new double[capacity];
+		yBot = new double[capacity];
+		xTop = new double[capacity];
+		lastEdge = new int[capacity];
+		lastResult = new int[capacity];
+		lastLimit = new double[capacity];
+	}
+
+	int size() {
+		return size;
+	}
+
+	/** Add an edge for a curve in the left or right list.
+	 * 
+	 * @param curveTag <code>AreaOpX.CTAG_LEFT</code> or <code>AreaOpX.CTAG_RIGHT</code>.
+	 * @param curveIndex the index of the curve in that list.
+	 */
+	void add(int curveTag,int curveIndex) {
+		CurveList curves = lists[curveTag];
+		int i = size++;
+		curveIndices[i] = curveIndex;
+		curveTags[i] = (byte)curveTag;
+		edgeTags[i] = AreaOpX.ETAG_IGNORE;
+		yTop[i] = curves.getYTop(curveIndex);
+		yBot[i] = curves.getYBot(curveIndex);
+		xTop[i] = curves.getXTop(curveIndex);
+		lastEdge[i] = -1;
+	}
+
+	/** Return the list that contains the curve of an edge. */
+	CurveList getCurves(int e) {
+		return lists[curveTags[e]];
+	}
+
+	int getDirection(int e) {
+		return lists[curveTags[e]].getDirection(curveIndices[e]);
+	}
+
+	/** Return the indices of the edges sorted by the top of their curves (and
+	 * then by the x-value at the top). Edges that tie keep the order they were added in.
+	 */
+	int[] getSortedIndices() {
+		int[] indices = new int[size];
+		for(int a = 0; a<size; a++) {
+			indices[a] = a;
+		}
+		if(size>1) {
+			mergeSort(indices.clone(), indices, 0, size);
+		}
+		return indices;
+	}
+
+	/** Sort <code>src[low, high)</code> into <code>dest[low, high)</code>. Both
+	 * arrays must start with the same contents.
+	 */
+	private void mergeSort(int[] src,int[] dest,int low,int high) {
+		int length = high - low;
+		if(length<8) {
+			for(int i = low+1; i<high; i++) {
+				for(int j = i; j>low && compareTops(dest[j-1], dest[j])>0; j--) {
+					int t = dest[j];
+					dest[j] = dest[j-1];
+					dest[j-1] = t;
+				}
+			}
+			return;
+		}
+		int middle = (low+high) >>> 1;
+		mergeSort(dest, src, low, middle);
+		mergeSort(dest, src, middle, high);
+		if(compareTops(src[middle-1], src[middle])<=0) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+		for(int i = low, p = low, q = middle; i<high; i++) {
+			if(q>=high || (p<middle && compareTops(src[p], src[q])<=0)) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+
+	private int compareTops(int e1,int e2) {
+		double v1 = yTop[e1];
+		double v2 = yTop[e2];
+		if(v1==v2) {
+			v1 = xTop[e1];
+			v2 = xTop[e2];
+			if(v1==v2)
+				return 0;
+		}
+		return v1<v2 ? -1 : 1;
+	}
+
+	/** Compare the curves of two edges over a range of y-values.
+	 * 
+	 * @see CurveX#compareTo(CurveList, int, CurveList, int, double[])
+	 */
+	int compare(int e,int other,double yrange[]) {
+		if (other == lastEdge[e] && yrange[0] < lastLimit[e]) {
+			if (yrange[1] > lastLimit[e]) {
+				yrange[1] = lastLimit[e];
+			}
+			return lastResult[e];
+		}
+		if (e == lastEdge[other] && yrange[0] < lastLimit[other]) {
+			if (yrange[1] > lastLimit[other]) {
+				yrange[1] = lastLimit[other];
+			}
+			return 0-lastResult[other];
+		}
+		int ret = getCurves(e).compareTo(curveIndices[e],
+				getCurves(other), curveIndices[other], yrange);
+		lastEdge[e] = other;
+		lastLimit[e] = yrange[1];
+		lastResult[e] = ret;
+		return ret;
+	}
+
+	void record(int e,double yend, int etag) {
+		activeY[e] = yend;
+		edgeTags[e] = (byte)etag;
+	}
+
+	boolean isActiveFor(int e,double y, int etag) {
+		return (edgeTags[e] == etag && activeY[e] >= y);
+	}
+
+	String toString(int e) {
+		int etag = edgeTags[e];
+		return ("Edge["+getCurves(e).toString(curveIndices[e])+
+				", "+
+				(curveTags[e] == AreaOpX.CTAG_LEFT ? "L" : "R")+
+				", "+
+				(etag == AreaOpX.ETAG_ENTER ? "I" :
+					(etag == AreaOpX.ETAG_EXIT ? "O" : "N"))+
+		"]");
+	}
+}
@@ -10,92 +10,20 @@
  */
 package com.pump.geom.area;
 
-import java.awt.geom.PathIterator;
-import java.awt.geom.Rectangle2D;
-
-final class Order1X extends CurveX {
-	final private double x0;
-	final private double y0;
-	final private double x1;
-	final private double y1;
-	final private double xmin;
-	final private double xmax;
-
-	public Order1X(double x0, double y0,
-			double x1, double y1,
-			int direction)
-	{
-		super(direction);
-		this.x0 = x0;
-		this.y0 = y0;
-		this.x1 = x1;
-		this.y1 = y1;
-		if (x0 < x1) {
-			this.xmin = x0;
-			this.xmax = x1;
-		} else {
-			this.xmin = x1;
-			this.xmax = x0;
-		}
-	}
-
-	@Override
-	public int getOrder() {
-		return 1;
-	}
-
-	@Override
-	public double getXTop() {
-		return x0;
-	}
-
-	@Override
-	public double getYTop() {
-		return y0;
-	}
-
-	@Override
-	public double getXBot() {
-		return x1;
-	}
-
-	@Override
-	public double getYBot() {
-		return y1;
-	}
-
-	@Override
-	public double getXMin() {
-		return xmin;
-	}
-
-	@Override
-	public double getXMax() {
-		return xmax;
-	}
-
-	@Override
-	public double getX0() {
-		return (direction == INCREASING) ? x0 : x1;
-	}
-
-	@Override
-	public double getY0() {
-		return (direction == INCREASING) ? y0 : y1;
-	}
-
-	@Override
-	public double getX1() {
-		return (direction == DECREASING) ? x0 : x1;
-	}
+/** The math for a line (a curve of order 1) in a <code>CurveList</code>.
+ * <p>Each method takes the coordinate array of the list and the offset of
+ * the line in that array: the line runs from <code>(c[o], c[o+1])</code>
+ * at the top to <code>(c[o+6], c[o+7])</code> at the bottom.
+ */
+final class Order1X {
 
-	@Override
-	public double getY1() {
-		return (direction == DECREASING) ? y0 : y1;
-	}
+	private Order1X() {}
 
-	@Override
-	public double XforY(double y) {
+	static double XforY(double c[], int o, double y) {
+		double x0 = c[o];
+		double y0 = c[o+1];
+		double x1 = c[o+6];
+		double y1 = c[o+7];
 		if (x0 == x1 || y <= y0) {
 			return x0;
 		}
@@ -106,8 +34,9 @@ final class Order1X extends CurveX {
 		return (x0 + (y - y0) * (x1 - x0) / (y1 - y0));
 	}
 
-	@Override
-	public double TforY(double y) {
+	static double TforY(double c[], int o, double y) {
+		double y0 = c[o+1];
+		double y1 = c[o+7];
 		if (y <= y0) {
 			return 0;
 		}
@@ -117,51 +46,24 @@ final class Order1X extends CurveX {
 		return (y - y0) / (y1 - y0);
 	}
 
-	@Override
-	public double XforT(double t) {
-		return x0 + t * (x1 - x0);
-	}
-
-	@Override
-	public double YforT(double t) {
-		return y0 + t * (y1 - y0);
-	}
-
-	@Override
-	public double dXforT(double t, int deriv) {
-		switch (deriv) {
-		case 0:
-			return x0 + t * (x1 - x0);
-		case 1:
-			return (x1 - x0);
-		default:
-			return 0;
-		}
-	}
-
-	@Override
-	public double dYforT(double t, int deriv) {
-		switch (deriv) {
-		case 0:
-			return y0 + t * (y1 - y0);
-		case 1:
-			return (y1 - y0);
-		default:
-			return 0;
-		}
+	static double XforT(double c[], int o, double t) {
+		return c[o] + t * (c[o+6] - c[o]);
 	}
 
-	@Override
-	public double nextVertical(double t0, double t1) {
-		return t1;
+	static double YforT(double c[], int o, double t) {
+		return c[o+1] + t * (c[o+7] - c[o+1]);
 	}
 
-	@Override
-	public boolean accumulateCrossings(CrossingsX c) {
-		double xlo = c.getXLo();
-		double ylo = c.getYLo();
-		double xhi = c.getXHi();
-		double yhi = c.getYHi();
+	static boolean accumulateCrossings(double c[], int o, int direction, CrossingsX cross) {
+		double x0 = c[o];
+		double y0 = c[o+1];
+		double x1 = c[o+6];
+		double y1 = c[o+7];
+		double xlo = cross.getXLo();
+		double ylo = cross.getYLo();
+		double xhi = cross.getXHi();
+		double yhi = cross.getYHi();
+		double xmin = (x0 < x1) ? x0 : x1;
 		if (xmin >= xhi) {
 			return false;
 		}
@@ -171,7 +73,7 @@ final class Order1X extends CurveX {
 				return false;
 			}
 			ystart = ylo;
-			xstart = XforY(ylo);
+			xstart = XforY(c, o, ylo);
 		} else {
 			if (y0 >= yhi) {
 				return false;
@@ -181,7 +83,7 @@ final class Order1X extends CurveX {
 		}
 		if (y1 > yhi) {
 			yend = yhi;
-			xend = XforY(yhi);
+			xend = XforY(c, o, yhi);
 		} else {
 			yend = y1;
 			xend = x1;
@@ -192,53 +94,59 @@ final class Order1X extends CurveX {
 		if (xstart > xlo || xend > xlo) {
 			return true;
 		}
-		c.record(ystart, yend, direction);
+		cross.record(ystart, yend, direction);
 		return false;
 	}
 
-	@Override
-	public void enlarge(Rectangle2D r) {
-		r.add(x0, y0);
-		r.add(x1, y1);
-	}
-
-	@Override
-	public CurveX getSubCurve(double ystart, double yend, int dir) {
+	static void addSubCurve(CurveList dest, double c[], int o,
+			double ystart, double yend, int dir) {
+		double x0 = c[o];
+		double y0 = c[o+1];
+		double x1 = c[o+6];
+		double y1 = c[o+7];
 		if (ystart == y0 && yend == y1) {
-			return getWithDirection(dir);
+			dest.addLine(x0, y0, x1, y1, dir);
+			return;
 		}
 		if (x0 == x1) {
-			return new Order1X(x0, ystart, x1, yend, dir);
+			dest.addLine(x0, ystart, x1, yend, dir);
+			return;
 		}
 		double num = x0 - x1;
 		double denom = y0 - y1;
 		double xstart = (x0 + (ystart - y0) * num / denom);
 		double xend = (x0 + (yend - y0) * num / denom);
-		return new Order1X(xstart, ystart, xend, yend, dir);
-	}
-
-	@Override
-	public CurveX getReversedCurve() {
-		return new Order1X(x0, y0, x1, y1, -direction);
-	}
-
-	@Override
-	public int compareTo(CurveX other, double yrange[]) {
-		if (!(other instanceof Order1X)) {
-			return super.compareTo(other, yrange);
-		}
-		Order1X c1 = (Order1X) other;
+		dest.addLine(xstart, ystart, xend, yend, dir);
+	}
+
+	/** Compares two lines, possibly from different lists.
+	 *
+	 * @see CurveX#compareTo(CurveList, int, CurveList, int, double[])
+	 */
+	static int compareTo(double a[], int oa, double b[], int ob, double yrange[]) {
+		double x0 = a[oa];
+		double y0 = a[oa+1];
+		double x1 = a[oa+6];
+		double y1 = a[oa+7];
+		double bx0 = b[ob];
+		double by0 = b[ob+1];
+		double bx1 = b[ob+6];
+		double by1 = b[ob+7];
 		if (yrange[1] <= yrange[0]) {
 			throw new InternalError("yrange already screwed up...");
 		}
-		yrange[1] = Math.min(Math.min(yrange[1], y1), c1.y1);
+		yrange[1] = Math.min(Math.min(yrange[1], y1), by1);
 		if (yrange[1] <= yrange[0]) {
 			throw new InternalError("backstepping from "+yrange[0]+" to "+yrange[1]);
 		}
-		if (xmax <= c1.xmin) {
-			return (xmin == c1.xmax) ? 0 : -1;
+		double xmin = (x0 < x1) ? x0 : x1;
+		double xmax = (x0 < x1) ? x1 : x0;
+		double bxmin = (bx0 < bx1) ? bx0 : bx1;
+		double bxmax = (bx0 < bx1) ? bx1 : bx0;
+		if (xmax <= bxmin) {
+			return (xmin == bxmax) ? 0 : -1;
 		}
-		if (xmin >= c1.xmax) {
+		if (xmin >= bxmax) {
 			return 1;
 		}
 		/*
@@ -275,19 +183,19 @@ final class Order1X extends CurveX {
 		 */
 		double dxa = x1 - x0;
 		double dya = y1 - y0;
-		double dxb = c1.x1 - c1.x0;
-		double dyb = c1.y1 - c1.y0;
+		double dxb = bx1 - bx0;
+		double dyb = by1 - by0;
 		double denom = dxb * dya - dxa * dyb;
 		double y;
 		if (denom != 0) {
-			double num = ((x0 - c1.x0) * dya * dyb
+			double num = ((x0 - bx0) * dya * dyb
 					- y0 * dxa * dyb
-					+ c1.y0 * dxb * dya);
+					+ by0 * dxb * dya);
 			y = num / denom;
 			if (y <= yrange[0]) {
 //				intersection is above us
 //				Use bottom-most common y for comparison
-				y = Math.min(y1, c1.y1);
+				y = Math.min(y1, by1);
 			} else {
 //				intersection is below the top of our range
 				if (y < yrange[1]) {
@@ -295,26 +203,14 @@ final class Order1X extends CurveX {
 					yrange[1] = y;
 				}
 //				Use top-most common y for comparison
-				y = Math.max(y0, c1.y0);
+				y = Math.max(y0, by0);
 			}
 		} else {
 //			lines are parallel, choose any common y for comparison
 //			Note - prefer an endpoint for speed of calculating the X
-//			(see shortcuts in Order1.XforY())
-			y = Math.max(y0, c1.y0);
-		}
-		return orderof(XforY(y), c1.XforY(y));
-	}
-
-	@Override
-	public int getSegment(double coords[]) {
-		if (direction == INCREASING) {
-			coords[0] = x1;
-			coords[1] = y1;
-		} else {
-			coords[0] = x0;
-			coords[1] = y0;
+//			(see shortcuts in XforY())
+			y = Math.max(y0, by0);
 		}
-		return PathIterator.SEG_LINETO;
+		return CurveX.orderof(XforY(a, oa, y), XforY(b, ob, y));
 	}
 }
\ No newline at end of file
@@ -13,22 +13,15 @@ package com.pump.geom.area;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 
-final class Order2X extends CurveX {
-	final private double x0;
-	final private double y0;
-	final private double cx0;
-	final private double cy0;
-	final private double x1;
-	final private double y1;
-	final private double xmin;
-	final private double xmax;
+/** The math for a quadratic curve (a curve of order 2) in a <code>CurveList</code>.
+ * <p>Each method takes the coordinate array of the list and the offset of
+ * the curve in that array: the curve runs from <code>(c[o], c[o+1])</code>
+ * at the top to <code>(c[o+6], c[o+7])</code> at the bottom, and its control
+ * point is <code>(c[o+2], c[o+3])</code>.
+ */
+final class Order2X {
 
-	final private double xcoeff0;
-	final private double xcoeff1;
-	final private double xcoeff2;
-	final private double ycoeff0;
-	final private double ycoeff1;
-	final private double ycoeff2;
+	private Order2X() {}
 
 	public static void insert(CurveList curves, double tmp[],
 			double x0, double y0,
@@ -49,7 +42,7 @@ final class Order2X extends CurveX {
 		tmp[2] = cx0; tmp[3] = cy0;
 		tmp[4] = x1;  tmp[5] = y1;
 		split(tmp, 0, t);
-		int i0 = (direction == INCREASING)? 0 : 4;
+		int i0 = (direction == CurveX.INCREASING)? 0 : 4;
 		int i1 = 4 - i0;
 		addInstance(curves, tmp[i0], tmp[i0 + 1], tmp[i0 + 2], tmp[i0 + 3],
 				tmp[i0 + 4], tmp[i0 + 5], direction);
@@ -63,9 +56,9 @@ final class Order2X extends CurveX {
 			double x1, double y1,
 			int direction) {
 		if (y0 > y1) {
-			curves.add(new Order2X(x1, y1, cx0, cy0, x0, y0, -direction));
+			curves.addQuad(x1, y1, cx0, cy0, x0, y0, -direction);
 		} else if (y1 > y0) {
-			curves.add(new Order2X(x0, y0, cx0, cy0, x1, y1, direction));
+			curves.addQuad(x0, y0, cx0, cy0, x1, y1, direction);
 		}
 	}
 
@@ -140,119 +133,27 @@ final class Order2X extends CurveX {
 		coords[pos+7] = y1;
 	}
 
-	public Order2X(double x0, double y0,
-			double cx0, double cy0,
-			double x1, double y1,
-			int direction)
-	{
-		super(direction);
-//		REMIND: Better accuracy in the root finding methods would
-//		ensure that cy0 is in range.  As it stands, it is never
-//		more than "1 mantissa bit" out of range...
-		if (cy0 < y0) {
-			cy0 = y0;
-		} else if (cy0 > y1) {
-			cy0 = y1;
+	static double XforY(double c[], int o, double y) {
+		if (y <= c[o+1]) {
+			return c[o];
 		}
-		this.x0 = x0;
-		this.y0 = y0;
-		this.cx0 = cx0;
-		this.cy0 = cy0;
-		this.x1 = x1;
-		this.y1 = y1;
-		xmin = Math.min(Math.min(x0, x1), cx0);
-		xmax = Math.max(Math.max(x0, x1), cx0);
-		xcoeff0 = x0;
-		xcoeff1 = cx0 + cx0 - x0 - x0;
-		xcoeff2 = x0 - cx0 - cx0 + x1;
-		ycoeff0 = y0;
-		ycoeff1 = cy0 + cy0 - y0 - y0;
-		ycoeff2 = y0 - cy0 - cy0 + y1;
-	}
-
-	@Override
-	public int getOrder() {
-		return 2;
-	}
-
-	@Override
-	public double getXTop() {
-		return x0;
-	}
-
-	@Override
-	public double getYTop() {
-		return y0;
-	}
-
-	@Override
-	public double getXBot() {
-		return x1;
-	}
-
-	@Override
-	public double getYBot() {
-		return y1;
-	}
-
-	@Override
-	public double getXMin() {
-		return xmin;
-	}
-
-	@Override
-	public double getXMax() {
-		return xmax;
-	}
-
-	@Override
-	public double getX0() {
-		return (direction == INCREASING) ? x0 : x1;
-	}
-
-	@Override
-	public double getY0() {
-		return (direction == INCREASING) ? y0 : y1;
-	}
-
-	public double getCX0() {
-		return cx0;
-	}
-
-	public double getCY0() {
-		return cy0;
-	}
-
-	@Override
-	public double getX1() {
-		return (direction == DECREASING) ? x0 : x1;
-	}
-
-	@Override
-	public double getY1() {
-		return (direction == DECREASING) ? y0 : y1;
-	}
-
-	@Override
-	public double XforY(double y) {
-		if (y <= y0) {
-			return x0;
+		if (y >= c[o+7]) {
+			return c[o+6];
 		}
-		if (y >= y1) {
-			return x1;
-		}
-		return XforT(TforY(y));
+		return XforT(c, o, TforY(c, o, y));
 	}
 
-	@Override
-	public double TforY(double y) {
+	static double TforY(double c[], int o, double y) {
+		double y0 = c[o+1];
+		double cy0 = c[o+3];
+		double y1 = c[o+7];
 		if (y <= y0) {
 			return 0;
 		}
 		if (y >= y1) {
 			return 1;
 		}
-		return TforY(y, ycoeff0, ycoeff1, ycoeff2);
+		return TforY(y, y0, cy0 + cy0 - y0 - y0, y0 - cy0 - cy0 + y1);
 	}
 
 	public static double TforY(double y,
@@ -337,46 +238,31 @@ final class Order2X extends CurveX {
 		return (0 < (y0 + y1) / 2) ? 0.0 : 1.0;
 	}
 
-	@Override
-	public double XforT(double t) {
-		return (xcoeff2 * t + xcoeff1) * t + xcoeff0;
-	}
-
-	@Override
-	public double YforT(double t) {
-		return (ycoeff2 * t + ycoeff1) * t + ycoeff0;
-	}
-
-	@Override
-	public double dXforT(double t, int deriv) {
-		switch (deriv) {
-		case 0:
-			return (xcoeff2 * t + xcoeff1) * t + xcoeff0;
-		case 1:
-			return 2 * xcoeff2 * t + xcoeff1;
-		case 2:
-			return 2 * xcoeff2;
-		default:
-			return 0;
-		}
+	static double XforT(double c[], int o, double t) {
+		double x0 = c[o];
+		double cx0 = c[o+2];
+		double x1 = c[o+6];
+		double xcoeff1 = cx0 + cx0 - x0 - x0;
+		double xcoeff2 = x0 - cx0 - cx0 + x1;
+		return (xcoeff2 * t + xcoeff1) * t + x0;
 	}
 
-	@Override
-	public double dYforT(double t, int deriv) {
-		switch (deriv) {
-		case 0:
-			return (ycoeff2 * t + ycoeff1) * t + ycoeff0;
-		case 1:
-			return 2 * ycoeff2 * t + ycoeff1;
-		case 2:
-			return 2 * ycoeff2;
-		default:
-			return 0;
-		}
+	static double YforT(double c[], int o, double t) {
+		double y0 = c[o+1];
+		double cy0 = c[o+3];
+		double y1 = c[o+7];
+		double ycoeff1 = cy0 + cy0 - y0 - y0;
+		double ycoeff2 = y0 - cy0 - cy0 + y1;
+		return (ycoeff2 * t + ycoeff1) * t + y0;
 	}
 
-	@Override
-	public double nextVertical(double t0, double t1) {
+	/** Returns the parameter where dx/dt is zero, if it is between t0 and t1. */
+	static double nextVertical(double c[], int o, double t0, double t1) {
+		double x0 = c[o];
+		double cx0 = c[o+2];
+		double x1 = c[o+6];
+		double xcoeff1 = cx0 + cx0 - x0 - x0;
+		double xcoeff2 = x0 - cx0 - cx0 + x1;
 		double t = -xcoeff1 / (2 * xcoeff2);
 		if (t > t0 && t < t1) {
 			return t;
@@ -384,31 +270,39 @@ final class Order2X extends CurveX {
 		return t1;
 	}
 
-	@Override
-	public void enlarge(Rectangle2D r) {
-		r.add(x0, y0);
-		double t = -xcoeff1 / (2 * xcoeff2);
+	static void enlarge(double c[], int o, Rectangle2D r) {
+		r.add(c[o], c[o+1]);
+		double t = nextVertical(c, o, 0, 1);
 		if (t > 0 && t < 1) {
-			r.add(XforT(t), YforT(t));
+			r.add(XforT(c, o, t), YforT(c, o, t));
 		}
-		r.add(x1, y1);
+		r.add(c[o+6], c[o+7]);
 	}
 
-	@Override
-	public CurveX getSubCurve(double ystart, double yend, int dir) {
+	static void addSubCurve(CurveList dest, double c[], int o,
+			double ystart, double yend, int dir) {
+		double x0 = c[o];
+		double y0 = c[o+1];
+		double cx0 = c[o+2];
+		double cy0 = c[o+3];
+		double x1 = c[o+6];
+		double y1 = c[o+7];
+		double ycoeff1 = cy0 + cy0 - y0 - y0;
+		double ycoeff2 = y0 - cy0 - cy0 + y1;
 		double t0, t1;
 		if (ystart <= y0) {
 			if (yend >= y1) {
-				return getWithDirection(dir);
+				dest.addQuad(x0, y0, cx0, cy0, x1, y1, dir);
+				return;
 			}
 			t0 = 0;
 		} else {
-			t0 = TforY(ystart, ycoeff0, ycoeff1, ycoeff2);
+			t0 = TforY(ystart, y0, ycoeff1, ycoeff2);
 		}
 		if (yend >= y1) {
 			t1 = 1;
 		} else {
-			t1 = TforY(yend, ycoeff0, ycoeff1, ycoeff2);
+			t1 = TforY(yend, y0, ycoeff1, ycoeff2);
 		}
 		double eqn[] = new double[10];
 		eqn[0] = x0;
@@ -427,33 +321,22 @@ final class Order2X extends CurveX {
 			split(eqn, 0, t0 / t1);
 			i = 4;
 		}
-		return new Order2X(eqn[i+0], ystart,
+		dest.addQuad(eqn[i+0], ystart,
 				eqn[i+2], eqn[i+3],
 				eqn[i+4], yend,
 				dir);
 	}
 
-	@Override
-	public CurveX getReversedCurve() {
-		return new Order2X(x0, y0, cx0, cy0, x1, y1, -direction);
-	}
-
-	@Override
-	public int getSegment(double coords[]) {
-		coords[0] = cx0;
-		coords[1] = cy0;
-		if (direction == INCREASING) {
-			coords[2] = x1;
-			coords[3] = y1;
+	static int getSegment(double c[], int o, int direction, double coords[]) {
+		coords[0] = c[o+2];
+		coords[1] = c[o+3];
+		if (direction == CurveX.INCREASING) {
+			coords[2] = c[o+6];
+			coords[3] = c[o+7];
 		} else {
-			coords[2] = x0;
-			coords[3] = y0;
+			coords[2] = c[o];
+			coords[3] = c[o+1];
 		}
 		return PathIterator.SEG_QUADTO;
 	}
-
-	@Override
-	public String controlPointString() {
-		return ("("+round(cx0)+", "+round(cy0)+"), ");
-	}
 }
\ No newline at end of file
@@ -16,28 +16,15 @@ import java.awt.geom.Rectangle2D;
 
 import com.pump.math.MathG;
 
-final class Order3X extends CurveX {
-	final private double x0;
-	final private double y0;
-	final private double cx0;
-	final private double cy0;
-	final private double cx1;
-	final private double cy1;
-	final private double x1;
-	final private double y1;
-
-	final private double xmin;
-	final private double xmax;
-
-	final private double xcoeff0;
-	final private double xcoeff1;
-	final private double xcoeff2;
-	final private double xcoeff3;
+/** The math for a cubic curve (a curve of order 3) in a <code>CurveList</code>.
+ * <p>Each method takes the coordinate array of the list and the offset of
+ * the curve in that array: the curve runs from <code>(c[o], c[o+1])</code>
+ * at the top to <code>(c[o+6], c[o+7])</code> at the bottom, and its control
+ * points are <code>(c[o+2], c[o+3])</code> and <code>(c[o+4], c[o+5])</code>.
+ */
+final class Order3X {
 
-	final private double ycoeff0;
-	final private double ycoeff1;
-	final private double ycoeff2;
-	final private double ycoeff3;
+	private Order3X() {}
 
 	public static void insert(CurveList curves, double tmp[],
 			double x0, double y0,
@@ -72,7 +59,7 @@ final class Order3X extends CurveX {
 			split(tmp, 9, t);
 		}
 		int index = 3;
-		if (direction == DECREASING) {
+		if (direction == CurveX.DECREASING) {
 			index += numparams * 6;
 		}
 		while (numparams >= 0) {
@@ -83,7 +70,7 @@ final class Order3X extends CurveX {
 					tmp[index + 6], tmp[index + 7],
 					direction);
 			numparams--;
-			if (direction == INCREASING) {
+			if (direction == CurveX.INCREASING) {
 				index += 6;
 			} else {
 				index -= 6;
@@ -98,11 +85,11 @@ final class Order3X extends CurveX {
 			double x1, double y1,
 			int direction) {
 		if (y0 > y1) {
-			curves.add(new Order3X(x1, y1, cx1, cy1, cx0, cy0, x0, y0,
-					-direction));
+			curves.addCubic(x1, y1, cx1, cy1, cx0, cy0, x0, y0,
+					-direction);
 		} else if (y1 > y0) {
-			curves.add(new Order3X(x0, y0, cx0, cy0, cx1, cy1, x1, y1,
-					direction));
+			curves.addCubic(x0, y0, cx0, cy0, cx1, cy1, x1, y1,
+					direction);
 		}
 	}
 
@@ -209,117 +196,22 @@ final class Order3X extends CurveX {
 		coords[pos+11] = y1;
 	}
 
-	public Order3X(double x0, double y0,
-			double cx0, double cy0,
-			double cx1, double cy1,
-			double x1, double y1,
-			int direction)
-	{
-		super(direction);
-//		REMIND: Better accuracy in the root finding methods would
-//		ensure that cys are in range.  As it stands, they are never
-//		more than "1 mantissa bit" out of range...
-		if (cy0 < y0) cy0 = y0;
-		if (cy1 > y1) cy1 = y1;
-		this.x0 = x0;
-		this.y0 = y0;
-		this.cx0 = cx0;
-		this.cy0 = cy0;
-		this.cx1 = cx1;
-		this.cy1 = cy1;
-		this.x1 = x1;
-		this.y1 = y1;
-		xmin = Math.min(Math.min(x0, x1), Math.min(cx0, cx1));
-		xmax = Math.max(Math.max(x0, x1), Math.max(cx0, cx1));
-		xcoeff0 = x0;
-		xcoeff1 = (cx0 - x0) * 3.0;
-		xcoeff2 = (cx1 - cx0 - cx0 + x0) * 3.0;
-		xcoeff3 = x1 - (cx1 - cx0) * 3.0 - x0;
-		ycoeff0 = y0;
-		ycoeff1 = (cy0 - y0) * 3.0;
-		ycoeff2 = (cy1 - cy0 - cy0 + y0) * 3.0;
-		ycoeff3 = y1 - (cy1 - cy0) * 3.0 - y0;
-		YforT1 = YforT2 = YforT3 = y0;
-	}
-
-	@Override
-	public int getOrder() {
-		return 3;
-	}
-
-	@Override
-	public double getXTop() {
-		return x0;
-	}
-
-	@Override
-	public double getYTop() {
-		return y0;
-	}
-
-	@Override
-	public double getXBot() {
-		return x1;
-	}
-
-	@Override
-	public double getYBot() {
-		return y1;
-	}
-
-	@Override
-	public double getXMin() {
-		return xmin;
-	}
-
-	@Override
-	public double getXMax() {
-		return xmax;
-	}
-
-	@Override
-	public double getX0() {
-		return (direction == INCREASING) ? x0 : x1;
-	}
-
-	@Override
-	public double getY0() {
-		return (direction == INCREASING) ? y0 : y1;
-	}
-
-	public double getCX0() {
-		return (direction == INCREASING) ? cx0 : cx1;
-	}
-
-	public double getCY0() {
-		return (direction == INCREASING) ? cy0 : cy1;
-	}
-
-	public double getCX1() {
-		return (direction == DECREASING) ? cx0 : cx1;
-	}
-
-	public double getCY1() {
-		return (direction == DECREASING) ? cy0 : cy1;
-	}
-
-	@Override
-	public double getX1() {
-		return (direction == DECREASING) ? x0 : x1;
-	}
-
-	@Override
-	public double getY1() {
-		return (direction == DECREASING) ? y0 : y1;
+	/** Return the x-value of a cubic curve in a list at a given y-value.
+	 * This consults <code>curves.TforY()</code>, so a list that caches
+	 * its roots is used here too.
+	 */
+	static double XforY(CurveList curves, int index, double y) {
+		double c[] = curves.coords;
+		int o = index*CurveList.COORDS_PER_CURVE;
+		if (y <= c[o+1]) {
+			return c[o];
+		}
+		if (y >= c[o+7]) {
+			return c[o+6];
+		}
+		return XforT(c, o, curves.TforY(index, y));
 	}
 
-	private double TforY1;
-	private double YforT1;
-	private double TforY2;
-	private double YforT2;
-	private double TforY3;
-	private double YforT3;
-
 	/*
 	 * Solve the cubic whose coefficients are in the a,b,c,d fields and
 	 * return the first root in the range [0, 1].
@@ -327,13 +219,17 @@ final class Order3X extends CurveX {
 	 *     x^3 + (ycoeff2)x^2 + (ycoeff1)x + (ycoeff0) = y
 	 * @return the first valid root (in the range [0, 1])
 	 */
-	@Override
-	public double TforY(double y) {
+	static double TforY(double coords[], int o, double y) {
+		double y0 = coords[o+1];
+		double cy0 = coords[o+3];
+		double cy1 = coords[o+5];
+		double y1 = coords[o+7];
 		if (y <= y0) return 0;
 		if (y >= y1) return 1;
-		if (y == YforT1) return TforY1;
-		if (y == YforT2) return TforY2;
-		if (y == YforT3) return TforY3;
+		double ycoeff0 = y0;
+		double ycoeff1 = (cy0 - y0) * 3.0;
+		double ycoeff2 = (cy1 - cy0 - cy0 + y0) * 3.0;
+		double ycoeff3 = y1 - (cy1 - cy0) * 3.0 - y0;
 //		From Numerical Recipes, 5.6, Quadratic and Cubic Equations
 		if (ycoeff3 == 0.0) {
 //			The cubic degenerated to quadratic (or line or ...).
@@ -351,13 +247,14 @@ final class Order3X extends CurveX {
 		if (R2 < Q3) {
 			double theta = MathG.acos(R / Math.sqrt(Q3));
 			Q = -2.0 * Math.sqrt(Q);
-			t = refine(a, b, c, y, Q * Math.cos(theta / 3.0) - a_3);
+			t = refine(ycoeff0, ycoeff1, ycoeff2, ycoeff3, y,
+					Q * Math.cos(theta / 3.0) - a_3);
 			if (t < 0) {
-				t = refine(a, b, c, y,
+				t = refine(ycoeff0, ycoeff1, ycoeff2, ycoeff3, y,
 						Q * Math.cos((theta + Math.PI * 2.0)/ 3.0) - a_3);
 			}
 			if (t < 0) {
-				t = refine(a, b, c, y,
+				t = refine(ycoeff0, ycoeff1, ycoeff2, ycoeff3, y,
 						Q * Math.cos((theta - Math.PI * 2.0)/ 3.0) - a_3);
 			}
 		} else {
@@ -371,7 +268,7 @@ final class Order3X extends CurveX {
 				A = -A;
 			}
 			double B = (A == 0.0) ? 0.0 : (Q / A);
-			t = refine(a, b, c, y, (A + B) - a_3);
+			t = refine(ycoeff0, ycoeff1, ycoeff2, ycoeff3, y, (A + B) - a_3);
 		}
 		if (t < 0) {
 //			throw new InternalError("bad t");
@@ -382,7 +279,7 @@ final class Order3X extends CurveX {
 				if (t == t0 || t == t1) {
 					break;
 				}
-				double yt = YforT(t);
+				double yt = (((ycoeff3 * t) + ycoeff2) * t + ycoeff1) * t + ycoeff0;
 				if (yt < y) {
 					t0 = t;
 				} else if (yt > y) {
@@ -392,24 +289,17 @@ final class Order3X extends CurveX {
 				}
 			}
 		}
-		if (t >= 0) {
-			TforY3 = TforY2;
-			YforT3 = YforT2;
-			TforY2 = TforY1;
-			YforT2 = YforT1;
-			TforY1 = t;
-			YforT1 = y;
-		}
 		return t;
 	}
 
-	public double refine(double a, double b, double c,
+	private static double refine(double ycoeff0, double ycoeff1,
+			double ycoeff2, double ycoeff3,
 			double target, double t)
 	{
 		if (t < -0.1 || t > 1.1) {
 			return -1;
 		}
-		double y = YforT(t);
+		double y = (((ycoeff3 * t) + ycoeff2) * t + ycoeff1) * t + ycoeff0;
 		double t0, t1;
 		if (y < target) {
 			t0 = t;
@@ -427,7 +317,7 @@ final class Order3X extends CurveX {
 				}
 				t = t2;
 			} else {
-				double slope = dYforT(t, 1);
+				double slope = ((3 * ycoeff3 * t) + 2 * ycoeff2) * t + ycoeff1;
 				if (slope == 0) {
 					useslope = false;
 					continue;
@@ -439,7 +329,7 @@ final class Order3X extends CurveX {
 				}
 				t = t2;
 			}
-			y = YforT(t);
+			y = (((ycoeff3 * t) + ycoeff2) * t + ycoeff1) * t + ycoeff0;
 			if (y < target) {
 				t0 = t;
 			} else if (y > target) {
@@ -451,63 +341,45 @@ final class Order3X extends CurveX {
 		return (t > 1) ? -1 : t;
 	}
 
-	@Override
-	public double XforY(double y) {
-		if (y <= y0) {
-			return x0;
-		}
-		if (y >= y1) {
-			return x1;
-		}
-		return XforT(TforY(y));
-	}
-
-	@Override
-	public double XforT(double t) {
-		return (((xcoeff3 * t) + xcoeff2) * t + xcoeff1) * t + xcoeff0;
+	static double XforT(double c[], int o, double t) {
+		double x0 = c[o];
+		double cx0 = c[o+2];
+		double cx1 = c[o+4];
+		double x1 = c[o+6];
+		double xcoeff1 = (cx0 - x0) * 3.0;
+		double xcoeff2 = (cx1 - cx0 - cx0 + x0) * 3.0;
+		double xcoeff3 = x1 - (cx1 - cx0) * 3.0 - x0;
+		return (((xcoeff3 * t) + xcoeff2) * t + xcoeff1) * t + x0;
 	}
 
-	@Override
-	public double YforT(double t) {
-		return (((ycoeff3 * t) + ycoeff2) * t + ycoeff1) * t + ycoeff0;
+	static double YforT(double c[], int o, double t) {
+		double y0 = c[o+1];
+		double cy0 = c[o+3];
+		double cy1 = c[o+5];
+		double y1 = c[o+7];
+		double ycoeff1 = (cy0 - y0) * 3.0;
+		double ycoeff2 = (cy1 - cy0 - cy0 + y0) * 3.0;
+		double ycoeff3 = y1 - (cy1 - cy0) * 3.0 - y0;
+		return (((ycoeff3 * t) + ycoeff2) * t + ycoeff1) * t + y0;
 	}
 
-	@Override
-	public double dXforT(double t, int deriv) {
-		switch (deriv) {
-		case 0:
-			return (((xcoeff3 * t) + xcoeff2) * t + xcoeff1) * t + xcoeff0;
-		case 1:
-			return ((3 * xcoeff3 * t) + 2 * xcoeff2) * t + xcoeff1;
-		case 2:
-			return (6 * xcoeff3 * t) + 2 * xcoeff2;
-		case 3:
-			return 6 * xcoeff3;
-		default:
-			return 0;
-		}
-	}
-
-	@Override
-	public double dYforT(double t, int deriv) {
-		switch (deriv) {
-		case 0:
-			return (((ycoeff3 * t) + ycoeff2) * t + ycoeff1) * t + ycoeff0;
-		case 1:
-			return ((3 * ycoeff3 * t) + 2 * ycoeff2) * t + ycoeff1;
-		case 2:
-			return (6 * ycoeff3 * t) + 2 * ycoeff2;
-		case 3:
-			return 6 * ycoeff3;
-		default:
-			return 0;
-		}
-	}
-
-	@Override
-	public double nextVertical(double t0, double t1) {
-		double eqn[] = {xcoeff1, 2 * xcoeff2, 3 * xcoeff3};
-		int numroots = QuadCurve2D.solveQuadratic(eqn, eqn);
+	/** Store the parameters where dx/dt is zero in <code>eqn</code> and
+	 * return how many there are.
+	 */
+	private static int getVerticalParams(double c[], int o, double eqn[]) {
+		double x0 = c[o];
+		double cx0 = c[o+2];
+		double cx1 = c[o+4];
+		double x1 = c[o+6];
+		eqn[0] = (cx0 - x0) * 3.0;
+		eqn[1] = 2 * ((cx1 - cx0 - cx0 + x0) * 3.0);
+		eqn[2] = 3 * (x1 - (cx1 - cx0) * 3.0 - x0);
+		return QuadCurve2D.solveQuadratic(eqn, eqn);
+	}
+
+	static double nextVertical(double c[], int o, double t0, double t1) {
+		double eqn[] = new double[3];
+		int numroots = getVerticalParams(c, o, eqn);
 		for (int i = 0; i < numroots; i++) {
 			if (eqn[i] > t0 && eqn[i] < t1) {
 				t1 = eqn[i];
@@ -516,29 +388,39 @@ final class Order3X extends CurveX {
 		return t1;
 	}
 
-	@Override
-	public void enlarge(Rectangle2D r) {
-		r.add(x0, y0);
-		double eqn[] = {xcoeff1, 2 * xcoeff2, 3 * xcoeff3};
-		int numroots = QuadCurve2D.solveQuadratic(eqn, eqn);
+	static void enlarge(double c[], int o, Rectangle2D r) {
+		r.add(c[o], c[o+1]);
+		double eqn[] = new double[3];
+		int numroots = getVerticalParams(c, o, eqn);
 		for (int i = 0; i < numroots; i++) {
 			double t = eqn[i];
 			if (t > 0 && t < 1) {
-				r.add(XforT(t), YforT(t));
+				r.add(XforT(c, o, t), YforT(c, o, t));
 			}
 		}
-		r.add(x1, y1);
-	}
-
-	@Override
-	public CurveX getSubCurve(double ystart, double yend, int dir) {
+		r.add(c[o+6], c[o+7]);
+	}
+
+	static void addSubCurve(CurveList dest, CurveList src, int index,
+			double ystart, double yend, int dir) {
+		double c[] = src.coords;
+		int o = index*CurveList.COORDS_PER_CURVE;
+		double x0 = c[o];
+		double y0 = c[o+1];
+		double cx0 = c[o+2];
+		double cy0 = c[o+3];
+		double cx1 = c[o+4];
+		double cy1 = c[o+5];
+		double x1 = c[o+6];
+		double y1 = c[o+7];
 		if (ystart <= y0 && yend >= y1) {
-			return getWithDirection(dir);
+			dest.addCubic(x0, y0, cx0, cy0, cx1, cy1, x1, y1, dir);
+			return;
 		}
 		double eqn[] = new double[14];
 		double t0, t1;
-		t0 = TforY(ystart);
-		t1 = TforY(yend);
+		t0 = src.TforY(index, ystart);
+		t1 = src.TforY(index, yend);
 		eqn[0] = x0;
 		eqn[1] = y0;
 		eqn[2] = cx0;
@@ -576,41 +458,29 @@ final class Order3X extends CurveX {
 			split(eqn, 0, t0 / t1);
 			i = 6;
 		}
-		return new Order3X(eqn[i+0], ystart,
+		dest.addCubic(eqn[i+0], ystart,
 				eqn[i+2], eqn[i+3],
 				eqn[i+4], eqn[i+5],
 				eqn[i+6], yend,
 				dir);
 	}
 
-	@Override
-	public CurveX getReversedCurve() {
-		return new Order3X(x0, y0, cx0, cy0, cx1, cy1, x1, y1, -direction);
-	}
-
-	@Override
-	public int getSegment(double coords[]) {
-		if (direction == INCREASING) {
-			coords[0] = cx0;
-			coords[1] = cy0;
-			coords[2] = cx1;
-			coords[3] = cy1;
-			coords[4] = x1;
-			coords[5] = y1;
+	static int getSegment(double c[], int o, int direction, double coords[]) {
+		if (direction == CurveX.INCREASING) {
+			coords[0] = c[o+2];
+			coords[1] = c[o+3];
+			coords[2] = c[o+4];
+			coords[3] = c[o+5];
+			coords[4] = c[o+6];
+			coords[5] = c[o+7];
 		} else {
-			coords[0] = cx1;
-			coords[1] = cy1;
-			coords[2] = cx0;
-			coords[3] = cy0;
-			coords[4] = x0;
-			coords[5] = y0;
+			coords[0] = c[o+4];
+			coords[1] = c[o+5];
+			coords[2] = c[o+2];
+			coords[3] = c[o+3];
+			coords[4] = c[o];
+			coords[5] = c[o+1];
 		}
 		return PathIterator.SEG_CUBICTO;
 	}
-
-	@Override
-	public String controlPointString() {
-		return (("("+round(getCX0())+", "+round(getCY0())+"), ")+
-				("("+round(getCX1())+", "+round(getCY1())+"), "));
-	}
 }
\ No newline at end of file
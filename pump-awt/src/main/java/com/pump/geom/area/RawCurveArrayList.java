@@ -22,19 +22,6 @@ public class RawCurveArrayList extends CurveList {
 	 * be empty after this call returns.
 	 */
 	protected void clear() {
-		// Let gc do its work
-		for (int i = 0; i < elementCount; i++)
-			elementData[i] = null;
-
 		elementCount = 0;
 	}
-
-	protected CurveX[] getArray() {
-		return elementData;
-	}
-	
-	protected CurveX[] getArray(int minArraySize) {
-		ensureCapacity(minArraySize);
-		return elementData;
-	}
 }
\ No newline at end of file
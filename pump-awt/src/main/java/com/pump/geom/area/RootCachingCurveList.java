@@ -0,0 +1,79 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.util.Arrays;
+
+/** A read-only view of another <code>CurveList</code> that remembers the
+ * last few solutions of <code>TforY()</code> for each cubic curve.
+ * <p>An <code>AreaOpX</code> asks for the same y-values over and over as it
+ * sweeps and compares its edges, and solving a cubic is much more expensive
+ * than looking up an earlier answer. The lists of an <code>AreaXBody</code>
+ * may be shared by several threads, so they cannot hold this cache
+ * themselves: instead each operation wraps them in its own view. The view
+ * shares the arrays of the original list (which must not change while the
+ * view is in use), so creating one only costs the cache.
+ */
+final class RootCachingCurveList extends CurveList {
+
+	/** The number of solutions remembered for each curve. */
+	private static final int ROOTS_PER_CURVE = 3;
+
+	/** The y-values of the cached roots, most recent first, or <code>null</code>
+	 * until the first cubic curve is solved.
+	 */
+	private double[] rootY;
+
+	/** The t-values that correspond to <code>rootY</code>. */
+	private double[] rootT;
+
+	RootCachingCurveList(CurveList curves) {
+		super(0);
+		coords = curves.coords;
+		orders = curves.orders;
+		directions = curves.directions;
+		elementCount = curves.elementCount;
+	}
+
+	@Override
+	protected void ensureCapacity(int minCapacity) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	double TforY(int index, double y) {
+		if (orders[index] != 3) {
+			return super.TforY(index, y);
+		}
+		int o = index*COORDS_PER_CURVE;
+		if (y <= coords[o+1]) return 0;
+		if (y >= coords[o+7]) return 1;
+		if (rootY == null) {
+			rootY = new double[elementCount*ROOTS_PER_CURVE];
+			rootT = new double[elementCount*ROOTS_PER_CURVE];
+			Arrays.fill(rootY, Double.NaN);
+		}
+		int r = index*ROOTS_PER_CURVE;
+		if (y == rootY[r]) return rootT[r];
+		if (y == rootY[r+1]) return rootT[r+1];
+		if (y == rootY[r+2]) return rootT[r+2];
+		double t = Order3X.TforY(coords, o, y);
+		if (t >= 0) {
+			rootY[r+2] = rootY[r+1];
+			rootT[r+2] = rootT[r+1];
+			rootY[r+1] = rootY[r];
+			rootT[r+1] = rootT[r];
+			rootY[r] = y;
+			rootT[r] = t;
+		}
+		return t;
+	}
+}
\ No newline at end of file
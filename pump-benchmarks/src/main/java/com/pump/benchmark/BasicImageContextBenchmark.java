@@ -0,0 +1,84 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.RenderingHints;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pump.image.BasicImageContext;
+
+/** This measures how long {@link BasicImageContext#drawImage(BufferedImage, Point2D, Point2D, Point2D, Point2D)}
+ * takes to render an image with a perspective transform that fills most of the destination.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BasicImageContextBenchmark {
+
+	@Param({"640x480", "1920x1080", "3840x2160"})
+	public String size;
+	
+	/** The type of the source image. The destination is always TYPE_INT_ARGB. */
+	@Param({"TYPE_INT_ARGB", "TYPE_INT_RGB", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR"})
+	public String type;
+	
+	@Param({"NEAREST_NEIGHBOR", "BILINEAR", "BICUBIC"})
+	public String interpolation;
+	
+	BufferedImage source, dest;
+	BasicImageContext context;
+	Point2D topLeft, topRight, bottomRight, bottomLeft;
+	
+	@Setup
+	public void setup() throws Exception {
+		source = BenchmarkImages.create(size, type);
+		dest = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		context = new BasicImageContext(dest);
+		Object hint = RenderingHints.class.getField("VALUE_INTERPOLATION_"+interpolation).get(null);
+		context.setRenderingHint(RenderingHints.KEY_INTERPOLATION, hint);
+		
+		int w = dest.getWidth();
+		int h = dest.getHeight();
+		topLeft = new Point2D.Double(.1*w, .05*h);
+		topRight = new Point2D.Double(.85*w, .15*h);
+		bottomRight = new Point2D.Double(.9*w, .8*h);
+		bottomLeft = new Point2D.Double(.05*w, .95*h);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		context.dispose();
+	}
+	
+	@Benchmark
+	public BufferedImage drawImage() {
+		context.drawImage(source, topLeft, topRight, bottomRight, bottomLeft);
+		return dest;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/** Static methods that create the sample images the benchmarks in this
+ * package operate on.
+ * <p>The images are deterministic (the same arguments always produce the
+ * same pixels) and resemble photographs and screenshots more than random
+ * noise does: they contain smooth gradients, hard edges and a little grain.
+ * This matters for compression and palette reduction, whose performance
+ * depends heavily on the content of the image.
+ */
+public class BenchmarkImages {
+
+	/** Parse a size of the form "640x480".
+	 * 
+	 * @param size a width and height separated by an "x".
+	 * @return an array containing the width and the height.
+	 */
+	public static int[] parseSize(String size) {
+		int i = size.indexOf('x');
+		if(i==-1)
+			throw new IllegalArgumentException("the size \""+size+"\" must resemble \"640x480\"");
+		return new int[] { 
+				Integer.parseInt(size.substring(0, i)),
+				Integer.parseInt(size.substring(i+1))
+		};
+	}
+	
+	/** Convert a name such as "TYPE_INT_ARGB" to a <code>BufferedImage</code> type.
+	 * 
+	 * @param typeName the name of a <code>BufferedImage</code> type constant.
+	 * @return the value of that constant.
+	 */
+	public static int parseType(String typeName) {
+		try {
+			return BufferedImage.class.getField(typeName).getInt(null);
+		} catch(Exception e) {
+			throw new IllegalArgumentException("unrecognized image type \""+typeName+"\"", e);
+		}
+	}
+
+	/** Create a sample image.
+	 * 
+	 * @param size a size of the form "640x480".
+	 * @param typeName the name of a <code>BufferedImage</code> type, such as "TYPE_INT_ARGB".
+	 * @return a new image.
+	 */
+	public static BufferedImage create(String size,String typeName) {
+		int[] wh = parseSize(size);
+		return create(wh[0], wh[1], parseType(typeName));
+	}
+	
+	/** Create a sample image.
+	 * 
+	 * @param width the image width.
+	 * @param height the image height.
+	 * @param type the <code>BufferedImage</code> type of the new image.
+	 * @return a new image.
+	 */
+	public static BufferedImage create(int width,int height,int type) {
+		BufferedImage bi = new BufferedImage(width, height, type);
+		Graphics2D g = bi.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setPaint(new GradientPaint(0, 0, new Color(0x2b5d9c), width, height, new Color(0xf2d15c)));
+		g.fillRect(0, 0, width, height);
+		
+		Random random = new Random(width*31+height);
+		for(int a = 0; a<40; a++) {
+			float x = random.nextFloat()*width;
+			float y = random.nextFloat()*height;
+			float r = (.02f + .1f*random.nextFloat())*Math.min(width, height);
+			Color c = new Color(random.nextInt(0xffffff));
+			g.setPaint(new GradientPaint(x-r, y-r, c, x+r, y+r, c.darker().darker()));
+			g.fill(new Ellipse2D.Float(x-r, y-r, 2*r, 2*r));
+		}
+		g.dispose();
+		
+		//add a little grain, so the color count resembles a photograph:
+		for(int y = 0; y<height; y++) {
+			for(int x = 0; x<width; x += 1+random.nextInt(3)) {
+				int argb = bi.getRGB(x, y);
+				int delta = random.nextInt(9)-4;
+				int r = clamp( ((argb >> 16) & 0xff) + delta );
+				int gr = clamp( ((argb >> 8) & 0xff) + delta );
+				int b = clamp( (argb & 0xff) + delta );
+				bi.setRGB(x, y, (argb & 0xff000000) | (r << 16) | (gr << 8) | b);
+			}
+		}
+		return bi;
+	}
+	
+	private static int clamp(int v) {
+		if(v<0) return 0;
+		if(v>255) return 255;
+		return v;
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pump.image.bmp.BmpDecoder;
+import com.pump.image.bmp.BmpDecoderIterator;
+import com.pump.image.bmp.BmpEncoder;
+
+/** This measures how long the {@link BmpDecoderIterator} takes to decode
+ * 24-bit and 32-bit BMP images that are already in memory.
+ * <p>Opaque source types are encoded as 24-bit BMPs, and translucent
+ * types are encoded as 32-bit BMPs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BmpDecoderIteratorBenchmark {
+
+	@Param({"640x480", "1920x1080", "4000x3000"})
+	public String size;
+	
+	@Param({"TYPE_INT_ARGB", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR"})
+	public String type;
+	
+	byte[] encodedImage;
+	byte[] row;
+	BufferedImage dest;
+	
+	@Setup
+	public void setup() throws IOException {
+		BufferedImage image = BenchmarkImages.create(size, type);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BmpEncoder.write(image, out);
+		encodedImage = out.toByteArray();
+		
+		BmpDecoderIterator iter = BmpDecoderIterator.get(new ByteArrayInputStream(encodedImage));
+		row = new byte[iter.getMinimumArrayLength()];
+		dest = BmpDecoder.readImage(new ByteArrayInputStream(encodedImage));
+	}
+	
+	@Benchmark
+	public byte[] iterate() throws IOException {
+		BmpDecoderIterator iter = BmpDecoderIterator.get(new ByteArrayInputStream(encodedImage));
+		while(!iter.isDone()) {
+			iter.next(row);
+		}
+		return row;
+	}
+	
+	@Benchmark
+	public BufferedImage readImage() throws IOException {
+		return BmpDecoder.readImage(new ByteArrayInputStream(encodedImage), dest);
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pump.image.pixel.BytePixelIterator;
+import com.pump.image.pixel.GenericImageSinglePassIterator;
+import com.pump.image.pixel.IntPixelIterator;
+
+/** This measures how long the {@link GenericImageSinglePassIterator} takes
+ * to decode an encoded JPEG or PNG image through the AWT toolkit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenericImageSinglePassIteratorBenchmark {
+
+	@Param({"640x480", "1920x1080", "4000x3000"})
+	public String size;
+	
+	@Param({"jpg", "png"})
+	public String format;
+	
+	/** The type of the iterator. The source type is determined by the encoded file. */
+	@Param({"TYPE_INT_ARGB", "TYPE_INT_RGB", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR"})
+	public String type;
+	
+	byte[] encodedImage;
+	int iteratorType;
+	
+	@Setup
+	public void setup() throws IOException {
+		iteratorType = BenchmarkImages.parseType(type);
+		String sourceType = format.equals("jpg") ? "TYPE_INT_RGB" : "TYPE_INT_ARGB";
+		BufferedImage image = BenchmarkImages.create(size, sourceType);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if(!ImageIO.write(image, format, out))
+			throw new IOException("ImageIO could not write \""+format+"\"");
+		encodedImage = out.toByteArray();
+	}
+	
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		Image image = Toolkit.getDefaultToolkit().createImage(encodedImage);
+		try {
+			GenericImageSinglePassIterator iter = GenericImageSinglePassIterator.get(image, iteratorType);
+			if(iter instanceof IntPixelIterator) {
+				IntPixelIterator i = (IntPixelIterator)iter;
+				int[] row = new int[i.getMinimumArrayLength()];
+				while(!i.isDone()) {
+					i.next(row);
+				}
+				blackhole.consume(row);
+			} else {
+				BytePixelIterator i = (BytePixelIterator)iter;
+				byte[] row = new byte[i.getMinimumArrayLength()];
+				while(!i.isDone()) {
+					i.next(row);
+				}
+				blackhole.consume(row);
+			}
+		} finally {
+			image.flush();
+		}
+	}
+}
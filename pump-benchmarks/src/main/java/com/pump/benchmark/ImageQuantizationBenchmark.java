@@ -0,0 +1,72 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pump.image.pixel.quantize.BiasedMedianCutColorQuantization;
+import com.pump.image.pixel.quantize.ColorLUT;
+import com.pump.image.pixel.quantize.ColorSet;
+import com.pump.image.pixel.quantize.ImageQuantization;
+
+/** This measures how long each {@link ImageQuantization} takes to map an
+ * image to a 256-color palette.
+ * <p>The palette is created once during setup, so this only measures
+ * the nearest-color lookups and error diffusion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageQuantizationBenchmark {
+
+	@Param({"320x240", "640x480", "1920x1080"})
+	public String size;
+	
+	@Param({"TYPE_INT_ARGB", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR"})
+	public String type;
+	
+	@Param({"NEAREST_NEIGHBOR", "SIMPLEST_DIFFUSION", "MEDIUM_DIFFUSION", "MOST_DIFFUSION"})
+	public String quantization;
+	
+	BufferedImage image;
+	ColorLUT lut;
+	ImageQuantization imageQuantization;
+	
+	@Setup
+	public void setup() throws Exception {
+		image = BenchmarkImages.create(size, type);
+		ColorSet set = new ColorSet(image);
+		set = new BiasedMedianCutColorQuantization().createReducedSet(set, 256, false);
+		lut = new ColorLUT( set.createIndexColorModel(false, false) );
+		imageQuantization = (ImageQuantization)ImageQuantization.class.getField(quantization).get(null);
+	}
+	
+	@Benchmark
+	public BufferedImage createImage() {
+		return imageQuantization.createImage(image, lut);
+	}
+}
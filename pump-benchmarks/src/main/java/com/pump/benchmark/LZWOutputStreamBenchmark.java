@@ -0,0 +1,92 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pump.image.gif.lzw.LZWOutputStream;
+import com.pump.image.pixel.quantize.ColorLUT;
+import com.pump.image.pixel.quantize.ColorSet;
+import com.pump.image.pixel.quantize.BiasedMedianCutColorQuantization;
+import com.pump.image.pixel.quantize.ImageQuantization;
+
+/** This measures how long the {@link LZWOutputStream} takes to compress
+ * the palette indices of a GIF frame.
+ * <p>The indices come from a sample image reduced to 256 colors, so
+ * they compress like a real (dithered) GIF frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LZWOutputStreamBenchmark {
+
+	@Param({"320x240", "640x480", "1920x1080"})
+	public String size;
+	
+	@Param({"NEAREST_NEIGHBOR", "MEDIUM_DIFFUSION"})
+	public String quantization;
+	
+	byte[] indices;
+	ByteArrayOutputStream out;
+	
+	@Setup
+	public void setup() throws Exception {
+		BufferedImage image = BenchmarkImages.create(size, "TYPE_INT_RGB");
+		ColorSet set = new ColorSet(image);
+		set = new BiasedMedianCutColorQuantization().createReducedSet(set, 256, false);
+		ColorLUT lut = new ColorLUT( set.createIndexColorModel(false, false) );
+		ImageQuantization q = (ImageQuantization)ImageQuantization.class.getField(quantization).get(null);
+		BufferedImage indexed = q.createImage(image, lut);
+		indices = ((DataBufferByte)indexed.getRaster().getDataBuffer()).getData();
+		out = new ByteArrayOutputStream(indices.length);
+	}
+	
+	/** Write one index at a time, the way the GIF encoders call this stream. */
+	@Benchmark
+	public int write() throws IOException {
+		out.reset();
+		LZWOutputStream lzw = new LZWOutputStream(out, 8, true);
+		for(int a = 0; a<indices.length; a++) {
+			lzw.write(indices[a] & 0xff);
+		}
+		lzw.finish();
+		return out.size();
+	}
+	
+	/** Write all the indices through <code>write(byte[], int, int)</code>. */
+	@Benchmark
+	public int writeArray() throws IOException {
+		out.reset();
+		LZWOutputStream lzw = new LZWOutputStream(out, 8, true);
+		lzw.write(indices, 0, indices.length);
+		lzw.finish();
+		return out.size();
+	}
+}
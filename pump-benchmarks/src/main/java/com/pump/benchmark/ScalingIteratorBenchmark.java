@@ -0,0 +1,93 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.benchmark;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pump.image.pixel.BufferedImageIterator;
+import com.pump.image.pixel.BytePixelIterator;
+import com.pump.image.pixel.IntPixelIterator;
+import com.pump.image.pixel.PixelIterator;
+import com.pump.image.pixel.Scaling;
+import com.pump.image.pixel.ScalingIterator;
+
+/** This measures how long the {@link ScalingIterator} takes to scale
+ * an image to a quarter of its original size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScalingIteratorBenchmark {
+
+	@Param({"640x480", "1920x1080", "4000x3000"})
+	public String size;
+	
+	@Param({"TYPE_INT_ARGB", "TYPE_INT_RGB", "TYPE_3BYTE_BGR", "TYPE_4BYTE_ABGR"})
+	public String type;
+	
+	BufferedImage image;
+	Dimension scaledSize;
+	
+	@Setup
+	public void setup() {
+		image = BenchmarkImages.create(size, type);
+		scaledSize = new Dimension(image.getWidth()/4, image.getHeight()/4);
+	}
+	
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		PixelIterator iter = ScalingIterator.get(BufferedImageIterator.get(image), scaledSize.width, scaledSize.height);
+		if(iter instanceof IntPixelIterator) {
+			IntPixelIterator i = (IntPixelIterator)iter;
+			int[] row = new int[i.getMinimumArrayLength()];
+			while(!i.isDone()) {
+				i.next(row);
+			}
+			blackhole.consume(row);
+		} else {
+			BytePixelIterator i = (BytePixelIterator)iter;
+			byte[] row = new byte[i.getMinimumArrayLength()];
+			while(!i.isDone()) {
+				i.next(row);
+			}
+			blackhole.consume(row);
+		}
+	}
+	
+	@Benchmark
+	public BufferedImage scale() {
+		return Scaling.scale(image, null, scaledSize);
+	}
+	
+	@Benchmark
+	public BufferedImage scaleInParallel() {
+		return Scaling.scale(image, null, scaledSize, ForkJoinPool.commonPool());
+	}
+}
@@ -0,0 +1,495 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This appends text to a file on a background thread.
+ * <p>
+ * Calls to {@link #write(String)} only place the text in a bounded ring
+ * buffer. A single writer thread keeps the file open, drains the ring buffer
+ * into a byte buffer, and writes that byte buffer to the file when it fills up
+ * or when text has been waiting longer than the flush interval.
+ * <p>
+ * Threads that call <code>write()</code> never lock each other out: they claim
+ * slots in the ring buffer with a compare-and-set. When the ring buffer is full
+ * the {@link OverflowPolicy} decides what happens.
+ * <p>
+ * All pending text is written when {@link #close()} is called, or when the JVM
+ * shuts down.
+ */
+public class AsyncLogWriter implements AutoCloseable {
+
+	/**
+	 * This determines what <code>write()</code> does when the ring buffer is
+	 * full.
+	 */
+	public enum OverflowPolicy {
+		/** Wait until the writer thread makes room. */
+		BLOCK,
+		/**
+		 * Discard the text. The number of discarded strings is available from
+		 * {@link AsyncLogWriter#getDroppedCount()}.
+		 */
+		DROP,
+		/**
+		 * Write the contents of the ring buffer (and then the new text) to the
+		 * file on the calling thread.
+		 */
+		SPILL
+	}
+
+	/** The default number of strings the ring buffer holds. */
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/** The default size of the byte buffer that is written to the file. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** The default number of milliseconds text may wait before it is written. */
+	public static final long DEFAULT_FLUSH_MILLIS = 250;
+
+	final File file;
+	final OverflowPolicy policy;
+	final long flushNanos;
+
+	private final AtomicReferenceArray<String> ring;
+	private final int mask;
+	/** The next slot to claim. */
+	private final AtomicLong tail = new AtomicLong();
+	/**
+	 * The next slot to write. This is only modified while
+	 * <code>writeLock</code> is held.
+	 */
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	/**
+	 * The number of pending strings that makes <code>write()</code> wake the
+	 * writer thread before its flush interval is up.
+	 */
+	private final int wakeThreshold;
+	/**
+	 * This is true while the writer thread is parked (or about to park). The
+	 * writer sets it before it checks the ring buffer one last time, and
+	 * producers read it after they claim a slot, so at least one of them
+	 * notices the other.
+	 */
+	private volatile boolean writerParked = false;
+
+	/**
+	 * This guards the channel, the byte buffer and the encoder. The writer
+	 * thread holds it while it drains the ring buffer, and so do threads that
+	 * spill or flush.
+	 */
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final FileChannel channel;
+	private final ByteBuffer byteBuffer;
+	private final CharsetEncoder encoder;
+	/** When the oldest unwritten byte in <code>byteBuffer</code> was encoded. */
+	private long pendingSince;
+	private boolean reportedError = false;
+
+	private final Thread writerThread;
+	private final Thread shutdownHook;
+	private volatile boolean closed = false;
+
+	/**
+	 * Create an <code>AsyncLogWriter</code> with the default capacity, buffer
+	 * size and flush interval that blocks when the ring buffer is full.
+	 * 
+	 * @param file
+	 *            the file to append text to. This is created if it doesn't
+	 *            exist.
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	public AsyncLogWriter(File file) throws IOException {
+		this(file, DEFAULT_CAPACITY, DEFAULT_BUFFER_SIZE,
+				DEFAULT_FLUSH_MILLIS, OverflowPolicy.BLOCK);
+	}
+
+	/**
+	 * Create an <code>AsyncLogWriter</code>.
+	 * 
+	 * @param file
+	 *            the file to append text to. This is created if it doesn't
+	 *            exist.
+	 * @param capacity
+	 *            the number of strings the ring buffer holds. This is rounded
+	 *            up to a power of two.
+	 * @param bufferSize
+	 *            the number of bytes that are collected before they are written
+	 *            to the file.
+	 * @param flushMillis
+	 *            the maximum number of milliseconds text waits before it is
+	 *            written to the file.
+	 * @param policy
+	 *            what to do when the ring buffer is full.
+	 * @throws IOException
+	 *             if the file cannot be opened.
+	 */
+	public AsyncLogWriter(File file, int capacity, int bufferSize,
+			long flushMillis, OverflowPolicy policy) throws IOException {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity (" + capacity
+					+ ") must be positive");
+		if (bufferSize < 16)
+			throw new IllegalArgumentException("bufferSize (" + bufferSize
+					+ ") must be at least 16");
+		if (flushMillis <= 0)
+			throw new IllegalArgumentException("flushMillis (" + flushMillis
+					+ ") must be positive");
+		if (policy == null)
+			throw new NullPointerException();
+		this.file = file;
+		this.policy = policy;
+		flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size = size << 1;
+		ring = new AtomicReferenceArray<>(size);
+		mask = size - 1;
+		wakeThreshold = Math.max(1, size / 2);
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists())
+			parent.mkdirs();
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		byteBuffer = ByteBuffer.allocate(bufferSize);
+		encoder = Charset.defaultCharset().newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		writerThread = new Thread("AsyncLogWriter: " + file.getName()) {
+			@Override
+			public void run() {
+				runWriter();
+			}
+		};
+		writerThread.setDaemon(true);
+		writerThread.start();
+
+		shutdownHook = new Thread("AsyncLogWriter shutdown: "
+				+ file.getName()) {
+			@Override
+			public void run() {
+				close();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/** Return the file this writes to. */
+	public File getFile() {
+		return file;
+	}
+
+	/** Return the policy used when the ring buffer is full. */
+	public OverflowPolicy getOverflowPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Return the number of strings that were discarded because the ring
+	 * buffer was full (or because this writer was closed).
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Queue text to append to the file. This usually returns immediately: the
+	 * text is written later on the writer thread.
+	 * 
+	 * @param s
+	 *            the text to write.
+	 */
+	public void write(String s) {
+		if (s.length() == 0)
+			return;
+		if (closed) {
+			dropped.incrementAndGet();
+			return;
+		}
+		if (offer(s)) {
+			offered();
+			return;
+		}
+
+		OverflowPolicy p = policy;
+		if (Thread.currentThread() == writerThread
+				|| writeLock.isHeldByCurrentThread()) {
+			// we're logging a problem with writing the file: we can't wait for
+			// ourselves
+			p = OverflowPolicy.DROP;
+		}
+		if (p == OverflowPolicy.DROP) {
+			// the writer may be idle until its flush interval is up: make sure
+			// it starts making room for the next call
+			LockSupport.unpark(writerThread);
+			dropped.incrementAndGet();
+		} else if (p == OverflowPolicy.SPILL) {
+			writeLock.lock();
+			try {
+				drain();
+				encode(s);
+				writeBuffer();
+			} finally {
+				writeLock.unlock();
+			}
+		} else {
+			while (!offer(s)) {
+				if (closed) {
+					dropped.incrementAndGet();
+					return;
+				}
+				LockSupport.unpark(writerThread);
+				LockSupport.parkNanos(this, 100000);
+			}
+			offered();
+		}
+	}
+
+	/**
+	 * This is called after <code>write()</code> places text in the ring
+	 * buffer.
+	 */
+	private void offered() {
+		if (closed) {
+			/*
+			 * close() may have drained the ring buffer after we checked closed
+			 * but before we claimed our slot. Either write our text ourselves
+			 * or admit that it was dropped.
+			 */
+			writeLock.lock();
+			try {
+				if (channel.isOpen()) {
+					drain();
+					writeBuffer();
+				} else {
+					discard();
+				}
+			} finally {
+				writeLock.unlock();
+			}
+			return;
+		}
+		// only wake the writer once it has a lot to do; otherwise it wakes
+		// itself up within the flush interval. Several producers may pass the
+		// threshold at once, so this is not an exact comparison.
+		if (writerParked && tail.get() - head.get() >= wakeThreshold)
+			LockSupport.unpark(writerThread);
+	}
+
+	/**
+	 * Claim the next slot in the ring buffer.
+	 * 
+	 * @return false if the ring buffer is full.
+	 */
+	private boolean offer(String s) {
+		while (true) {
+			long t = tail.get();
+			if (t - head.get() > mask)
+				return false;
+			if (tail.compareAndSet(t, t + 1)) {
+				ring.lazySet((int) (t & mask), s);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Encode everything in the ring buffer into the byte buffer. This must be
+	 * called while <code>writeLock</code> is held.
+	 * 
+	 * @return true if anything was drained.
+	 */
+	private boolean drain() {
+		long h = head.get();
+		long t = tail.get();
+		if (h == t)
+			return false;
+		while (h < t) {
+			int index = (int) (h & mask);
+			String s = ring.get(index);
+			while (s == null) {
+				// a producer claimed this slot but hasn't filled it yet
+				Thread.yield();
+				s = ring.get(index);
+			}
+			ring.lazySet(index, null);
+			h++;
+			head.lazySet(h);
+			encode(s);
+		}
+		return true;
+	}
+
+	/**
+	 * Remove everything from the ring buffer and count it as dropped. This
+	 * must be called while <code>writeLock</code> is held.
+	 */
+	private void discard() {
+		long h = head.get();
+		long t = tail.get();
+		while (h < t) {
+			int index = (int) (h & mask);
+			while (ring.get(index) == null) {
+				Thread.yield();
+			}
+			ring.lazySet(index, null);
+			h++;
+			head.lazySet(h);
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Encode text into the byte buffer, writing the byte buffer to the file
+	 * every time it fills up. This must be called while <code>writeLock</code>
+	 * is held.
+	 */
+	private void encode(String s) {
+		if (byteBuffer.position() == 0)
+			pendingSince = System.nanoTime();
+		CharBuffer chars = CharBuffer.wrap(s);
+		while (true) {
+			CoderResult result = encoder.encode(chars, byteBuffer, true);
+			if (result.isOverflow()) {
+				writeBuffer();
+			} else {
+				break;
+			}
+		}
+		encoder.reset();
+	}
+
+	/**
+	 * Write the byte buffer to the file. This must be called while
+	 * <code>writeLock</code> is held.
+	 */
+	private void writeBuffer() {
+		if (byteBuffer.position() == 0)
+			return;
+		byteBuffer.flip();
+		try {
+			while (byteBuffer.hasRemaining()) {
+				channel.write(byteBuffer);
+			}
+		} catch (IOException e) {
+			if (!reportedError) {
+				/*
+				 * If we're logging the console output then printing this error
+				 * to the console brings us right back here. Only print one
+				 * error.
+				 */
+				reportedError = true;
+				e.printStackTrace();
+			}
+		} finally {
+			byteBuffer.clear();
+		}
+	}
+
+	private void runWriter() {
+		while (true) {
+			boolean wasClosed = closed;
+			long waitNanos = flushNanos;
+			writeLock.lock();
+			try {
+				if (!channel.isOpen())
+					return;
+				drain();
+				if (byteBuffer.position() > 0) {
+					long elapsed = System.nanoTime() - pendingSince;
+					if (wasClosed || elapsed >= flushNanos) {
+						writeBuffer();
+					} else {
+						waitNanos = flushNanos - elapsed;
+					}
+				}
+				if (wasClosed && head.get() == tail.get()) {
+					closeChannel();
+					return;
+				}
+			} finally {
+				writeLock.unlock();
+			}
+			writerParked = true;
+			if (head.get() == tail.get())
+				LockSupport.parkNanos(this, waitNanos);
+			writerParked = false;
+		}
+	}
+
+	private void closeChannel() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write all pending text to the file on the calling thread.
+	 */
+	public void flush() {
+		writeLock.lock();
+		try {
+			if (!channel.isOpen())
+				return;
+			drain();
+			writeBuffer();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Write all pending text and close the file. Text passed to
+	 * <code>write()</code> after this is called is discarded.
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		LockSupport.unpark(writerThread);
+		if (Thread.currentThread() != writerThread) {
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// we're already shutting down
+		}
+	}
+}
@@ -45,6 +45,18 @@ public class ConsoleLogger extends FileLogger {
 		System.setOut(new FilterStream(System.out, OUT));
 		System.setErr(new FilterStream(System.err, ERR));
 	}
+	
+	/** Create a ConsoleLogger that writes through an {@link AsyncLogWriter}.
+	 * This is recommended for applications that print a lot: the
+	 * console output is written to the file in batches on a background thread.
+	 * 
+	 * @param writer the writer that appends text to its file.
+	 */
+	public ConsoleLogger(AsyncLogWriter writer) {
+		super(writer);
+		System.setOut(new FilterStream(System.out, OUT));
+		System.setErr(new FilterStream(System.err, ERR));
+	}
 
 
 	class FilterStream extends PrintStream {
@@ -10,43 +10,63 @@
  */
 package com.pump.io;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import com.pump.util.Receiver;
 
 /**
  * This is simple parser for CSV files.
- * 
- * TODO: write unit tests
+ * <p>
+ * Rows can be received either as a <code>List&lt;String&gt;</code>, or as a
+ * {@link Row}. The latter avoids allocating objects for every row and every
+ * cell, so it is better suited for very large files.
+ * <p>
+ * Blank lines are skipped. A cell that starts with the text qualifier may
+ * contain delimiters and line breaks, and two consecutive text qualifiers in
+ * such a cell represent one text qualifier.
  */
 public class CsvParser {
-	
+
 	public static class ParseException extends IOException {
 		private static final long serialVersionUID = 1L;
 
 		int lineNumber;
 		int position;
-		
+
 		public ParseException(String msg, int pos, int lineNumber) {
 			super(msg);
 			this.position = pos;
 			this.lineNumber = lineNumber;
 		}
-		
+
 		/**
 		 * Return the line number this exception occurred on.
 		 */
 		public int getLineNumber() {
 			return lineNumber;
 		}
-		
+
 		/**
 		 * Return the character position within this line that this exception occurred on.
 		 */
@@ -54,18 +74,340 @@ public class CsvParser {
 			return position;
 		}
 	}
-	
+
+	/**
+	 * One row of a CSV file.
+	 * <p>
+	 * The parser passes the same <code>Row</code> object to its receiver for
+	 * every row, and the <code>CharSequences</code> returned by
+	 * {@link #getField(int)} read directly from the parser's buffer. So a row
+	 * (and its fields) are only valid until the receiver returns: if you need
+	 * to keep a row, copy it with {@link #toList()}.
+	 */
+	public static class Row {
+		FieldBuffer buffer;
+		int firstField, fieldCount, lineNumber;
+		private Field[] fields = new Field[0];
+
+		void set(FieldBuffer buffer,int firstField,int fieldCount,int lineNumber) {
+			this.buffer = buffer;
+			this.firstField = firstField;
+			this.fieldCount = fieldCount;
+			this.lineNumber = lineNumber;
+		}
+
+		/**
+		 * Return the line number of this row. A row that contains line breaks
+		 * still only counts as one line.
+		 */
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * Return the number of fields (cells) in this row.
+		 */
+		public int getFieldCount() {
+			return fieldCount;
+		}
+
+		/**
+		 * Return a field of this row. This does not copy the field's characters,
+		 * and the same <code>CharSequence</code> object is returned for this
+		 * index in every row.
+		 * 
+		 * @param index the index of the field, from zero to
+		 * <code>getFieldCount() - 1</code>.
+		 */
+		public CharSequence getField(int index) {
+			checkIndex(index);
+			if(index>=fields.length) {
+				int oldLength = fields.length;
+				fields = Arrays.copyOf(fields, Math.max(index + 1, 2*oldLength));
+				for(int a = oldLength; a<fields.length; a++) {
+					fields[a] = new Field(a);
+				}
+			}
+			return fields[index];
+		}
+
+		/**
+		 * Return a field of this row as a String.
+		 * 
+		 * @param index the index of the field, from zero to
+		 * <code>getFieldCount() - 1</code>.
+		 */
+		public String getString(int index) {
+			checkIndex(index);
+			int start = getStart(index);
+			return new String(buffer.chars, start, getEnd(index) - start);
+		}
+
+		/**
+		 * Copy every field of this row into a new list.
+		 */
+		public List<String> toList() {
+			List<String> list = new ArrayList<>(fieldCount);
+			for(int a = 0; a<fieldCount; a++) {
+				list.add(getString(a));
+			}
+			return list;
+		}
+
+		@Override
+		public String toString() {
+			return toList().toString();
+		}
+
+		private void checkIndex(int index) {
+			if(index<0 || index>=fieldCount)
+				throw new IndexOutOfBoundsException("index = "+index+", field count = "+fieldCount);
+		}
+
+		int getStart(int index) {
+			int field = firstField + index;
+			return field==0 ? 0 : buffer.fieldEnds[field - 1];
+		}
+
+		int getEnd(int index) {
+			return buffer.fieldEnds[firstField + index];
+		}
+
+		/** A view of one field of the current row. */
+		class Field implements CharSequence {
+			final int index;
+
+			Field(int index) {
+				this.index = index;
+			}
+
+			@Override
+			public int length() {
+				checkIndex(index);
+				return getEnd(index) - getStart(index);
+			}
+
+			@Override
+			public char charAt(int i) {
+				int length = length();
+				if(i<0 || i>=length)
+					throw new IndexOutOfBoundsException("i = "+i+", length = "+length);
+				return buffer.chars[getStart(index) + i];
+			}
+
+			@Override
+			public CharSequence subSequence(int start, int end) {
+				int length = length();
+				if(start<0 || end>length || start>end)
+					throw new IndexOutOfBoundsException("start = "+start+", end = "+end+", length = "+length);
+				return new String(buffer.chars, getStart(index) + start, end - start);
+			}
+
+			@Override
+			public String toString() {
+				return getString(index);
+			}
+		}
+	}
+
+	/**
+	 * The characters of consecutive fields (and rows). Each field ends where
+	 * the next one starts, and each row ends where the next one starts.
+	 */
+	static class FieldBuffer {
+		char[] chars;
+		int charCount = 0;
+		/** The index in <code>chars</code> where each field ends. */
+		int[] fieldEnds = new int[16];
+		int fieldCount = 0;
+		/** The number of fields that end before each row ends. */
+		int[] rowEnds = new int[16];
+		int rowCount = 0;
+
+		FieldBuffer(int capacity) {
+			chars = new char[Math.max(16, capacity)];
+		}
+
+		void append(char ch) {
+			if(charCount==chars.length)
+				chars = Arrays.copyOf(chars, 2*chars.length);
+			chars[charCount++] = ch;
+		}
+
+		void append(char[] src,int offset,int length) {
+			if(charCount + length>chars.length)
+				chars = Arrays.copyOf(chars, Math.max(charCount + length, 2*chars.length));
+			System.arraycopy(src, offset, chars, charCount, length);
+			charCount += length;
+		}
+
+		void endField() {
+			if(fieldCount==fieldEnds.length)
+				fieldEnds = Arrays.copyOf(fieldEnds, 2*fieldEnds.length);
+			fieldEnds[fieldCount++] = charCount;
+		}
+
+		void endRow() {
+			if(rowCount==rowEnds.length)
+				rowEnds = Arrays.copyOf(rowEnds, 2*rowEnds.length);
+			rowEnds[rowCount++] = fieldCount;
+		}
+
+		void clear() {
+			charCount = 0;
+			fieldCount = 0;
+			rowCount = 0;
+		}
+	}
+
+	/* The states of a Tokenizer. */
+	private static final int ROW_START = 0;
+	private static final int FIELD_START = 1;
+	private static final int UNQUOTED = 2;
+	private static final int QUOTED = 3;
+	private static final int QUOTE_SEEN = 4;
+	private static final int AFTER_QUOTED = 5;
+
+	private static final String UNEXPECTED_CHARACTER = "Unexpected character after a wrapped cell value.";
+
+	/**
+	 * This converts blocks of characters into fields and rows in a
+	 * <code>FieldBuffer</code>. It keeps its state between blocks, so a field
+	 * may span several blocks.
+	 */
+	static class Tokenizer {
+		final char delimiter, textQualifier;
+		final FieldBuffer buffer;
+		int state = ROW_START;
+		/** The line number of the row being parsed. */
+		int lineNumber = 1;
+		/** The number of characters parsed before the current block. */
+		long charIndex = 0;
+		/** The character index where the current row started. */
+		long rowStart = 0;
+
+		Tokenizer(char delimiter,char textQualifier,FieldBuffer buffer) {
+			this.delimiter = delimiter;
+			this.textQualifier = textQualifier;
+			this.buffer = buffer;
+		}
+
+		/** This is called every time a row is added to the buffer. */
+		protected void rowFinished() {}
+
+		private void endRow() {
+			buffer.endField();
+			buffer.endRow();
+			rowFinished();
+			lineNumber++;
+			state = ROW_START;
+		}
+
+		void parse(char[] c,int offset,int length) throws ParseException {
+			int i = offset;
+			int end = offset + length;
+			while(i<end) {
+				char ch = c[i];
+				switch(state) {
+					case ROW_START:
+						if(ch=='\n' || ch=='\r') {
+							i++;
+						} else {
+							rowStart = charIndex + i - offset;
+							state = FIELD_START;
+						}
+						break;
+					case FIELD_START:
+						if(ch==textQualifier) {
+							state = QUOTED;
+							i++;
+						} else if(ch==delimiter) {
+							buffer.endField();
+							i++;
+						} else if(ch=='\n' || ch=='\r') {
+							endRow();
+							i++;
+						} else {
+							state = UNQUOTED;
+						}
+						break;
+					case UNQUOTED:
+						int runStart = i;
+						while(i<end && (ch = c[i])!=delimiter && ch!='\n' && ch!='\r') {
+							i++;
+						}
+						buffer.append(c, runStart, i - runStart);
+						if(i<end) {
+							i++;
+							if(ch==delimiter) {
+								buffer.endField();
+								state = FIELD_START;
+							} else {
+								endRow();
+							}
+						}
+						break;
+					case QUOTED:
+						runStart = i;
+						while(i<end && c[i]!=textQualifier) {
+							i++;
+						}
+						buffer.append(c, runStart, i - runStart);
+						if(i<end) {
+							state = QUOTE_SEEN;
+							i++;
+						}
+						break;
+					case QUOTE_SEEN:
+						if(ch==textQualifier) {
+							//two qualifiers in a row represent one qualifier
+							buffer.append(textQualifier);
+							state = QUOTED;
+							i++;
+						} else {
+							state = AFTER_QUOTED;
+						}
+						break;
+					default:
+						if(ch==delimiter) {
+							buffer.endField();
+							state = FIELD_START;
+						} else if(ch=='\n' || ch=='\r') {
+							endRow();
+						} else if(ch!=' ' && ch!='\t') {
+							int pos = (int)(charIndex + i - offset - rowStart) + 1;
+							throw new ParseException(UNEXPECTED_CHARACTER+" Line "+lineNumber+", pos="+pos, pos, lineNumber);
+						}
+						i++;
+				}
+			}
+			charIndex += length;
+		}
+
+		/** Finish the last row, if the text didn't end with a line break. */
+		void finish() {
+			if(state!=ROW_START)
+				endRow();
+		}
+	}
+
+	/**
+	 * When a memory-mapped file is parsed in parallel, each chunk is about this
+	 * many bytes.
+	 */
+	private static final int CHUNK_SIZE = 4*1024*1024;
+
 	protected char delimiter = ',';
 	protected char textQualifier = '\"';
-	
+
 	/**
 	 * Create a CsvParser that uses a comma as the delimited and a double quotation
 	 * as the text qualifier.
 	 */
 	public CsvParser() {
-		
+
 	}
-	
+
 	/**
 	 * Create a CsvParser.
 	 * 
@@ -76,7 +418,7 @@ public class CsvParser {
 		this.delimiter = delimiter;
 		this.textQualifier = textQualifier;
 	}
-	
+
 	/**
 	 * Parse an InputStream.
 	 * 
@@ -94,93 +436,290 @@ public class CsvParser {
 	 * @param reader the reader to parse.
 	 * @param receiver the Receiver that will be notified as new lines as parsed.
 	 */
-	public void parse(Reader reader, Receiver<List<String>> receiver) throws IOException {
-		class MeasuredReader {
-			Reader reader;
-			int pos, lineNumber;
-			MeasuredReader(Reader r,int lineNumber) {
-				reader = r;
-				this.lineNumber = lineNumber;
+	public void parse(Reader reader, final Receiver<List<String>> receiver) throws IOException {
+		parseRows(reader, new Receiver<Row>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void add(Row... rows) {
+				for(Row row : rows) {
+					receiver.add( new List[] { row.toList() });
+				}
 			}
-			
-			public int read() throws IOException {
-				int returnValue = reader.read();
-				pos++;
-				return returnValue;
+		});
+	}
+
+	/**
+	 * Parse a Reader.
+	 * 
+	 * @param reader the reader to parse.
+	 * @param receiver the Receiver that will be notified as new lines as parsed.
+	 * The same {@link Row} object is passed for every row.
+	 */
+	public void parseRows(Reader reader, final Receiver<Row> receiver) throws IOException {
+		final FieldBuffer buffer = new FieldBuffer(256);
+		final Row[] row = { new Row() };
+		Tokenizer tokenizer = new Tokenizer(delimiter, textQualifier, buffer) {
+			@Override
+			protected void rowFinished() {
+				row[0].set(buffer, 0, buffer.fieldCount, lineNumber);
+				receiver.add(row);
+				buffer.clear();
 			}
-		}
-		
-		
-		List<String> currentRow = new LinkedList<>();
-		MeasuredReader lineReader = new MeasuredReader(reader, 1);
-		int t = lineReader.read();
+		};
+		char[] chars = new char[8192];
+		int t = reader.read(chars);
 		while(t!=-1) {
-			if(t==textQualifier) {
-				//read a text-qualifier-enclosed cell:
-				StringBuilder sb = new StringBuilder();
-				t = lineReader.read();
-				readCell : while(t!=-1) {
-					if(t==textQualifier) {
-						t = lineReader.read();
-						if(t==textQualifier) {
-							sb.append( textQualifier );
-						} else {
-							break readCell;
-						}
-					} else {
-						sb.append( (char)t );
+			tokenizer.parse(chars, 0, t);
+			t = reader.read(chars);
+		}
+		tokenizer.finish();
+	}
+
+	/**
+	 * Parse a file on the common <code>ForkJoinPool</code>.
+	 * 
+	 * @see #parseRows(File, Charset, ForkJoinPool, Receiver)
+	 */
+	public void parseRows(File file, Charset charset, Receiver<Row> receiver) throws IOException {
+		parseRows(file, charset, null, receiver);
+	}
+
+	/**
+	 * Parse a file by splitting it into chunks that are memory-mapped and
+	 * parsed in parallel.
+	 * <p>
+	 * The calling thread scans the file for line breaks that end a row (line
+	 * breaks inside a text qualifier don't count), and splits the file at the
+	 * first such line break after every few megabytes. The chunks are decoded
+	 * and parsed on the pool, and then the calling thread passes their rows to
+	 * the receiver in order. Only a few chunks are held in memory at a time.
+	 * <p>
+	 * This requires a charset (such as UTF-8 or ISO-8859-1) where line breaks,
+	 * the delimiter and the text qualifier are always encoded as single ASCII
+	 * bytes. For other charsets (or if the pool only has one thread) this
+	 * parses the file on the calling thread.
+	 * 
+	 * @param file the file to parse.
+	 * @param charset the charset of the file.
+	 * @param pool the pool to parse chunks on. If this is null then the common
+	 * pool is used.
+	 * @param receiver the Receiver that will be notified as new lines as parsed.
+	 * The same {@link Row} object is passed for every row, and this is only
+	 * called on the calling thread.
+	 */
+	public void parseRows(File file, final Charset charset, ForkJoinPool pool, Receiver<Row> receiver) throws IOException {
+		if(pool==null)
+			pool = ForkJoinPool.commonPool();
+		final char delimiter = this.delimiter;
+		final char textQualifier = this.textQualifier;
+		if(pool.getParallelism()<=1 || !isSplittable(charset, delimiter, textQualifier)) {
+			try(Reader reader = new InputStreamReader(new FileInputStream(file), charset)) {
+				parseRows(reader, receiver);
+			}
+			return;
+		}
+
+		try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ChunkScanner scanner = new ChunkScanner(channel, (byte)delimiter, (byte)textQualifier);
+			int maxPendingChunks = 2*pool.getParallelism();
+			LinkedList<Future<Chunk>> pendingChunks = new LinkedList<>();
+			Row[] row = { new Row() };
+			int linesDelivered = 0;
+			long start = 0;
+			try {
+				while(start<scanner.size || !pendingChunks.isEmpty()) {
+					if(start<scanner.size && pendingChunks.size()<maxPendingChunks) {
+						final long chunkStart = start;
+						final long chunkEnd = scanner.next(start + CHUNK_SIZE);
+						pendingChunks.add(pool.submit(new Callable<Chunk>() {
+							@Override
+							public Chunk call() throws IOException {
+								return new Chunk(channel, chunkStart, chunkEnd, charset, delimiter, textQualifier);
+							}
+						}));
+						start = chunkEnd;
+						continue;
+					}
+
+					Chunk chunk = getChunk(pendingChunks.removeFirst());
+					FieldBuffer buffer = chunk.buffer;
+					for(int a = 0; a<buffer.rowCount; a++) {
+						int firstField = a==0 ? 0 : buffer.rowEnds[a - 1];
+						row[0].set(buffer, firstField, buffer.rowEnds[a] - firstField, ++linesDelivered);
+						receiver.add(row);
+					}
+					if(chunk.exception!=null) {
+						int lineNumber = linesDelivered + 1;
+						int pos = chunk.exception.getPosition();
+						throw new ParseException(UNEXPECTED_CHARACTER+" Line "+lineNumber+", pos="+pos, pos, lineNumber);
 					}
-					t = lineReader.read();
 				}
-				currentRow.add(sb.toString());
-				
-				while(t!=-1 && (t==' ' || t=='\t')) {
-					t = lineReader.read();
+			} finally {
+				for(Future<Chunk> f : pendingChunks) {
+					f.cancel(false);
 				}
-				
-				if(t=='\n' || t=='\r') {
-					//finished this row:
-					while(t=='\n' || t=='\r') {
-						t = lineReader.read();
-					}
-					receiver.add( new List[] { currentRow });
-					currentRow = new ArrayList<>(currentRow.size());
-					lineReader = new MeasuredReader(reader, lineReader.lineNumber+1);
-				} else if(!(t==-1 || t==delimiter)) {
-					throw new ParseException("Unexpected character after a wrapped cell value. Line "+lineReader.lineNumber+", pos="+lineReader.pos, lineReader.pos, lineReader.lineNumber);
+			}
+		}
+	}
+
+	private static Chunk getChunk(Future<Chunk> future) throws IOException {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			throw new IOException(e);
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException)
+				throw (IOException)cause;
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if(cause instanceof Error)
+				throw (Error)cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Return true if every line break, delimiter and text qualifier is
+	 * encoded as one ASCII byte, and those bytes never appear inside the
+	 * encoding of other characters.
+	 */
+	private static boolean isSplittable(Charset charset,char delimiter,char textQualifier) {
+		if(delimiter>=128 || textQualifier>=128)
+			return false;
+		if(!(charset.equals(StandardCharsets.UTF_8) ||
+				(charset.canEncode() && charset.newEncoder().maxBytesPerChar()==1)))
+			return false;
+		String special = new String(new char[] {'\n', '\r', delimiter, textQualifier});
+		byte[] encoded = special.getBytes(charset);
+		if(encoded.length!=special.length())
+			return false;
+		for(int a = 0; a<encoded.length; a++) {
+			if(encoded[a]!=special.charAt(a))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * This scans the bytes of a file for line breaks that end a row.
+	 */
+	private static class ChunkScanner {
+		/** The number of bytes that are mapped at a time. */
+		static final int WINDOW_SIZE = 64*1024*1024;
+
+		final FileChannel channel;
+		final long size;
+		final byte delimiter, textQualifier;
+		int state = ROW_START;
+		long position = 0;
+		MappedByteBuffer window;
+		long windowStart;
+
+		ChunkScanner(FileChannel channel,byte delimiter,byte textQualifier) throws IOException {
+			this.channel = channel;
+			this.delimiter = delimiter;
+			this.textQualifier = textQualifier;
+			size = channel.size();
+		}
+
+		/**
+		 * Return the first position at (or after) <code>minEnd</code> that
+		 * starts a new row, or the size of the file.
+		 */
+		long next(long minEnd) throws IOException {
+			while(position<size) {
+				if(window==null || position>=windowStart + window.limit()) {
+					windowStart = position;
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
 				}
-			} else {
-				if(t==delimiter) {
-					//empty!
-					currentRow.add(new String());
-					t = lineReader.read();
-				} else {
-					StringBuilder sb = new StringBuilder();
-					while(t!=-1 && t!=delimiter && t!='\n' && t!='\r') {
-						sb.append( (char)t );
-						t = lineReader.read();
-					}
-					
-					currentRow.add(sb.toString());
-					if(t=='\n' || t=='\r') {
-						//finished this row:
-						while(t=='\n' || t=='\r') {
-							t = lineReader.read();
-						}
-						receiver.add( new List[] { currentRow });
-						currentRow = new ArrayList<>(currentRow.size());
-						lineReader = new MeasuredReader(reader, lineReader.lineNumber+1);
-					} else if(t==delimiter) {
-						t = lineReader.read();
-						continue;
+				int i = (int)(position - windowStart);
+				int limit = window.limit();
+				int stop = (int)Math.max(i, Math.min(limit, minEnd - windowStart));
+
+				// this mirrors Tokenizer.parse(), except it doesn't store anything
+				while(i<limit) {
+					if(i>=stop && state==ROW_START) {
+						position = windowStart + i;
+						return position;
 					}
-					if(t==-1) {
-						if(currentRow.size()>0)
-							receiver.add( new List[] { currentRow });
-						return;
+					byte b = window.get(i++);
+					switch(state) {
+						case ROW_START:
+						case FIELD_START:
+							if(b==textQualifier) {
+								state = QUOTED;
+							} else if(b==delimiter) {
+								state = FIELD_START;
+							} else if(b=='\n' || b=='\r') {
+								state = ROW_START;
+							} else {
+								state = UNQUOTED;
+							}
+							break;
+						case UNQUOTED:
+							if(b==delimiter) {
+								state = FIELD_START;
+							} else if(b=='\n' || b=='\r') {
+								state = ROW_START;
+							}
+							break;
+						case QUOTED:
+							if(b==textQualifier)
+								state = QUOTE_SEEN;
+							break;
+						default:
+							if(state==QUOTE_SEEN && b==textQualifier) {
+								state = QUOTED;
+							} else if(b==delimiter) {
+								state = FIELD_START;
+							} else if(b=='\n' || b=='\r') {
+								state = ROW_START;
+							} else if(b!=' ' && b!='\t') {
+								// this is an error the Tokenizer will report
+								state = UNQUOTED;
+							} else {
+								state = AFTER_QUOTED;
+							}
 					}
 				}
+				position = windowStart + i;
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * The rows parsed from one chunk of a file.
+	 */
+	private static class Chunk {
+		final FieldBuffer buffer;
+		/**
+		 * The exception that stopped parsing this chunk, or null. Its line
+		 * number is relative to this chunk.
+		 */
+		ParseException exception;
+
+		Chunk(FileChannel channel,long start,long end,Charset charset,char delimiter,char textQualifier) throws IOException {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			CharBuffer chars;
+			try {
+				chars = charset.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE)
+						.decode(bytes);
+			} catch(CharacterCodingException e) {
+				//we asked the decoder to replace errors
+				throw new RuntimeException(e);
+			}
+			buffer = new FieldBuffer(chars.remaining());
+			Tokenizer tokenizer = new Tokenizer(delimiter, textQualifier, buffer);
+			try {
+				tokenizer.parse(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+				tokenizer.finish();
+			} catch(ParseException e) {
+				exception = e;
 			}
 		}
 	}
-}
\ No newline at end of file
+}
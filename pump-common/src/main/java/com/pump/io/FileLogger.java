@@ -17,10 +17,15 @@ import java.io.IOException;
 import com.pump.util.JVM;
 
 /** This logs text to a file.
+ * <p>By default every call to <code>print()</code> opens the file, appends
+ * the text and closes the file. If this logger is constructed with an
+ * {@link AsyncLogWriter} then the text is handed to that writer instead, which
+ * keeps the file open and writes batches of text on a background thread.
  */
 public class FileLogger {
 
 	File f;
+	AsyncLogWriter writer;
 	
 	public FileLogger(String name) {
 		this(createLocalLog(name));
@@ -56,6 +61,15 @@ public class FileLogger {
 		}
 	}
 
+	/** Create a <code>FileLogger</code> that writes through an <code>AsyncLogWriter</code>.
+	 * 
+	 * @param writer the writer that appends text to its file.
+	 */
+	public FileLogger(AsyncLogWriter writer) {
+		this.f = writer.getFile();
+		this.writer = writer;
+	}
+
 	public void print(Object obj) {
 		if(obj==null) 
 			obj = "null";
@@ -73,7 +87,27 @@ public class FileLogger {
 		print("\r\n");
 	}
 
+	/** Write any text that has been printed but not yet written to the file.
+	 * This only has an effect if this logger uses an <code>AsyncLogWriter</code>.
+	 */
+	public void flush() {
+		if(writer!=null)
+			writer.flush();
+	}
+
+	/** Write any pending text and close the file. This only has an effect
+	 * if this logger uses an <code>AsyncLogWriter</code>.
+	 */
+	public void close() {
+		if(writer!=null)
+			writer.close();
+	}
+
 	private void print2(String s) {
+		if(writer!=null) {
+			writer.write(s);
+			return;
+		}
 		synchronized (this) {
 			try {
 				inside++;
@@ -452,6 +452,24 @@ public class JavaParser {
 	 * @throws IOException
 	 */
 	public static void parse(Reader reader,boolean includeWhitespaceTokens,Receiver<Token> receiver) throws IOException {
+		parse(reader, includeWhitespaceTokens, 0, 0, 0, receiver);
+	}
+	
+	/** Parse Java source code that starts partway through a larger document.
+	 * <p>
+	 * The tokens this creates are positioned as if the text the reader returns
+	 * had been parsed as part of that document, so (for example) a
+	 * <code>TextComponentHighlighter</code> can parse one line at a time.
+	 * 
+	 * @param reader the reader to create {@link com.pump.io.Token} objects from.
+	 * @param includeWhitespaceTokens if false then this will ignore {@link WhitespaceToken} objects.
+	 * @param documentStart the index in the document of the first char the reader returns.
+	 * @param lineNumber the line number of the first char the reader returns.
+	 * @param lineStart the index in the document where the line containing the first char starts.
+	 * @param receiver the object that will receive tokens as they become available.
+	 * @throws IOException
+	 */
+	public static void parse(Reader reader,boolean includeWhitespaceTokens,int documentStart,int lineNumber,int lineStart,Receiver<Token> receiver) throws IOException {
 		if(reader==null)
 			throw new NullPointerException();
 		if(receiver==null)
@@ -476,12 +494,11 @@ public class JavaParser {
 		
 		StringBuffer scratch = new StringBuffer();
 		try(LookAheadReader l = new LookAheadReader(reader)) {
-			int lineNumber = 0;
-			int lastLineStart = 0;
+			int lastLineStart = lineStart;
 			parseTokens : while(l.current()!=CharacterIterator.DONE) {
 				char ch = l.current();
 				char next = l.peek(1);
-				int start = (int)l.getPosition();
+				int start = documentStart + (int)l.getPosition();
 				if(ch=='/' && next=='*') {
 					//parse a multiline comment:
 					StringBuffer comment = new StringBuffer();
@@ -499,11 +516,11 @@ public class JavaParser {
 						} else if(ch=='\r' && next=='\n') {
 							lineNumber++;
 							l.skip(2);
-							lastLineStart = (int)l.getPosition();
+							lastLineStart = documentStart + (int)l.getPosition();
 						} else if(ch=='\r' || next=='\n') {
 							lineNumber++;
 							l.next();
-							lastLineStart = (int)l.getPosition();
+							lastLineStart = documentStart + (int)l.getPosition();
 						} else {
 							l.next();
 						}
@@ -609,10 +626,10 @@ public class JavaParser {
 						if(ch=='\r' && next=='\n') {
 							lineNumber++;
 							l.skip(1);
-							lastLineStart = (int)l.getPosition();
+							lastLineStart = documentStart + (int)l.getPosition();
 						} else if(ch=='\r' || ch=='\n') {
 							lineNumber++;
-							lastLineStart = (int)l.getPosition()+1;
+							lastLineStart = documentStart + (int)l.getPosition()+1;
 						}
 						l.next();
 						next = l.peek(1);
@@ -0,0 +1,145 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.Arrays;
+
+/** This finds a longest common subsequence of two Strings using Eugene Myers'
+ * O((N+M)D) algorithm, where D is the number of characters that have to be
+ * inserted or deleted.
+ * <p>
+ * This uses the linear space refinement: instead of storing every path it
+ * searches from both ends of the Strings at once, finds where the forward and
+ * reverse paths meet, and recursively solves the two halves on either side of
+ * that point. So the memory this uses is proportional to N+M.
+ * 
+ * @see <a href="http://www.xmailserver.org/diff2.pdf">An O(ND) Difference Algorithm and Its Variations</a>
+ */
+final class MyersDiff {
+
+	/** Return the index in {@code strB} that each character in {@code strA} is matched with.
+	 * 
+	 * @param strA the first String to compare.
+	 * @param strB the second String to compare.
+	 * @return an array the length of {@code strA}. Each element is the index of the
+	 * matching character in {@code strB}, or -1 if that character of {@code strA} is
+	 * not part of the common subsequence. The matched indices always increase.
+	 */
+	static int[] getMatches(String strA,String strB) {
+		MyersDiff diff = new MyersDiff(strA, strB);
+		diff.compare(0, strA.length(), 0, strB.length());
+		return diff.matches;
+	}
+
+	final String a, b;
+	final int[] matches;
+
+	private MyersDiff(String a,String b) {
+		this.a = a;
+		this.b = b;
+		matches = new int[a.length()];
+		Arrays.fill(matches, -1);
+	}
+
+	/** Match characters of {@code a[aStart, aEnd)} with {@code b[bStart, bEnd)}. */
+	private void compare(int aStart,int aEnd,int bStart,int bEnd) {
+		while(aStart<aEnd && bStart<bEnd && a.charAt(aStart)==b.charAt(bStart)) {
+			matches[aStart++] = bStart++;
+		}
+		while(aStart<aEnd && bStart<bEnd && a.charAt(aEnd-1)==b.charAt(bEnd-1)) {
+			matches[--aEnd] = --bEnd;
+		}
+		if(aStart==aEnd || bStart==bEnd)
+			return;
+
+		int n = aEnd - aStart;
+		int m = bEnd - bStart;
+		int maxD = (n + m + 1)/2;
+		int offset = maxD;
+		int[] forward = new int[2*maxD + 2];
+		int[] reverse = new int[2*maxD + 2];
+		Arrays.fill(forward, -1);
+		Arrays.fill(reverse, -1);
+		forward[offset + 1] = 0;
+		reverse[offset + 1] = 0;
+		int delta = n - m;
+		// if delta is odd the forward path will be the first to overlap the reverse path
+		boolean checkForward = (delta & 1) != 0;
+
+		// diagonals that have run off the edge of the grid are not explored again
+		int forwardStart = 0, forwardEnd = 0, reverseStart = 0, reverseEnd = 0;
+		for(int d = 0; d<maxD; d++) {
+			for(int k = -d + forwardStart; k<=d - forwardEnd; k += 2) {
+				int i = offset + k;
+				int x;
+				if(k==-d || (k!=d && forward[i-1]<forward[i+1])) {
+					x = forward[i+1];
+				} else {
+					x = forward[i-1] + 1;
+				}
+				int y = x - k;
+				while(x<n && y<m && a.charAt(aStart+x)==b.charAt(bStart+y)) {
+					x++;
+					y++;
+				}
+				forward[i] = x;
+				if(x>n) {
+					forwardEnd += 2;
+				} else if(y>m) {
+					forwardStart += 2;
+				} else if(checkForward) {
+					int j = offset + delta - k;
+					if(j>=0 && j<reverse.length && reverse[j]!=-1 && x>=n - reverse[j]) {
+						split(aStart, aEnd, bStart, bEnd, x, y);
+						return;
+					}
+				}
+			}
+
+			for(int k = -d + reverseStart; k<=d - reverseEnd; k += 2) {
+				int i = offset + k;
+				int x;
+				if(k==-d || (k!=d && reverse[i-1]<reverse[i+1])) {
+					x = reverse[i+1];
+				} else {
+					x = reverse[i-1] + 1;
+				}
+				int y = x - k;
+				while(x<n && y<m && a.charAt(aEnd-x-1)==b.charAt(bEnd-y-1)) {
+					x++;
+					y++;
+				}
+				reverse[i] = x;
+				if(x>n) {
+					reverseEnd += 2;
+				} else if(y>m) {
+					reverseStart += 2;
+				} else if(!checkForward) {
+					int j = offset + delta - k;
+					if(j>=0 && j<forward.length && forward[j]!=-1) {
+						int forwardX = forward[j];
+						int forwardY = forwardX - (j - offset);
+						if(forwardX>=n - x) {
+							split(aStart, aEnd, bStart, bEnd, forwardX, forwardY);
+							return;
+						}
+					}
+				}
+			}
+		}
+		// nothing in common
+	}
+
+	private void split(int aStart,int aEnd,int bStart,int bEnd,int x,int y) {
+		compare(aStart, aStart + x, bStart, bStart + y);
+		compare(aStart + x, aEnd, bStart + y, bEnd);
+	}
+}
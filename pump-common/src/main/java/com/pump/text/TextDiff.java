@@ -11,19 +11,26 @@
 package com.pump.text;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeSet;
 
 /** This object can diff two Strings together to find the minimal amount of changes between
  * the two.
  * <p>
- * Note this is only intended for small strings, and depending on the similarity and length
- * of the Strings: this can be very expensive. Because it is expensive: this object
- * caches all requested diffs for cheap retrieval. So periodically you may want to
- * replace your {@code TextDiff} object to avoid store large sets of Strings and diffs
- * in memory.
+ * For small strings this considers every possible way to diff the Strings, and
+ * depending on the similarity and length of the Strings this can be very expensive. So
+ * when the combined length of the Strings exceeds the exhaustive limit (see
+ * {@link #TextDiff(int, int)}) this instead uses Eugene Myers' O((N+M)D) algorithm
+ * to find one solution that shares as many characters as possible.
+ * That solution is not always the simplest solution (because each {@code SplitSegment}
+ * also adds to the complexity), but it is usually very close, and its cost is
+ * predictable for Strings of any length.
+ * <p>
+ * Diffs are cached for cheap retrieval. The cache holds a limited number of diffs and
+ * discards the least recently used diffs first. Subclasses can override
+ * {@link #createCache(int)} to use a different cache.
  * <p>
  * This class can best be described by examples, so let's consider how this diffs
  * the two strings: "antigravity" and "gravity field". The simplest result this 
@@ -607,9 +614,53 @@ public class TextDiff {
 		}
 	}
 
-	protected Map<Key, Collection<DiffSegment>> cachedResults = new HashMap<>();
+	/** The default number of diffs a {@code TextDiff} caches. */
+	public static final int DEFAULT_CACHE_SIZE = 1000;
+	
+	/** The default maximum combined length of two Strings that are diffed
+	 * by considering every possible solution.
+	 */
+	public static final int DEFAULT_EXHAUSTIVE_LIMIT = 20;
+
+	protected Map<Key, Collection<DiffSegment>> cachedResults;
+	protected final int exhaustiveLimit;
+	
+	public TextDiff() {
+		this(DEFAULT_CACHE_SIZE, DEFAULT_EXHAUSTIVE_LIMIT);
+	}
 	
-	public TextDiff() {}
+	/** Create a new {@code TextDiff}.
+	 * 
+	 * @param cacheSize the maximum number of diffs to cache.
+	 * @param exhaustiveLimit the maximum combined length of two Strings that are diffed
+	 * by considering every possible solution. Longer Strings are diffed with Myers'
+	 * algorithm, unless all solutions are requested.
+	 */
+	public TextDiff(int cacheSize,int exhaustiveLimit) {
+		if(cacheSize<0)
+			throw new IllegalArgumentException("cacheSize ("+cacheSize+") must not be negative");
+		this.exhaustiveLimit = exhaustiveLimit;
+		cachedResults = createCache(cacheSize);
+	}
+	
+	/** Create the map used to cache diffs. This is called from the constructor.
+	 * <p>
+	 * The default implementation is a {@code LinkedHashMap} that discards the least
+	 * recently used diff when it holds more than {@code maxSize} diffs.
+	 * 
+	 * @param maxSize the maximum number of diffs this cache should hold.
+	 * @return the map to cache diffs in.
+	 */
+	protected Map<Key, Collection<DiffSegment>> createCache(final int maxSize) {
+		return new LinkedHashMap<Key, Collection<DiffSegment>>(16, .75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Collection<DiffSegment>> eldest) {
+				return size()>maxSize;
+			}
+		};
+	}
 	
 	/** Return the simplest graphs explaining the diff between strA and strB.
 	 * <p>
@@ -649,13 +700,7 @@ public class TextDiff {
 			tA = strA;
 			tB = strB;
 		}
-		Key key = new Key(tA, tB, includeAllSolutions);
-		Collection<DiffSegment> solutions = cachedResults.get(key);
-		if(solutions==null) {
-			solutions = includeAllSolutions ? new TreeSet<DiffSegment>() : new HashSet<DiffSegment>();
-			calculateSolutions( solutions, null, key, 0, 0, new Complexity() );
-			cachedResults.put(key, solutions);
-		}
+		Collection<DiffSegment> solutions = getSolutions(new Key(tA, tB, includeAllSolutions));
 		
 		DiffSegment[] returnValue = new DiffSegment[solutions.size()];
 		if(reverse) {
@@ -690,13 +735,7 @@ public class TextDiff {
 			tA = strA;
 			tB = strB;
 		}
-		Key key = new Key(tA, tB, false);
-		Collection<DiffSegment> solutions = cachedResults.get(key);
-		if(solutions==null) {
-			solutions = new HashSet<>();
-			calculateSolutions( solutions, null, key, 0, 0, new Complexity() );
-			cachedResults.put(key, solutions);
-		}
+		Collection<DiffSegment> solutions = getSolutions(new Key(tA, tB, false));
 		
 		DiffSegment returnValue = solutions.iterator().next();
 		if(reverse) {
@@ -706,6 +745,71 @@ public class TextDiff {
 		return returnValue;
 	}
 	
+	/** Return the cached solutions for a query, or calculate them if they
+	 * aren't cached yet.
+	 */
+	private Collection<DiffSegment> getSolutions(Key key) {
+		Collection<DiffSegment> solutions = cachedResults.get(key);
+		if(solutions==null) {
+			if(key.includeAllSolutions) {
+				solutions = new TreeSet<DiffSegment>();
+				calculateSolutions( solutions, null, key, 0, 0, new Complexity() );
+			} else if(key.strA.length() + key.strB.length() > exhaustiveLimit) {
+				solutions = new HashSet<DiffSegment>();
+				solutions.add(calculateMinimalEditSolution(key.strA, key.strB));
+			} else {
+				solutions = new HashSet<DiffSegment>();
+				calculateSolutions( solutions, null, key, 0, 0, new Complexity() );
+			}
+			cachedResults.put(key, solutions);
+		}
+		return solutions;
+	}
+	
+	/** Return a solution that shares as many characters as possible,
+	 * calculated with {@link MyersDiff}.
+	 * 
+	 * @param strA the first String/branch to compare.
+	 * @param strB the second String/branch to compare.
+	 * @return the head of the solution.
+	 */
+	private static DiffSegment calculateMinimalEditSolution(String strA,String strB) {
+		int[] matches = MyersDiff.getMatches(strA, strB);
+		DiffSegment head = null;
+		DiffSegment tail = null;
+		int indexA = 0;
+		int indexB = 0;
+		while(indexA<strA.length() || indexB<strB.length()) {
+			int nextA = indexA;
+			while(nextA<strA.length() && matches[nextA]==-1) {
+				nextA++;
+			}
+			int nextB = nextA<strA.length() ? matches[nextA] : strB.length();
+			DiffSegment segment = null;
+			if(nextA>indexA || nextB>indexB) {
+				segment = new SplitSegment(strA.substring(indexA, nextA), strB.substring(indexB, nextB));
+				indexA = nextA;
+				indexB = nextB;
+			} else {
+				int end = indexA;
+				while(end<strA.length() && matches[end]==indexB + end - indexA) {
+					end++;
+				}
+				segment = new SharedSegment(strA.substring(indexA, end));
+				indexB += end - indexA;
+				indexA = end;
+			}
+			if(head==null) {
+				head = segment;
+			} else {
+				tail.next = segment;
+				segment.prev = tail;
+			}
+			tail = segment;
+		}
+		return head;
+	}
+	
 	/** This is a trivial wrapper for an int value representing the minimum
 	 * complexity of a query.
 	 */
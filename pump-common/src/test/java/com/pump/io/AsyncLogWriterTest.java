@@ -0,0 +1,209 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.pump.io.AsyncLogWriter.OverflowPolicy;
+
+import junit.framework.TestCase;
+
+public class AsyncLogWriterTest extends TestCase {
+
+	/** A flush interval long enough that no test waits for it. */
+	static final long NEVER = 60000;
+
+	List<File> files = new ArrayList<>();
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (File file : files) {
+			file.delete();
+		}
+		files.clear();
+	}
+
+	private File createFile() throws Exception {
+		File file = File.createTempFile("AsyncLogWriterTest", ".txt");
+		files.add(file);
+		return file;
+	}
+
+	private static List<String> readLines(File file) throws Exception {
+		return Files.readAllLines(file.toPath(), Charset.defaultCharset());
+	}
+
+	/**
+	 * Start threads that each write <code>lineCount</code> lines of the form
+	 * "thread:line", and wait for them to finish.
+	 */
+	private static void writeConcurrently(final AsyncLogWriter writer,
+			int threadCount, final int lineCount) throws Exception {
+		Thread[] threads = new Thread[threadCount];
+		for (int a = 0; a < threads.length; a++) {
+			final int threadIndex = a;
+			threads[a] = new Thread("AsyncLogWriterTest producer " + a) {
+				@Override
+				public void run() {
+					for (int line = 0; line < lineCount; line++) {
+						writer.write(threadIndex + ":" + line + "\n");
+					}
+				}
+			};
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Assert that every line the given threads wrote is present, and that
+	 * the lines of each thread are in the order that thread wrote them.
+	 */
+	private static void assertOrdered(List<String> lines, int threadCount,
+			int lineCount) {
+		assertEquals(threadCount * lineCount, lines.size());
+		int[] next = new int[threadCount];
+		for (String line : lines) {
+			int i = line.indexOf(':');
+			int threadIndex = Integer.parseInt(line.substring(0, i));
+			int lineIndex = Integer.parseInt(line.substring(i + 1));
+			assertEquals("thread " + threadIndex, next[threadIndex], lineIndex);
+			next[threadIndex]++;
+		}
+	}
+
+	@Test
+	public void testBlockKeepsOrderAcrossProducers() throws Exception {
+		File file = createFile();
+		AsyncLogWriter writer = new AsyncLogWriter(file, 16, 256, 5,
+				OverflowPolicy.BLOCK);
+		writeConcurrently(writer, 8, 5000);
+		writer.close();
+		assertEquals(0, writer.getDroppedCount());
+		assertOrdered(readLines(file), 8, 5000);
+	}
+
+	@Test
+	public void testSpillKeepsOrderAcrossProducers() throws Exception {
+		File file = createFile();
+		AsyncLogWriter writer = new AsyncLogWriter(file, 4, 256, NEVER,
+				OverflowPolicy.SPILL);
+		writeConcurrently(writer, 8, 5000);
+		writer.close();
+		assertEquals(0, writer.getDroppedCount());
+		assertOrdered(readLines(file), 8, 5000);
+	}
+
+	/**
+	 * Every string is either written or counted as dropped, and the lines
+	 * that are written stay in order.
+	 */
+	@Test
+	public void testDropCountsEveryLostString() throws Exception {
+		File file = createFile();
+		AsyncLogWriter writer = new AsyncLogWriter(file, 8, 256, NEVER,
+				OverflowPolicy.DROP);
+		writeConcurrently(writer, 8, 5000);
+		writer.close();
+
+		List<String> lines = readLines(file);
+		assertEquals(8 * 5000, lines.size() + writer.getDroppedCount());
+		int[] last = new int[8];
+		Arrays.fill(last, -1);
+		for (String line : lines) {
+			int i = line.indexOf(':');
+			int threadIndex = Integer.parseInt(line.substring(0, i));
+			int lineIndex = Integer.parseInt(line.substring(i + 1));
+			assertTrue(lineIndex > last[threadIndex]);
+			last[threadIndex] = lineIndex;
+		}
+	}
+
+	/**
+	 * Once a burst fills the ring buffer the writer thread must drain it
+	 * right away, instead of waiting for its flush interval. A ring buffer
+	 * with only one slot is full as soon as anything is written, so the
+	 * writer has to be woken by a full ring buffer rather than a half-full one.
+	 */
+	@Test
+	public void testDropWakesWriter() throws Exception {
+		File file = createFile();
+		AsyncLogWriter writer = new AsyncLogWriter(file, 1, 256, NEVER,
+				OverflowPolicy.DROP);
+		try {
+			writeConcurrently(writer, 8, 1000);
+			assertTrue("the burst should overflow the ring buffer",
+					writer.getDroppedCount() > 0);
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (true) {
+				long dropped = writer.getDroppedCount();
+				writer.write("x\n");
+				if (writer.getDroppedCount() == dropped)
+					break;
+				assertTrue("the writer thread did not drain the ring buffer",
+						System.currentTimeMillis() < deadline);
+				Thread.sleep(1);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	@Test
+	public void testCloseFlushesPendingText() throws Exception {
+		File file = createFile();
+		AsyncLogWriter writer = new AsyncLogWriter(file, 1024, 64 * 1024,
+				NEVER, OverflowPolicy.BLOCK);
+		writeConcurrently(writer, 1, 500);
+		writer.close();
+		assertOrdered(readLines(file), 1, 500);
+
+		writer.write("late\n");
+		assertEquals(1, writer.getDroppedCount());
+		assertEquals(500, readLines(file).size());
+	}
+
+	/**
+	 * Strings written while the writer is closing are either written or
+	 * counted as dropped, never silently lost.
+	 */
+	@Test
+	public void testCloseWhileWriting() throws Exception {
+		for (int trial = 0; trial < 20; trial++) {
+			File file = createFile();
+			final AsyncLogWriter writer = new AsyncLogWriter(file, 64, 256,
+					NEVER, OverflowPolicy.BLOCK);
+			Thread closer = new Thread("AsyncLogWriterTest closer") {
+				@Override
+				public void run() {
+					writer.close();
+				}
+			};
+			closer.start();
+			writeConcurrently(writer, 4, 2000);
+			closer.join();
+			assertEquals(4 * 2000,
+					readLines(file).size() + writer.getDroppedCount());
+		}
+	}
+}
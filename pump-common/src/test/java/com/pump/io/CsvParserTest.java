@@ -0,0 +1,150 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.pump.io.CsvParser.ParseException;
+import com.pump.io.CsvParser.Row;
+import com.pump.util.Receiver;
+
+import junit.framework.TestCase;
+
+public class CsvParserTest extends TestCase {
+	
+	/** A receiver that copies every row it receives. */
+	static class RowList implements Receiver<Row> {
+		List<List<String>> rows = new ArrayList<>();
+		List<Integer> lineNumbers = new ArrayList<>();
+
+		@Override
+		public void add(Row... elements) {
+			for(Row row : elements) {
+				rows.add(row.toList());
+				lineNumbers.add(row.getLineNumber());
+			}
+		}
+	}
+	
+	private static List<List<String>> parse(String text) throws Exception {
+		RowList rows = new RowList();
+		new CsvParser().parseRows(new StringReader(text), rows);
+		return rows.rows;
+	}
+	
+	@Test
+	public void testUnquotedCells() throws Exception {
+		assertEquals(Arrays.asList(
+				Arrays.asList("a", "b", "c"),
+				Arrays.asList("1", "", "3")),
+				parse("a,b,c\n1,,3"));
+		assertEquals(Arrays.asList(
+				Arrays.asList("", "x", "")),
+				parse(",x,\r\n"));
+	}
+	
+	@Test
+	public void testQuotedCells() throws Exception {
+		assertEquals(Arrays.asList(
+				Arrays.asList("a,b", "say \"hi\"", "two\nlines"),
+				Arrays.asList("x", "")),
+				parse("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\n\"x\"  ,\"\""));
+	}
+	
+	@Test
+	public void testBlankLines() throws Exception {
+		RowList rows = new RowList();
+		new CsvParser().parseRows(new StringReader("\n\na\r\n\r\nb\n"), rows);
+		assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b")), rows.rows);
+		assertEquals(Arrays.asList(1, 2), rows.lineNumbers);
+	}
+	
+	@Test
+	public void testParseException() throws Exception {
+		try {
+			parse("a,b\n\"c\"d,e\n");
+			fail();
+		} catch(ParseException e) {
+			assertEquals(2, e.getLineNumber());
+			assertEquals(4, e.getPosition());
+		}
+	}
+	
+	@Test
+	public void testFieldViews() throws Exception {
+		final List<String> fields = new ArrayList<>();
+		new CsvParser('\t', '\'').parseRows(new StringReader("abc\t'd''e'\n"), new Receiver<Row>() {
+			@Override
+			public void add(Row... elements) {
+				for(Row row : elements) {
+					for(int a = 0; a<row.getFieldCount(); a++) {
+						CharSequence field = row.getField(a);
+						fields.add(field.length()+":"+field.charAt(1)+":"+field.subSequence(1, field.length()));
+					}
+				}
+			}
+		});
+		assertEquals(Arrays.asList("3:b:bc", "3:':'e"), fields);
+	}
+	
+	/**
+	 * Parsing a file in parallel chunks should produce the same rows as
+	 * parsing it sequentially.
+	 */
+	@Test
+	public void testParallelChunks() throws Exception {
+		File file = File.createTempFile("CsvParserTest", ".csv");
+		try {
+			Random random = new Random(0);
+			// the empty cell is last, so no row is a blank line
+			String[] cells = { "plain", "\"quoted, with comma\"", "\"line\nbreak\"", "\"\"\"\"", "\u00e9t\u00e9", "" };
+			try(Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+				for(int row = 0; row<300000; row++) {
+					int cellCount = 1 + random.nextInt(5);
+					for(int a = 0; a<cellCount; a++) {
+						if(a>0)
+							writer.write(',');
+						writer.write(cells[random.nextInt(a==0 ? cells.length - 1 : cells.length)]);
+					}
+					writer.write(random.nextInt(10)==0 ? "\r\n" : "\n");
+				}
+			}
+			
+			RowList expected = new RowList();
+			new CsvParser().parseRows(new StringReader(new String(
+					java.nio.file.Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)), expected);
+			RowList actual = new RowList();
+			ForkJoinPool pool = new ForkJoinPool(4);
+			try {
+				new CsvParser().parseRows(file, StandardCharsets.UTF_8, pool, actual);
+			} finally {
+				pool.shutdown();
+			}
+			assertEquals(300000, expected.rows.size());
+			assertEquals(expected.rows, actual.rows);
+			assertEquals(expected.lineNumbers, actual.lineNumbers);
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -161,7 +162,7 @@ public class Scrambler {
 		private static ReorderType[] reorderTypes = new ReorderType[] { ReorderType.CUT_DECK, ReorderType.REVERSE_CUT_DECK, ReorderType.REVERSE, ReorderType.REVERSE_PAIRS };
 		private class Run {
 			RunType type = null;
-			int[] data = new int[100];
+			byte[] data = new byte[100];
 			int length = 0;
 			
 			private void reset(RunType type) {
@@ -169,30 +170,35 @@ public class Scrambler {
 				length = 0;
 			}
 
-			private int[] bytes = new int[100];
-			private int[] encode() {
+			/** Encode this run and append it to the output buffer. */
+			private void encode() {
+				if(outputLength + length>output.length)
+					output = Arrays.copyOf(output, Math.max(outputLength + length, 2*output.length));
+				byte[] bytes = output;
+				int bytesOffset = outputLength;
+				outputLength += length;
+				
 				ReorderType reorderType = reorderTypes[ (reorderCycle++)%reorderTypes.length ];
 				int arrayOffset;
 				int l;
 				if(RunType.BOTH_MARKERS.equals(type)) {
 					l = length-2;
 					arrayOffset = 1;
-					bytes[0] = data[0];
-					bytes[length-1] = data[length-1];
+					bytes[bytesOffset] = data[0];
+					bytes[bytesOffset+length-1] = data[length-1];
 				} else if (RunType.NO_MARKER.equals(type)) {
 					arrayOffset = 0;
 					l = length;
 				} else {
 					l = length-1;
 					arrayOffset = 1;
-					bytes[0] = data[0];
+					bytes[bytesOffset] = data[0];
 				}
-				reorderType.reorder(data, arrayOffset, l, bytes, arrayOffset);
+				reorderType.reorder(data, arrayOffset, l, bytes, bytesOffset+arrayOffset);
 				
 				if(substitutionModel!=null) {
-					substitutionModel.applySubstitutions(markerRule, bytes, arrayOffset, l);
+					substitutionModel.applySubstitutions(markerRule, bytes, bytesOffset+arrayOffset, l);
 				}
-				return bytes;
 			}
 		}
 		
@@ -200,6 +206,8 @@ public class Scrambler {
 		final Run currentRun = new Run();
 		final SubstitutionModel substitutionModel;
 		MarkerRule markerRule;
+		/** Whether each byte is a marker according to <code>markerRule</code>. */
+		final boolean[] markers = new boolean[256];
 		int reorderCycle = 0;
 
 		/** Create a Layer.
@@ -214,6 +222,9 @@ public class Scrambler {
 				throw new NullPointerException();
 			this.markerRule = markerRule;
 			this.substitutionModel = substitutionModel;
+			for(int a = 0; a<markers.length; a++) {
+				markers[a] = markerRule.isMarker(a);
+			}
 			resetRun();
 		}
 		
@@ -221,10 +232,49 @@ public class Scrambler {
 		public synchronized void push(int b) throws IOException {
 			if(closed) throw new IllegalStateException("This Scrambler has already been closed.");
 			
+			pushByte(b);
+			pushOutput();
+		}
+		
+		@Override
+		public synchronized void push(byte[] data, int offset, int length) throws IOException {
+			if(closed) throw new IllegalStateException("This Scrambler has already been closed.");
+			
+			int end = offset + length;
+			int a = offset;
+			while(a<end) {
+				if(markers[data[a] & 0xff]) {
+					pushByte(data[a]);
+					a++;
+				} else {
+					// copy non-markers up to the next marker (or until the run is full)
+					if(currentRun.type==null) {
+						currentRun.reset( RunType.NO_MARKER );
+					}
+					int limit = Math.min(end, a + capacity - currentRun.length);
+					int stretchEnd = a + 1;
+					while(stretchEnd<limit && !markers[data[stretchEnd] & 0xff]) {
+						stretchEnd++;
+					}
+					System.arraycopy(data, a, currentRun.data, currentRun.length, stretchEnd - a);
+					currentRun.length += stretchEnd - a;
+					a = stretchEnd;
+					if(currentRun.length==capacity) {
+						currentRun.encode();
+						resetRun();
+					}
+				}
+				if(outputLength>=OUTPUT_CHUNK_SIZE)
+					pushOutput();
+			}
+			pushOutput();
+		}
+		
+		private void pushByte(int b) {
 			boolean completesRun = false;
-			if(markerRule.isMarker(b)) {
+			if(markers[b & 0xff]) {
 				if(RunType.NO_MARKER.equals(currentRun.type)) {
-					pushChunk(currentRun.encode(), currentRun.length);
+					currentRun.encode();
 					resetRun();
 				}
 				
@@ -239,20 +289,25 @@ public class Scrambler {
 					currentRun.reset( RunType.NO_MARKER );
 				}
 			}
-			currentRun.data[currentRun.length++] = b;
+			currentRun.data[currentRun.length++] = (byte)b;
 			if(completesRun || currentRun.length==capacity) {
-				pushChunk(currentRun.encode(), currentRun.length);
+				currentRun.encode();
 				resetRun();
 			}
 		}
 		
-		private synchronized void pushChunk(int[] data, int length) throws IOException {
-			if(data.length==length) {
-				super.pushChunk(data);
-			} else {
-				int[] copy = new int[length];
-				System.arraycopy(data, 0, copy, 0, length);
-				super.pushChunk(copy);
+		/** Encoded runs are collected in this buffer, and then passed
+		 * to the next encoder in blocks of up to about <code>OUTPUT_CHUNK_SIZE</code> bytes.
+		 */
+		private byte[] output = new byte[256];
+		private int outputLength = 0;
+		private static final int OUTPUT_CHUNK_SIZE = 8192;
+		
+		private void pushOutput() throws IOException {
+			if(outputLength>0) {
+				int length = outputLength;
+				outputLength = 0;
+				pushChunk(output, 0, length);
 			}
 		}
 
@@ -270,9 +325,10 @@ public class Scrambler {
 		@Override
 		protected void flush() throws IOException {
 			if(currentRun.type!=null) {
-				pushChunk(currentRun.encode(), currentRun.length);
+				currentRun.encode();
 				resetRun();
 			}
+			pushOutput();
 		}
 	}
 	
@@ -295,6 +351,30 @@ public class Scrambler {
 		 */
 		public void applySubstitutions(MarkerRule markerRule,int[] array, int arrayOffset, int length);
 		
+		/** 
+		 * This changes (substitutes) some bytes for other bytes.
+		 * <p>
+		 * This is what a {@link Layer} calls. The default implementation copies the bytes
+		 * into an <code>int</code> array and calls
+		 * {@link #applySubstitutions(MarkerRule, int[], int, int)}, so models
+		 * should override this to avoid that overhead.
+		 * 
+		 * @param markerRule the rule to determine what is and isn't a marker.
+		 * @param array the array containing bytes to alter
+		 * @param arrayOffset the first element in the array to alter
+		 * @param length the number of elements in the array to alter
+		 */
+		public default void applySubstitutions(MarkerRule markerRule,byte[] array, int arrayOffset, int length) {
+			int[] ints = new int[length];
+			for(int a = 0; a<length; a++) {
+				ints[a] = array[arrayOffset + a] & 0xff;
+			}
+			applySubstitutions(markerRule, ints, 0, length);
+			for(int a = 0; a<length; a++) {
+				array[arrayOffset + a] = (byte)ints[a];
+			}
+		}
+		
 		/**
 		 * Clone this substitution model.
 		 */
@@ -360,21 +440,54 @@ public class Scrambler {
 
 		@Override
 		public void applySubstitutions(MarkerRule markerRule,int[] array, int arrayOffset, int length) {
+			int[] lut = getLUT(markerRule);
 			for(int a = 0; a<length; a++) {
 				int oldValue = array[arrayOffset + a];
-				int ones = countOnes(oldValue);
-				
-				List<Integer> candidates = charMap.get(ones);
-				Integer position = candidates.indexOf(oldValue);
-				if(position==-1)
-					throw new IllegalArgumentException("The byte "+oldValue+" ("+((char)oldValue)+") was not included in the original characters used to created this CharacterSubstitutionModel.");
-				
-				
-				int newPos = candidates.size() - 1 - position;
-				int newValue = candidates.get(newPos);
-				if(!markerRule.isMarker(newValue))
-					array[arrayOffset + a] = newValue;
+				int newValue = oldValue>=0 && oldValue<256 ? lut[oldValue] : -1;
+				if(newValue==-1)
+					throw createMissingCharException(oldValue);
+				array[arrayOffset + a] = newValue;
+			}
+		}
+
+		@Override
+		public void applySubstitutions(MarkerRule markerRule,byte[] array, int arrayOffset, int length) {
+			int[] lut = getLUT(markerRule);
+			for(int a = 0; a<length; a++) {
+				int oldValue = array[arrayOffset + a] & 0xff;
+				int newValue = lut[oldValue];
+				if(newValue==-1)
+					throw createMissingCharException(oldValue);
+				array[arrayOffset + a] = (byte)newValue;
+			}
+		}
+		
+		private IllegalArgumentException createMissingCharException(int value) {
+			return new IllegalArgumentException("The byte "+value+" ("+((char)value)+") was not included in the original characters used to created this CharacterSubstitutionModel.");
+		}
+		
+		private MarkerRule lutMarkerRule;
+		private int[] lut;
+		
+		/**
+		 * Return the value each byte is replaced with (or -1 for bytes that
+		 * aren't in our character set). This is cached for the last MarkerRule used.
+		 */
+		private int[] getLUT(MarkerRule markerRule) {
+			if(lutMarkerRule!=markerRule) {
+				int[] newLUT = new int[256];
+				Arrays.fill(newLUT, -1);
+				for(List<Integer> candidates : charMap.values()) {
+					for(int position = 0; position<candidates.size(); position++) {
+						int oldValue = candidates.get(position);
+						int newValue = candidates.get(candidates.size() - 1 - position);
+						newLUT[oldValue] = markerRule.isMarker(newValue) ? oldValue : newValue;
+					}
+				}
+				lut = newLUT;
+				lutMarkerRule = markerRule;
 			}
+			return lut;
 		}
 	}
 	
@@ -419,6 +532,35 @@ public class Scrambler {
 			return new ByteSubstitutionModel(this);
 		}
 		
+		private MarkerRule lutMarkerRule;
+		private byte[][] luts;
+		
+		/**
+		 * This applies the same substitutions as {@link #applySubstitutions(MarkerRule, int[], int, int)},
+		 * but it looks up each byte in a table (one per runCtr value) that already accounts for the MarkerRule.
+		 */
+		@Override
+		public void applySubstitutions(MarkerRule markerRule, byte[] array, int arrayOffset, int length) {
+			if(lutMarkerRule!=markerRule) {
+				byte[][] newLUTs = new byte[3][256];
+				int[] masks = new int[] { 0x18, 0x3C, 0x7E };
+				for(int k = 0; k<3; k++) {
+					for(int d = 0; d<256; d++) {
+						int newValue = (d & ~masks[k] & 0xff) + (reverseByteLUT[d] & masks[k]);
+						newLUTs[k][d] = (byte)( markerRule.isMarker(newValue) ? d : newValue );
+					}
+				}
+				luts = newLUTs;
+				lutMarkerRule = markerRule;
+			}
+			
+			runCtr = (runCtr+1)%3;
+			byte[] lut = luts[runCtr];
+			for(int a = arrayOffset; a<arrayOffset + length; a++) {
+				array[a] = lut[array[a] & 0xff];
+			}
+		}
+		
 		@Override
 		public void applySubstitutions(MarkerRule markerRule, int[] array, int arrayOffset, int length) {
 			
@@ -471,6 +613,12 @@ public class Scrambler {
 					dest[destPos+a] = srcList[srcPos+a];
 				}
 			}
+
+			@Override
+			protected void reorder(byte[] srcList, int srcPos,
+					int length, byte[] dest, int destPos) {
+				System.arraycopy(srcList, srcPos, dest, destPos, length);
+			}
 		},
 
 		/** "ABCDEF" is encoded as "FEDCBA" */
@@ -482,6 +630,14 @@ public class Scrambler {
 					dest[destPos+a] = srcList[length-1-a+srcPos];
 				}
 			}
+
+			@Override
+			protected void reorder(byte[] srcList, int srcPos,
+					int length, byte[] dest, int destPos) {
+				for(int a = 0; a<length; a++) {
+					dest[destPos+a] = srcList[length-1-a+srcPos];
+				}
+			}
 		},
 		
 		/** "ABCDEF" is encoded as "BA"+"DC"+"FE" */
@@ -498,6 +654,19 @@ public class Scrambler {
 					}
 				}
 			}
+
+			@Override
+			protected void reorder(byte[] srcList, int srcPos,
+					int length, byte[] dest, int destPos) {
+				int a = 0;
+				for(; a+1<length; a+=2) {
+					dest[destPos+a] = srcList[srcPos+a+1];
+					dest[destPos+a+1] = srcList[srcPos+a];
+				}
+				if(a<length) {
+					dest[destPos+a] = srcList[srcPos+a];
+				}
+			}
 		},
 		
 		/** "ABCDEF" is encoded as "DEF"+"ABC" */
@@ -512,6 +681,17 @@ public class Scrambler {
 					dest[destPos+a+split] = srcList[srcPos+a];
 				}
 			}
+
+			@Override
+			protected void reorder(byte[] srcList, int srcPos,
+					int length, byte[] dest, int destPos) {
+				if(length==0)
+					return;
+				int split = length/2;
+				dest[destPos+length-1] = srcList[srcPos+length-1];
+				System.arraycopy(srcList, srcPos+split, dest, destPos, split);
+				System.arraycopy(srcList, srcPos, dest, destPos+split, split);
+			}
 		},
 
 		/** "ABCDEF" is encoded as "CBA"+"FED" */
@@ -527,6 +707,18 @@ public class Scrambler {
 					dest[destPos+a] = srcList[srcPos+length-1-a+split];
 				}
 			}
+
+			@Override
+			protected void reorder(byte[] srcList, int srcPos,
+					int length, byte[] dest, int destPos) {
+				int split = length/2;
+				for(int a = 0; a<split; a++) {
+					dest[destPos+a] = srcList[srcPos+split-1-a];
+				}
+				for(int a = split; a<length; a++) {
+					dest[destPos+a] = srcList[srcPos+length-1-a+split];
+				}
+			}
 		};
 		
 		/** Reorder a series of integers.
@@ -538,6 +730,17 @@ public class Scrambler {
 		 * @param destPos the first index in the dest array to write to
 		 */
 		protected abstract void reorder(int[] srcList,int srcPos,int length,int[] dest,int destPos);
+		
+		/** Reorder a series of bytes. This applies the same permutation as 
+		 * {@link #reorder(int[], int, int, int[], int)}.
+		 * 
+		 * @param srcList the bytes to reorder
+		 * @param srcPos the index in the srcList to begin enumeration options
+		 * @param length the number of elements to transfer/reorder
+		 * @param dest the array to store the data in
+		 * @param destPos the first index in the dest array to write to
+		 */
+		protected abstract void reorder(byte[] srcList,int srcPos,int length,byte[] dest,int destPos);
 	};
 
 	protected List<MarkerRule> layers = new ArrayList<>();
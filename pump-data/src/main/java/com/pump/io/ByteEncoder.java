@@ -14,14 +14,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 /** This object encodes a series of bytes (expressed as [0,255] integers).
  * <p>This data can be made available either in a dual-threaded push/pull model,
  * or in a single-threaded model by using the inner {@link DataListener} interface.
+ * <p>Data can be pushed one byte at a time, but large amounts of data should be
+ * pushed in blocks with {@link #push(byte[], int, int)} or {@link #push(ByteBuffer)}.
+ * Subclasses should override those methods to process a whole block (and hand
+ * off their output) in one call.
  */
 public abstract class ByteEncoder implements AutoCloseable {
 
@@ -85,6 +91,35 @@ public abstract class ByteEncoder implements AutoCloseable {
 	 * @see #close()
 	 */
 	public synchronized int[] pull() throws IOException {
+		waitForChunk();
+		int[] returnValue = null;
+		if(outgoingData!=null) {
+			returnValue = new int[outgoingLength];
+			for(int a = 0; a<outgoingLength; a++) {
+				returnValue[a] = outgoingData[outgoingOffset + a] & 0xff;
+			}
+		}
+		clearChunk();
+		return returnValue;
+	}
+	
+	/** Pull a series of bytes as they become available.
+	 * 
+	 * @return encoded bytes, or null if if <code>close()</code> 
+	 * has been called.
+	 * 
+	 * @see #pull()
+	 * @see #push(byte[], int, int)
+	 */
+	public synchronized byte[] pullBytes() throws IOException {
+		waitForChunk();
+		byte[] returnValue = outgoingData==null ? null : 
+			Arrays.copyOfRange(outgoingData, outgoingOffset, outgoingOffset + outgoingLength);
+		clearChunk();
+		return returnValue;
+	}
+	
+	private void waitForChunk() {
 		while(outgoingData==null && (!closed)) {
 			waiting++;
 			try {
@@ -93,13 +128,35 @@ public abstract class ByteEncoder implements AutoCloseable {
 			} finally {
 				waiting--;
 			}
-			
 		}
-		int[] returnValue = outgoingData;
+	}
+	
+	private void clearChunk() {
 		outgoingData = null;
 		if(waiting>0)
 			notify();
-		return returnValue;
+	}
+	
+	/** This receives chunks of data without copying them. */
+	interface ChunkReceiver {
+		/** The array is only valid until this method returns. */
+		void receive(byte[] data,int offset,int length) throws IOException;
+	}
+	
+	/** Pass the chunk that is waiting to be pulled (if any) to a ChunkReceiver.
+	 * Unlike the public <code>pull</code> methods, this does not copy the data.
+	 * 
+	 * @return false if no data was available.
+	 */
+	synchronized boolean pull(ChunkReceiver receiver) throws IOException {
+		if(outgoingData==null)
+			return false;
+		byte[] data = outgoingData;
+		int offset = outgoingOffset;
+		int length = outgoingLength;
+		clearChunk();
+		receiver.receive(data, offset, length);
+		return true;
 	}
 	
 	/** Push a byte for this encoder to process.
@@ -114,6 +171,50 @@ public abstract class ByteEncoder implements AutoCloseable {
 	 */
 	public abstract void push(int b) throws IOException;
 	
+	/** Push a block of bytes for this encoder to process.
+	 * <p>The default implementation calls {@link #push(int)} for each byte.
+	 * Subclasses should override this to process the whole block at once.
+	 * <p>Pushing blocks removes the cost of locking and handing off each byte,
+	 * but it does not make the encoding itself any cheaper: the throughput of a
+	 * {@link ChainedByteEncoder} is still bounded by the sum of the per-byte work of
+	 * its encoders. For example a <code>com.pump.data.Scrambler</code> chains about
+	 * 575 layers that each reorder and substitute every byte, so it spends a few
+	 * microseconds per byte and processes well under 1 MB/s: far from memory
+	 * bandwidth.
+	 * 
+	 * @param data the array containing the bytes to push.
+	 * @param offset the index of the first byte to push.
+	 * @param length the number of bytes to push.
+	 * 
+	 * @see #push(int)
+	 */
+	public void push(byte[] data,int offset,int length) throws IOException {
+		for(int a = 0; a<length; a++) {
+			push(data[offset + a] & 0xff);
+		}
+	}
+	
+	/** Push the remaining bytes of a buffer for this encoder to process.
+	 * When this returns the buffer's position is equal to its limit.
+	 * 
+	 * @param data the bytes to push.
+	 * 
+	 * @see #push(byte[], int, int)
+	 */
+	public void push(ByteBuffer data) throws IOException {
+		if(data.hasArray()) {
+			push(data.array(), data.arrayOffset() + data.position(), data.remaining());
+			data.position(data.limit());
+		} else {
+			byte[] block = new byte[Math.min(data.remaining(), 8192)];
+			while(data.hasRemaining()) {
+				int length = Math.min(data.remaining(), block.length);
+				data.get(block, 0, length);
+				push(block, 0, length);
+			}
+		}
+	}
+	
 	/** This is exclusively called during <code>close()</code> to give this encoder
 	 * an opportunity to write any remaining data.
 	 */
@@ -133,14 +234,38 @@ public abstract class ByteEncoder implements AutoCloseable {
 	 * @see #close()
 	 */
 	public synchronized int[] pullImmediately() {
-		int[] returnValue = outgoingData;
-		outgoingData = null;
-		if(returnValue==null && (!closed))
-			return EMPTY_ARRAY;
-		return returnValue;
+		if(outgoingData==null)
+			return closed ? null : EMPTY_ARRAY;
+		try {
+			return pull();
+		} catch(IOException e) {
+			//pull() doesn't throw an IOException when data is available
+			throw new RuntimeException(e);
+		}
 	}
 	
-	private int[] outgoingData;
+	/** This will return one of three things: an array of
+	 * available bytes, an empty array if no data is available,
+	 * or null if this encoder has been closed.
+	 * 
+	 * @see #pullBytes()
+	 * @see #pullImmediately()
+	 */
+	public synchronized byte[] pullBytesImmediately() {
+		if(outgoingData==null)
+			return closed ? null : EMPTY_BYTE_ARRAY;
+		try {
+			return pullBytes();
+		} catch(IOException e) {
+			//pullBytes() doesn't throw an IOException when data is available
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static final byte[] EMPTY_BYTE_ARRAY = new byte[] {};
+	
+	private byte[] outgoingData;
+	private int outgoingOffset, outgoingLength;
 	
 	/** Make a chunk of data available to be read.
 	 * If there is any data that hasn't been processed yet, then this method may 
@@ -149,6 +274,27 @@ public abstract class ByteEncoder implements AutoCloseable {
 	 * @param data a chunk of data that is ready to be pulled.
 	 */
 	protected void pushChunk(int[] data) throws IOException {
+		byte[] bytes = new byte[data.length];
+		for(int a = 0; a<data.length; a++) {
+			bytes[a] = (byte)data[a];
+		}
+		pushChunk(bytes, 0, bytes.length);
+	}
+	
+	/** Make a chunk of data available to be read.
+	 * If there is any data that hasn't been processed yet, then this method may 
+	 * block until previously pushed chunks are cleared by calling {@link #pull()}.
+	 * <p>
+	 * The caller may reuse the array as soon as this method returns: if the
+	 * data hasn't been pulled by then, this copies it.
+	 * 
+	 * @param data the array containing a chunk of data that is ready to be pulled.
+	 * @param offset the index of the first byte in the chunk.
+	 * @param length the number of bytes in the chunk.
+	 */
+	protected void pushChunk(byte[] data,int offset,int length) throws IOException {
+		if(length==0)
+			return;
 		while(outgoingData!=null) {
 			waiting++;
 			try {
@@ -160,7 +306,13 @@ public abstract class ByteEncoder implements AutoCloseable {
 			}
 		}
 		outgoingData = data;
+		outgoingOffset = offset;
+		outgoingLength = length;
 		if(listener!=null) listener.chunkAvailable(this);
+		if(outgoingData==data) {
+			outgoingData = Arrays.copyOfRange(data, offset, offset + length);
+			outgoingOffset = 0;
+		}
 		if(waiting>0)
 			notify();
 	}
@@ -217,24 +369,24 @@ public abstract class ByteEncoder implements AutoCloseable {
 	 */
 	protected class EncodedInputStream extends InputStream {
 		class Chunk {
-			int[] data;
+			byte[] data;
 			int pos;
 			
-			public Chunk(int[] array) {
-				data = new int[array.length];
-				System.arraycopy(array, 0, data, 0, array.length);
+			public Chunk(byte[] array) {
+				data = array;
 			}
 		}
 		
 		InputStream in;
 		List<Chunk> chunks = new LinkedList<>();
+		byte[] block = new byte[8192];
 		
 		protected EncodedInputStream(InputStream in) throws IOException {
 			this.in = in;
 			setListener(new DataListener() {
 				@Override
 				public void chunkAvailable(ByteEncoder encoder) throws IOException {
-					int[] array = encoder.pull();
+					byte[] array = encoder.pullBytes();
 					if(array.length!=0)
 						chunks.add(new Chunk(array));
 				}
@@ -245,16 +397,14 @@ public abstract class ByteEncoder implements AutoCloseable {
 			queueNext();
 		}
 
-		int ctr = 0;
 		private synchronized void queueNext() throws IOException {
 			while(chunks.size()==0) {
-				int z = in.read();
-				if(z==-1) {
+				int t = in.read(block);
+				if(t==-1) {
 					ByteEncoder.this.close();
 					return;
 				} else {
-					push(z);
-					ctr++;
+					push(block, 0, t);
 				}
 			}
 		}
@@ -264,7 +414,7 @@ public abstract class ByteEncoder implements AutoCloseable {
 			if(chunks.size()==0)
 				return -1;
 			Chunk chunk = chunks.get(0);
-			int value = chunk.data[chunk.pos++];
+			int value = chunk.data[chunk.pos++] & 0xff;
 			if(chunk.pos==chunk.data.length) {
 				chunks.remove(0);
 			}
@@ -272,6 +422,28 @@ public abstract class ByteEncoder implements AutoCloseable {
 				queueNext();
 			return value;
 		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) throws IOException {
+			if(len==0)
+				return 0;
+			if(chunks.size()==0)
+				return -1;
+			int total = 0;
+			while(total<len && chunks.size()>0) {
+				Chunk chunk = chunks.get(0);
+				int k = Math.min(len - total, chunk.data.length - chunk.pos);
+				System.arraycopy(chunk.data, chunk.pos, b, off + total, k);
+				chunk.pos += k;
+				total += k;
+				if(chunk.pos==chunk.data.length) {
+					chunks.remove(0);
+				}
+			}
+			if(chunks.size()==0)
+				queueNext();
+			return total;
+		}
 	}
 
 	/** Create an InputStrem that filters the argument's incoming data
@@ -292,13 +464,16 @@ public abstract class ByteEncoder implements AutoCloseable {
 	 * OutputStream.
 	 */
 	public synchronized OutputStream createOutputStream(final OutputStream out) {
+		final ChunkReceiver writer = new ChunkReceiver() {
+			@Override
+			public void receive(byte[] data, int offset, int length) throws IOException {
+				out.write(data, offset, length);
+			}
+		};
 		setListener(new DataListener() {
 			@Override
 			public void chunkAvailable(ByteEncoder encoder) throws IOException {
-				int[] chunk = encoder.pull();
-				for(int a = 0; a<chunk.length; a++) {
-					out.write(chunk[a]);
-				}
+				encoder.pull(writer);
 			}
 
 			@Override
@@ -307,7 +482,14 @@ public abstract class ByteEncoder implements AutoCloseable {
 		return new OutputStream() {
 			@Override
 			public void write(int b) throws IOException {
-				push(b);
+				push(b & 0xff);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				if(off<0 || len<0 || off + len>b.length)
+					throw new IndexOutOfBoundsException();
+				push(b, off, len);
 			}
 			
 			@Override
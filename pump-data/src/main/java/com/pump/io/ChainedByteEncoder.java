@@ -21,7 +21,11 @@ import java.io.IOException;
  */
 public class ChainedByteEncoder extends ByteEncoder {
 	
-	class MyDataListener implements DataListener {
+	/** This passes each chunk an encoder releases to the next encoder
+	 * in the chain (or to this object, after the last encoder) as one
+	 * block, without copying it.
+	 */
+	class MyDataListener implements DataListener, ChunkReceiver {
 		int index;
 		MyDataListener(int index) {
 			this.index = index;
@@ -29,19 +33,16 @@ public class ChainedByteEncoder extends ByteEncoder {
 		
 		@Override
 		public void chunkAvailable(ByteEncoder encoder) throws IOException {
-			int[] chunk;
-			do {
-				chunk = encoder.pullImmediately();
-				if(chunk!=null && chunk.length>0) {
-					if(index==0) {
-						pushChunk(chunk);
-					} else {
-						for(int a = 0; a<chunk.length; a++) {
-							encoders[index-1].push(chunk[a]);
-						}
-					}
-				}
-			} while(chunk!=null && chunk.length>0);
+			encoder.pull(this);
+		}
+		
+		@Override
+		public void receive(byte[] data, int offset, int length) throws IOException {
+			if(index==0) {
+				pushChunk(data, offset, length);
+			} else {
+				encoders[index-1].push(data, offset, length);
+			}
 		}
 		
 		@Override
@@ -88,6 +89,12 @@ public class ChainedByteEncoder extends ByteEncoder {
 		encoders[encoders.length-1].push(b);
 	}
 
+	@Override
+	public synchronized void push(byte[] data, int offset, int length) throws IOException {
+		addedData = true;
+		encoders[encoders.length-1].push(data, offset, length);
+	}
+
 	@Override
 	protected void flush() throws IOException {
 		for(int a = encoders.length-1; a>=0; a--) {
@@ -15,9 +15,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -25,6 +27,7 @@ import org.junit.Test;
 
 import com.pump.TestingStrings;
 import com.pump.data.Scrambler.ReorderType;
+import com.pump.io.ByteEncoder;
 
 public class ScramblerTest extends TestCase implements TestingStrings {
 
@@ -245,6 +248,95 @@ public class ScramblerTest extends TestCase implements TestingStrings {
 		assertTrue(equals(unencodedData, finalUnencodedData));
 	}
 
+	/**
+	 * Encode and decode bytes outside of [0, 127], and make sure pushing a
+	 * ByteBuffer produces the same data as writing to a stream.
+	 */
+	@Test
+	public void testEncodeDecodeBinary() throws IOException {
+		byte[] data = new byte[100000];
+		new Random(0).nextBytes(data);
+		Scrambler scrambler = new Scrambler("narwhal");
+		
+		byte[] encodedData;
+		try(ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
+			try(OutputStream scrambleOut = scrambler.createOutputStream(byteOut)) {
+				scrambleOut.write(data);
+			}
+			encodedData = byteOut.toByteArray();
+		}
+		assertEquals(data.length, encodedData.length);
+		assertFalse(equals(data, encodedData));
+		
+		ByteEncoder encoder = scrambler.createEncoder();
+		try(ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
+			OutputStream out = encoder.createOutputStream(byteOut);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+			buffer.put(data);
+			buffer.flip();
+			encoder.push(buffer);
+			out.close();
+			assertTrue(equals(encodedData, byteOut.toByteArray()));
+		}
+		
+		assertTrue(equals(data, scrambler.createEncoder().encode(encodedData)));
+	}
+
+	/**
+	 * Make sure the byte-based reordering and substitutions that a Layer uses
+	 * match the original int-based methods.
+	 */
+	@Test
+	public void testBytesMatchInts() {
+		Random random = new Random(0);
+		for(ReorderType reorderType : ReorderType.values()) {
+			for(int length = 0; length<70; length++) {
+				int[] src = new int[length + 3];
+				byte[] srcBytes = new byte[src.length];
+				for(int a = 0; a<src.length; a++) {
+					src[a] = random.nextInt(256);
+					srcBytes[a] = (byte)src[a];
+				}
+				int[] dest = new int[src.length];
+				byte[] destBytes = new byte[src.length];
+				reorderType.reorder(src, 1, length, dest, 2);
+				reorderType.reorder(srcBytes, 1, length, destBytes, 2);
+				for(int a = 2; a<length + 2; a++) {
+					assertEquals(reorderType+" "+length, dest[a], destBytes[a] & 0xff);
+				}
+			}
+		}
+		
+		String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+		Scrambler.MarkerRule[] markerRules = new Scrambler.MarkerRule[] {
+				new Scrambler.MarkerRule.Fixed('A'),
+				new Scrambler.MarkerRule.Fixed(200),
+				new Scrambler.MarkerRule.OneCount(3) };
+		for(Scrambler.MarkerRule markerRule : markerRules) {
+			Scrambler.SubstitutionModel[] models = new Scrambler.SubstitutionModel[] {
+					new Scrambler.ByteSubstitutionModel(new Random(1)),
+					new Scrambler.CharacterSubstitutionModel(new Random(1), chars) };
+			for(Scrambler.SubstitutionModel model : models) {
+				Scrambler.SubstitutionModel intModel = model.clone();
+				Scrambler.SubstitutionModel byteModel = model.clone();
+				for(int run = 0; run<10; run++) {
+					int[] ints = new int[50];
+					byte[] bytes = new byte[ints.length];
+					for(int a = 0; a<ints.length; a++) {
+						ints[a] = model instanceof Scrambler.ByteSubstitutionModel ? 
+								random.nextInt(256) : chars.charAt(random.nextInt(chars.length()));
+						bytes[a] = (byte)ints[a];
+					}
+					intModel.applySubstitutions(markerRule, ints, 5, 40);
+					byteModel.applySubstitutions(markerRule, bytes, 5, 40);
+					for(int a = 0; a<ints.length; a++) {
+						assertEquals(ints[a], bytes[a] & 0xff);
+					}
+				}
+			}
+		}
+	}
+
 	private boolean equals(byte[] array1, byte[] array2) {
 		if(array1.length!=array2.length)
 			return false;
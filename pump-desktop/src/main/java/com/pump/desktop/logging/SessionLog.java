@@ -21,6 +21,7 @@ import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
+import com.pump.io.AsyncLogWriter;
 import com.pump.io.ConsoleLogger;
 import com.pump.io.FileLogger;
 
@@ -29,6 +30,8 @@ import com.pump.io.FileLogger;
  * <p>This is intended for use with desktop applications, and each user session of the
  * desktop application is recorded in a unique file. The static initializer for this
  * class also manages a directory that keeps multiple files from past sessions.
+ * <p>The log file is written by an {@link AsyncLogWriter}, so printing to the console
+ * doesn't wait for the file. Pending text is written when the JVM shuts down.
  *
  */
 public class SessionLog {
@@ -105,8 +108,8 @@ public class SessionLog {
 
 		ConsoleLogger fileLogger;
 		
-		MyFileHandler(File file) {
-			fileLogger = new ConsoleLogger(file);
+		MyFileHandler(File file) throws IOException {
+			fileLogger = new ConsoleLogger(new AsyncLogWriter(file));
 		}
 		
 		@Override
@@ -115,10 +118,14 @@ public class SessionLog {
 		}
 
 		@Override
-		public void flush() {}
+		public void flush() {
+			fileLogger.flush();
+		}
 
 		@Override
-		public void close() {}
+		public void close() {
+			fileLogger.close();
+		}
 		
 	}
 	
@@ -126,7 +133,7 @@ public class SessionLog {
 	String appName;
 	File file;
 	
-	SessionLog(File file,String appName) {
+	SessionLog(File file,String appName) throws IOException {
 		this.file = file;
 		logger = Logger.getLogger(appName);
 		logger.addHandler(new ConsoleHandler());
@@ -17,6 +17,10 @@ import java.awt.image.IndexColorModel;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import com.pump.image.gif.block.GifGraphicControlExtension;
 import com.pump.image.gif.block.GifGraphicControlExtension.DisposalMethod;
@@ -31,6 +35,11 @@ import com.pump.image.pixel.IntARGBConverter;
  * <p>To encode the nth frame, we need to see if the (n-1)th frame, the (n-2)th frame, or
  * (as a last resort) the background color should be our starting template. Once we've decided this:
  * we can reduce the dimensions of the nth frame.
+ * <p>Once a frame's bounds and disposal method are final, the remaining work (dithering
+ * the image to its palette and compressing it) is independent of every other frame. If
+ * this encoder is constructed with an <code>Executor</code> then that work is performed
+ * on the executor for several frames at once, and the finished frames are
+ * written to the <code>OutputStream</code> in their original order.
  */
 public class BasicGifEncoder extends GifEncoder {
 	
@@ -68,6 +77,45 @@ public class BasicGifEncoder extends GifEncoder {
 			this.writeLocalColorTable = writeLocalColorTable;
 		}
 
+		/** This is non-null if the image data is being encoded asynchronously. */
+		FutureTask<GifImageDataBlock> pendingDataBlock;
+
+		/** Begin encoding the image data on an executor. After this is called this
+		 * frame should not be modified.
+		 */
+		void startEncoding(Executor executor) {
+			pendingDataBlock = new FutureTask<GifImageDataBlock>(new Callable<GifImageDataBlock>() {
+				public GifImageDataBlock call() {
+					return createDataBlock();
+				}
+			});
+			executor.execute(pendingDataBlock);
+		}
+		
+		GifImageDataBlock createDataBlock() {
+			return new GifImageDataBlock(optimizedImage, globalColorModel);
+		}
+		
+		/** Return the encoded image data, waiting for it if necessary. */
+		GifImageDataBlock getDataBlock() throws IOException {
+			if(pendingDataBlock==null)
+				return createDataBlock();
+			try {
+				return pendingDataBlock.get();
+			} catch(InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch(ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof IOException)
+					throw (IOException)cause;
+				if(cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				if(cause instanceof Error)
+					throw (Error)cause;
+				throw new RuntimeException(cause);
+			}
+		}
+
 		void write(OutputStream out) throws IOException {
 			if (durationInCentiseconds >= 0 || 
 					globalColorModel.getTransparentPixel() != -1 || 
@@ -100,7 +148,7 @@ public class BasicGifEncoder extends GifEncoder {
 				GifLocalColorTable ct = new GifLocalColorTable(globalColorModel);
 				ct.write(out);
 			}
-			GifImageDataBlock dataBlock = new GifImageDataBlock(optimizedImage, globalColorModel);
+			GifImageDataBlock dataBlock = getDataBlock();
 			dataBlock.write(out);
 		}
 
@@ -113,6 +161,35 @@ public class BasicGifEncoder extends GifEncoder {
 	
 	LinkedList<Frame> frameBuffer = new LinkedList<Frame>();
 	
+	/** Frames that are being encoded on the executor, in the order they must be written. */
+	LinkedList<Frame> encodingFrames = new LinkedList<Frame>();
+	
+	/** An optional executor to encode image data on. */
+	final Executor executor;
+	
+	/** The maximum number of frames that may be encoded on the executor at once. */
+	final int maxFramesInFlight;
+	
+	/** Create a BasicGifEncoder that encodes each frame on the thread that writes it. */
+	public BasicGifEncoder() {
+		this(null, 0);
+	}
+	
+	/** Create a BasicGifEncoder that encodes several frames at once.
+	 * 
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then each frame is encoded on the thread that writes it.
+	 * @param maxFramesInFlight the maximum number of frames that may be encoded on the
+	 * executor at once. When this limit is reached {@link #writeImage(OutputStream, BufferedImage, int, IndexColorModel, boolean)}
+	 * blocks until the oldest frame is written. This bounds the memory this encoder uses.
+	 */
+	public BasicGifEncoder(Executor executor,int maxFramesInFlight) {
+		if(executor!=null && maxFramesInFlight<1)
+			throw new IllegalArgumentException("maxFramesInFlight ("+maxFramesInFlight+") must be at least 1");
+		this.executor = executor;
+		this.maxFramesInFlight = maxFramesInFlight;
+	}
+	
 	@Override
 	public synchronized void writeImage(OutputStream out,BufferedImage image,int durationInCentiseconds, IndexColorModel globalColorModel,
 			boolean writeLocalColorTable)
@@ -148,10 +225,27 @@ public class BasicGifEncoder extends GifEncoder {
 			}
 		} finally {
 			while(frameBuffer.size()>2) {
-				frameBuffer.pop().write(out);
+				commit(out, frameBuffer.pop());
 			}
 		}
 	}
+	
+	/** Write a frame whose bounds and disposal method are final, or begin encoding
+	 * it on the executor if there is one.
+	 */
+	private void commit(OutputStream out,Frame frame) throws IOException {
+		if(executor==null) {
+			frame.write(out);
+			return;
+		}
+		frame.startEncoding(executor);
+		encodingFrames.add(frame);
+		//write frames that are already finished, and wait for the oldest if we're at the limit:
+		while(encodingFrames.size()>0 && 
+				(encodingFrames.size()>=maxFramesInFlight || encodingFrames.peek().pendingDataBlock.isDone())) {
+			encodingFrames.pop().write(out);
+		}
+	}
 
 	/** Returns the smallest possible rectangle that encloses the differences between
 	 * two images, or null if they are exactly the same.
@@ -208,7 +302,10 @@ public class BasicGifEncoder extends GifEncoder {
 	@Override
 	public synchronized void flush(OutputStream out) throws IOException {
 		while(frameBuffer.size()>0) {
-			frameBuffer.pop().write(out);
+			commit(out, frameBuffer.pop());
+		}
+		while(encodingFrames.size()>0) {
+			encodingFrames.pop().write(out);
 		}
 	}
 }
\ No newline at end of file
@@ -10,6 +10,7 @@
  */
 package com.pump.image.gif;
 
+import java.util.concurrent.Executor;
 
 /** A factory to create a {@link com.pump.image.gif.GifEncoder}.
  */
@@ -32,4 +33,17 @@ public class GifEncoderFactory {
 	public GifEncoder createEncoder() {
 		return new BasicGifEncoder();
 	}
+	
+	/** Create a GifEncoder that may encode several frames at once.
+	 * 
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then this is the same as calling {@link #createEncoder()}.
+	 * @param maxFramesInFlight the maximum number of frames that may be encoded
+	 * on the executor at once.
+	 */
+	public GifEncoder createEncoder(Executor executor,int maxFramesInFlight) {
+		if(executor==null)
+			return createEncoder();
+		return new BasicGifEncoder(executor, maxFramesInFlight);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.pump.image.gif.block.GifBlock;
+import com.pump.image.gif.block.GifGlobalColorTable;
+import com.pump.image.gif.block.GifGraphicControlExtension;
+import com.pump.image.gif.block.GifGraphicControlExtension.DisposalMethod;
+import com.pump.image.gif.block.GifImageDescriptor;
+import com.pump.image.gif.block.GifLogicalScreenDescriptor;
+import com.pump.image.gif.block.GifParser;
+import com.pump.io.MeasuredInputStream;
+
+/**
+ * This is a compact index of the frames in a GIF file.
+ * <P>
+ * This is built by skimming the file once: image data is skipped, and for
+ * each frame this only records the file offset where the frame's blocks
+ * begin, its delay and its disposal method. This is enough to report the
+ * frame count and duration, and to let a {@link GifReader} jump to any frame.
+ * <P>
+ * GIF frames are drawn on top of each other, so most frames can't be rendered
+ * without rendering the frames before them. Some frames, though, don't
+ * depend on anything that came before. This index calls these "key frames":
+ * <ul>
+ * <li>The first frame, which is drawn on a transparent canvas.</li>
+ * <li>A frame that follows a frame that restored the entire canvas to a
+ * transparent background.</li>
+ * <li>An opaque frame that covers the entire canvas and does not need to
+ * restore the previous canvas when it is disposed.</li>
+ * </ul>
+ * To render frame <i>n</i> you only need to render the frames from the
+ * nearest key frame up to <i>n</i>.
+ */
+public class GifFrameIndex {
+
+	private static final byte FLAG_KEY_FRAME = 1;
+
+	/** True if disposing this frame makes the entire canvas transparent. */
+	private static final byte FLAG_CLEARS_CANVAS = 2;
+
+	int frameCount = 0;
+	long[] offsets = new long[16];
+	int[] delays = new int[16];
+	byte[] disposalMethods = new byte[16];
+	byte[] flags = new byte[16];
+	int duration = 0;
+	GifLogicalScreenDescriptor lsd;
+	GifGlobalColorTable globalTable;
+
+	/**
+	 * Create an index of a GIF file.
+	 * 
+	 * @param file
+	 *            the GIF file to skim.
+	 * @throws IOException
+	 *             if an IO problem occurs, or if the file is not a valid GIF.
+	 */
+	public GifFrameIndex(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			read(new BufferedInputStream(in));
+		}
+	}
+
+	/**
+	 * Create an index of a GIF.
+	 * 
+	 * @param in
+	 *            the GIF data to skim. This should be at the beginning of the
+	 *            GIF header. This is not closed.
+	 * @throws IOException
+	 *             if an IO problem occurs, or if the data is not a valid GIF.
+	 */
+	public GifFrameIndex(InputStream in) throws IOException {
+		read(in);
+	}
+
+	private void read(InputStream in) throws IOException {
+		MeasuredInputStream measuredIn = new MeasuredInputStream(in);
+		GifParser p = new GifParser(measuredIn);
+		p.readNextBlock(); // header
+		lsd = (GifLogicalScreenDescriptor) p.readNextBlock();
+		if (lsd.hasGlobalColorTable())
+			globalTable = (GifGlobalColorTable) p.readNextBlock();
+
+		long frameOffset = measuredIn.getReadBytes();
+		GifGraphicControlExtension gce = null;
+		GifImageDescriptor imageDescriptor = null;
+		while (true) {
+			int type = p.getNextBlockType();
+			if (type == -1 || type == GifBlock.TRAILER) {
+				break;
+			} else if (type == GifBlock.GRAPHIC_CONTROL_EXTENSION) {
+				gce = (GifGraphicControlExtension) p.readNextBlock();
+			} else if (type == GifBlock.IMAGE_DESCRIPTOR) {
+				imageDescriptor = (GifImageDescriptor) p.readNextBlock();
+			} else if (type == GifBlock.IMAGE_DATA) {
+				p.skipNextBlock();
+				addFrame(frameOffset, gce, imageDescriptor);
+				frameOffset = measuredIn.getReadBytes();
+				gce = null;
+				imageDescriptor = null;
+			} else {
+				p.skipNextBlock();
+			}
+		}
+	}
+
+	private void addFrame(long offset, GifGraphicControlExtension gce,
+			GifImageDescriptor imageDescriptor) {
+		if (frameCount == offsets.length) {
+			int newSize = frameCount * 2;
+			offsets = Arrays.copyOf(offsets, newSize);
+			delays = Arrays.copyOf(delays, newSize);
+			disposalMethods = Arrays.copyOf(disposalMethods, newSize);
+			flags = Arrays.copyOf(flags, newSize);
+		}
+
+		DisposalMethod disposalMethod = DisposalMethod.NONE;
+		int transparentIndex = -1;
+		int delay = 0;
+		if (gce != null) {
+			disposalMethod = gce.getDisposalMethod();
+			transparentIndex = gce.getTransparentColorIndex();
+			delay = gce.getDelayTime();
+		}
+		boolean coversCanvas = imageDescriptor.getX() <= 0
+				&& imageDescriptor.getY() <= 0
+				&& imageDescriptor.getX() + imageDescriptor.getWidth() >= lsd
+						.getWidth()
+				&& imageDescriptor.getY() + imageDescriptor.getHeight() >= lsd
+						.getHeight();
+
+		byte f = 0;
+		if (frameCount == 0
+				|| (flags[frameCount - 1] & FLAG_CLEARS_CANVAS) != 0
+				|| (coversCanvas && transparentIndex == -1 && disposalMethod != DisposalMethod.PREVIOUS)) {
+			f |= FLAG_KEY_FRAME;
+		}
+		if (coversCanvas && transparentIndex != -1
+				&& disposalMethod == DisposalMethod.RESTORE_BACKGROUND) {
+			f |= FLAG_CLEARS_CANVAS;
+		}
+
+		offsets[frameCount] = offset;
+		delays[frameCount] = delay;
+		disposalMethods[frameCount] = (byte) disposalMethod.value;
+		flags[frameCount] = f;
+		duration += delay;
+		frameCount++;
+	}
+
+	/**
+	 * @return the number of frames in this GIF.
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * @return the duration of this GIF, in milliseconds.
+	 */
+	public int getDuration() {
+		return duration * 10;
+	}
+
+	/**
+	 * @return the logical screen descriptor at the beginning of this GIF.
+	 */
+	public GifLogicalScreenDescriptor getLogicalScreenDescriptor() {
+		return lsd;
+	}
+
+	/**
+	 * @return the global color table of this GIF, or <code>null</code> if
+	 *         there is none.
+	 */
+	public GifGlobalColorTable getGlobalColorTable() {
+		return globalTable;
+	}
+
+	/**
+	 * @return the offset in the file where the blocks of a frame begin. This
+	 *         points to the first block after the previous frame's image
+	 *         data (usually a graphic control extension or an image
+	 *         descriptor).
+	 */
+	public long getFrameOffset(int frameIndex) {
+		checkIndex(frameIndex);
+		return offsets[frameIndex];
+	}
+
+	/**
+	 * @return the delay of a frame in 1/100ths of a second.
+	 */
+	public int getDelayTime(int frameIndex) {
+		checkIndex(frameIndex);
+		return delays[frameIndex];
+	}
+
+	/**
+	 * @return the disposal method of a frame.
+	 */
+	public DisposalMethod getDisposalMethod(int frameIndex) {
+		checkIndex(frameIndex);
+		return DisposalMethod.valueOf(disposalMethods[frameIndex]);
+	}
+
+	/**
+	 * @return true if a frame can be rendered on a transparent canvas without
+	 *         rendering any of the frames before it.
+	 */
+	public boolean isKeyFrame(int frameIndex) {
+		checkIndex(frameIndex);
+		return (flags[frameIndex] & FLAG_KEY_FRAME) != 0;
+	}
+
+	/**
+	 * @return the index of the last key frame at or before
+	 *         <code>frameIndex</code>.
+	 */
+	public int getKeyFrame(int frameIndex) {
+		checkIndex(frameIndex);
+		while ((flags[frameIndex] & FLAG_KEY_FRAME) == 0) {
+			frameIndex--;
+		}
+		return frameIndex;
+	}
+
+	private void checkIndex(int frameIndex) {
+		if (frameIndex < 0 || frameIndex >= frameCount)
+			throw new IllegalArgumentException("frameIndex (" + frameIndex
+					+ ") must be between 0 and " + (frameCount - 1));
+	}
+}
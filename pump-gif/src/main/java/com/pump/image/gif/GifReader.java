@@ -12,6 +12,10 @@ package com.pump.image.gif;
 
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -35,6 +39,7 @@ import com.pump.image.gif.block.GifLogicalScreenDescriptor;
 import com.pump.image.gif.block.GifLoopingApplicationExtension;
 import com.pump.image.gif.block.GifParser;
 import com.pump.image.gif.block.GifPlainTextExtension;
+import com.pump.image.gif.lzw.LZWDecoder;
 
 /**
  * This is an efficient way to iterate through a GIF image. This efficiently
@@ -53,6 +58,11 @@ import com.pump.image.gif.block.GifPlainTextExtension;
  * <code>nextFrame()</code> the previous data is discarded. This should make
  * it possible to traverse through obscenely large GIF files (I've seen 2-second
  * GIF files that are over 1 MB).
+ * <P>
+ * When this is created with a <code>File</code>, this also skims the file once
+ * to build a {@link GifFrameIndex}. That index provides the frame count and
+ * duration up front, and lets {@link #getFrame(int, boolean)} jump to any frame
+ * by decoding from the nearest key frame instead of from the beginning.
  */
 public class GifReader implements AnimationReader, GifConstants {
 	/**
@@ -360,10 +370,50 @@ public class GifReader implements AnimationReader, GifConstants {
 	int duration = -1;
 	int frameCount = -1;
 
+	/**
+	 * The file this reader was created with, or <code>null</code> if this
+	 * reader was created with an <code>InputStream</code>.
+	 */
+	File file;
+
+	/**
+	 * An index of all the frames in <code>file</code>, or <code>null</code> if
+	 * it is unavailable.
+	 */
+	GifFrameIndex index;
+
+	/**
+	 * The index of the last frame returned by <code>getNextFrame()</code>, or
+	 * -1 if no frames have been read yet.
+	 */
+	int frameIndex = -1;
+
+	/**
+	 * The highest value <code>frameIndex</code> has reached. Comments before
+	 * this frame have already been collected.
+	 */
+	int maxFrameIndex = -1;
+
+	/**
+	 * Create a reader for a GIF file.
+	 * <P>
+	 * This skims the file once to build a {@link GifFrameIndex}, which provides
+	 * the frame count and duration and lets {@link #getFrame(int, boolean)}
+	 * seek to any frame.
+	 */
 	public GifReader(File file) throws IOException {
 		this(new FileInputStream(file), true);
-		frameCount = getFrameCount(file);
-		duration = getDuration(file);
+		this.file = file;
+		try {
+			index = new GifFrameIndex(file);
+			frameCount = index.getFrameCount();
+			duration = index.getDuration();
+		} catch (IOException e) {
+			// the file may still be partially readable
+			index = null;
+		} catch (RuntimeException e) {
+			index = null;
+		}
 	}
 
 	public int getFrameCount() {
@@ -382,6 +432,106 @@ public class GifReader implements AnimationReader, GifConstants {
 		}
 	}
 
+	/**
+	 * Return a specific frame of this GIF.
+	 * <P>
+	 * If this reader was created with a <code>File</code>, then this uses a
+	 * {@link GifFrameIndex} to restart decoding at the nearest key frame, so
+	 * moving backwards (or far ahead) only decodes the frames between that
+	 * key frame and the requested frame. Otherwise this can only move forward
+	 * by iterating through the frames in between.
+	 * <P>
+	 * After this method returns, <code>getNextFrame()</code> continues from
+	 * the following frame.
+	 * 
+	 * @param frameIndex
+	 *            the index of the frame to return.
+	 * @param cloneImage
+	 *            if this is <code>true</code>, this method will always
+	 *            return a new <code>BufferedImage</code>. If this is
+	 *            <code>false</code>, then this method may return the same
+	 *            <code>BufferedImage</code> that <code>getNextFrame()</code>
+	 *            updates.
+	 * @return the requested frame, or <code>null</code> if this GIF does not
+	 *         have that many frames.
+	 */
+	public BufferedImage getFrame(int frameIndex, boolean cloneImage)
+			throws IOException {
+		if (frameIndex < 0)
+			throw new IllegalArgumentException("frameIndex (" + frameIndex
+					+ ") must not be negative");
+		if (frameIndex == this.frameIndex && bi != null)
+			return cloneImage ? cloneImage(bi) : bi;
+
+		if (index != null) {
+			if (frameIndex >= index.getFrameCount())
+				return null;
+			int keyFrame = index.getKeyFrame(frameIndex);
+			if (keyFrame > this.frameIndex || frameIndex < this.frameIndex)
+				seekKeyFrame(keyFrame);
+		} else if (frameIndex < this.frameIndex) {
+			throw new IOException("Cannot seek backwards.");
+		}
+
+		BufferedImage image = null;
+		while (this.frameIndex < frameIndex) {
+			image = getNextFrame(false);
+			if (image == null)
+				return null;
+		}
+		return cloneImage ? cloneImage(image) : image;
+	}
+
+	/**
+	 * Reposition this reader so the next call to <code>getNextFrame()</code>
+	 * returns a key frame.
+	 */
+	private void seekKeyFrame(int keyFrame) throws IOException {
+		p.close();
+		FileInputStream fileIn = new FileInputStream(file);
+		try {
+			fileIn.getChannel().position(index.getFrameOffset(keyFrame));
+		} catch (IOException e) {
+			fileIn.close();
+			throw e;
+		}
+		p = new GifParser(new BufferedInputStream(fileIn), lsd, global);
+		finished = false;
+		frame = null;
+		frameIndex = keyFrame - 1;
+		if (bi != null) {
+			Arrays.fill(((DataBufferInt) bi.getRaster().getDataBuffer())
+					.getData(), 0);
+		}
+	}
+
+	private static BufferedImage cloneImage(BufferedImage bi) {
+		BufferedImage bi2 = new BufferedImage(bi.getWidth(), bi.getHeight(),
+				BufferedImage.TYPE_INT_ARGB);
+		Graphics g = bi2.createGraphics();
+		g.drawImage(bi, 0, 0, null);
+		g.dispose();
+		return bi2;
+	}
+
+	/**
+	 * @return the {@link GifFrameIndex} for this GIF, or <code>null</code> if
+	 *         this reader was created with an <code>InputStream</code> or the
+	 *         file could not be indexed.
+	 */
+	public GifFrameIndex getFrameIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the index of the last frame returned by
+	 *         <code>getNextFrame()</code> or <code>getFrame()</code>, or -1 if
+	 *         no frames have been read yet.
+	 */
+	public int getCurrentFrameIndex() {
+		return frameIndex;
+	}
+
 	public double getDuration() {
 		return ((double)duration)/1000.0 ;
 	}
@@ -453,6 +603,8 @@ public class GifReader implements AnimationReader, GifConstants {
 			GifBlock b = p.readNextBlock();
 			if (b == null) {
 				finished = true;
+				// every comment has been collected
+				maxFrameIndex = Integer.MAX_VALUE;
 				if (closeInputStreamWhenFinished)
 					p.close();
 			} else if (b instanceof GifLoopingApplicationExtension) {
@@ -462,7 +614,8 @@ public class GifReader implements AnimationReader, GifConstants {
 				localTable = (GifLocalColorTable) b;
 			} else if (b instanceof GifCommentExtension) {
 				GifCommentExtension c = (GifCommentExtension) b;
-				comments.add(c.getText());
+				if (frameIndex >= maxFrameIndex)
+					comments.add(c.getText());
 			} else if (b instanceof GifGraphicControlExtension) {
 				gce = (GifGraphicControlExtension) b;
 			} else if (b instanceof GifImageDataBlock) {
@@ -491,15 +644,11 @@ public class GifReader implements AnimationReader, GifConstants {
 					"There was no local or global color table available.");
 		frame = new GifFrame(lsd, gce, colorTable, imageDescriptor, imageData);
 		frame.render(bi);
+		frameIndex++;
+		maxFrameIndex = Math.max(maxFrameIndex, frameIndex);
 
-		if (cloneImage) {
-			BufferedImage bi2 = new BufferedImage(bi.getWidth(),
-					bi.getHeight(), BufferedImage.TYPE_INT_ARGB);
-			Graphics g = bi2.createGraphics();
-			g.drawImage(bi, 0, 0, null);
-			g.dispose();
-			return bi2;
-		}
+		if (cloneImage)
+			return cloneImage(bi);
 		return bi;
 	}
 
@@ -604,39 +753,83 @@ public class GifReader implements AnimationReader, GifConstants {
 						x2 - x1, y2 - y1, null);
 			}
 
-			byte[] data = imageData.getUncompressedBytes();
-			if (imageDescriptor.isInterlaced()) {
-				GifInterlace.decode(data, imageDescriptor.getWidth(),
-						imageDescriptor.getHeight());
-			}
-			int ctr = 0;
-			int[] array = (int[]) image.getRaster().getDataElements(x1, y1,
-					x2 - x1, y2 - y1, null);
-
 			int transparentIndex = -1;
 			if (gce != null)
 				transparentIndex = gce.getTransparentColorIndex();
-			for (int y = y1; y < y2; y++) {
-				for (int x = x1; x < x2; x++) {
-					int i = (data[ctr++] & 0xFF);
-					if (i != transparentIndex) {
-						array[ctr - 1] = colorTable.getRGB(i);
-					}
-					if (ctr == data.length) {
-						y = y2;
-						x = x2;
+			int[] palette = new int[256];
+			for (int a = 0; a < palette.length; a++) {
+				palette[a] = colorTable.getRGB(a);
+			}
+
+			/*
+			 * Decode one row of indices at a time, and copy it straight into
+			 * the image through the palette.
+			 */
+			WritableRaster raster = image.getRaster();
+			int[] pixels = null;
+			int pixelOffset = 0;
+			int scanlineStride = 0;
+			if (image.getType() == BufferedImage.TYPE_INT_ARGB
+					&& raster.getDataBuffer() instanceof DataBufferInt
+					&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+				DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+				pixels = buffer.getData();
+				scanlineStride = ((SinglePixelPackedSampleModel) raster
+						.getSampleModel()).getScanlineStride();
+				pixelOffset = buffer.getOffset()
+						- raster.getSampleModelTranslateY() * scanlineStride
+						- raster.getSampleModelTranslateX();
+			}
+
+			int width = imageDescriptor.getWidth();
+			int height = imageDescriptor.getHeight();
+			int dx = imageDescriptor.getX();
+			int dy = imageDescriptor.getY();
+			boolean interlaced = imageDescriptor.isInterlaced();
+			LZWDecoder decoder = imageData.createDecoder();
+			byte[] row = new byte[width];
+			int[] argbRow = pixels == null ? new int[x2 - x1] : null;
+			for (int index = 0; index < height; index++) {
+				int rowLength = 0;
+				while (rowLength < width) {
+					int k = decoder.read(row, rowLength, width - rowLength);
+					if (k == -1)
+						break;
+					rowLength += k;
+				}
+				int y = dy + (interlaced ? GifInterlace.getRow(index, height) : index);
+				int start = Math.max(x1, dx);
+				int end = Math.min(x2, dx + rowLength);
+				if (y >= y1 && y < y2 && start < end) {
+					if (pixels != null) {
+						int ptr = pixelOffset + y * scanlineStride + start;
+						for (int x = start; x < end; x++, ptr++) {
+							int i = row[x - dx] & 0xff;
+							if (i != transparentIndex) {
+								pixels[ptr] = palette[i];
+							}
+						}
+					} else {
+						raster.getDataElements(start, y, end - start, 1, argbRow);
+						for (int x = start; x < end; x++) {
+							int i = row[x - dx] & 0xff;
+							if (i != transparentIndex) {
+								argbRow[x - start] = palette[i];
+							}
+						}
+						raster.setDataElements(start, y, end - start, 1, argbRow);
 					}
 				}
+				if (rowLength < width)
+					break;
 			}
-
-			image.getRaster().setDataElements(x1, y1, x2 - x1, y2 - y1, array);
 		}
 
 		public void dispose(BufferedImage image) {
 			if (x2 - x1 == 0 && y2 - y1 == 0)
 				return;
 			if (previous != null) {
-				image.getRaster().setDataElements(x1, y1, x2, y2, previous);
+				image.getRaster().setDataElements(x1, y1, x2 - x1, y2 - y1, previous);
 				return;
 			}
 
@@ -17,6 +17,12 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 
 import com.pump.animation.AnimationReader;
 import com.pump.animation.CachedAnimation;
@@ -56,11 +62,65 @@ public class GifWriter {
 	}
 	
 	public static void write(OutputStream out,AnimationReader animation,ColorReduction colorReduction,boolean close) throws IOException {
+		write(out, animation, colorReduction, close, null, 0);
+	}
+	
+	/** Write an animation as a GIF, encoding several frames at once.
+	 * <p>The animation is read on the calling thread. Palette reduction, dithering and
+	 * compression for the next several frames are performed on the executor while
+	 * the finished frames are written to the <code>OutputStream</code> in order.
+	 * 
+	 * @param gifFile the file to write.
+	 * @param animation the animation to write.
+	 * @param colorReduction how to choose the palette of each frame.
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then every frame is encoded on the calling thread.
+	 * @param maxFramesInFlight the maximum number of frames that may be processed
+	 * on the executor at once for each stage of encoding. This limits how many frames
+	 * are held in memory.
+	 * @throws IOException if an IO problem occurs.
+	 */
+	public static void write(File gifFile,AnimationReader animation,ColorReduction colorReduction,Executor executor,int maxFramesInFlight) throws IOException {
+		if(gifFile==null) throw new NullPointerException();
+		if(animation==null) throw new NullPointerException();
+		if(colorReduction==null) throw new NullPointerException();
+		FileOutputStream fileOut = null;
+		try {
+			fileOut = new FileOutputStream(gifFile);
+			write(fileOut, animation, colorReduction, true, executor, maxFramesInFlight);
+		} finally {
+			if(fileOut!=null) {
+				try {
+					fileOut.close();
+				} catch(Exception e) {}
+			}
+		}
+	}
+	
+	/** Write an animation as a GIF, encoding several frames at once.
+	 * <p>The animation is read on the calling thread. Palette reduction, dithering and
+	 * compression for the next several frames are performed on the executor while
+	 * the finished frames are written to the <code>OutputStream</code> in order.
+	 * 
+	 * @param out the stream to write to.
+	 * @param animation the animation to write.
+	 * @param colorReduction how to choose the palette of each frame.
+	 * @param close whether to close <code>out</code> when this method is finished.
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then every frame is encoded on the calling thread.
+	 * @param maxFramesInFlight the maximum number of frames that may be processed
+	 * on the executor at once for each stage of encoding. This limits how many frames
+	 * are held in memory.
+	 * @throws IOException if an IO problem occurs.
+	 */
+	public static void write(OutputStream out,AnimationReader animation,ColorReduction colorReduction,boolean close,Executor executor,int maxFramesInFlight) throws IOException {
 		if(out==null) throw new NullPointerException();
 		if(animation==null) throw new NullPointerException();
 		if(colorReduction==null) throw new NullPointerException();
+		if(executor!=null && maxFramesInFlight<1)
+			throw new IllegalArgumentException("maxFramesInFlight ("+maxFramesInFlight+") must be at least 1");
 
-		BiasedMedianCutColorQuantization reducer = new BiasedMedianCutColorQuantization();
+		final BiasedMedianCutColorQuantization reducer = new BiasedMedianCutColorQuantization();
 
 		CachedAnimation manufacturedAnimation = null;
 		try {
@@ -79,7 +139,7 @@ public class GifWriter {
 
 				bi = animation.getNextFrame(false);
 				while(bi!=null) {
-					originalColors.addColors(bi);
+					originalColors.addColors(bi, ForkJoinPool.commonPool());
 					bi = animation.getNextFrame(false);
 				}
 				((Resettable)animation).reset();
@@ -94,7 +154,12 @@ public class GifWriter {
 					new Dimension(bi.getWidth(), bi.getHeight()),
 					globalColorModel,
 					animation.getLoopCount(),
-					0, null);
+					0, GifEncoderFactory.get().createEncoder(executor, maxFramesInFlight));
+			
+			/* Frames whose local palettes may still be being calculated on the executor,
+			 * in the order they must be written.
+			 */
+			LinkedList<PendingFrame> pendingFrames = new LinkedList<PendingFrame>();
 			
 			/* In gifs: frame durations are expressed in 1/100's of a second.
 			 * We'll have to round (and in some cases drop frames) to
@@ -109,14 +174,28 @@ public class GifWriter {
 				int centiseconds = (int)(adjustedFrameLength * 100);
 				
 				if(centiseconds>=2) {
-					IndexColorModel localPalette = null;
+					FutureTask<IndexColorModel> localPalette = null;
 					if(frameIndex>0 && ColorReduction.LOCALIZE_PALETTES.equals(colorReduction)) {
-						ColorSet localColors = new ColorSet();
-						localColors.addColors(bi);
-						ColorSet localReducedColors = reducer.createReducedSet(localColors, 255, false);
-						localPalette = localReducedColors.createIndexColorModel(true, true);
+						final BufferedImage frame = bi;
+						localPalette = new FutureTask<IndexColorModel>(new Callable<IndexColorModel>() {
+							public IndexColorModel call() {
+								ColorSet localColors = new ColorSet();
+								localColors.addColors(frame);
+								ColorSet localReducedColors = reducer.createReducedSet(localColors, 255, false);
+								return localReducedColors.createIndexColorModel(true, true);
+							}
+						});
+						if(executor==null) {
+							localPalette.run();
+						} else {
+							executor.execute(localPalette);
+						}
+					}
+					pendingFrames.add(new PendingFrame(bi, centiseconds*10, localPalette));
+					while(pendingFrames.size()>0 && 
+							(executor==null || pendingFrames.size()>=maxFramesInFlight || pendingFrames.peek().isDone())) {
+						pendingFrames.pop().write(writer);
 					}
-					writer.write(bi, centiseconds*10, localPalette);
 				} else {
 					centiseconds = 0;
 				}
@@ -126,6 +205,9 @@ public class GifWriter {
 				bi = animation.getNextFrame(true);
 				frameIndex++;
 			}
+			while(pendingFrames.size()>0) {
+				pendingFrames.pop().write(writer);
+			}
 			writer.close(false);
 		} finally {
 			if(close) {
@@ -139,6 +221,42 @@ public class GifWriter {
 		}
 	}
 	
+	/** A frame that is waiting to be passed to {@link GifWriter#write(BufferedImage, int, IndexColorModel)}. */
+	private static class PendingFrame {
+		final BufferedImage image;
+		final int duration;
+		final FutureTask<IndexColorModel> localPalette;
+		
+		PendingFrame(BufferedImage image,int duration,FutureTask<IndexColorModel> localPalette) {
+			this.image = image;
+			this.duration = duration;
+			this.localPalette = localPalette;
+		}
+		
+		boolean isDone() {
+			return localPalette==null || localPalette.isDone();
+		}
+		
+		void write(GifWriter writer) throws IOException {
+			IndexColorModel palette = null;
+			if(localPalette!=null) {
+				try {
+					palette = localPalette.get();
+				} catch(InterruptedException e) {
+					throw new RuntimeException(e);
+				} catch(ExecutionException e) {
+					Throwable cause = e.getCause();
+					if(cause instanceof RuntimeException)
+						throw (RuntimeException)cause;
+					if(cause instanceof Error)
+						throw (Error)cause;
+					throw new RuntimeException(cause);
+				}
+			}
+			writer.write(image, duration, palette);
+		}
+	}
+	
 	IndexColorModel globalColorModel = null;
 	Dimension size;
 	OutputStream out;
@@ -196,6 +314,8 @@ public class GifWriter {
 	 */
 	public void close(boolean closeOutputStream) throws IOException {
 		try {
+			if(finished)
+				return;
 			encoder.flush(out);
 			finished = true;
 			(new GifTrailerBlock()).write(out);
@@ -17,6 +17,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import com.pump.image.gif.lzw.LZWDecoder;
 import com.pump.image.gif.lzw.LZWInputStream;
 import com.pump.image.gif.lzw.LZWOutputStream;
 import com.pump.image.pixel.IndexedBytePixelIterator;
@@ -141,6 +142,52 @@ public class GifImageDataBlock extends GifBlock {
 		return getBytes().length;
 	}
 
+	/**
+	 * Create a decoder for this block's image data.
+	 */
+	public LZWDecoder createDecoder() {
+		return new LZWDecoder(encodedData, minimumLZWCodeSize);
+	}
+
+	/**
+	 * Decode this block's color indices directly into a raster of bytes, such as
+	 * the array of a <code>DataBufferByte</code>.
+	 * <P>
+	 * If the data ends early then the remaining pixels are left unchanged.
+	 * 
+	 * @param dest
+	 *            the array to write color indices to.
+	 * @param offset
+	 *            the index in <code>dest</code> of the top-left pixel.
+	 * @param scanlineStride
+	 *            the distance in <code>dest</code> between one row and the next.
+	 * @param width
+	 *            the width of the image, from the
+	 *            {@link GifImageDescriptor}.
+	 * @param height
+	 *            the height of the image, from the
+	 *            {@link GifImageDescriptor}.
+	 * @param interlaced
+	 *            whether the rows are interlaced.
+	 * @return the number of rows that were completely decoded.
+	 */
+	public int decode(byte[] dest, int offset, int scanlineStride, int width,
+			int height, boolean interlaced) {
+		LZWDecoder decoder = createDecoder();
+		for (int index = 0; index < height; index++) {
+			int y = interlaced ? GifInterlace.getRow(index, height) : index;
+			int rowStart = offset + y * scanlineStride;
+			int read = 0;
+			while (read < width) {
+				int k = decoder.read(dest, rowStart + read, width - read);
+				if (k == -1)
+					return index;
+				read += k;
+			}
+		}
+		return height;
+	}
+
 	public InputStream getUncompressedInputStream() {
 		LZWInputStream in = new LZWInputStream(new ByteArrayInputStream(
 				encodedData), minimumLZWCodeSize);
@@ -148,24 +195,22 @@ public class GifImageDataBlock extends GifBlock {
 	}
 
 	public byte[] getUncompressedBytes() {
-		try {
-			InputStream in = getUncompressedInputStream();
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
-			byte[] b = new byte[1024];
-			boolean reading = true;
-			while (reading) {
-				int t = in.read(b);
-				if (t == -1) {
-					reading = false;
-				} else {
-					out.write(b, 0, t);
-				}
+		LZWDecoder decoder = createDecoder();
+		byte[] b = new byte[Math.max(1024, 4 * encodedData.length)];
+		int length = 0;
+		while (true) {
+			if (length == b.length) {
+				byte[] b2 = new byte[2 * b.length];
+				System.arraycopy(b, 0, b2, 0, length);
+				b = b2;
 			}
-			byte[] b2 = out.toByteArray();
-			return b2;
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
+			int t = decoder.read(b, length, b.length - length);
+			if (t == -1)
+				break;
+			length += t;
 		}
+		byte[] b2 = new byte[length];
+		System.arraycopy(b, 0, b2, 0, length);
+		return b2;
 	}
 }
\ No newline at end of file
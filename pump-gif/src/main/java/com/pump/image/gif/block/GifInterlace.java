@@ -54,6 +54,35 @@ package com.pump.image.gif.block;
  * <code>19   --------&nbsp;&nbsp;&nbsp; 4</code> "
  */
 public class GifInterlace {
+	/**
+	 * This returns the row an interlaced row belongs in.
+	 * 
+	 * @param index
+	 *            the order the row appears in the interlaced data
+	 * @param height
+	 *            the height of the image
+	 * @return the row (from 0 to <code>height-1</code>) the data belongs in
+	 */
+	public static int getRow(int index, int height) {
+		// pass 1: every 8th row, starting with row 0
+		int passSize = (height + 7) / 8;
+		if (index < passSize)
+			return 8 * index;
+		index -= passSize;
+		// pass 2: every 8th row, starting with row 4
+		passSize = (height + 3) / 8;
+		if (index < passSize)
+			return 8 * index + 4;
+		index -= passSize;
+		// pass 3: every 4th row, starting with row 2
+		passSize = (height + 1) / 4;
+		if (index < passSize)
+			return 4 * index + 2;
+		index -= passSize;
+		// pass 4: every 2nd row, starting with row 1
+		return 2 * index + 1;
+	}
+
 	/**
 	 * This takes an array of data that is interlaced, and returns it to normal.
 	 * 
@@ -38,6 +38,35 @@ public class GifParser {
 		this.in = in;
 	}
 
+	/**
+	 * Creates a <code>GifParser</code> that resumes reading a GIF file
+	 * somewhere after its header, logical screen descriptor and global color
+	 * table. The <code>InputStream</code> must be positioned at the start of
+	 * a block (such as a graphic control extension or an image descriptor).
+	 * 
+	 * @param in
+	 *            this is <i>not</i> closed, unless you explicitly call the
+	 *            <code>close()</code> method.
+	 * @param lsd
+	 *            the logical screen descriptor that was read from the
+	 *            beginning of the file.
+	 * @param globalTable
+	 *            the global color table that was read from the beginning of
+	 *            the file, or <code>null</code> if there is none.
+	 */
+	public GifParser(InputStream in, GifLogicalScreenDescriptor lsd,
+			GifGlobalColorTable globalTable) {
+		this(in);
+		if (lsd == null)
+			throw new NullPointerException();
+		if (globalTable == null && lsd.hasGlobalColorTable())
+			throw new IllegalArgumentException(
+					"The logical screen descriptor requires a global color table.");
+		this.lsd = lsd;
+		this.globalTable = globalTable;
+		readHeader = true;
+	}
+
 	private GifHeaderBlock readHeader() throws IOException {
 		byte[] b = new byte[6];
 		read2(b, false);
@@ -83,6 +112,23 @@ public class GifParser {
 		}
 	}
 
+	/**
+	 * Skips exactly <code>n</code> bytes. (The usual InputStream.skip() method
+	 * may skip fewer bytes than requested, for example when a
+	 * <code>BufferedInputStream</code> reaches the end of its buffer.)
+	 */
+	private void skip2(long n) throws IOException {
+		while (n > 0) {
+			long t = in.skip(n);
+			if (t <= 0) {
+				if (in.read() == -1)
+					throw new IOException("Unexpected end of input stream.");
+				t = 1;
+			}
+			n -= t;
+		}
+	}
+
 	/** The last GifImageDescriptor that was read */
 	private GifImageDescriptor lastImageDescriptor;
 
@@ -275,7 +321,7 @@ public class GifParser {
 		int i = getNextBlockType();
 		if (i == GifBlock.HEADER) {
 			readHeader = true;
-			in.skip(6);
+			skip2(6);
 		} else if (i == GifBlock.TRAILER) {
 			finishedReading = true;
 		} else if (i == GifBlock.LOGICAL_SCREEN_DESCRIPTOR) {
@@ -295,21 +341,21 @@ public class GifParser {
 			// that info:
 			readNextBlock();
 		} else if (i == GifBlock.LOCAL_COLOR_TABLE) {
-			in.skip(lastImageDescriptor.getLocalColorTableSize() * 3);
+			skip2(lastImageDescriptor.getLocalColorTableSize() * 3);
 		} else if (i == GifBlock.IMAGE_DATA) {
 			in.read(); // ignore the "LZW Minimum Code Size" byte
 			skipSubBlocks();
 		} else if (i == GifBlock.GRAPHIC_CONTROL_EXTENSION) {
-			in.skip(6);
+			skip2(6);
 		} else if (i == GifBlock.COMMENT_EXTENSION) {
 			skipSubBlocks();
 		} else if (i == GifBlock.PLAIN_TEXT_EXTENSION) {
 			in.read(); // read the block size, ignore it
-			in.skip(12); // skip the data
+			skip2(12); // skip the data
 			skipSubBlocks(); // skip the text
 		} else if (i == GifBlock.APPLICATION_EXTENSION) {
 			in.read(); // read the block size, ignore it
-			in.skip(11); // skip the header
+			skip2(11); // skip the header
 			skipSubBlocks(); // skip the text
 		}
 		lastBlockType = i;
@@ -348,7 +394,7 @@ public class GifParser {
 	private void skipSubBlocks() throws IOException {
 		int i = in.read() & 0xFF;
 		while (i != 0) {
-			in.skip(i);
+			skip2(i);
 			i = in.read() & 0xFF;
 		}
 	}
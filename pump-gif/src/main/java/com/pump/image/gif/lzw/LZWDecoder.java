@@ -0,0 +1,260 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif.lzw;
+
+/**
+ * This decodes LZW-compressed GIF image data that is already in memory.
+ * <P>
+ * This is the block-level counterpart to the {@link LZWInputStream}: instead of
+ * pulling one byte at a time through an <code>InputStream</code>, this reads
+ * codes directly from a byte array and writes whole strings into the
+ * caller's array. The code table is stored as arrays of prefix codes and suffix
+ * bytes, so strings are never allocated: each string is written backwards
+ * by following its chain of prefixes.
+ * <P>
+ * Like the <code>LZWInputStream</code>, this expects the concatenated
+ * contents of the GIF sub-blocks (without the sub-block length bytes).
+ * Decoding stops at an end-of-information code or when the data runs out.
+ */
+public class LZWDecoder {
+	private static final int MAX_BITS = 12;
+	private static final int MAX_CODES = 1 << MAX_BITS;
+
+	private final byte[] data;
+	private int dataPtr;
+	private final int dataEnd;
+
+	/** Bits that have been read from <code>data</code> but not yet used. */
+	private int bitBuffer = 0;
+
+	/** The number of bits in <code>bitBuffer</code>. */
+	private int bitCount = 0;
+
+	private final int initialSize;
+	private final int clearCode;
+	private final int eofCode;
+
+	/** The number of bits in the next code. */
+	private int codeSize;
+
+	/** The next code that will be added to the table. */
+	private int availableCode;
+
+	/** The code each string in the table extends. */
+	private final short[] prefixes = new short[MAX_CODES];
+
+	/** The last byte of each string in the table. */
+	private final byte[] suffixes = new byte[MAX_CODES];
+
+	/** The first byte of each string in the table. */
+	private final byte[] firstBytes = new byte[MAX_CODES];
+
+	/** The length of each string in the table. */
+	private final int[] lengths = new int[MAX_CODES];
+
+	/** The last code we read, or -1 if the table was just cleared. */
+	private int lastCode = -1;
+
+	/** Decoded bytes that did not fit in the last array passed to <code>read()</code>. */
+	private final byte[] pending = new byte[MAX_CODES];
+	private int pendingPtr = 0;
+	private int pendingEnd = 0;
+
+	private boolean finished = false;
+
+	/**
+	 * Create a decoder for a complete array of LZW-compressed data.
+	 * 
+	 * @param data
+	 *            the compressed data.
+	 * @param initSize
+	 *            the minimum LZW code size. This is the first byte in a GIF
+	 *            image data block.
+	 */
+	public LZWDecoder(byte[] data, int initSize) {
+		this(data, 0, data.length, initSize);
+	}
+
+	/**
+	 * Create a decoder for LZW-compressed data.
+	 * 
+	 * @param data
+	 *            the array containing the compressed data.
+	 * @param offset
+	 *            the index of the first compressed byte.
+	 * @param length
+	 *            the number of compressed bytes.
+	 * @param initSize
+	 *            the minimum LZW code size. This is the first byte in a GIF
+	 *            image data block.
+	 */
+	public LZWDecoder(byte[] data, int offset, int length, int initSize) {
+		if (initSize < 1 || initSize >= MAX_BITS)
+			throw new IllegalArgumentException("initSize (" + initSize
+					+ ") must be between 1 and " + (MAX_BITS - 1));
+		this.data = data;
+		this.dataPtr = offset;
+		this.dataEnd = offset + length;
+		this.initialSize = initSize;
+		clearCode = 1 << initSize;
+		eofCode = clearCode + 1;
+		for (int a = 0; a < clearCode; a++) {
+			prefixes[a] = -1;
+			suffixes[a] = (byte) a;
+			firstBytes[a] = (byte) a;
+			lengths[a] = 1;
+		}
+		clearTable();
+	}
+
+	/**
+	 * @return true if there is no more data to decode.
+	 */
+	public boolean isFinished() {
+		return finished && pendingPtr == pendingEnd;
+	}
+
+	/**
+	 * Decode bytes into an array.
+	 * 
+	 * @param dest
+	 *            the array to write decoded bytes to.
+	 * @param offset
+	 *            the index of the first byte to write.
+	 * @param length
+	 *            the maximum number of bytes to write.
+	 * @return the number of bytes written. This is less than
+	 *         <code>length</code> only if the compressed data ended, and it is
+	 *         -1 if there was no data left to decode.
+	 */
+	public int read(byte[] dest, int offset, int length) {
+		if (isFinished())
+			return length == 0 ? 0 : -1;
+		int ptr = offset;
+		int end = offset + length;
+
+		if (pendingPtr < pendingEnd) {
+			int k = Math.min(pendingEnd - pendingPtr, length);
+			System.arraycopy(pending, pendingPtr, dest, ptr, k);
+			pendingPtr += k;
+			ptr += k;
+		}
+
+		while (ptr < end && !finished) {
+			int code = readCode();
+			if (code == -1 || code == eofCode) {
+				finished = true;
+			} else if (code == clearCode) {
+				clearTable();
+			} else if (lastCode == -1) {
+				if (code >= clearCode)
+					throw new RuntimeException("Code " + code
+							+ " not in table.");
+				dest[ptr++] = (byte) code;
+				lastCode = code;
+			} else {
+				int stringLength;
+				byte firstByte;
+				if (code < availableCode) {
+					stringLength = lengths[code];
+					firstByte = firstBytes[code];
+				} else if (code == availableCode) {
+					// this code is the last string plus its own first byte
+					stringLength = lengths[lastCode] + 1;
+					firstByte = firstBytes[lastCode];
+				} else {
+					throw new RuntimeException("Code " + code
+							+ " not in table.");
+				}
+
+				if (ptr + stringLength <= end) {
+					writeString(code, firstByte, stringLength, dest, ptr);
+					ptr += stringLength;
+				} else {
+					writeString(code, firstByte, stringLength, pending, 0);
+					int k = end - ptr;
+					System.arraycopy(pending, 0, dest, ptr, k);
+					ptr += k;
+					pendingPtr = k;
+					pendingEnd = stringLength;
+				}
+
+				if (availableCode < MAX_CODES) {
+					prefixes[availableCode] = (short) lastCode;
+					suffixes[availableCode] = firstByte;
+					firstBytes[availableCode] = firstBytes[lastCode];
+					lengths[availableCode] = lengths[lastCode] + 1;
+					availableCode++;
+					if (availableCode == (1 << codeSize) && codeSize < MAX_BITS)
+						codeSize++;
+				}
+				lastCode = code;
+			}
+		}
+		int returnValue = ptr - offset;
+		if (returnValue == 0 && length > 0)
+			return -1;
+		return returnValue;
+	}
+
+	/**
+	 * Write the string for a code.
+	 * 
+	 * @param code
+	 *            the code to write. If this is the next available code
+	 *            then this writes the previous string followed by its first
+	 *            byte.
+	 * @param firstByte
+	 *            the first byte of the string.
+	 * @param stringLength
+	 *            the length of the string.
+	 * @param dest
+	 *            the array to write to.
+	 * @param offset
+	 *            the index to write the first byte of the string to.
+	 */
+	private void writeString(int code, byte firstByte, int stringLength,
+			byte[] dest, int offset) {
+		int ptr = offset + stringLength - 1;
+		if (code == availableCode) {
+			dest[ptr--] = firstByte;
+			code = lastCode;
+		}
+		while (ptr > offset) {
+			dest[ptr--] = suffixes[code];
+			code = prefixes[code];
+		}
+		dest[offset] = firstByte;
+	}
+
+	/**
+	 * @return the next <code>codeSize</code> bits of data, or -1 if there are
+	 *         not enough bits left.
+	 */
+	private int readCode() {
+		while (bitCount < codeSize) {
+			if (dataPtr == dataEnd)
+				return -1;
+			bitBuffer |= (data[dataPtr++] & 0xff) << bitCount;
+			bitCount += 8;
+		}
+		int code = bitBuffer & ((1 << codeSize) - 1);
+		bitBuffer >>>= codeSize;
+		bitCount -= codeSize;
+		return code;
+	}
+
+	private void clearTable() {
+		availableCode = eofCode + 1;
+		codeSize = initialSize + 1;
+		lastCode = -1;
+	}
+}
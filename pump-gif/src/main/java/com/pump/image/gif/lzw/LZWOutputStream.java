@@ -24,13 +24,17 @@ import java.io.OutputStream;
  * several bytes and compresses them.
  * 
  * <P>
- * This class is based on Jef Poskanzer LZW encoding file, which is based on the
- * LZW encoding of several others who came before him. :) See the source code
- * for scattered references to authors.
+ * This class was originally based on Jef Poskanzer's LZW encoder (which is based on
+ * the <code>compress</code> utility by Spencer W. Thomas, Jim McKie, Steve Davies,
+ * Ken Turkowski, James A. Woods and Joe Orost). It produces exactly the same output,
+ * but the code table is now an open-addressing hash table of preallocated arrays
+ * keyed by the prefix code and the next byte, and the
+ * {@link #write(byte[], int, int)} method processes an entire array without
+ * any per-byte method calls.
  * <P>
- * This class took Poskanzer code and adapted it to really take advantage of the
- * <code>OutputStream</code> structure: data is written in small, discrete
- * chunks as you call <code>.write()</code>.
+ * Compressed bytes are buffered internally, so they are only guaranteed to reach the
+ * underlying <code>OutputStream</code> after {@link #flush()} or {@link #finish()}
+ * is called.
  * <P>
  * The most novel innovation of this class is the
  * <code>writeFewestBytes()</code> method, which makes a kind of lossy GIF
@@ -39,59 +43,102 @@ import java.io.OutputStream;
  * 
  */
 public class LZWOutputStream extends OutputStream {
-	private OutputStream out;
-
-	private int initCodeSize;
-	private int initBits;
-	/** This was a local variable in the old code */
-	private int fcode;
-	/** This was a local variable in the old code */
-	private int i;
-	/** This was a local variable in the old code */
-	private int ent = -1;
-	/** This was a local variable in the old code */
-	private int disp;
-	/** This was a local variable in the old code */
-	private int hsize_reg;
-	/** This was a local variable in the old code */
-	private int hshift;
 
-	public LZWOutputStream(OutputStream out, int colorDepth,
-			boolean writeInitialCodeSize) throws IOException {
-		this.out = out;
-		initCodeSize = Math.max(2, colorDepth);
-		if (writeInitialCodeSize)
-			out.write(initCodeSize); // write "initial code size" byte
-		initBits = initCodeSize + 1;
+	/** The maximum number of bits in a code. */
+	private static final int MAX_BITS = 12;
 
-		// adapted from old code:
+	/** The first code that is never assigned. When we need this code the table is cleared instead. */
+	private static final int MAX_MAX_CODE = 1 << MAX_BITS;
 
-		// Set up the globals: g_init_bits - initial number of bits
-		g_init_bits = initBits;
+	/** The number of slots in the code table is <code>2^TABLE_BITS</code>. This is
+	 * four times the number of codes, so the table is never more than a quarter full
+	 * and lookups rarely probe more than one slot.
+	 */
+	private static final int TABLE_BITS = MAX_BITS + 2;
 
-		// Set up the necessary values
-		clear_flg = false;
-		n_bits = g_init_bits;
-		maxcode = getMaxCode(n_bits);
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
 
-		ClearCode = 1 << (initBits - 1);
-		EOFCode = ClearCode + 1;
-		free_ent = ClearCode + 2;
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
 
-		hshift = 0;
-		for (fcode = hsize; fcode < 65536; fcode *= 2)
-			++hshift;
-		hshift = 8 - hshift; // set hash code range bound
+	/** The number of bits used to store a code in each entry of the table. */
+	private static final int CODE_BITS = MAX_BITS;
 
-		hsize_reg = hsize;
-		resetCodeTable(hsize_reg); // clear hash table
+	private static final int CODE_MASK = (1 << CODE_BITS) - 1;
 
-		output(ClearCode);
+	private static final int BUFFER_SIZE = 1024;
 
-	}
+	private static final int[] MASKS = { 0x0000, 0x0001, 0x0003, 0x0007, 0x000F, 0x001F,
+			0x003F, 0x007F, 0x00FF, 0x01FF, 0x03FF, 0x07FF, 0x0FFF, 0x1FFF,
+			0x3FFF, 0x7FFF, 0xFFFF };
+
+	private final OutputStream out;
+
+	/** The number of bits in a code immediately after the table is cleared. */
+	private final int initBits;
+	private final int clearCode;
+	private final int eofCode;
+
+	/** The code table, or zero for empty slots. Each entry stores a key in its
+	 * upper 20 bits and the code assigned to that key in its lower 12 bits.
+	 * A key is the prefix code shifted left 8 bits plus the next byte.
+	 * (A key of zero is assigned a code of at least 6, so no entry is zero.)
+	 */
+	private final int[] table = new int[TABLE_SIZE];
+
+	/** The slot in <code>table</code> each code is stored in. This lets us
+	 * clear only the slots that are in use.
+	 */
+	private final int[] codeSlots = new int[MAX_MAX_CODE];
+
+	/** The next code to assign. */
+	private int nextCode;
+
+	/** The code for the string of bytes we have read but not yet written, or -1
+	 * if nothing has been written yet.
+	 */
+	private int prefix = -1;
+
+	/** The number of bits in each code we write. */
+	private int codeSize;
+
+	/** The largest code that fits in <code>codeSize</code> bits. */
+	private int maxCode;
+
+	/** Whether the table was just cleared and the code size needs to be reset. */
+	private boolean clearPending = false;
+
+	/** Bits that have not yet been written to <code>buffer</code>. Only the lowest
+	 * <code>bitCount</code> bits may be non-zero.
+	 */
+	private int bitAccumulator = 0;
+
+	/** The number of bits in <code>bitAccumulator</code>. */
+	private int bitCount = 0;
+
+	/** Compressed bytes that have not been written to <code>out</code>. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int bufferLength = 0;
 
 	private boolean finished = false;
 
+	public LZWOutputStream(OutputStream out, int colorDepth,
+			boolean writeInitialCodeSize) throws IOException {
+		this.out = out;
+		int initCodeSize = Math.max(2, colorDepth);
+		if (writeInitialCodeSize)
+			out.write(initCodeSize); // write "initial code size" byte
+		initBits = initCodeSize + 1;
+
+		codeSize = initBits;
+		maxCode = getMaxCode(codeSize);
+
+		clearCode = 1 << (initBits - 1);
+		eofCode = clearCode + 1;
+		nextCode = clearCode + 2;
+
+		output(clearCode);
+	}
+
 	public void close() throws IOException {
 		finish();
 		out.close();
@@ -101,12 +148,14 @@ public class LZWOutputStream extends OutputStream {
 		if (finished)
 			throw new IOException("This stream has already been finished.");
 		// Put out the final code.
-		output(ent);
-		output(EOFCode);
+		output(prefix);
+		output(eofCode);
+		flushBuffer();
 		finished = true;
 	}
 
 	public void flush() throws IOException {
+		flushBuffer();
 		out.flush();
 	}
 
@@ -142,266 +191,224 @@ public class LZWOutputStream extends OutputStream {
 					"This stream has already been closed.  You cannot write data to a closed OutputStream.");
 		for (int a = 0; a < arrayLength; a++) {
 			if (c[a] < 0 || c[a] > 255) {
-				System.err.println("a = " + a);
 				throw new IOException("This value (" + c[a]
 						+ ") must be between 0 and 255.");
 			}
 		}
 		if (c.length == 0)
 			throw new IOException("There were no values passed to this method.");
-		if (ent == -1) {
+		if (prefix == -1) {
 			/** The very first thing we write... there will be no codes around: */
 			write(c[0]);
 			return 0;
 		}
 
-		int preferredIndex = -1;
 		for (int a = 0; a < arrayLength; a++) {
-			fcode = (c[a] << maxbits) + ent;
-			i = (c[a] << hshift) ^ ent; // xor hashing
-			if (preferredIndex == -1 && htab[i] == fcode) {
-				preferredIndex = a;
+			int entry = table[getSlot((prefix << 8) | c[a])];
+			if (entry != 0) {
+				prefix = entry & CODE_MASK;
+				return a;
 			}
 		}
-		if (preferredIndex == -1)
-			preferredIndex = 0;
-
-		fcode = (c[preferredIndex] << maxbits) + ent;
-		i = (c[preferredIndex] << hshift) ^ ent; // xor hashing
-
-		if (htab[i] == fcode) {
-			ent = codetab[i];
-			return preferredIndex;
-		} else if (htab[i] >= 0) {
-			// non-empty slot
-			// TODO: can this also consider the entire array and be improved?
-			disp = hsize_reg - i; // secondary hash (after G. Knott)
-			if (i == 0) {
-				disp = 1;
-			}
-			do {
-				if ((i -= disp) < 0)
-					i += hsize_reg;
-
-				if (htab[i] == fcode) {
-					ent = codetab[i];
-					return preferredIndex;
-				}
-			} while (htab[i] >= 0);
-		}
-		output(ent);
-		ent = c[preferredIndex];
-		if (free_ent < maxmaxcode) {
-			codetab[i] = free_ent++; // code -> hashtable
-			htab[i] = fcode;
-		} else {
-			clearHashTable();
-		}
-		return preferredIndex;
+		write(c[0]);
+		return 0;
 	}
 
 	public void write(int c) throws IOException {
 		if (finished)
 			throw new IOException(
 					"This stream has already been closed.  You cannot write data to a closed OutputStream.");
-		c = (((byte) c) & 0xff);
-		if (c < 0 || c > 255)
-			throw new IOException("This value (" + c
-					+ ") must be between 0 and 255.");
-		if (ent == -1) {
+		c = c & 0xff;
+		if (prefix == -1) {
 			/** The very first thing we write! how exciting. */
-			ent = c;
+			prefix = c;
 			return;
 		}
 
-		fcode = (c << maxbits) + ent;
-		i = (c << hshift) ^ ent; // xor hashing
-
-		if (htab[i] == fcode) {
-			ent = codetab[i];
+		int key = (prefix << 8) | c;
+		int slot = getSlot(key);
+		int entry = table[slot];
+		if (entry != 0) {
+			prefix = entry & CODE_MASK;
 			return;
-		} else if (htab[i] >= 0) {
-			// non-empty slot
-			disp = hsize_reg - i; // secondary hash (after G. Knott)
-			if (i == 0) {
-				disp = 1;
-			}
-			do {
-				if ((i -= disp) < 0)
-					i += hsize_reg;
+		}
+		addCode(slot, key, c);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (finished)
+			throw new IOException(
+					"This stream has already been closed.  You cannot write data to a closed OutputStream.");
+		if (off < 0 || len < 0 || off + len > b.length)
+			throw new IndexOutOfBoundsException("off = " + off + ", len = "
+					+ len + ", b.length = " + b.length);
+		int end = off + len;
+		if (prefix == -1 && off < end) {
+			prefix = b[off++] & 0xff;
+		}
 
-				if (htab[i] == fcode) {
-					ent = codetab[i];
-					return;
+		int[] t = table;
+		byte[] buf = buffer;
+		int ent = prefix;
+		int acc = bitAccumulator;
+		int bits = bitCount;
+		int size = codeSize;
+		int next = nextCode;
+		for (int a = off; a < end; a++) {
+			int c = b[a] & 0xff;
+			int key = (ent << 8) | c;
+			int slot = hash(key);
+			int entry;
+			while ((entry = t[slot]) != 0 && (entry >>> CODE_BITS) != key) {
+				slot = (slot + 1) & TABLE_MASK;
+			}
+			if (entry != 0) {
+				ent = entry & CODE_MASK;
+			} else if (next < MAX_MAX_CODE && !clearPending) {
+				// the common case: write the prefix and add a new code
+				acc |= ent << bits;
+				bits += size;
+				while (bits >= 8) {
+					if (bufferLength == BUFFER_SIZE)
+						flushBuffer();
+					buf[bufferLength++] = (byte) acc;
+					acc >>>= 8;
+					bits -= 8;
 				}
-			} while (htab[i] >= 0);
+				t[slot] = (key << CODE_BITS) | next;
+				codeSlots[next] = slot;
+				if (next > maxCode) {
+					++size;
+					maxCode = size == MAX_BITS ? MAX_MAX_CODE : getMaxCode(size);
+				}
+				next++;
+				ent = c;
+			} else {
+				// the table is full or was just cleared, so let addCode() handle it
+				bitAccumulator = acc;
+				bitCount = bits;
+				codeSize = size;
+				nextCode = next;
+				prefix = ent;
+				addCode(slot, key, c);
+				ent = c;
+				acc = bitAccumulator;
+				bits = bitCount;
+				size = codeSize;
+				next = nextCode;
+			}
 		}
-		output(ent);
-		ent = c;
-		if (free_ent < maxmaxcode) {
-			codetab[i] = free_ent++; // code -> hashtable
-			htab[i] = fcode;
+		bitAccumulator = acc;
+		bitCount = bits;
+		codeSize = size;
+		nextCode = next;
+		prefix = ent;
+	}
+
+	/**
+	 * Write the current prefix, and add a new code for the prefix followed
+	 * by <code>c</code> (or clear the table if it is full).
+	 * 
+	 * @param slot the empty slot the new key belongs in.
+	 * @param key the key of the new code.
+	 * @param c the byte that follows the prefix.
+	 */
+	private void addCode(int slot, int key, int c) throws IOException {
+		output(prefix);
+		prefix = c;
+		if (nextCode < MAX_MAX_CODE) {
+			table[slot] = (key << CODE_BITS) | nextCode;
+			codeSlots[nextCode++] = slot;
 		} else {
-			clearHashTable();
+			clearTable();
 		}
 	}
 
-	// ****************************************************************************
-	// (J.E.) I didn't touch Jef Poskanzer's code from this point on. (Well, OK,
-	// I changed the name of the sole outside method it accesses.) I figure
-	// if I have no idea how something works, I shouldn't play with it :)
-	//		
-	// Despite its unencapsulated structure, this section is actually highly
-	// self-contained. The calling code merely calls compress(), and the present
-	// code calls nextPixel() in the caller. That's the sum total of their
-	// communication. I could have dumped it in a separate class with a callback
-	// via an interface, but it didn't seem worth messing with.
-	// ****************************************************************************
-
-	// GIFCOMPR.C - GIF Image compression routines
-	//		
-	// Lempel-Ziv compression based on 'compress'. GIF modifications by
-	// David Rowley (mgardi@watdcsu.waterloo.edu)
-
-	// General DEFINEs
-
-	private static final int BITS = 12;
-	private static final int HSIZE = 5003; // 80% occupancy
-
-	// GIF Image compression - modified 'compress'
-	//		
-	// Based on: compress.c - File compression ala IEEE Computer, June 1984.
-	//		
-	// By Authors: Spencer W. Thomas (decvax!harpo!utah-cs!utah-gr!thomas)
-	// Jim McKie (decvax!mcvax!jim)
-	// Steve Davies (decvax!vax135!petsd!peora!srd)
-	// Ken Turkowski (decvax!decwrl!turtlevax!ken)
-	// James A. Woods (decvax!ihnp4!ames!jaw)
-	// Joe Orost (decvax!vax135!petsd!joe)
-
-	private int n_bits; // number of bits/code
-	private int maxbits = BITS; // user settable max # bits/code
-	private int maxcode; // maximum code, given n_bits
-	private int maxmaxcode = 1 << BITS; // should NEVER generate this code
-
-	private int getMaxCode(int n_bits) {
-		return (1 << n_bits) - 1;
+	/** Return the slot that contains a key, or the empty slot it belongs in. */
+	private int getSlot(int key) {
+		int slot = hash(key);
+		int entry;
+		while ((entry = table[slot]) != 0 && (entry >>> CODE_BITS) != key) {
+			slot = (slot + 1) & TABLE_MASK;
+		}
+		return slot;
 	}
 
-	private int[] htab = new int[HSIZE];
-	private int[] codetab = new int[HSIZE];
-
-	private int hsize = HSIZE; // for dynamic table sizing
-
-	private int free_ent = 0; // first unused entry
-
-	// block compression parameters -- after all codes are used up,
-	// and compression rate changes, start over.
-	private boolean clear_flg = false;
-
-	// Algorithm: use open addressing double hashing (no chaining) on the
-	// prefix code / next character combination. We do a variant of Knuth's
-	// algorithm D (vol. 3, sec. 6.4) along with G. Knott's relatively-prime
-	// secondary probe. Here, the modular division first probe is gives way
-	// to a faster exclusive-or manipulation. Also do block compression with
-	// an adaptive reset, whereby the code table is cleared when the compression
-	// ratio decreases, but after the table fills. The variable-length output
-	// codes are re-sized at this point, and a special CLEAR code is generated
-	// for the decompressor. Late addition: construct the table according to
-	// file size for noticeable speed improvement on small files. Please direct
-	// questions about this implementation to ames!jaw.
-
-	private int g_init_bits;
-
-	private int ClearCode;
-	private int EOFCode;
-
-	// output
-	//		
-	// Output the given code.
-	// Inputs:
-	// code: A n_bits-bit integer. If == -1, then EOF. This assumes
-	// that n_bits =< wordsize - 1.
-	// Outputs:
-	// Outputs code to the file.
-	// Assumptions:
-	// Chars are 8 bits long.
-	// Algorithm:
-	// Maintain a BITS character long buffer (so that 8 codes will
-	// fit in it exactly). Use the VAX insv instruction to insert each
-	// code in turn. When the buffer fills up empty it and start over.
-
-	private int cur_accum = 0;
-	private int cur_bits = 0;
-
-	private int masks[] = { 0x0000, 0x0001, 0x0003, 0x0007, 0x000F, 0x001F,
-			0x003F, 0x007F, 0x00FF, 0x01FF, 0x03FF, 0x07FF, 0x0FFF, 0x1FFF,
-			0x3FFF, 0x7FFF, 0xFFFF };
+	private static int hash(int key) {
+		return (key * 0x9E3779B1) >>> (32 - TABLE_BITS);
+	}
 
-	byte[] ARRAY_1 = new byte[1];
+	private static int getMaxCode(int bits) {
+		return (1 << bits) - 1;
+	}
 
+	/**
+	 * Append a code to the output using the current code size, and then
+	 * increase or reset the code size if necessary.
+	 * 
+	 * @param code the code to write. This assumes the code fits in
+	 * <code>codeSize</code> bits.
+	 */
 	private void output(int code) throws IOException {
-		cur_accum &= masks[cur_bits];
-
-		if (cur_bits > 0)
-			cur_accum |= (code << cur_bits);
-		else
-			cur_accum = code;
-
-		cur_bits += n_bits;
-
-		while (cur_bits >= 8) {
-			ARRAY_1[0] = (byte) (cur_accum & 0xff);
-			out.write(ARRAY_1);
-			cur_accum >>= 8;
-			cur_bits -= 8;
+		bitAccumulator |= (code & MASKS[codeSize]) << bitCount;
+		bitCount += codeSize;
+
+		while (bitCount >= 8) {
+			if (bufferLength == BUFFER_SIZE)
+				flushBuffer();
+			buffer[bufferLength++] = (byte) bitAccumulator;
+			bitAccumulator >>>= 8;
+			bitCount -= 8;
 		}
 
 		// If the next entry is going to be too big for the code size,
 		// then increase it, if possible.
-		if (free_ent > maxcode || clear_flg) {
-			if (clear_flg) {
-				maxcode = getMaxCode(n_bits = g_init_bits);
-				clear_flg = false;
+		if (nextCode > maxCode || clearPending) {
+			if (clearPending) {
+				codeSize = initBits;
+				maxCode = getMaxCode(codeSize);
+				clearPending = false;
 			} else {
-				++n_bits;
-				if (n_bits == maxbits)
-					maxcode = maxmaxcode;
+				++codeSize;
+				if (codeSize == MAX_BITS)
+					maxCode = MAX_MAX_CODE;
 				else
-					maxcode = getMaxCode(n_bits);
+					maxCode = getMaxCode(codeSize);
 			}
 		}
 
-		if (code == EOFCode) {
-			// At EOF, write the rest of the buffer.
-			while (cur_bits > 0) {
-				out.write(new byte[] { (byte) (cur_accum & 0xff) });
-				cur_accum >>= 8;
-				cur_bits -= 8;
+		if (code == eofCode) {
+			// At EOF, write the rest of the bits.
+			while (bitCount > 0) {
+				if (bufferLength == BUFFER_SIZE)
+					flushBuffer();
+				buffer[bufferLength++] = (byte) bitAccumulator;
+				bitAccumulator >>>= 8;
+				bitCount -= 8;
 			}
+			bitAccumulator = 0;
+			bitCount = 0;
 		}
 	}
 
-	/**
-	 * Empties the hash table
-	 * 
-	 */
-	private void clearHashTable() throws IOException {
-		resetCodeTable(hsize);
-		free_ent = ClearCode + 2;
-		clear_flg = true;
-
-		output(ClearCode);
+	private void flushBuffer() throws IOException {
+		if (bufferLength > 0) {
+			out.write(buffer, 0, bufferLength);
+			bufferLength = 0;
+		}
 	}
 
 	/**
-	 * Resets the table of codes so each value maps ot -1.
-	 * 
-	 * @param hsize
-	 *            the number of entries to iterate through
+	 * Empties the code table and writes a clear code.
 	 */
-	private void resetCodeTable(int hsize) {
-		for (int i = 0; i < hsize; ++i)
-			htab[i] = -1;
+	private void clearTable() throws IOException {
+		for (int code = clearCode + 2; code < nextCode; code++) {
+			table[codeSlots[code]] = 0;
+		}
+		nextCode = clearCode + 2;
+		clearPending = true;
+
+		output(clearCode);
 	}
-}
\ No newline at end of file
+}
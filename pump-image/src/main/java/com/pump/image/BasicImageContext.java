@@ -17,6 +17,7 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -48,14 +49,27 @@ public class BasicImageContext extends ImageContext {
 	ExecutorService executor = null;
 	boolean internalExecutor = false;
 	
-	/** Create a Graphics3D context that paints to a destination image using 6 threads.
+	/** The smallest tile size {@link #getTileSize(int, int)} chooses automatically. */
+	protected static final int MIN_TILE_SIZE = 32;
+	
+	/** The largest tile size {@link #getTileSize(int, int)} chooses automatically. */
+	protected static final int MAX_TILE_SIZE = 512;
+	
+	/** If positive this is the fixed width and height of tiles. If zero
+	 * the tile size is chosen for each call to <code>drawImage</code>.
+	 */
+	int tileSize = 0;
+	
+	/** Calls to <code>drawImage</code> that may still be rendering tiles. */
+	List<DrawOperation> pendingOperations = new LinkedList<DrawOperation>();
+	
+	/** Create a Graphics3D context that paints to a destination image using
+	 * the common <code>ForkJoinPool</code>.
 	 * 
 	 * @param bi an RGB or ARGB image.
 	 */
 	public BasicImageContext(BufferedImage bi) {
-		this(bi, 6);
-		//TODO: in Java 1.8, use this:
-        //executor = Executors.newWorkStealingPool(threads);
+		this(bi, ForkJoinPool.commonPool());
 	}
 
 	/** Create a Graphics3D context that paints to a destination image.
@@ -379,11 +393,58 @@ public class BasicImageContext extends ImageContext {
 		}
 	}
 
+	/** Assign the width and height of the tiles <code>drawImage</code> splits
+	 * its work into when this context has an executor.
+	 * 
+	 * @param tileSize a positive tile size, or zero to choose a tile size
+	 * based on the area being painted and the parallelism of the executor.
+	 */
+	public synchronized void setTileSize(int tileSize) {
+		if(tileSize<0)
+			throw new IllegalArgumentException("tileSize ("+tileSize+") must not be negative");
+		this.tileSize = tileSize;
+	}
+	
+	/** Return the fixed tile size, or zero if the tile size is chosen
+	 * automatically.
+	 */
+	public synchronized int getTileSize() {
+		return tileSize;
+	}
+	
+	/** Return the width and height of the tiles an area should be split into.
+	 * <p>Unless a fixed tile size was assigned, this aims for about 4 tiles
+	 * per thread the executor can run, so threads that finish early can help
+	 * with the remaining tiles.
+	 * 
+	 * @param areaWidth the width of the area being painted.
+	 * @param areaHeight the height of the area being painted.
+	 */
+	protected int getTileSize(int areaWidth,int areaHeight) {
+		if(tileSize>0)
+			return tileSize;
+		int parallelism;
+		if(executor instanceof ForkJoinPool) {
+			parallelism = ((ForkJoinPool)executor).getParallelism();
+		} else {
+			parallelism = Runtime.getRuntime().availableProcessors();
+		}
+		double area = ((double)areaWidth)*((double)areaHeight);
+		int size = (int)Math.sqrt(area/(4*parallelism));
+		return Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, size));
+	}
+
 	/** Draw an image to this Graphics3D.
 	 * <p>This respects the interpolation rendering hints. When the
 	 * interpolation hint is missing, this will also consult the antialiasing
 	 * hint or the render hint. The bilinear hint is used by default.
 	 * <p>This uses a source over composite.
+	 * <p>If this context has an executor then this method may return before
+	 * the image is painted. Tiles are painted on the executor, and several
+	 * calls to this method can be painted at the same time as long as they
+	 * don't overlap. (If this image overlaps an image that is still being
+	 * painted then this method waits for that image first.) Call
+	 * <code>dispose()</code> to wait for everything to finish.
 	 * 
 	 * @param img the image to draw.
 	 * @param topLeft where the top-left corner of this image will be painted.
@@ -395,10 +456,6 @@ public class BasicImageContext extends ImageContext {
 		if(disposed)
 			throw new IllegalStateException("This context has been disposed.");
 		
-		//we possibly could optimize this one day by detecting if drawing Image X will
-		//collide with existing instructions already in the queue?
-		processQueue();
-		
 		Point2D srcTopLeft = new Point2D.Double(0,0);
 		Point2D srcTopRight = new Point2D.Double(img.getWidth(),0);
 		Point2D srcBottomLeft = new Point2D.Double(0,img.getHeight());
@@ -450,34 +507,88 @@ public class BasicImageContext extends ImageContext {
 		Object interpolationHint = getInterpolationRenderingHint();
 		
 		if(executor!=null) {
-			int y = minYi;
-			while(y<=maxYi) {
-				int cy = y / 100;
-				int h = Math.min( (cy+1)*100, maxYi ) - y;
-				int x = minXi;
-				while(x<=maxXi) {
-					int cx = x / 100;
-					int w = Math.min( (cx+1)*100, maxXi ) - x;
-					TileInstructions i = new TileInstructions(x, y, w - 1, h - 1, interpolationHint, otherPixels, pt, oHasAlpha, oWidth, oHeight, oStride, stripFunction);
-					synchronized(instructionQueue) {
-						instructionQueue.add(i);
-					}
-					
-					x = (cx+1)*100;
+			//source-over compositing depends on the order images are painted in,
+			//so we have to finish any earlier images that overlap this one:
+			Iterator<DrawOperation> iter = pendingOperations.iterator();
+			while(iter.hasNext()) {
+				DrawOperation op = iter.next();
+				if(op.isFinished() || op.intersects(minXi, minYi, maxXi, maxYi)) {
+					iter.remove();
+					op.waitUntilFinished();
 				}
-				y = (cy+1)*100;
 			}
 			
-			for(int a = 0; a<4; a++) {
-				executor.submit(new DrawTileRunnable());
+			int size = getTileSize(maxXi - minXi + 1, maxYi - minYi + 1);
+			int columns = (maxXi - minXi + size) / size;
+			int rows = (maxYi - minYi + size) / size;
+			DrawOperation op = new DrawOperation(minXi, minYi, maxXi, maxYi, rows*columns);
+			pendingOperations.add(op);
+			for(int y = minYi; y<=maxYi; y+=size) {
+				int h = Math.min(size, maxYi - y + 1);
+				for(int x = minXi; x<=maxXi; x+=size) {
+					int w = Math.min(size, maxXi - x + 1);
+					TileInstructions i = new TileInstructions(op, x, y, w - 1, h - 1, interpolationHint, otherPixels, pt, oHasAlpha, oWidth, oHeight, oStride, stripFunction);
+					executor.execute(i);
+				}
 			}
 		} else {
 			drawTile(minXi, minYi, maxXi, maxYi, interpolationHint, otherPixels, pt, oHasAlpha, oWidth, oHeight, oStride, stripFunction);
 		}
 	}
 	
-	class TileInstructions {
-		boolean active = false;
+	/** The tiles of one call to <code>drawImage</code>. */
+	static class DrawOperation {
+		final int minX, minY, maxX, maxY;
+		int remainingTiles;
+		Throwable error;
+		
+		DrawOperation(int minX,int minY,int maxX,int maxY,int tileCount) {
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			remainingTiles = tileCount;
+		}
+		
+		/** Return true if this operation may paint pixels in the rectangle
+		 * provided. All coordinates are inclusive.
+		 */
+		boolean intersects(int minX,int minY,int maxX,int maxY) {
+			return minX<=this.maxX && maxX>=this.minX && minY<=this.maxY && maxY>=this.minY;
+		}
+		
+		synchronized void tileFinished(Throwable t) {
+			if(t!=null && error==null)
+				error = t;
+			remainingTiles--;
+			if(remainingTiles==0)
+				notifyAll();
+		}
+		
+		synchronized boolean isFinished() {
+			return remainingTiles==0;
+		}
+		
+		/** Block until every tile is painted.
+		 * 
+		 * @throws RuntimeException if an error occurred painting a tile.
+		 */
+		synchronized void waitUntilFinished() {
+			while(remainingTiles>0) {
+				try {
+					wait();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+			}
+			if(error!=null)
+				throw new RuntimeException("An error occurred painting a tile.", error);
+		}
+	}
+	
+	class TileInstructions implements Runnable {
+		final DrawOperation operation;
 		int tileX, tileY, tileWidth, tileHeight, oWidth, oHeight, oStride;
 		Object renderingHint;
 		int[] otherPixels;
@@ -485,9 +596,10 @@ public class BasicImageContext extends ImageContext {
 		boolean oHasAlpha;
 		HorizontalStripFunction stripFunction;
 		
-		public TileInstructions(int x, int y, int w, int h, Object rh,
+		public TileInstructions(DrawOperation operation,int x, int y, int w, int h, Object rh,
 				int[] otherPixels, PerspectiveTransform pt,boolean oHasAlpha,int oWidth,
 				int oHeight,int oStride,HorizontalStripFunction stripFunction) {
+			this.operation = operation;
 			this.tileX = x;
 			this.tileY = y;
 			this.tileWidth = w;
@@ -502,6 +614,19 @@ public class BasicImageContext extends ImageContext {
 			this.stripFunction = stripFunction.derive(tileX, tileX+tileWidth);
 		}
 		
+		public void run() {
+			Throwable error = null;
+			try {
+				drawTile(tileX, tileY, tileX+tileWidth, tileY+tileHeight,
+						renderingHint, otherPixels, transform, oHasAlpha,
+						oWidth, oHeight, oStride, stripFunction);
+			} catch(RuntimeException | Error e) {
+				error = e;
+			} finally {
+				operation.tileFinished(error);
+			}
+		}
+		
 		@Override
 		public String toString() {
 			return "TileInstructions[ x="+tileX+", y="+tileY+", w="+tileWidth+", h="+tileHeight+", hint="+renderingHint+"]";
@@ -509,305 +634,227 @@ public class BasicImageContext extends ImageContext {
 		
 	}
 	
-	List<TileInstructions> instructionQueue = new LinkedList<TileInstructions>();
-	
-	class DrawTileRunnable implements Runnable {
-		public void run() {
-			processQueue();
+	/** Paint part of an image.
+	 * <p>The perspective transform is only evaluated once at the start of
+	 * each row. After that the source coordinates (before the perspective
+	 * division) are stepped incrementally, so each sample costs a few
+	 * additions, a reciprocal and two multiplications. Each row is processed
+	 * in two passes: first the source samples are located, and then they
+	 * are composited onto this image. This keeps the inner loops short and
+	 * free of calls and interpolation-specific branches.
+	 */
+	protected void drawTile(int minXi,int minYi,int maxXi,int maxYi,Object interpolationHint,int[] otherPixels,PerspectiveTransform pt,boolean oHasAlpha,int oWidth,int oHeight,int oStride, HorizontalStripFunction stripFunction) {
+		double[][] matrix = new double[3][3];
+		pt.getMatrix(matrix);
+		stripFunction = stripFunction.derive(minXi, maxXi);
+		if(RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR.equals(interpolationHint)) {
+			drawNearestNeighborTile(minYi, maxYi, otherPixels, matrix, oHasAlpha, oWidth, oHeight, oStride, stripFunction);
+		} else if(RenderingHints.VALUE_INTERPOLATION_BICUBIC.equals(interpolationHint)) {
+			drawSupersampledTile(minYi, maxYi, 4, otherPixels, matrix, oHasAlpha, oWidth, oHeight, oStride, stripFunction);
+		} else {
+			drawSupersampledTile(minYi, maxYi, 2, otherPixels, matrix, oHasAlpha, oWidth, oHeight, oStride, stripFunction);
 		}
 	}
 	
-	protected void drawTile(int minXi,int minYi,int maxXi,int maxYi,Object interpolationHint,int[] otherPixels,PerspectiveTransform pt,boolean oHasAlpha,int oWidth,int oHeight,int oStride, HorizontalStripFunction stripFunction) {
-		
-		double transformedX, transformedY;
-		double m00, m01, m02, m10, m11, m12, m20, m21, m22, w;
+	/** Paint part of an image by copying the source pixel nearest to each
+	 * destination pixel.
+	 */
+	private void drawNearestNeighborTile(int minYi,int maxYi,int[] otherPixels,double[][] matrix,boolean oHasAlpha,int oWidth,int oHeight,int oStride,HorizontalStripFunction stripFunction) {
+		double m00 = matrix[0][0], m01 = matrix[0][1], m02 = matrix[0][2];
+		double m10 = matrix[1][0], m11 = matrix[1][1], m12 = matrix[1][2];
+		double m20 = matrix[2][0], m21 = matrix[2][1], m22 = matrix[2][2];
+		int[] xEndpoints = new int[2];
+		int[] srcIndices = new int[0];
 		
-		{
-			double[][] matrix = new double[3][3];
-			pt.getMatrix(matrix);
-			m00 = matrix[0][0];
-			m01 = matrix[0][1];
-			m02 = matrix[0][2];
-			m10 = matrix[1][0];
-			m11 = matrix[1][1];
-			m12 = matrix[1][2];
-			m20 = matrix[2][0];
-			m21 = matrix[2][1];
-			m22 = matrix[2][2];
-		}
-
-        int[] xEndpoints = new int[2];
-        
-		if(RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR.equals(interpolationHint)) {
-            if (oHasAlpha) {
-				for(int y = minYi; y<=maxYi; y++) {
-                    int yw = y * stride;
-                    double yd = y;
-                    stripFunction.getXEndpoints(y, xEndpoints);
-					for(int x = xEndpoints[0]; x<=xEndpoints[1]; x++) {
-	                    double xd = x;
-	
-						//transform (x,y) to (transformedX, transformedY):
-						w = m20 * xd + m21 * yd + m22;
-						transformedX = (m00 * xd + m01 * yd + m02) / w;
-						transformedY = (m10 * xd + m11 * yd + m12) / w;
-						
-						int newX = (int)(transformedX+.5);
-						int newY = (int)(transformedY+.5);
-						if(newY>=0 && newY<oHeight && newX>=0 && newX<oWidth) {
-                            int src = otherPixels[newY * oStride + newX];
-                            int srcA = src >>> 24;
-							if(srcA==255) {
-								data[yw+x] = src;
-							} else if(srcA>0) {
-								int r = (src >> 16) & 0xff;
-								int g = (src >> 8) & 0xff;
-								int b = src & 0xff;
-                                int dst = data[yw + x];
-								int dstA = (dst >> 24) & 0xff;
-	                            int dstAX = (dstA) * (255 - srcA);
-								int dstR = (dst >> 16) & 0xff;
-								int dstG = (dst >> 8) & 0xff;
-								int dstB = dst & 0xff;
-								int srcAX = srcA * 255;
-								int resA = srcAX + dstAX;
-								
-								if(resA!=0) {
-									r = (r*srcAX + dstR * dstAX)/resA;
-									g = (g*srcAX + dstG * dstAX)/resA;
-									b = (b*srcAX + dstB * dstAX)/resA;
-									data[yw+x] = (resA / 255 << 24) | 
-											((r>255) ? 0xff0000 : r << 16) |
-											((g>255) ? 0xff00 : g << 8) |
-											((b>255) ? 0xff : b);
-								}
-							}
-						}
-					}
-				}
-            } else {
-				for(int y = minYi; y<=maxYi; y++) {
-                    int yw = y * stride;
-                    double yd = y;
-                    stripFunction.getXEndpoints(y, xEndpoints);
-					for(int x = xEndpoints[0]; x<=xEndpoints[1]; x++) {
-	                    double xd = x;
-	
-						//transform (x,y) to (transformedX, transformedY):
-						w = m20 * xd + m21 * yd + m22;
-						transformedX = (m00 * xd + m01 * yd + m02) / w;
-						transformedY = (m10 * xd + m11 * yd + m12) / w;
-						
-						int newX = (int)(transformedX+.5);
-						int newY = (int)(transformedY+.5);
-						if(newY>=0 && newY<oHeight && newX>=0 && newX<oWidth) {
-							data[yw+x] = otherPixels[newY*oStride+newX];
-						}
-					}
-				}
-            }
-		} else {
-			int windowLength;
-			if(RenderingHints.VALUE_INTERPOLATION_BICUBIC.equals(interpolationHint)) {
-				windowLength = 4;
-			} else {
-				windowLength = 2;
+		for(int y = minYi; y<=maxYi; y++) {
+			stripFunction.getXEndpoints(y, xEndpoints);
+			int x0 = xEndpoints[0];
+			int length = xEndpoints[1] - x0 + 1;
+			if(length<=0)
+				continue;
+			if(srcIndices.length<length)
+				srcIndices = new int[length];
+			
+			//pass 1: find the source pixel for every destination pixel (or -1)
+			double xd = x0;
+			double yd = y;
+			double u = m00 * xd + m01 * yd + m02;
+			double v = m10 * xd + m11 * yd + m12;
+			double w = m20 * xd + m21 * yd + m22;
+			for(int i = 0; i<length; i++) {
+				double k = 1.0 / w;
+				int newX = (int)(u * k + .5);
+				int newY = (int)(v * k + .5);
+				srcIndices[i] = (newY>=0 && newY<oHeight && newX>=0 && newX<oWidth) ? 
+						newY * oStride + newX : -1;
+				u += m00;
+				v += m10;
+				w += m20;
 			}
-			double windowLengthD = windowLength;
-			double incr = 1.0 / (windowLengthD-1.0);
-			int windowArea = windowLength*windowLength;
-
-            if (oHasAlpha) {
-				for(int y = minYi; y<=maxYi; y++) {
-                    int yw = y * stride;
-                    double yd = y;
-                    stripFunction.getXEndpoints(y, xEndpoints);
-					for(int x = xEndpoints[0]; x<=xEndpoints[1]; x++) {
-	                    double xd = x;
-                        int samples = windowArea;
-						int srcA = 0;
-						int r = 0;
-						int g = 0;
-						int b = 0;
-						for(double dx = 0; dx<windowLengthD; dx++) {
-							for(double dy = 0; dy<windowLengthD; dy++) {
-								double x2 = xd+dx*incr;
-								double y2 = yd+dy*incr;
-	
-								//transform (x,y) to (transformedX, transformedY):
-								w = m20 * x2 + m21 * y2 + m22;
-								transformedX = (m00 * x2 + m01 * y2 + m02) / w;
-								transformedY = (m10 * x2 + m11 * y2 + m12) / w;
-								
-								int newX = (int)(transformedX-.00001);
-								int newY = (int)(transformedY-.00001);
-								if(newY>=0 && newY<oHeight && newX>=0 && newX<oWidth) {
-                                    int opix = otherPixels[newY * oStride + newX];
-    								srcA += (opix >> 24) & 0xff;
-									r += opix & 0xff0000;
-									g += opix & 0xff00;
-									b += opix & 0xff;
-								} else {
-									samples--;
-								}
-							}
-						}
-						if(samples>0) {
-							srcA = srcA/samples;
-							r = (r >>> 16)/samples;
-							g = (g >>> 8)/samples;
-							b = b/samples;
-							if(srcA==255) {
-								data[yw+x] = 0xff000000 | (r << 16) | (g << 8) | b;
-							} else if(srcA>0) {
-	                            int dst = data[yw+x];
-	                            int dstAX = (dst >>> 24) * (255 - srcA);
-								int dstR = (dst >> 16) & 0xff;
-								int dstG = (dst >> 8) & 0xff;
-								int dstB = dst & 0xff;
-		                        int srcAX = srcA * 255;
-		                        int resA = (srcAX + dstAX);
-		                        
-		                        if(resA!=0) {
-		                            r = (r * srcAX + dstR * dstAX) / resA;
-		                            g = (g * srcAX + dstG * dstAX) / resA;
-		                            b = (b * srcAX + dstB * dstAX) / resA;
-									data[yw+x] = (resA / 255 << 24) | 
-											((r>255) ? 0xff0000 : r << 16) |
-											((g>255) ? 0xff00 : g << 8) |
-											((b>255) ? 0xff : b);
-		                        }
-							}
+			
+			//pass 2: composite
+			int yw = y * stride + x0;
+			if(oHasAlpha) {
+				for(int i = 0; i<length; i++) {
+					int index = srcIndices[i];
+					if(index>=0) {
+						int src = otherPixels[index];
+						int srcA = src >>> 24;
+						if(srcA==255) {
+							data[yw + i] = src;
+						} else if(srcA>0) {
+							data[yw + i] = blend(data[yw + i], srcA, (src >> 16) & 0xff, (src >> 8) & 0xff, src & 0xff);
 						}
 					}
 				}
 			} else {
-				for(int y = minYi; y<=maxYi; y++) {
-                    int yw = y * stride;
-                    double yd = y;
-                    stripFunction.getXEndpoints(y, xEndpoints);
-					for(int x = xEndpoints[0]; x<=xEndpoints[1]; x++) {
-	                    double xd = x;
-
-                        int samples = windowArea;
-						int srcA = 0;
-						int r = 0;
-						int g = 0;
-						int b = 0;
-						for(double dx = 0; dx<windowLengthD; dx++) {
-							for(double dy = 0; dy<windowLengthD; dy++) {
-								double x2 = xd+dx*incr;
-								double y2 = yd+dy*incr;
-	
-								//transform (x,y) to (transformedX, transformedY):
-								w = m20 * x2 + m21 * y2 + m22;
-								transformedX = (m00 * x2 + m01 * y2 + m02) / w;
-								transformedY = (m10 * x2 + m11 * y2 + m12) / w;
-								
-								int newX = (int)(transformedX-.00001);
-								int newY = (int)(transformedY-.00001);
-								if(newY>=0 && newY<oHeight && newX>=0 && newX<oWidth) {
-                                    int opix = otherPixels[newY * oStride + newX];
-                                    srcA += 255;
-									r += opix & 0xff0000;
-									g += opix & 0xff00;
-									b += opix & 0xff;
-								} else {
-									samples--;
-								}
-							}
-						}
-						if(samples>0) {
-							srcA = srcA/samples;
-							r = (r >>> 16)/samples;
-							g = (g >>> 8)/samples;
-							b = b/samples;
-							if(srcA==255) {
-								data[yw+x] = 0xff000000 | (r << 16) | (g << 8) | b;
-							} else if(srcA>0) {
-								int dst = data[yw+x];
-		                        int dstAX = (dst >>> 24) * (255 - srcA);
-								int dstR = (dst >> 16) & 0xff;
-								int dstG = (dst >> 8) & 0xff;
-								int dstB = dst & 0xff;
-		                        int srcAX = srcA * 255;
-		                        int resA = (srcAX + dstAX);
-		                        
-		                        if(resA!=0) {
-		                            r = (r * srcAX + dstR * dstAX) / resA;
-		                            g = (g * srcAX + dstG * dstAX) / resA;
-		                            b = (b * srcAX + dstB * dstAX) / resA;
-									data[yw+x] = (resA / 255 << 24) | 
-											((r>255) ? 0xff0000 : r << 16) |
-											((g>255) ? 0xff00 : g << 8) |
-											((b>255) ? 0xff : b);
-		                        }
-							}
-						}
-					}
+				for(int i = 0; i<length; i++) {
+					int index = srcIndices[i];
+					if(index>=0)
+						data[yw + i] = otherPixels[index];
 				}
 			}
 		}
 	}
 	
-	/**
-	 * This blocks until instructionQueue is empty.
+	/** Paint part of an image by averaging a grid of samples for each
+	 * destination pixel.
+	 * <p>The samples for a pixel span from its left/top edge to its
+	 * neighbor's left/top edge (inclusive), so adjacent pixels share a column
+	 * of samples. Each column of samples is only located and summed once.
+	 * 
+	 * @param windowLength the number of samples along each axis of a pixel.
+	 * This is 2 for bilinear interpolation and 4 for bicubic interpolation.
 	 */
-	protected void processQueue() {
-		while(true) {
-			TileInstructions activeTile = null;
-			synchronized(instructionQueue) {
-				Iterator<TileInstructions> iter = instructionQueue.iterator();
-				boolean skippedTile = false;
-				while(iter.hasNext() && activeTile==null) {
-					TileInstructions instr = iter.next();
-					if(!instr.active) {
-						instr.active = true;
-						activeTile = instr;
-					} else {
-						skippedTile = true;
-					}
-				}
-				
-				if(activeTile==null) {
-					if(skippedTile) {
-						//we don't have anything to do in this thread,
-						//but we should keep blocking until other threads finish:
-						try {
-							instructionQueue.wait(1000);
-						} catch(InterruptedException e) {}
-					} else {
-						//everyone is done, the queue is empty.
-						return;
+	private void drawSupersampledTile(int minYi,int maxYi,int windowLength,int[] otherPixels,double[][] matrix,boolean oHasAlpha,int oWidth,int oHeight,int oStride,HorizontalStripFunction stripFunction) {
+		double m00 = matrix[0][0], m01 = matrix[0][1], m02 = matrix[0][2];
+		double m10 = matrix[1][0], m11 = matrix[1][1], m12 = matrix[1][2];
+		double m20 = matrix[2][0], m21 = matrix[2][1], m22 = matrix[2][2];
+		int steps = windowLength - 1;
+		double incr = 1.0 / steps;
+		double du = m00 * incr, dv = m10 * incr, dw = m20 * incr;
+		int[] xEndpoints = new int[2];
+		
+		//the sums of each column of samples:
+		int[] sumA = new int[0];
+		int[] sumR = new int[0];
+		int[] sumG = new int[0];
+		int[] sumB = new int[0];
+		int[] sumCount = new int[0];
+
+		for(int y = minYi; y<=maxYi; y++) {
+			stripFunction.getXEndpoints(y, xEndpoints);
+			int x0 = xEndpoints[0];
+			int length = xEndpoints[1] - x0 + 1;
+			if(length<=0)
+				continue;
+			int columns = length * steps + 1;
+			if(sumA.length<columns) {
+				sumA = new int[columns];
+				sumR = new int[columns];
+				sumG = new int[columns];
+				sumB = new int[columns];
+				sumCount = new int[columns];
+			} else {
+				Arrays.fill(sumA, 0, columns, 0);
+				Arrays.fill(sumR, 0, columns, 0);
+				Arrays.fill(sumG, 0, columns, 0);
+				Arrays.fill(sumB, 0, columns, 0);
+				Arrays.fill(sumCount, 0, columns, 0);
+			}
+			
+			//pass 1: sum each column of samples
+			double xd = x0;
+			for(int dy = 0; dy<windowLength; dy++) {
+				double y2 = y + dy * incr;
+				double u = m00 * xd + m01 * y2 + m02;
+				double v = m10 * xd + m11 * y2 + m12;
+				double w = m20 * xd + m21 * y2 + m22;
+				for(int k = 0; k<columns; k++) {
+					double q = 1.0 / w;
+					int newX = (int)(u * q - .00001);
+					int newY = (int)(v * q - .00001);
+					if(newY>=0 && newY<oHeight && newX>=0 && newX<oWidth) {
+						int opix = otherPixels[newY * oStride + newX];
+						sumA[k] += oHasAlpha ? opix >>> 24 : 255;
+						sumR[k] += (opix >> 16) & 0xff;
+						sumG[k] += (opix >> 8) & 0xff;
+						sumB[k] += opix & 0xff;
+						sumCount[k]++;
 					}
+					u += du;
+					v += dv;
+					w += dw;
 				}
 			}
-
-			if(activeTile!=null) {
-				try {
-					drawTile(
-							activeTile.tileX,
-							activeTile.tileY,
-							activeTile.tileX+activeTile.tileWidth,
-							activeTile.tileY+activeTile.tileHeight,
-							activeTile.renderingHint,
-							activeTile.otherPixels,
-							activeTile.transform,
-							activeTile.oHasAlpha,
-							activeTile.oWidth,
-							activeTile.oHeight,
-							activeTile.oStride,
-							activeTile.stripFunction );
-				} finally {
-					synchronized(instructionQueue) {
-						instructionQueue.remove(activeTile);
-						instructionQueue.notifyAll();
+			
+			//pass 2: average the columns of each pixel and composite
+			int yw = y * stride + x0;
+			for(int i = 0, k0 = 0; i<length; i++, k0 += steps) {
+				int samples = 0;
+				int srcA = 0;
+				int r = 0;
+				int g = 0;
+				int b = 0;
+				for(int k = k0; k<=k0 + steps; k++) {
+					samples += sumCount[k];
+					srcA += sumA[k];
+					r += sumR[k];
+					g += sumG[k];
+					b += sumB[k];
+				}
+				if(samples>0) {
+					srcA = srcA/samples;
+					r = r/samples;
+					g = g/samples;
+					b = b/samples;
+					if(srcA==255) {
+						data[yw + i] = 0xff000000 | (r << 16) | (g << 8) | b;
+					} else if(srcA>0) {
+						data[yw + i] = blend(data[yw + i], srcA, r, g, b);
 					}
 				}
 			}
 		}
 	}
 	
+	/** Composite a translucent pixel over another pixel using a source-over rule.
+	 * 
+	 * @param dst the ARGB destination pixel.
+	 * @param srcA the source alpha, from [1,254].
+	 * @param r the source red, from [0,255].
+	 * @param g the source green, from [0,255].
+	 * @param b the source blue, from [0,255].
+	 * @return the new ARGB destination pixel.
+	 */
+	private static int blend(int dst,int srcA,int r,int g,int b) {
+		int dstAX = (dst >>> 24) * (255 - srcA);
+		int dstR = (dst >> 16) & 0xff;
+		int dstG = (dst >> 8) & 0xff;
+		int dstB = dst & 0xff;
+		int srcAX = srcA * 255;
+		int resA = srcAX + dstAX;
+		if(resA==0)
+			return dst;
+		r = (r * srcAX + dstR * dstAX) / resA;
+		g = (g * srcAX + dstG * dstAX) / resA;
+		b = (b * srcAX + dstB * dstAX) / resA;
+		return (resA / 255 << 24) | 
+				((r>255) ? 0xff0000 : r << 16) |
+				((g>255) ? 0xff00 : g << 8) |
+				((b>255) ? 0xff : b);
+	}
+	
+	/**
+	 * This blocks until every tile from previous calls to <code>drawImage</code>
+	 * has been painted.
+	 */
+	protected synchronized void processQueue() {
+		while(pendingOperations.size()>0) {
+			pendingOperations.remove(0).waitUntilFinished();
+		}
+	}
+	
 	/** Commit all changes back to the BufferedImage this context paints to.
 	 */
 	public synchronized void dispose() {
@@ -12,7 +12,6 @@ package com.pump.image;
 
 import java.awt.image.BufferedImage;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 
 /** A factory for {@link ImageContext} objects to render images.
@@ -21,8 +20,6 @@ public abstract class ImageContextFactory {
 	private static ImageContextFactory factory = new ImageContextFactory() {
 		boolean isJFXInstalled = isJFXInstalled();
 		
-		ExecutorService staticService;
-		
 		public ImageContext create(BufferedImage bi) {
 			try {
 				//if(isJFXInstalled)
@@ -30,10 +27,7 @@ public abstract class ImageContextFactory {
 			} catch(Error e) {
 				//eat this
 			}
-			if(staticService==null) {
-				staticService = new ForkJoinPool(8); 
-			}
-			return new BasicImageContext(bi, staticService);
+			return new BasicImageContext(bi, getExecutor());
 		}
 		
 		private boolean isJFXInstalled() {
@@ -50,6 +44,26 @@ public abstract class ImageContextFactory {
 		}
 	};
 	
+	private static ExecutorService executor = ForkJoinPool.commonPool();
+	
+	/** Return the executor that contexts created by the default factory
+	 * render tiles on. By default this is the common <code>ForkJoinPool</code>.
+	 */
+	public static ExecutorService getExecutor() {
+		return executor;
+	}
+	
+	/** Assign the executor that contexts created by the default factory
+	 * render tiles on. This executor is shared by all contexts, and it is
+	 * not shut down when a context is disposed.
+	 * 
+	 * @param e the executor to use, or null to render on the thread that
+	 * calls <code>drawImage</code>.
+	 */
+	public static void setExecutor(ExecutorService e) {
+		executor = e;
+	}
+	
 	/** Return the ImageContextFactory in use.
 	 * By default this factory creates {@link BasicImageContext} contexts,
 	 * but in some environments it might return alternative models.
@@ -12,6 +12,7 @@ package com.pump.image.bmp;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -38,6 +39,8 @@ public class BmpDecoder {
 
 	/** Returns an image from the BMP file provided, or null if
 	 * the file does not appear to be a valid BMP image.
+	 * <p>Uncompressed 24-bit and 32-bit images are decoded with
+	 * a {@link BmpMappedDecoder}.
 	 * 
 	 * @param bmpFile a BMP file.
 	 * @param dst a destination to store the image in.  If this is
@@ -55,9 +58,16 @@ public class BmpDecoder {
 		} else if (bmpFile.length() == 0) {
 			return null;
 		}
+		try {
+			BmpMappedDecoder decoder = BmpMappedDecoder.get(bmpFile);
+			if (decoder != null)
+				return decoder.read(dst);
+		} catch(BmpHeaderException e) {
+			return null;
+		}
 		try {
 			in = new FileInputStream(bmpFile);
-			return readImage(in, dst);
+			return readImage(new BufferedInputStream(in), dst);
 		} finally {
 			try {
 				in.close();
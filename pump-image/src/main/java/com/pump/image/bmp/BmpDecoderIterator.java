@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import com.pump.image.pixel.BytePixelIterator;
 import com.pump.image.pixel.IndexedBytePixelIterator;
@@ -41,11 +42,18 @@ import com.pump.io.MeasuredInputStream;
 public class BmpDecoderIterator implements BytePixelIterator {
 	
 	/** Returns a <code>BmpDecoderIterator</code> from a <code>File</code>.
+	 * <p>Uncompressed 24-bit and 32-bit images are read from a
+	 * {@link BmpMappedDecoder}, so their rows are copied straight from
+	 * the mapped file.
 	 * @throws BmpHeaderException if this file does not appear to be a valid
 	 * BMP image.
 	 * @throws IOException if an IO problem occurs.
 	 */
 	public static BmpDecoderIterator get(File file) throws IOException {
+		BmpMappedDecoder decoder = BmpMappedDecoder.get(file);
+		if(decoder!=null)
+			return new BmpDecoderMappedIterator(decoder);
+		
 		FileInputStream in = null;
 		try {
 			in = new FileInputStream(file);
@@ -137,6 +145,32 @@ public class BmpDecoderIterator implements BytePixelIterator {
 		}
 	}
 
+	/** This reads rows from a {@link BmpMappedDecoder} instead of an <code>InputStream</code>. */
+	static class BmpDecoderMappedIterator extends BmpDecoderIterator {
+		ByteBuffer data;
+		
+		private BmpDecoderMappedIterator(BmpMappedDecoder decoder) {
+			super(null, decoder.width, decoder.height, decoder.bitsPerPixel, decoder.topDown);
+			data = decoder.data.duplicate();
+		}
+
+		@Override
+		public void next(byte[] dest) {
+			if(isDone())
+				throw new RuntimeException("end of data reached");
+			data.get(dest, 0, scanline);
+			y--;
+		}
+
+		@Override
+		public void skip() {
+			if(isDone())
+				throw new RuntimeException("end of data reached");
+			data.position(data.position() + scanline);
+			y--;
+		}
+	}
+
 	int width, height, depth;
 	InputStream in;
 	boolean topDown;
@@ -0,0 +1,275 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.bmp;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This decodes uncompressed 24-bit and 32-bit BMP files by mapping their pixel
+ * data into memory.
+ * <p>
+ * The rows of these BMPs are stored exactly the way a
+ * <code>TYPE_3BYTE_BGR</code> or <code>TYPE_4BYTE_ABGR</code> image stores them
+ * (except for the order of the bytes in 32-bit pixels), so instead of piping
+ * every row through an <code>InputStream</code> this copies rows directly from
+ * the mapped file into the destination raster. This also lets you decode only
+ * a range of rows.
+ * <p>
+ * Other BMPs (indexed or compressed images) are not supported: use the
+ * {@link BmpDecoder} or {@link BmpDecoderIterator} for those.
+ * <p>
+ * The file is only open while {@link #get(File)} is running, but the memory
+ * mapping is only released when this object is garbage collected. On some
+ * platforms the file cannot be deleted until then.
+ */
+public class BmpMappedDecoder {
+
+	/**
+	 * Returns a <code>BmpMappedDecoder</code> for a BMP file.
+	 * 
+	 * @param file
+	 *            the BMP file to map.
+	 * @return a <code>BmpMappedDecoder</code>, or null if this is a valid BMP
+	 *         that this class does not support (because it is indexed or
+	 *         compressed).
+	 * @throws BmpHeaderException
+	 *             if this file does not appear to be a valid BMP image.
+	 * @throws IOException
+	 *             if an IO problem occurs.
+	 */
+	public static BmpMappedDecoder get(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			BmpHeader header = new BmpHeader(Channels.newInputStream(channel));
+			if (!(header.bitsPerPixel == 24 || header.bitsPerPixel == 32)
+					|| header.compression != 0 || header.colorModel != null)
+				return null;
+
+			int scanline = getScanlineSize(header.width, header.bitsPerPixel);
+			long size = ((long) scanline) * ((long) header.height);
+			if (header.bitmapOffset + size > channel.size())
+				throw new EOFException("the file is " + channel.size()
+						+ " bytes, but the image data requires "
+						+ (header.bitmapOffset + size) + " bytes");
+			ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY,
+					header.bitmapOffset, size);
+			return new BmpMappedDecoder(data, header.width, header.height,
+					header.bitsPerPixel, header.topDown);
+		}
+	}
+
+	private static int getScanlineSize(int width, int bitsPerPixel) {
+		int scanline = width * bitsPerPixel / 8;
+		int r = scanline % 4;
+		if (r != 0) {
+			scanline = scanline + (4 - r);
+		}
+		return scanline;
+	}
+
+	final ByteBuffer data;
+	final int width, height, bitsPerPixel, scanline;
+	final boolean topDown;
+
+	private BmpMappedDecoder(ByteBuffer data, int width, int height,
+			int bitsPerPixel, boolean topDown) {
+		this.data = data;
+		this.width = width;
+		this.height = height;
+		this.bitsPerPixel = bitsPerPixel;
+		this.topDown = topDown;
+		scanline = getScanlineSize(width, bitsPerPixel);
+	}
+
+	/** Returns the width of this image. */
+	public int getWidth() {
+		return width;
+	}
+
+	/** Returns the height of this image. */
+	public int getHeight() {
+		return height;
+	}
+
+	/** Returns the number of bits per pixel: either 24 or 32. */
+	public int getBitsPerPixel() {
+		return bitsPerPixel;
+	}
+
+	/**
+	 * Returns the type of image this decodes to: either
+	 * <code>TYPE_3BYTE_BGR</code> or <code>TYPE_4BYTE_ABGR</code>.
+	 */
+	public int getType() {
+		if (bitsPerPixel == 24)
+			return BufferedImage.TYPE_3BYTE_BGR;
+		return BufferedImage.TYPE_4BYTE_ABGR;
+	}
+
+	/**
+	 * Returns the number of bytes in each row, including padding.
+	 */
+	public int getScanlineSize() {
+		return scanline;
+	}
+
+	/**
+	 * Returns the pixel data of one row.
+	 * 
+	 * @param y
+	 *            the row to return, where 0 is the top of the image.
+	 * @return a read-only view of the row in the mapped file. This is
+	 *         <code>getWidth()*3</code> bytes of blue, green and red
+	 *         components for 24-bit images, or <code>getWidth()*4</code> bytes
+	 *         of blue, green, red and alpha components for 32-bit images.
+	 */
+	public ByteBuffer getRow(int y) {
+		if (y < 0 || y >= height)
+			throw new IllegalArgumentException("y (" + y
+					+ ") must be between 0 and " + (height - 1));
+		ByteBuffer row = data.asReadOnlyBuffer();
+		int pos = getRowPosition(y);
+		row.position(pos);
+		row.limit(pos + width * bitsPerPixel / 8);
+		return row.slice();
+	}
+
+	private int getRowPosition(int y) {
+		if (topDown)
+			return y * scanline;
+		return (height - 1 - y) * scanline;
+	}
+
+	/**
+	 * Decodes this image.
+	 * 
+	 * @param dst
+	 *            an optional image to store the image in. If this is non-null
+	 *            it must be at least as large as this image and its type must
+	 *            be {@link #getType()}.
+	 * @return <code>dst</code>, or a new image if <code>dst</code> was null.
+	 */
+	public BufferedImage read(BufferedImage dst) {
+		return read(dst, 0, height);
+	}
+
+	/**
+	 * Decodes a range of rows of this image.
+	 * 
+	 * @param dst
+	 *            an optional image to store the image in. If this is non-null
+	 *            it must be at least as large as this image and its type must
+	 *            be {@link #getType()}. Rows outside of the requested range are
+	 *            not modified.
+	 * @param y
+	 *            the first row to decode, where 0 is the top of the image.
+	 * @param rowCount
+	 *            the number of rows to decode.
+	 * @return <code>dst</code>, or a new image if <code>dst</code> was null.
+	 */
+	public BufferedImage read(BufferedImage dst, int y, int rowCount) {
+		if (y < 0 || rowCount < 0 || y + rowCount > height)
+			throw new IllegalArgumentException("the rows [" + y + ", "
+					+ (y + rowCount) + ") must be within [0, " + height + ")");
+		if (dst == null) {
+			dst = new BufferedImage(width, height, getType());
+		} else if (dst.getType() != getType()) {
+			throw new IllegalArgumentException("types mismatch ("
+					+ dst.getType() + "!=" + getType() + ")");
+		} else if (dst.getWidth() < width || dst.getHeight() < height) {
+			throw new IllegalArgumentException("size mismatch ("
+					+ dst.getWidth() + "x" + dst.getHeight()
+					+ " is too small for " + width + "x" + height + ")");
+		}
+
+		WritableRaster raster = dst.getRaster();
+		ByteBuffer src = data.duplicate();
+		int pixelSize = bitsPerPixel / 8;
+		int rowLength = width * pixelSize;
+		SampleModel sm = raster.getSampleModel();
+		if (isInterleaved(sm, pixelSize)) {
+			// write straight into the image's array:
+			ComponentSampleModel csm = (ComponentSampleModel) sm;
+			DataBufferByte dataBuffer = (DataBufferByte) raster
+					.getDataBuffer();
+			byte[] dstData = dataBuffer.getData();
+			int tx = raster.getSampleModelTranslateX();
+			int ty = raster.getSampleModelTranslateY();
+			byte[] row = pixelSize == 4 ? new byte[rowLength] : null;
+			for (int k = y; k < y + rowCount; k++) {
+				src.position(getRowPosition(k));
+				int offset = dataBuffer.getOffset() + (k - ty)
+						* csm.getScanlineStride() - tx * pixelSize;
+				if (pixelSize == 3) {
+					src.get(dstData, offset, rowLength);
+				} else {
+					// BGRA -> ABGR
+					src.get(row, 0, rowLength);
+					for (int i = 0; i < rowLength; i += 4) {
+						dstData[offset + i] = row[i + 3];
+						dstData[offset + i + 1] = row[i];
+						dstData[offset + i + 2] = row[i + 1];
+						dstData[offset + i + 3] = row[i + 2];
+					}
+				}
+			}
+		} else {
+			byte[] row = new byte[rowLength];
+			for (int k = y; k < y + rowCount; k++) {
+				src.position(getRowPosition(k));
+				src.get(row, 0, rowLength);
+				// BGR -> RGB, or BGRA -> RGBA
+				for (int i = 0; i < rowLength; i += pixelSize) {
+					byte t = row[i];
+					row[i] = row[i + 2];
+					row[i + 2] = t;
+				}
+				raster.setDataElements(0, k, width, 1, row);
+			}
+		}
+		return dst;
+	}
+
+	/**
+	 * Return true if a sample model stores pixels as consecutive ABGR or BGR
+	 * bytes in a single bank.
+	 */
+	private static boolean isInterleaved(SampleModel sm, int pixelSize) {
+		if (!(sm instanceof ComponentSampleModel)
+				|| sm.getDataType() != DataBuffer.TYPE_BYTE)
+			return false;
+		ComponentSampleModel csm = (ComponentSampleModel) sm;
+		if (csm.getPixelStride() != pixelSize
+				|| csm.getNumBands() != pixelSize)
+			return false;
+		int[] banks = csm.getBankIndices();
+		for (int a = 0; a < banks.length; a++) {
+			if (banks[a] != banks[0])
+				return false;
+		}
+		if (pixelSize == 3)
+			return Arrays.equals(csm.getBandOffsets(), new int[] { 2, 1, 0 });
+		return Arrays.equals(csm.getBandOffsets(), new int[] { 3, 2, 1, 0 });
+	}
+}
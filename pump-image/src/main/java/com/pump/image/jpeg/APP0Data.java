@@ -45,20 +45,20 @@ class APP0Data {
 		setThumbnailWidth( array[7] & 0xff );
 		setThumbnailHeight( array[8] & 0xff );
 		if( thumbnailWidth*thumbnailHeight>0 && storeThumbnail) {
-			//TODO: test this.  I haven't found a single file that uses
-			//an APP0 thumbnail, so this code has never been tested.
+			//the thumbnail is stored as uncompressed RGB rows
 			byte[] dataByte = new byte[ thumbnailWidth*3 ];
 			int[] dataInt = new int[ thumbnailWidth ];
-			in.readFully(dataByte, dataByte.length);
 			BufferedImage image = new BufferedImage(getThumbnailWidth(), getThumbnailHeight(), BufferedImage.TYPE_INT_RGB);
 			for(int y = 0; y<thumbnailHeight; y++) {
+				if(in.readFully(dataByte, dataByte.length)!=dataByte.length)
+					throw new IOException("APP0 thumbnail ended after "+y+" rows.");
 				for(int x = 0; x<thumbnailWidth; x++) {
 					int r = (dataByte[x*3] & 0xff);
 					int g = (dataByte[x*3+1] & 0xff);
 					int b = (dataByte[x*3+2] & 0xff);
 					dataInt[x] = (r << 16) + (g << 8) + (b);
 				}
-				image.getRaster().setDataElements(0, y, thumbnailWidth, 1, array);
+				image.getRaster().setDataElements(0, y, thumbnailWidth, 1, dataInt);
 			}
 			setThumbnail(image);
 		}
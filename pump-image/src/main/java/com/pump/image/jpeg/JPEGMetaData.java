@@ -10,7 +10,9 @@
  */
 package com.pump.image.jpeg;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -65,7 +67,75 @@ public class JPEGMetaData {
 		}
 	}
 	
+	/** Extract a thumbnail from a JPEG file if it is large enough to
+	 * replace the full image.
+	 * <p>This reads the markers that precede the image data, so it is much
+	 * faster than decoding the image. Problems parsing the metadata are
+	 * ignored.
+	 * @param file the JPEG file.
+	 * @param minSize the minimum size of the thumbnail.
+	 * @return a thumbnail that is at least <code>minSize</code> and has the
+	 * same aspect ratio as the full image (give or take a pixel), or null.
+	 * @throws IOException if an IO problem occurs.
+	 */
+	public static BufferedImage getThumbnail(File file,Dimension minSize) throws IOException {
+		try(InputStream in = new FileInputStream(file)) {
+			return getThumbnail(in, minSize);
+		}
+	}
+
+	/** Extract a thumbnail from a JPEG image if it is large enough to
+	 * replace the full image.
+	 * <p>This reads the markers that precede the image data, so it is much
+	 * faster than decoding the image. Problems parsing the metadata are
+	 * ignored.
+	 * @param url the JPEG image.
+	 * @param minSize the minimum size of the thumbnail.
+	 * @return a thumbnail that is at least <code>minSize</code> and has the
+	 * same aspect ratio as the full image (give or take a pixel), or null.
+	 * @throws IOException if an IO problem occurs.
+	 */
+	public static BufferedImage getThumbnail(URL url,Dimension minSize) throws IOException {
+		try(InputStream in = url.openStream()) {
+			return getThumbnail(in, minSize);
+		}
+	}
+	
+	private static BufferedImage getThumbnail(InputStream in,Dimension minSize) throws IOException {
+		JPEGMetaData data = new JPEGMetaData(new BufferedInputStream(in), true) {
+			@Override
+			protected void processException(Exception e, String marker) {
+				// a missing or broken thumbnail just means we decode the image
+			}
+		};
+		BufferedImage thumbnail = data.getThumbnail();
+		Dimension imageSize = data.getImageSize();
+		if(thumbnail==null || imageSize==null || imageSize.width<=0 || imageSize.height<=0)
+			return null;
+		int w = thumbnail.getWidth();
+		int h = thumbnail.getHeight();
+		if(w<minSize.width || h<minSize.height)
+			return null;
+		// many cameras letterbox the thumbnail (160x120) of a widescreen image
+		long expectedHeight = Math.round( ((double)w)*imageSize.height/imageSize.width );
+		if(Math.abs(expectedHeight-h)>1)
+			return null;
+		return thumbnail;
+	}
+	
+	/** Return true if a marker is one of the start of frame markers,
+	 * which record the size of the image.
+	 */
+	private static boolean isStartOfFrameMarker(String marker) {
+		if(marker.length()!=4 || !marker.startsWith("FFC"))
+			return false;
+		char c = marker.charAt(3);
+		// FFC4, FFC8 and FFCC are other markers
+		return !(c=='4' || c=='8' || c=='C');
+	}
+	
 	Map<String, Object> properties = new HashMap<String, Object>();
+	Dimension imageSize;
 	BufferedImage thumbnail;
 	String[] comments = new String[0];
 	
@@ -128,6 +198,13 @@ public class JPEGMetaData {
 				} else if( JPEGMarkerInputStream.APP13_MARKER.equals(marker)) {
 					APP13Data data = new APP13Data(jpegIn, fetchThumbnail);
 					processAPP13(data);
+				} else if( isStartOfFrameMarker(marker) ) {
+					byte[] b = new byte[5];
+					if(jpegIn.readFully(b, 5)==5) {
+						int height = ((b[1] & 0xff) << 8) + (b[2] & 0xff);
+						int width = ((b[3] & 0xff) << 8) + (b[4] & 0xff);
+						imageSize = new Dimension(width, height);
+					}
 				} else if( JPEGMarkerInputStream.COMMENT_MARKER.equals(marker) ) {
 					byte[] b = new byte[64];
 					StringBuffer buffer = new StringBuffer();
@@ -255,6 +332,13 @@ public class JPEGMetaData {
 		return copy;
 	}
 	
+	/** Returns the size of the image recorded in its start of frame
+	 * marker.  This may return null.
+	 */
+	public Dimension getImageSize() {
+		return imageSize==null ? null : new Dimension(imageSize);
+	}
+	
 	/** Returns the thumbnail if one exists.  This may return
 	 * null.
 	 */
@@ -10,7 +10,9 @@
  */
 package com.pump.image.pixel;
 
+import java.awt.AlphaComposite;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
@@ -20,12 +22,21 @@ import java.awt.image.DirectColorModel;
 import java.awt.image.ImageConsumer;
 import java.awt.image.ImageProducer;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
 import java.util.Map;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
 import com.pump.awt.Dimension2D;
 import com.pump.blog.Blurb;
 import com.pump.reflect.Reflection;
@@ -35,8 +46,15 @@ import com.pump.util.PushPullQueue;
  * (either top-to-bottom or bottom-to-top).  The advantage of this class is that
  * it pipes all this information through the iterator interface as it becomes
  * available: so a buffer of the <i>entire</i> image is not kept in memory.
- * <p>This uses the <code>ImageConsumer</code>/<code>ImageProducer</code> model
- * for collecting image data.
+ * <p>When an <code>ImageReader</code> can decode the source (or the source is
+ * already a <code>BufferedImage</code>) the pixels are read on the caller's
+ * thread. When you know the size you are going to scale the image to, the
+ * <code>ImageReader</code> can subsample the image as it is decoded. (See
+ * {@link #get(File, int, Dimension)}.) In this case the decoded image is kept in
+ * memory, so images that are larger than {@link #MAX_DECODED_PIXELS} are not
+ * decoded this way.
+ * <p>Otherwise this uses the <code>ImageConsumer</code>/<code>ImageProducer</code> model
+ * for collecting image data. The rest of this description refers to that model.
  * <p>If you combine this with the <code>ScalingIterator</code> class: then
  * this means you can pipe data from a large abstract image into a small
  * thumbnail without consuming too much memory.  For example: I can create
@@ -140,7 +158,7 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 		}
 	}
 	
-	private static class GenericImageSinglePassByteIterator extends GenericImageSinglePassIterator 
+	private static class GenericImageSinglePassByteIterator extends ProducerSinglePassIterator 
 		implements BytePixelIterator {
 
 		public GenericImageSinglePassByteIterator(
@@ -376,7 +394,7 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 		}
 	}
 	
-	private static class GenericImageSinglePassIntIterator extends GenericImageSinglePassIterator 
+	private static class GenericImageSinglePassIntIterator extends ProducerSinglePassIterator 
 		implements IntPixelIterator {
 
 		public GenericImageSinglePassIntIterator(
@@ -524,20 +542,136 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 		}
 	}
 	
+	/** This is the common superclass for the iterators that receive their
+	 * pixels from an <code>ImageProducer</code> in another thread.
+	 */
+	private static abstract class ProducerSinglePassIterator extends GenericImageSinglePassIterator {
+		
+		ProducerSinglePassIterator(int width, int height,int type,boolean topDown) {
+			super(width, height, type, topDown);
+		}
+		
+		/** Skip the next row of data. */
+		public void skip() {
+			/** This method does nothing, because it's in the
+			 * next() method that we assess what we've
+			 * been handed and what goes in the destination
+			 * array.
+			 */
+			rowCtr++;
+			if(isDone()) {
+				//wake everyone up, and then any
+				//pending push/pull commands will throw
+				//an AbortedException
+				synchronized(outgoing) {
+					outgoing.notifyAll();
+				}
+				synchronized(incoming) {
+					incoming.notifyAll();
+				}
+			}
+		}
+	
+		@Override
+		protected synchronized void finalize() {
+			while(!isDone()) {
+				skip();
+			}
+		}
+	
+		PushPullQueue<PixelPackage> incoming = new MyPushPullQueue(this);
+		PushPullQueue<PixelPackage> outgoing = new MyPushPullQueue(this);
+		private PixelPackage scratchPackage = new PixelPackage();
+		/**
+		 * 
+		 * @param destArray will be either an int[] or byte[]
+		 */
+		synchronized void processNextRow(Object destArray) {
+			while(true) {
+				synchronized(outgoing) {
+					if(incoming.isEmpty()) {
+						outgoing.push(scratchPackage, TIMEOUT_IN_PROCESS);
+					}
+				}
+				PixelPackage pixelPackage = incoming.pull(TIMEOUT_IN_PROCESS);
+				if(pixelPackage.error!=null) throw new RuntimeException(pixelPackage.error);
+			
+				int pixelPackageRowCtr = pixelPackage.y;
+				if(topDown==false) {
+					pixelPackageRowCtr = height-pixelPackage.y-1;
+				}
+			
+				try {
+					if(pixelPackage.finished){
+						rowCtr++;
+						fillEmptyRow(destArray);
+						//guarantee that in the finally
+						//block below we'll continue to
+						//reuse this pixel package:
+						pixelPackage.h = 1;
+						return;
+					} else if(pixelPackageRowCtr<rowCtr) {
+						//skip this row
+						pixelPackage.y++;
+						pixelPackage.h--;
+						pixelPackage.offset += pixelPackage.scanSize;
+					} else if(pixelPackageRowCtr>rowCtr) {
+						String error = "The iterator needed to process row "+rowCtr+", but was given row "+pixelPackage.y;
+						pixelPackage.error = error;
+						throw new NonSinglePassException(error);
+					} else if(pixelPackage.y==rowCtr) {
+						populate(destArray, pixelPackage.pixels, 
+								pixelPackage.offset, pixelPackage.x, pixelPackage.w, pixelPackage.colorModel);
+						rowCtr++;
+						pixelPackage.y++;
+						pixelPackage.h--;
+						pixelPackage.offset += pixelPackage.scanSize;
+						return;
+					}
+				} catch(RuntimeException e) {
+					pixelPackage.h = 0;
+					pixelPackage.error = e.getMessage()+"";
+					throw e;
+				} finally {
+					if(pixelPackage.h==0) {
+						//we are done with this package, so
+						//acknowledge it to ask for another
+						pixelPackage.acknowledge(pixelPackage.error);
+						try {
+							outgoing.push(pixelPackage, TIMEOUT_IN_PROCESS);
+						} catch(CompletedException e) {
+							//this is thrown when isDone() is true,
+							//so it's not really a problem.
+						}
+					} else {
+						//we're going to read the next row later,
+						//so put this back on the queue.
+						incoming.push(pixelPackage);
+					}
+				}
+			}
+		}
+	
+		abstract void fillEmptyRow(Object destArray);
+	
+		abstract void populate(Object destArray,Object pixels,
+				int offset,int x,int width,ColorModel colorModel);
+	}
+	
 	static class MyPushPullQueue extends PushPullQueue<PixelPackage> {
-		WeakReference<GenericImageSinglePassIterator> ref;
-		public MyPushPullQueue(GenericImageSinglePassIterator iter) {
-			ref = new WeakReference<GenericImageSinglePassIterator>(iter);
+		WeakReference<ProducerSinglePassIterator> ref;
+		public MyPushPullQueue(ProducerSinglePassIterator iter) {
+			ref = new WeakReference<ProducerSinglePassIterator>(iter);
 		}
 		@Override
 		protected void iteratePush() {
-			GenericImageSinglePassIterator iter = ref.get();
+			ProducerSinglePassIterator iter = ref.get();
 			if(iter==null || iter.isDone())
 				throw new CompletedException();
 		}
 		@Override
 		protected void iteratePull() {
-			GenericImageSinglePassIterator iter = ref.get();
+			ProducerSinglePassIterator iter = ref.get();
 			if(iter==null || iter.isDone())
 				throw new CompletedException();
 		}
@@ -687,7 +821,7 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 					throw new RuntimeException(error);
 				}
 	
-				GenericImageSinglePassIterator iterator;
+				ProducerSinglePassIterator iterator;
 				int w = width.intValue();
 				int h = height.intValue();
 	
@@ -756,42 +890,282 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 		}
 	}
 
-	/** Returns a <code>GenericImageSinglePassIntIterator</code>.
-	 * @param file <code>Toolkit.createImage(filePath)</code> is used to create the
-	 * <code>java.awt.Image</code>, so the supported image types are JPG, PNG and GIF.
+	/** This iterates over an image that is already in memory.
+	 * <p>Rows are converted to ARGB as they are requested (a band at a time),
+	 * and then converted to the iterator type the same way the
+	 * <code>ImageProducer</code>-based iterators convert them. Unlike those
+	 * iterators this does all of its work on the caller's thread.
+	 */
+	private static abstract class BufferedImageSinglePassIterator extends GenericImageSinglePassIterator {
+		/** The number of rows converted at a time when the source image is not
+		 * already <code>TYPE_INT_ARGB</code>.
+		 */
+		private static final int BAND_HEIGHT = 16;
+		
+		final BufferedImage source;
+		
+		/** If the source image is not <code>TYPE_INT_ARGB</code>, then bands of rows are
+		 * converted into this image. Otherwise this is null.
+		 */
+		BufferedImage band;
+		
+		/** The row in the source image that the first row of <code>band</code> came from. */
+		int bandY = 0;
+		
+		/** The number of rows in <code>band</code> that have been converted. */
+		int bandHeight = 0;
+		
+		BufferedImageSinglePassIterator(BufferedImage source,int type) {
+			super(source.getWidth(), source.getHeight(), type, true);
+			this.source = source;
+			if(source.getType()!=BufferedImage.TYPE_INT_ARGB) {
+				band = new BufferedImage(width, Math.max(1, Math.min(BAND_HEIGHT, height)), BufferedImage.TYPE_INT_ARGB);
+			}
+		}
+		
+		/** Copy the next row of pixels as non-premultiplied ARGB data. */
+		void readNextRow(int[] argb) {
+			if(isDone())
+				throw new RuntimeException("end of data reached");
+			if(band==null) {
+				source.getRaster().getDataElements(0, rowCtr, width, 1, argb);
+			} else {
+				if(rowCtr>=bandY+bandHeight) {
+					bandY = rowCtr;
+					bandHeight = Math.min(band.getHeight(), height - rowCtr);
+					Graphics2D g = band.createGraphics();
+					g.setComposite(AlphaComposite.Src);
+					g.drawImage(source, 0, -bandY, null);
+					g.dispose();
+				}
+				band.getRaster().getDataElements(0, rowCtr - bandY, width, 1, argb);
+			}
+			rowCtr++;
+		}
+
+		public void skip() {
+			if(isDone())
+				throw new RuntimeException("end of data reached");
+			rowCtr++;
+		}
+	}
+	
+	private static class BufferedImageSinglePassIntIterator extends BufferedImageSinglePassIterator
+		implements IntPixelIterator {
+		
+		BufferedImageSinglePassIntIterator(BufferedImage source,int type) {
+			super(source, type);
+		}
+
+		public int getPixelSize() {
+			return 1;
+		}
+
+		public void next(int[] dest) {
+			readNextRow(dest);
+			if((type==BufferedImage.TYPE_INT_RGB || type==BufferedImage.TYPE_INT_BGR) && 
+					!source.getColorModel().hasAlpha()) {
+				//an ImageProducer would leave the unused byte empty:
+				for(int x = 0; x<width; x++) {
+					dest[x] = dest[x] & 0xffffff;
+				}
+			}
+			if(type==BufferedImage.TYPE_INT_BGR) {
+				GenericImageSinglePassIntIterator.flipBytes(dest, 0, width, 0xff00ff00, 0, 2);
+			}
+		}
+	}
+	
+	private static class BufferedImageSinglePassByteIterator extends BufferedImageSinglePassIterator
+		implements BytePixelIterator {
+		
+		int[] argbRow;
+		
+		BufferedImageSinglePassByteIterator(BufferedImage source,int type) {
+			super(source, type);
+			argbRow = new int[width];
+		}
+
+		public int getPixelSize() {
+			switch(type) {
+				case BufferedImage.TYPE_4BYTE_ABGR:
+				case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+					return 4;
+				case BufferedImage.TYPE_3BYTE_BGR:
+					return 3;
+			}
+			return 1;
+		}
+
+		public void next(byte[] dest) {
+			readNextRow(argbRow);
+			if(type==BufferedImage.TYPE_3BYTE_BGR) {
+				for(int x = 0; x<width; x++) {
+					int rgb = argbRow[x];
+					dest[ 3*x+0 ] = (byte)( (rgb >> 16) & 0xff);
+					dest[ 3*x+1 ] = (byte)( (rgb >> 8) & 0xff);
+					dest[ 3*x+2 ] = (byte)( (rgb >> 0) & 0xff);
+				}
+			} else if(type==BufferedImage.TYPE_4BYTE_ABGR || type==BufferedImage.TYPE_4BYTE_ABGR_PRE) {
+				for(int x = 0; x<width; x++) {
+					int rgb = argbRow[x];
+					dest[ 4*x+0 ] = (byte)( (rgb >> 24) & 0xff);
+					dest[ 4*x+1 ] = (byte)( (rgb >> 16) & 0xff);
+					dest[ 4*x+2 ] = (byte)( (rgb >> 8) & 0xff);
+					dest[ 4*x+3 ] = (byte)( (rgb >> 0) & 0xff);
+				}
+			} else {
+				for(int x = 0; x<width; x++) {
+					int rgb = argbRow[x];
+					int c1 = (rgb >> 16) & 0xff;
+					int c2 = (rgb >> 8) & 0xff;
+					int c3 = (rgb >> 0) & 0xff;
+					dest[ x ] = (byte)( (c1+c2+c3)/3 );
+				}
+			}
+		}
+	}
+	
+	/** The maximum number of pixels an <code>ImageReader</code> may decode into
+	 * memory for one of these iterators. Images that are larger than this (after
+	 * subsampling) are streamed through an <code>ImageProducer</code> instead.
+	 * By default this is 4,194,304 (2048x2048).
+	 */
+	public static long MAX_DECODED_PIXELS = 2048*2048;
+	
+	/** Returns an <code>IntPixelIterator</code>.
+	 * @param file an image file that <code>ImageIO</code> or the
+	 * <code>java.awt.Toolkit</code> can read.
 	 * @param iteratorType one of these 4 BufferedImage types:
 	 * TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR.
-	 * @return a <code>GenericImageSinglePassIntIterator</code> for the file provided.
+	 * @return an <code>IntPixelIterator</code> for the file provided.
 	 */
-	public static GenericImageSinglePassIntIterator getIntIterator(File file,int iteratorType) {
-		return (GenericImageSinglePassIntIterator)get(file, iteratorType);
+	public static IntPixelIterator getIntIterator(File file,int iteratorType) {
+		return (IntPixelIterator)get(file, iteratorType);
 	}
 
-	/** Returns a <code>GenericImageSinglePassByteIterator</code>.
-	 * @param file <code>Toolkit.createImage(filePath)</code> is used to create the
-	 * <code>java.awt.Image</code>, so the supported image types are JPG, PNG and GIF.
+	/** Returns a <code>BytePixelIterator</code>.
+	 * @param file an image file that <code>ImageIO</code> or the
+	 * <code>java.awt.Toolkit</code> can read.
 	 * @param iteratorType one of these 4 BufferedImage types:
 	 * TYPE_3BYTE_BGR, TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
-	 * @return a <code>GenericImageSinglePassByteIterator</code> for the file provided.
+	 * @return a <code>BytePixelIterator</code> for the file provided.
 	 */
-	public static GenericImageSinglePassByteIterator getByteIterator(File file,int iteratorType) {
-		return (GenericImageSinglePassByteIterator)get(file, iteratorType);
+	public static BytePixelIterator getByteIterator(File file,int iteratorType) {
+		return (BytePixelIterator)get(file, iteratorType);
 	}
 
 	/** Returns a <code>GenericImageSinglePassIterator</code> that is
 	 * either a <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
-	 * @param file <code>Toolkit.createImage(filePath)</code> is used to create the
-	 * <code>java.awt.Image</code>, so the supported image types are JPG, PNG and GIF.
+	 * @param file an image file that <code>ImageIO</code> or the
+	 * <code>java.awt.Toolkit</code> can read.
 	 * @param iteratorType one of these 8 BufferedImage types:
 	 * TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR,
 	 * TYPE_3BYTE_BGR, TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
 	 * @return a <code>GenericImageSinglePassIterator</code> for the file provided.
 	 */
 	public static GenericImageSinglePassIterator get(File file,int iteratorType) {
+		return get(file, iteratorType, null);
+	}
+
+	/** Returns a <code>GenericImageSinglePassIterator</code> that is
+	 * either a <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
+	 * <p>If an <code>ImageReader</code> is available for this file then it decodes
+	 * the image on this thread. Otherwise <code>Toolkit.createImage(filePath)</code>
+	 * is used to create a <code>java.awt.Image</code> that is read in another thread.
+	 * @param file an image file that <code>ImageIO</code> or the
+	 * <code>java.awt.Toolkit</code> can read.
+	 * @param iteratorType one of these 8 BufferedImage types:
+	 * TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR,
+	 * TYPE_3BYTE_BGR, TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
+	 * @param destSize an optional hint describing the size this image will
+	 * be scaled to. If this is non-null then the <code>ImageReader</code> may skip
+	 * source pixels, so the iterator may be smaller than the image in the file.
+	 * It will still be at least four times <code>destSize</code> (or the size of the
+	 * image, if that is smaller), so a <code>ScalingIterator</code> still averages
+	 * several source pixels for each destination pixel.
+	 * @return a <code>GenericImageSinglePassIterator</code> for the file provided.
+	 */
+	public static GenericImageSinglePassIterator get(File file,int iteratorType,Dimension destSize) {
+		validateIteratorType(iteratorType);
+		try(ImageInputStream in = ImageIO.createImageInputStream(file)) {
+			GenericImageSinglePassIterator iter = read(in, iteratorType, destSize);
+			if(iter!=null)
+				return iter;
+		} catch(IOException | RuntimeException e) {
+			//the toolkit may still be able to read this file
+		}
 		Image image = Toolkit.getDefaultToolkit().createImage(file.getAbsolutePath());
 		if(image==null) throw new IllegalArgumentException("The toolkit could not create an image for "+file.getAbsolutePath());
 		return get(image, iteratorType);
 	}
+
+	/** Returns a <code>GenericImageSinglePassIterator</code> that is
+	 * either a <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
+	 * <p>If an <code>ImageReader</code> is available for this URL then it decodes
+	 * the image on this thread. Otherwise <code>Toolkit.createImage(url)</code>
+	 * is used to create a <code>java.awt.Image</code> that is read in another thread.
+	 * @param url an image that <code>ImageIO</code> or the
+	 * <code>java.awt.Toolkit</code> can read.
+	 * @param iteratorType one of these 8 BufferedImage types:
+	 * TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR,
+	 * TYPE_3BYTE_BGR, TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
+	 * @param destSize an optional hint describing the size this image will
+	 * be scaled to. See {@link #get(File, int, Dimension)}.
+	 * @return a <code>GenericImageSinglePassIterator</code> for the URL provided.
+	 */
+	public static GenericImageSinglePassIterator get(URL url,int iteratorType,Dimension destSize) {
+		validateIteratorType(iteratorType);
+		try(InputStream urlIn = url.openStream()) {
+			try(ImageInputStream in = new MemoryCacheImageInputStream(urlIn)) {
+				GenericImageSinglePassIterator iter = read(in, iteratorType, destSize);
+				if(iter!=null)
+					return iter;
+			}
+		} catch(IOException | RuntimeException e) {
+			//the toolkit may still be able to read this URL
+		}
+		Image image = Toolkit.getDefaultToolkit().createImage(url);
+		if(image==null) throw new IllegalArgumentException("The toolkit could not create an image for "+url);
+		return get(image, iteratorType);
+	}
+	
+	/** Decode an image with an <code>ImageReader</code>.
+	 * 
+	 * @return an iterator for the decoded image, or null if no appropriate
+	 * <code>ImageReader</code> is available or the image is too large to decode
+	 * into memory.
+	 */
+	private static GenericImageSinglePassIterator read(ImageInputStream in,int iteratorType,Dimension destSize) throws IOException {
+		if(in==null)
+			return null;
+		Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+		if(!readers.hasNext())
+			return null;
+		ImageReader reader = readers.next();
+		try {
+			// the toolkit renders the first frame of a GIF on its logical screen, but
+			// ImageIO only returns the frame itself:
+			if("gif".equalsIgnoreCase(reader.getFormatName()))
+				return null;
+			reader.setInput(in, true, true);
+			int w = reader.getWidth(0);
+			int h = reader.getHeight(0);
+			int subsampling = 1;
+			if(destSize!=null && destSize.width>0 && destSize.height>0) {
+				subsampling = Math.max(1, Math.min( w/(4*destSize.width), h/(4*destSize.height) ));
+			}
+			long pixels = (long)((w + subsampling - 1)/subsampling) * (long)((h + subsampling - 1)/subsampling);
+			if(pixels>MAX_DECODED_PIXELS)
+				return null;
+			ImageReadParam param = reader.getDefaultReadParam();
+			param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+			BufferedImage bi = reader.read(0, param);
+			return get(bi, iteratorType);
+		} finally {
+			reader.dispose();
+		}
+	}
 	
 	/** Create a scaled image from a URL.
 	 * <p>If the graphic is already smaller than the maximum size you
@@ -802,10 +1176,9 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 	 * then the resulting thumbnail will be 120x90.
 	 */
 	public static BufferedImage createScaledImage(URL url,Dimension maxSize) {
-		Image image = Toolkit.getDefaultToolkit().createImage(url);
 		boolean isJPEG = url.toString().toLowerCase().endsWith(".jpg") || url.toString().toLowerCase().endsWith(".jpeg");
 		int type = isJPEG ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
-		IntPixelIterator iter = (IntPixelIterator)get( image, type);
+		IntPixelIterator iter = (IntPixelIterator)get( url, type, maxSize);
 		if(iter==null) return null;
 		Dimension currentSize = new Dimension( iter.getWidth(), iter.getHeight() );
 		if(currentSize.width<=maxSize.width &&
@@ -816,10 +1189,25 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 		PixelIterator scalingIter = ScalingIterator.get(iter, newSize.width, newSize.height);
 		return BufferedImageIterator.create(scalingIter, null);
 	}
-
+	
+	private static void validateIteratorType(int iteratorType) {
+		if(!(iteratorType==BufferedImage.TYPE_INT_ARGB ||
+				iteratorType==BufferedImage.TYPE_INT_ARGB_PRE ||
+				iteratorType==BufferedImage.TYPE_INT_RGB ||
+				iteratorType==BufferedImage.TYPE_INT_BGR ||
+				iteratorType==BufferedImage.TYPE_3BYTE_BGR ||
+				iteratorType==BufferedImage.TYPE_BYTE_GRAY ||
+				iteratorType==BufferedImage.TYPE_4BYTE_ABGR ||
+				iteratorType==BufferedImage.TYPE_4BYTE_ABGR_PRE)) {
+			throw new IllegalArgumentException("illegal iterator type: "+iteratorType);
+		}
+	}
 
 	/** Returns a <code>GenericImageSinglePassIterator</code> that is
 	 * either a <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
+	 * <p>If the image is a <code>BufferedImage</code> then its rows are read
+	 * on this thread. Otherwise this relies on the image's <code>ImageProducer</code>,
+	 * which delivers pixels in another thread.
 	 * @param image the image to iterate over.
 	 * @param iteratorType one of these 8 BufferedImage types:
 	 * TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR,
@@ -827,15 +1215,18 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 	 * @return a <code>GenericImageSinglePassIterator</code> for the image provided.
 	 */
 	public static GenericImageSinglePassIterator get(Image image,int iteratorType) {
-		if(!(iteratorType==BufferedImage.TYPE_INT_ARGB ||
-				iteratorType==BufferedImage.TYPE_INT_ARGB_PRE ||
-				iteratorType==BufferedImage.TYPE_INT_RGB ||
-				iteratorType==BufferedImage.TYPE_INT_BGR ||
-				iteratorType==BufferedImage.TYPE_3BYTE_BGR ||
-				iteratorType==BufferedImage.TYPE_BYTE_GRAY ||
-				iteratorType==BufferedImage.TYPE_4BYTE_ABGR ||
-				iteratorType==BufferedImage.TYPE_4BYTE_ABGR_PRE)) {
-			throw new IllegalArgumentException("illegal iterator type: "+iteratorType);
+		validateIteratorType(iteratorType);
+		if(image instanceof BufferedImage) {
+			BufferedImage bi = (BufferedImage)image;
+			switch(iteratorType) {
+				case BufferedImage.TYPE_INT_ARGB:
+				case BufferedImage.TYPE_INT_ARGB_PRE:
+				case BufferedImage.TYPE_INT_BGR:
+				case BufferedImage.TYPE_INT_RGB:
+					return new BufferedImageSinglePassIntIterator(bi, iteratorType);
+				default:
+					return new BufferedImageSinglePassByteIterator(bi, iteratorType);
+			}
 		}
 		final ImageProducer producer = image.getSource();
 		final Consumer consumer = new Consumer(producer, iteratorType);
@@ -920,109 +1311,4 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 		return getWidth()*getPixelSize();
 	}
 	
-	/** Skip the next row of data. */
-	public void skip() {
-		/** This method does nothing, because it's in the
-		 * next() method that we assess what we've
-		 * been handed and what goes in the destination
-		 * array.
-		 */
-		rowCtr++;
-		if(isDone()) {
-			//wake everyone up, and then any
-			//pending push/pull commands will throw
-			//an AbortedException
-			synchronized(outgoing) {
-				outgoing.notifyAll();
-			}
-			synchronized(incoming) {
-				incoming.notifyAll();
-			}
-		}
-	}
-	
-	@Override
-	protected synchronized void finalize() {
-		while(!isDone()) {
-			skip();
-		}
-	}
-	
-	PushPullQueue<PixelPackage> incoming = new MyPushPullQueue(this);
-	PushPullQueue<PixelPackage> outgoing = new MyPushPullQueue(this);
-	private PixelPackage scratchPackage = new PixelPackage();
-	/**
-	 * 
-	 * @param destArray will be either an int[] or byte[]
-	 */
-	synchronized void processNextRow(Object destArray) {
-		while(true) {
-			synchronized(outgoing) {
-				if(incoming.isEmpty()) {
-					outgoing.push(scratchPackage, TIMEOUT_IN_PROCESS);
-				}
-			}
-			PixelPackage pixelPackage = incoming.pull(TIMEOUT_IN_PROCESS);
-			if(pixelPackage.error!=null) throw new RuntimeException(pixelPackage.error);
-			
-			int pixelPackageRowCtr = pixelPackage.y;
-			if(topDown==false) {
-				pixelPackageRowCtr = height-pixelPackage.y-1;
-			}
-			
-			try {
-				if(pixelPackage.finished){
-					rowCtr++;
-					fillEmptyRow(destArray);
-					//guarantee that in the finally
-					//block below we'll continue to
-					//reuse this pixel package:
-					pixelPackage.h = 1;
-					return;
-				} else if(pixelPackageRowCtr<rowCtr) {
-					//skip this row
-					pixelPackage.y++;
-					pixelPackage.h--;
-					pixelPackage.offset += pixelPackage.scanSize;
-				} else if(pixelPackageRowCtr>rowCtr) {
-					String error = "The iterator needed to process row "+rowCtr+", but was given row "+pixelPackage.y;
-					pixelPackage.error = error;
-					throw new NonSinglePassException(error);
-				} else if(pixelPackage.y==rowCtr) {
-					populate(destArray, pixelPackage.pixels, 
-							pixelPackage.offset, pixelPackage.x, pixelPackage.w, pixelPackage.colorModel);
-					rowCtr++;
-					pixelPackage.y++;
-					pixelPackage.h--;
-					pixelPackage.offset += pixelPackage.scanSize;
-					return;
-				}
-			} catch(RuntimeException e) {
-				pixelPackage.h = 0;
-				pixelPackage.error = e.getMessage()+"";
-				throw e;
-			} finally {
-				if(pixelPackage.h==0) {
-					//we are done with this package, so
-					//acknowledge it to ask for another
-					pixelPackage.acknowledge(pixelPackage.error);
-					try {
-						outgoing.push(pixelPackage, TIMEOUT_IN_PROCESS);
-					} catch(CompletedException e) {
-						//this is thrown when isDone() is true,
-						//so it's not really a problem.
-					}
-				} else {
-					//we're going to read the next row later,
-					//so put this back on the queue.
-					incoming.push(pixelPackage);
-				}
-			}
-		}
-	}
-	
-	abstract void fillEmptyRow(Object destArray);
-	
-	abstract void populate(Object destArray,Object pixels,
-			int offset,int x,int width,ColorModel colorModel);
 }
\ No newline at end of file
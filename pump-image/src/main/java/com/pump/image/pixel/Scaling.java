@@ -10,18 +10,25 @@
  */
 package com.pump.image.pixel;
 
+import java.awt.AlphaComposite;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.imageio.ImageIO;
 
 import com.pump.blog.Blurb;
 import com.pump.image.ImageSize;
+import com.pump.image.bmp.BmpDecoder;
 import com.pump.image.bmp.BmpDecoderIterator;
+import com.pump.image.jpeg.JPEGMetaData;
 
 /** This contains a few static methods for scaling BufferedImages
  * using the {@link com.pump.image.pixel.ScalingIterator}.
@@ -83,6 +90,9 @@ public class Scaling {
 	 * @param source the source image file.
 	 * @param preferredType <code>TYPE_INT_RGB</code>, <code>TYPE_INT_ARGB</code>, <code>TYPE_3BYTE_BGR</code>, <code>TYPE_4BYTE_ABGR</code>.
 	 * @param destSize the size of the new image.
+	 * <p>If the source is a JPEG with an embedded thumbnail that is at least this
+	 * large (and has the same aspect ratio) then the thumbnail is scaled instead of
+	 * the full image.
 	 * @return a new scaled image of type <code>BufferedImage.TYPE_INT_ARGB</code>
 	 * or <code>BufferedImage.TYPE_INT_RGB</code>.
 	 */
@@ -111,13 +121,90 @@ public class Scaling {
 				return null;
 			}
 		}
-		Image image = Toolkit.getDefaultToolkit().createImage(source.getAbsolutePath());
+		if(destSize!=null && (pathLower.endsWith(".jpg") || pathLower.endsWith(".jpeg"))) {
+			try {
+				BufferedImage thumbnail = JPEGMetaData.getThumbnail(source, destSize);
+				if(thumbnail!=null)
+					return scaleThumbnail(thumbnail, destSize);
+			} catch(IOException e) {
+				//the decoder below will report this problem too
+			}
+		}
+		PixelIterator iter = GenericImageSinglePassIterator.get(source, BufferedImage.TYPE_INT_ARGB, destSize);
+		return scale(iter, destSize);
+	}
+
+	/** Scales an embedded thumbnail to <code>destSize</code>.
+	 * <p>This returns a <code>TYPE_INT_ARGB</code> image, like
+	 * the rest of <code>scale(File, ...)</code> and <code>scale(URL, ...)</code>.
+	 */
+	private static BufferedImage scaleThumbnail(BufferedImage thumbnail,Dimension destSize) {
+		//thumbnails are small, so converting first costs little (and gives us opaque pixels)
+		BufferedImage argb = new BufferedImage(thumbnail.getWidth(), thumbnail.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = argb.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(thumbnail, 0, 0, null);
+		g.dispose();
+		if(argb.getWidth()==destSize.width && argb.getHeight()==destSize.height)
+			return argb;
+		return scale(argb, null, destSize);
+	}
+
+	/** Scales the source image file to a new, smaller size using several threads.
+	 * <p>Unlike {@link #scale(File, int, Dimension)} this decodes the entire
+	 * source image into memory before it is scaled, so the destination can be
+	 * split into bands that are scaled in parallel. This trades memory for
+	 * throughput: it is intended for large images on machines with several cores.
+	 * 
+	 * @param source the source image file.
+	 * @param preferredType <code>TYPE_INT_RGB</code>, <code>TYPE_INT_ARGB</code>, <code>TYPE_3BYTE_BGR</code>, <code>TYPE_4BYTE_ABGR</code>.
+	 * @param destSize the size of the new image.
+	 * @param pool the pool to scale bands on. If this is null then
+	 * this is identical to calling {@link #scale(File, int, Dimension)}.
+	 * @return a new scaled image of the preferred type, or null if the
+	 * image could not be read.
+	 */
+	public static BufferedImage scale(File source,int preferredType,Dimension destSize,ForkJoinPool pool) {
+		if(pool==null)
+			return scale(source, preferredType, destSize);
+		
+		BufferedImage bi;
 		try {
-			return scale( image, null, destSize);
-		} finally {
-			if(image!=null)
-				image.flush();
+			String pathLower = source.getAbsolutePath().toLowerCase();
+			if(pathLower.endsWith(".bmp")) {
+				bi = BmpDecoder.readImage(source);
+			} else {
+				bi = ImageIO.read(source);
+			}
+		} catch(IOException e) {
+			return null;
 		}
+		if(bi==null)
+			return scale(source, preferredType, destSize);
+		if(destSize==null)
+			destSize = new Dimension(bi.getWidth(), bi.getHeight());
+		
+		BufferedImage dest;
+		if(preferredType==BufferedImage.TYPE_INT_ARGB || preferredType==BufferedImage.TYPE_INT_ARGB_PRE) {
+			dest = new BufferedImage(destSize.width, destSize.height, BufferedImage.TYPE_INT_ARGB);
+		} else if(preferredType==BufferedImage.TYPE_INT_RGB) {
+			dest = new BufferedImage(destSize.width, destSize.height, BufferedImage.TYPE_INT_RGB);
+		} else if(preferredType==BufferedImage.TYPE_3BYTE_BGR || preferredType==BufferedImage.TYPE_4BYTE_ABGR) {
+			dest = null;
+		} else {
+			throw new IllegalArgumentException("unrecognized type: "+preferredType);
+		}
+		BufferedImage scaled = scale(bi, dest, destSize, pool);
+		if(scaled.getType()==preferredType || dest!=null)
+			return scaled;
+		
+		//the bands are scaled as ints, so byte-based types are converted in one final pass:
+		BufferedImage byteImage = new BufferedImage(destSize.width, destSize.height, preferredType);
+		Graphics2D g = byteImage.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(scaled, 0, 0, null);
+		g.dispose();
+		return byteImage;
 	}
 
 	/** Scales the source image file to a new size.
@@ -125,6 +212,9 @@ public class Scaling {
 	 * @param source the source image file.
 	 * @param preferredType <code>TYPE_INT_RGB</code>, <code>TYPE_INT_ARGB</code>, <code>TYPE_3BYTE_BGR</code>, <code>TYPE_4BYTE_ABGR</code>.
 	 * @param destSize the size of the new image.
+	 * <p>If the source is a JPEG with an embedded thumbnail that is at least this
+	 * large (and has the same aspect ratio) then the thumbnail is scaled instead of
+	 * the full image.
 	 * @return a new scaled image of type <code>BufferedImage.TYPE_INT_ARGB</code>
 	 * or <code>BufferedImage.TYPE_INT_RGB</code>.
 	 */
@@ -162,13 +252,35 @@ public class Scaling {
 				}
 			}
 		}
-		Image image = Toolkit.getDefaultToolkit().createImage(source);
-		try {
-			return scale( image, null, destSize);
-		} finally {
-			if(image!=null)
-				image.flush();
+		if(destSize!=null && (pathLower.endsWith(".jpg") || pathLower.endsWith(".jpeg"))) {
+			try {
+				BufferedImage thumbnail = JPEGMetaData.getThumbnail(source, destSize);
+				if(thumbnail!=null)
+					return scaleThumbnail(thumbnail, destSize);
+			} catch(IOException e) {
+				//the decoder below will report this problem too
+			}
 		}
+		PixelIterator iter = GenericImageSinglePassIterator.get(source, BufferedImage.TYPE_INT_ARGB, destSize);
+		return scale(iter, destSize);
+	}
+
+	/** Scales the pixels of an iterator into a new image.
+	 * 
+	 * @param iter the source pixels.
+	 * @param destSize the size of the new image. If this is null
+	 * then the image will not be scaled.
+	 * @return a new image of the same type as the iterator.
+	 */
+	private static BufferedImage scale(PixelIterator iter,Dimension destSize) {
+		if(destSize!=null && (destSize.width>iter.getWidth() || destSize.height>iter.getHeight())) {
+			while(!iter.isDone()) {
+				iter.skip();
+			}
+			throw new IllegalArgumentException("dest size ("+destSize.width+"x"+destSize.height+") must not exceed the source size ("+iter.getWidth()+"x"+iter.getHeight()+")");
+		}
+		PixelIterator scalingIter = destSize==null ? iter : ScalingIterator.get(iter, destSize.width, destSize.height);
+		return BufferedImageIterator.create(scalingIter, null);
 	}
 
 	/** Scales the source image into the dest.
@@ -206,27 +318,132 @@ public class Scaling {
 			}
 		}
 
+		scaleRows(source, dest, destSize, 0, destSize.height);
+		return dest;
+	}
+
+	/** Scales the source image into the dest using several threads.
+	 * <p>The destination is split into horizontal bands, and each band
+	 * is scaled by its own <code>ScalingIterator</code> on the pool provided.
+	 * The pixels written are identical to the pixels
+	 * {@link #scale(BufferedImage, BufferedImage, Dimension)} writes.
+	 * 
+	 * @param source the source image.  This may not be null.
+	 * @param dest the destination image.  If non-null: this image must
+	 * be at least <code>destSize</code> pixels in size or an
+	 * exception will be thrown.  If this is null: an image will
+	 * be created that is <code>destSize</code> pixels.
+	 * <p>Unlike the single-threaded method this may not be the same as
+	 * the <code>source</code> argument.
+	 * @param destSize the dimensions to write to.  It is guaranteed
+	 * that these pixels will be replaced in the dest image.
+	 * @param pool the pool to scale bands on. If this is null then
+	 * the image is scaled on the calling thread.
+	 * @return the <code>dest</code> argument, or a new image if no
+	 * <code>dest</code> argument was provided.
+	 */
+	public static BufferedImage scale(BufferedImage source,BufferedImage dest,Dimension destSize,ForkJoinPool pool) {
+		if(pool==null || pool.getParallelism()<2)
+			return scale(source, dest, destSize);
+		if(source==dest)
+			throw new IllegalArgumentException("the source and dest may not be the same image when scaling in parallel");
+
+		if(destSize==null && dest!=null) {
+			destSize = new Dimension(dest.getWidth(), dest.getHeight());
+		}
+
+		if(source==null) {
+			throw new NullPointerException("no source image");
+		} else if(destSize==null) {
+			throw new NullPointerException("no dest size");
+		} else if(dest==null) {
+			if(source.getColorModel().hasAlpha()) {
+				dest = new BufferedImage(destSize.width, destSize.height, BufferedImage.TYPE_INT_ARGB);
+			} else {
+				dest = new BufferedImage(destSize.width, destSize.height, BufferedImage.TYPE_INT_RGB);
+			}
+		}
+
+		int bandHeight = Math.max(MIN_BAND_HEIGHT, 
+				destSize.height / (BANDS_PER_THREAD*pool.getParallelism()) );
+		if(destSize.height<=bandHeight) {
+			scaleRows(source, dest, destSize, 0, destSize.height);
+		} else {
+			pool.invoke(new ScaleBand(source, dest, destSize, 0, destSize.height, bandHeight));
+		}
+		return dest;
+	}
+
+	/** The minimum number of destination rows a band in 
+	 * {@link #scale(BufferedImage, BufferedImage, Dimension, ForkJoinPool)}
+	 * scales. Every band reallocates its own row buffers, so very small
+	 * bands cost more than they save.
+	 */
+	private static final int MIN_BAND_HEIGHT = 16;
+	
+	/** The number of bands to give each thread. This is more than 1 so
+	 * work-stealing can balance bands that take longer than others.
+	 */
+	private static final int BANDS_PER_THREAD = 4;
+
+	/** This recursively splits a range of destination rows in half
+	 * until it is small enough to scale in one pass.
+	 */
+	private static class ScaleBand extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		final BufferedImage source, dest;
+		final Dimension destSize;
+		final int y0, y1, bandHeight;
+		
+		ScaleBand(BufferedImage source,BufferedImage dest,Dimension destSize,int y0,int y1,int bandHeight) {
+			this.source = source;
+			this.dest = dest;
+			this.destSize = destSize;
+			this.y0 = y0;
+			this.y1 = y1;
+			this.bandHeight = bandHeight;
+		}
+
+		@Override
+		protected void compute() {
+			if(y1-y0<=bandHeight) {
+				scaleRows(source, dest, destSize, y0, y1);
+			} else {
+				int mid = (y0+y1)/2;
+				invokeAll(new ScaleBand(source, dest, destSize, y0, mid, bandHeight),
+						new ScaleBand(source, dest, destSize, mid, y1, bandHeight));
+			}
+		}
+	}
+	
+	/** Scales the rows [y0, y1) of the destination image.
+	 * <p>Each call creates its own iterators, so several threads can
+	 * call this method at once as long as their ranges do not overlap.
+	 */
+	private static void scaleRows(BufferedImage source,BufferedImage dest,Dimension destSize,int y0,int y1) {
 		PixelIterator pi = ScalingIterator.get(
 				BufferedImageIterator.get(source),
 				destSize.width, destSize.height
 				);
+		if(pi instanceof ScalingIterator) {
+			((ScalingIterator)pi).skipTo(y0);
+		} else {
+			//no scaling was necessary: the source is already the right size
+			for(int y = 0; y<y0; y++) {
+				pi.skip();
+			}
+		}
 		if(pi instanceof BytePixelIterator) {
 			pi = new IntARGBConverter(pi);
 		}
 		IntPixelIterator i = (IntPixelIterator)pi;
 		int[] row = new int[i.getMinimumArrayLength()];
-		if(i.isTopDown()) {
-			for(int y = 0; y<destSize.height; y++) {
-				i.next(row);
-				dest.getRaster().setDataElements(0, y, destSize.width, 1, row);
-			}
-		} else {
-			for(int y = destSize.height-1; y>=0; y--) {
-				i.next(row);
-				dest.getRaster().setDataElements(0, y, destSize.width, 1, row);
-			}
+		//BufferedImageIterator.get(BufferedImage) is always top-down
+		for(int y = y0; y<y1; y++) {
+			i.next(row);
+			dest.getRaster().setDataElements(0, y, destSize.width, 1, row);
 		}
-		return dest;
 	}
 
 
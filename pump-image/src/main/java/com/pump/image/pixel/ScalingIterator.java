@@ -1220,7 +1220,26 @@ public abstract class ScalingIterator implements PixelIterator {
 		boolean returnValue =  dstY >= dstH;
 		return returnValue;
 	}
-	
+
+	/** Advances this iterator so the next call to <code>next()</code>
+	 * returns the destination row <code>dstRow</code>.
+	 * <p>This must be called before any rows are read. The source rows
+	 * before <code>dstRow</code> are skipped lazily, so this is inexpensive
+	 * when the source iterator can skip rows without decoding them (such
+	 * as a {@link BufferedImageIterator}). The rows returned are identical
+	 * to the rows a fresh iterator would return after reading
+	 * <code>dstRow</code> rows.
+	 *
+	 * @param dstRow the destination row to start reading from.
+	 */
+	void skipTo(int dstRow) {
+		if(dstY!=0 || srcY!=0)
+			throw new IllegalStateException("skipTo() must be called before any rows are read (dstY = "+dstY+", srcY = "+srcY+")");
+		if(dstRow<0 || dstRow>dstH)
+			throw new IllegalArgumentException("dstRow ("+dstRow+") must be within [0, "+dstH+"]");
+		dstY = dstRow;
+	}
+
 	public void skip() {
 		srcY++;
 		if( isDone() )
@@ -0,0 +1,300 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel.quantize;
+
+import java.awt.image.BufferedImage;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.pump.image.pixel.BufferedImageIterator;
+import com.pump.image.pixel.IntARGBConverter;
+
+/** This counts the occurrences of RGB colors using an open-addressing hash table
+ * of primitive ints.
+ * <p>This class is not thread-safe. To count the colors of an image on several
+ * threads: give each thread its own <code>ColorHistogram</code> and then combine
+ * them with {@link #addAll(ColorHistogram)}. Because no histogram is ever shared while
+ * it is being modified this does not require any locking. The
+ * {@link #create(BufferedImage, ForkJoinPool)} method does exactly this.
+ */
+public class ColorHistogram implements Serializable {
+	private static final long serialVersionUID = 1L;
+	
+	/** The minimum number of image rows one thread counts in 
+	 * {@link #create(BufferedImage, ForkJoinPool)}.
+	 */
+	private static final int MIN_BAND_HEIGHT = 32;
+
+	/** The RGB key of each slot. A slot is only in use if its count is positive. */
+	private int[] keys;
+	
+	/** The number of occurrences of the color in each slot, or zero if the slot is empty. */
+	private int[] counts;
+	
+	/** The number of slots in use. */
+	private int size = 0;
+	
+	/** The sum of all the counts. */
+	private long pixelCount = 0;
+
+	/** Create an empty histogram. */
+	public ColorHistogram() {
+		this(256);
+	}
+
+	/** Create an empty histogram.
+	 * 
+	 * @param expectedColors the number of unique colors this histogram is expected to
+	 * contain. The histogram grows as needed, but an accurate estimate avoids rehashing.
+	 */
+	public ColorHistogram(int expectedColors) {
+		int capacity = 16;
+		while(capacity<2*expectedColors && capacity<(1 << 30)) {
+			capacity *= 2;
+		}
+		keys = new int[capacity];
+		counts = new int[capacity];
+	}
+	
+	/** Create a histogram of all the pixels in an image that are more than
+	 * 50% opaque.
+	 * 
+	 * @param image the image to count the colors of.
+	 * @param pool an optional pool to count separate bands of the image on.
+	 * If this is null then the image is processed on the calling thread.
+	 * @return a new histogram.
+	 */
+	public static ColorHistogram create(BufferedImage image,ForkJoinPool pool) {
+		int bandHeight = image.getHeight();
+		if(pool!=null) {
+			bandHeight = Math.max(MIN_BAND_HEIGHT, image.getHeight() / (4*pool.getParallelism()) );
+		}
+		if(bandHeight>=image.getHeight()) {
+			return createBand(image, 0, image.getHeight());
+		}
+		return pool.invoke(new HistogramTask(image, 0, image.getHeight(), bandHeight));
+	}
+	
+	/** This recursively splits an image into bands of rows and merges the histograms of each band. */
+	private static class HistogramTask extends RecursiveTask<ColorHistogram> {
+		private static final long serialVersionUID = 1L;
+		
+		final BufferedImage image;
+		final int y0, y1, bandHeight;
+		
+		HistogramTask(BufferedImage image,int y0,int y1,int bandHeight) {
+			this.image = image;
+			this.y0 = y0;
+			this.y1 = y1;
+			this.bandHeight = bandHeight;
+		}
+
+		@Override
+		protected ColorHistogram compute() {
+			if(y1-y0<=bandHeight) {
+				return createBand(image, y0, y1);
+			}
+			int mid = (y0+y1)/2;
+			HistogramTask top = new HistogramTask(image, y0, mid, bandHeight);
+			HistogramTask bottom = new HistogramTask(image, mid, y1, bandHeight);
+			top.fork();
+			ColorHistogram h2 = bottom.compute();
+			ColorHistogram h1 = top.join();
+			if(h1.size()<h2.size()) {
+				h2.addAll(h1);
+				return h2;
+			}
+			h1.addAll(h2);
+			return h1;
+		}
+	}
+	
+	/** Create a histogram of the rows [y0, y1) of an image. */
+	private static ColorHistogram createBand(BufferedImage image,int y0,int y1) {
+		ColorHistogram h = new ColorHistogram();
+		IntARGBConverter iter = new IntARGBConverter(BufferedImageIterator.get(image));
+		for(int y = 0; y<y0; y++) {
+			iter.skip();
+		}
+		int[] row = new int[iter.getMinimumArrayLength()];
+		int w = iter.getWidth();
+		for(int y = y0; y<y1; y++) {
+			iter.next(row);
+			h.addARGB(row, 0, w);
+		}
+		return h;
+	}
+
+	/** Add all the pixels in an array of ARGB values that are more than 50% opaque.
+	 * This does not account for premultiplied alpha.
+	 * 
+	 * @param argb an array of ARGB pixels.
+	 * @param offset the index of the first pixel to add.
+	 * @param length the number of pixels to add.
+	 */
+	public void addARGB(int[] argb,int offset,int length) {
+		int end = offset + length;
+		for(int a = offset; a<end; a++) {
+			int alpha = (argb[a] >> 24) & 0xff;
+			if(alpha > 128) {
+				add(argb[a] & 0xffffff, 1);
+			}
+		}
+	}
+	
+	/** Add occurrences of a color.
+	 * 
+	 * @param rgb an RGB color, formatted as 0xRRGGBB.
+	 * @param occurrence the number of occurrences to add. This must be positive.
+	 */
+	public void add(int rgb,int occurrence) {
+		if(occurrence<=0)
+			throw new IllegalArgumentException("occurrence ("+occurrence+") must be greater than 0");
+		int slot = getSlot(rgb);
+		if(counts[slot]==0) {
+			keys[slot] = rgb;
+			counts[slot] = occurrence;
+			size++;
+			pixelCount += occurrence;
+			if(2*size>keys.length)
+				rehash(2*keys.length);
+		} else {
+			counts[slot] += occurrence;
+			pixelCount += occurrence;
+		}
+	}
+
+	/** Replace the number of occurrences of a color. */
+	void set(int rgb,int occurrence) {
+		if(occurrence<=0)
+			throw new IllegalArgumentException("occurrence ("+occurrence+") must be greater than 0");
+		int slot = getSlot(rgb);
+		if(counts[slot]==0) {
+			keys[slot] = rgb;
+			counts[slot] = occurrence;
+			size++;
+			pixelCount += occurrence;
+			if(2*size>keys.length)
+				rehash(2*keys.length);
+		} else {
+			pixelCount += occurrence - counts[slot];
+			counts[slot] = occurrence;
+		}
+	}
+	
+	/** Add all the colors of another histogram to this histogram.
+	 * 
+	 * @param h the histogram to add. This histogram is not modified.
+	 */
+	public void addAll(ColorHistogram h) {
+		if(2*(size+h.size)>keys.length) {
+			int capacity = keys.length;
+			while(2*(size+h.size)>capacity) {
+				capacity *= 2;
+			}
+			rehash(capacity);
+		}
+		for(int slot = 0; slot<h.keys.length; slot++) {
+			if(h.counts[slot]!=0) {
+				add(h.keys[slot], h.counts[slot]);
+			}
+		}
+	}
+	
+	/** Return the number of occurrences of a color.
+	 * 
+	 * @param rgb an RGB color, formatted as 0xRRGGBB.
+	 * @return the number of occurrences of the color, or zero if it is not
+	 * in this histogram.
+	 */
+	public int get(int rgb) {
+		return counts[getSlot(rgb)];
+	}
+
+	/** @return the number of unique colors in this histogram. */
+	public int size() {
+		return size;
+	}
+	
+	/** @return the sum of the occurrences of all the colors in this histogram. */
+	public long getPixelCount() {
+		return pixelCount;
+	}
+	
+	/** @return all the colors in this histogram, sorted in ascending order.
+	 * This is the same as sorting by red, then green, then blue.
+	 */
+	public int[] getRGBs() {
+		int[] returnValue = new int[size];
+		int ctr = 0;
+		for(int slot = 0; slot<keys.length; slot++) {
+			if(counts[slot]!=0) {
+				returnValue[ctr++] = keys[slot];
+			}
+		}
+		Arrays.sort(returnValue);
+		return returnValue;
+	}
+	
+	@Override
+	public int hashCode() {
+		return size;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof ColorHistogram))
+			return false;
+		ColorHistogram other = (ColorHistogram)obj;
+		if(size!=other.size || pixelCount!=other.pixelCount)
+			return false;
+		for(int slot = 0; slot<keys.length; slot++) {
+			if(counts[slot]!=0 && other.get(keys[slot])!=counts[slot])
+				return false;
+		}
+		return true;
+	}
+	
+	/** Return the slot that contains a key, or the empty slot it belongs in. */
+	private int getSlot(int rgb) {
+		int mask = keys.length-1;
+		int slot = mix(rgb) & mask;
+		while(counts[slot]!=0 && keys[slot]!=rgb) {
+			slot = (slot+1) & mask;
+		}
+		return slot;
+	}
+	
+	private static int mix(int rgb) {
+		int h = rgb * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	private void rehash(int newCapacity) {
+		int[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new int[newCapacity];
+		counts = new int[newCapacity];
+		int mask = newCapacity-1;
+		for(int a = 0; a<oldKeys.length; a++) {
+			if(oldCounts[a]!=0) {
+				int slot = mix(oldKeys[a]) & mask;
+				while(counts[slot]!=0) {
+					slot = (slot+1) & mask;
+				}
+				keys[slot] = oldKeys[a];
+				counts[slot] = oldCounts[a];
+			}
+		}
+	}
+}
@@ -11,7 +11,6 @@
 package com.pump.image.pixel.quantize;
 
 import java.awt.image.IndexColorModel;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -20,6 +19,9 @@ import java.util.TreeSet;
  * <p>Internally: this breaks up the 3D color cube into hundreds of smaller subcubes.
  * So instead of searching through all possible colors every time we require a match:
  * we hone in on the exact subcube and iterate outward a cycle or two.
+ * <p>The colors are stored in flat arrays sorted by subcube, and the most recent
+ * matches are cached, so the methods that return a <code>ColorNode</code> or an index
+ * do not allocate memory.
  */
 public class ColorLUT {
 	public static class ColorNode implements Comparable<ColorNode> {
@@ -67,90 +69,66 @@ public class ColorLUT {
 		}
 	}
 	
-	/** A subcube in the 3D color space. */
-	private static class Cluster {
-		final int minR, maxR, minG, maxG, minB, maxB;
-		ColorNode[] nodes = new ColorNode[] {};
-		
-		Cluster(int minR,int minG,int minB,int range) {
-			this.minR = minR;
-			this.maxR = minR+range-1;
-			this.minG = minG;
-			this.maxG = minG+range-1;
-			this.minB = minB;
-			this.maxB = minB+range-1;
-		}
-		
-		@Override
-		public int hashCode() {
-			return minR << 16 + minG << 8 + minB;
-		}
-		
-		public Match getMatch(Match bestMatch,int red,int green,int blue) {
-			for(ColorNode n : nodes) {
-				int dr = red - n.red;
-				int dg = green - n.green;
-				int db = blue - n.blue;
-				int errorSquared = dr*dr + dg*dg + db*db;
-				if(bestMatch==null || errorSquared<bestMatch.errorSquared) {
-					bestMatch = new Match(n, errorSquared);
-				}
-			}
-			return bestMatch;
-		}
-
-		public void getMatches(Set<Match> dest,int red, int green, int blue,
-				int maxErrorSquared, boolean includeExact) {
-			for(ColorNode n : nodes) {
-				int dr = red - n.red;
-				int dg = green - n.green;
-				int db = blue - n.blue;
-				int errorSquared = dr*dr + dg*dg + db*db;
-				if(errorSquared<=maxErrorSquared) {
-					if(errorSquared!=0 || includeExact) {
-						dest.add(new Match(n, errorSquared));
-					}
-				}
-			}
-		}
-		
-		public void add(int red,int green,int blue,int index) {
-			ColorNode n = new ColorNode(red, green, blue, index);
-			ColorNode[] newArray = new ColorNode[nodes.length+1];
-			System.arraycopy(nodes, 0, newArray, 0, nodes.length);
-			newArray[newArray.length-1] = n;
-			
-			nodes = newArray;
-		}
-	}
-	
 	int divisions = 8;
 	int span = 256/divisions;
-	Cluster[][][] subcubes = new Cluster[divisions][divisions][divisions];
+	
+	/** The number of bits used to identify a subcube along one axis. */
+	private static final int CELL_SHIFT = 5;
+	
+	/** All the colors in this table, sorted by subcube.
+	 * <p>The colors in each subcube are stored in the order they were added, so
+	 * ties are resolved the same way every time.
+	 */
+	ColorNode[] nodes;
+	
+	/** The RGB value of each element in <code>nodes</code>, packed as 0xRRGGBB. */
+	int[] nodeRGB;
+	
+	/** The colors in subcube <code>cell</code> are stored in <code>nodes</code>
+	 * from <code>cellStart[cell]</code> (inclusive) to <code>cellStart[cell+1]</code>
+	 * (exclusive), where <code>cell = (i1*divisions+i2)*divisions+i3</code>.
+	 */
+	int[] cellStart;
+	
+	/** A direct-mapped cache of recent results, indexed by the top 5 bits of each channel.
+	 * <p>Each entry stores the low 3 bits of each channel (to confirm the entry applies
+	 * to the exact color requested) and the position of the match in <code>nodes</code>
+	 * plus one. Zero means the entry is empty. Because each entry is a single
+	 * int this can be read and written by several threads without synchronizing.
+	 */
+	private final int[] cache = new int[1 << 15];
+	
+	/** Positions at or above this value do not fit in a <code>cache</code> entry. */
+	private static final int MAX_CACHED_POSITION = (1 << 22) - 1;
+	
 	IndexColorModel indexColorModel;
 	
 	/** Create a ColorLUT where every color has an index of -1. */
 	public ColorLUT(Integer[] rgb) {
+		int[] rgbArray = new int[rgb.length];
+		int[] indices = new int[rgb.length];
 		for(int a = 0; a<rgb.length; a++) {
-			int r = (rgb[a] >> 16) & 0xff;
-			int g = (rgb[a] >> 8) & 0xff;
-			int b = (rgb[a]) & 0xff;
-			addRGB(r, g, b, -1);
+			rgbArray[a] = rgb[a] & 0xffffff;
+			indices[a] = -1;
 		}
+		initialize(rgbArray, indices, rgb.length);
 	}
 	
 	/** Create a ColorLUT from a <code>IndexColorModel</code>. */
 	public ColorLUT(IndexColorModel icm) {
 		this.indexColorModel = icm;
 		
+		int[] rgbArray = new int[icm.getMapSize()];
+		int[] indices = new int[icm.getMapSize()];
+		int size = 0;
 		for(int a = 0; a<icm.getMapSize(); a++) {
 			if(a!=icm.getTransparentPixel()) {
-				int red = icm.getRed(a);
-				int green = icm.getGreen(a);
-				int blue = icm.getBlue(a);
-				addRGB(red, green, blue, a);
+				rgbArray[size] = icm.getRGB(a) & 0xffffff;
+				indices[size] = a;
+				size++;
 			}
 		}
+		initialize(rgbArray, indices, size);
 	}
 	
 	/** Returns the IndexColorModel used to create this <code>ColorLUT</code>,
@@ -160,14 +138,34 @@ public class ColorLUT {
 		return indexColorModel;
 	}
 	
-	private void addRGB(int red,int green,int blue,int index) {
-		int i1 = red/span;
-		int i2 = green/span;
-		int i3 = blue/span;
-		if(subcubes[i1][i2][i3]==null) {
-			subcubes[i1][i2][i3] = new Cluster(i1*span, i2*span, i3*span, span-1);
+	/** Sort the colors provided into subcubes. */
+	private void initialize(int[] rgb,int[] indices,int size) {
+		int cellCount = divisions*divisions*divisions;
+		cellStart = new int[cellCount+1];
+		for(int a = 0; a<size; a++) {
+			cellStart[getCell(rgb[a])+1]++;
+		}
+		for(int cell = 0; cell<cellCount; cell++) {
+			cellStart[cell+1] += cellStart[cell];
 		}
-		subcubes[i1][i2][i3].add(red, green, blue, index);
+		
+		nodes = new ColorNode[size];
+		nodeRGB = new int[size];
+		int[] cellSize = new int[cellCount];
+		for(int a = 0; a<size; a++) {
+			int cell = getCell(rgb[a]);
+			int pos = cellStart[cell] + cellSize[cell];
+			cellSize[cell]++;
+			nodeRGB[pos] = rgb[a];
+			nodes[pos] = new ColorNode( (rgb[a] >> 16) & 0xff, (rgb[a] >> 8) & 0xff, rgb[a] & 0xff, indices[a]);
+		}
+	}
+	
+	private int getCell(int rgb) {
+		int i1 = ((rgb >> 16) & 0xff) >> CELL_SHIFT;
+		int i2 = ((rgb >> 8) & 0xff) >> CELL_SHIFT;
+		int i3 = (rgb & 0xff) >> CELL_SHIFT;
+		return (i1*divisions+i2)*divisions+i3;
 	}
 	
 	/** A response to a query for approximate matches. */
@@ -192,81 +190,146 @@ public class ColorLUT {
 		}
 	}
 	
+	/** Return the index of the closest color to the color provided.
+	 * <p>This does not allocate any memory, so it is suitable for
+	 * calling once per pixel.
+	 * 
+	 * @return the index of the closest color in the original
+	 * <code>IndexColorModel</code>, or -1 if this <code>ColorLUT</code> was
+	 * not created from an <code>IndexColorModel</code>.
+	 */
 	public int getIndexMatch(int red,int green,int blue) {
-		Match match = getMatch(red, green, blue);
-		return match.node.index;
+		return nodes[getMatchPosition(red, green, blue)].index;
+	}
+	
+	/** Return the closest color to the color provided.
+	 * <p>This does not allocate any memory, so it is suitable for
+	 * calling once per pixel.
+	 */
+	public ColorNode getNodeMatch(int red,int green,int blue) {
+		return nodes[getMatchPosition(red, green, blue)];
 	}
 	
 	private static Set<Match> scratchMatches = new TreeSet<Match>();
 	public Match[] getSomeMatches(int red,int green,int blue,int maxErrorSquared,boolean includeExact) {
-		int i1 = red/span;
-		int i2 = green/span;
-		int i3 = blue/span;
+		int cell = getCell( (red << 16) | (green << 8) | blue );
 		
 		synchronized(scratchMatches) {
 			scratchMatches.clear();
-			if(subcubes[i1][i2][i3]!=null) {
-				subcubes[i1][i2][i3].getMatches(scratchMatches, red, green, blue, maxErrorSquared, includeExact);
+			for(int pos = cellStart[cell]; pos<cellStart[cell+1]; pos++) {
+				ColorNode n = nodes[pos];
+				int dr = red - n.red;
+				int dg = green - n.green;
+				int db = blue - n.blue;
+				int errorSquared = dr*dr + dg*dg + db*db;
+				if(errorSquared<=maxErrorSquared) {
+					if(errorSquared!=0 || includeExact) {
+						scratchMatches.add(new Match(n, errorSquared));
+					}
+				}
 			}
 			
 			return scratchMatches.toArray(new Match[scratchMatches.size()]);
 		}
 	}
 
-	private static Set<Cluster> outerRing = new HashSet<Cluster>();
+	/** Return the closest color to the color provided.
+	 * <p>This allocates a new <code>Match</code>. When you only need the
+	 * closest color and not its error, {@link #getNodeMatch(int, int, int)}
+	 * or {@link #getIndexMatch(int, int, int)} are less expensive.
+	 */
 	public Match getMatch(int red,int green,int blue) {
-		int i1 = red/span;
-		int i2 = green/span;
-		int i3 = blue/span;
-		Match bestMatch = null;
-		
-		
-		if(subcubes[i1][i2][i3]!=null) {
-			bestMatch = subcubes[i1][i2][i3].getMatch(null, red, green, blue);
-		}
-		
-		/* As you can see: this starts with a cell and iterates outwards
-		 * with a cube. This might fail to identify the best match in fringe
-		 * cases (consider a square embedded inside a circle), but
-		 * it should be generally accurate.
-		 */
-		
-		for(int d = 1; d<=divisions; d++) {
-			if(bestMatch!=null && bestMatch.errorSquared==0) return bestMatch;
-			boolean lastSweep = bestMatch!=null;
-			synchronized(outerRing) {
-				collectPlane(outerRing, i1, i2, i3 + d, -d, d, -d, d, 0, 0);
-				collectPlane(outerRing, i1, i2, i3 - d, -d, d, -d, d, 0, 0);
-				collectPlane(outerRing, i1, i2 + d, i3, -d, d, 0, 0, -d, d);
-				collectPlane(outerRing, i1, i2 - d, i3, -d, d, 0, 0, -d, d);
-				collectPlane(outerRing, i1 + d, i2, i3, 0, 0, -d, d, -d, d);
-				collectPlane(outerRing, i1 - d, i2, i3, 0, 0, -d, d, -d, d);
-				
-				for(Cluster c : outerRing) {
-					bestMatch = c.getMatch(bestMatch, red, green, blue);
-				}
-				outerRing.clear();
-			}
-			if(lastSweep)
-				return bestMatch;
+		ColorNode n = nodes[getMatchPosition(red, green, blue)];
+		int dr = red - n.red;
+		int dg = green - n.green;
+		int db = blue - n.blue;
+		return new Match(n, dr*dr + dg*dg + db*db);
+	}
+	
+	/** Return the position in <code>nodes</code> of the closest color to the color provided. */
+	private int getMatchPosition(int red,int green,int blue) {
+		int key = ((red >> 3) << 10) | ((green >> 3) << 5) | (blue >> 3);
+		int residue = ((red & 7) << 6) | ((green & 7) << 3) | (blue & 7);
+		int entry = cache[key];
+		if(entry!=0 && (entry & 0x1ff)==residue) {
+			return (entry >>> 9) - 1;
 		}
-		if(bestMatch!=null)
-			return bestMatch;
 		
-		throw new RuntimeException("unexpected condition: regressed "+divisions+" times with no matches");
+		int pos = searchMatchPosition(red, green, blue);
+		if(pos<MAX_CACHED_POSITION)
+			cache[key] = ((pos+1) << 9) | residue;
+		return pos;
 	}
 	
-	private void collectPlane(Set<Cluster> dest, int i1,int i2,int i3,int i1a,int i1b,int i2a,int i2b,int i3a,int i3b) {
-		for(int i = i1 + i1a; i<=i1+i1b; i++) {
-			for(int j = i2 + i2a; j<=i2+i2b; j++) {
-				for(int k = i3 + i3a; k<=i3+i3b; k++) {
-					if(i>=0 && i<divisions && j>=0 && j<divisions && k>=0 && k<divisions) {
-						Cluster c = subcubes[i][j][k];
-						if(c!=null)
-							dest.add(c);
+	/** Search the subcubes for the closest color to the color provided.
+	 * <p>This starts with the subcube the color belongs to and iterates outward
+	 * one shell of subcubes at a time. It stops as soon as every color outside of the
+	 * shells searched so far is guaranteed to be farther away than the best match,
+	 * so the match is always exact.
+	 * <p>If two colors are equally close: the color in the innermost shell wins. In the
+	 * same shell the subcube with the lowest red/green/blue coordinate wins, and in the same
+	 * subcube the color that was added first wins.
+	 */
+	private int searchMatchPosition(int red,int green,int blue) {
+		if(nodes.length==0)
+			throw new RuntimeException("unexpected condition: this ColorLUT has no colors");
+		
+		int i1 = red >> CELL_SHIFT;
+		int i2 = green >> CELL_SHIFT;
+		int i3 = blue >> CELL_SHIFT;
+		int bestPos = -1;
+		int bestError = Integer.MAX_VALUE;
+		
+		for(int d = 0; d<divisions; d++) {
+			int minI = Math.max(0, i1-d);
+			int maxI = Math.min(divisions-1, i1+d);
+			int minJ = Math.max(0, i2-d);
+			int maxJ = Math.min(divisions-1, i2+d);
+			int minK = Math.max(0, i3-d);
+			int maxK = Math.min(divisions-1, i3+d);
+			for(int i = minI; i<=maxI; i++) {
+				boolean iEdge = i==i1-d || i==i1+d;
+				for(int j = minJ; j<=maxJ; j++) {
+					boolean ijEdge = iEdge || j==i2-d || j==i2+d;
+					for(int k = minK; k<=maxK; k++) {
+						if(!ijEdge && k!=i3-d && k!=i3+d) {
+							//this subcube was part of an inner shell; jump to the far side
+							k = i3+d-1;
+							continue;
+						}
+						int cell = (i*divisions+j)*divisions+k;
+						int end = cellStart[cell+1];
+						for(int pos = cellStart[cell]; pos<end; pos++) {
+							int rgb = nodeRGB[pos];
+							int dr = red - ((rgb >> 16) & 0xff);
+							int dg = green - ((rgb >> 8) & 0xff);
+							int db = blue - (rgb & 0xff);
+							int error = dr*dr + dg*dg + db*db;
+							if(error<bestError) {
+								bestError = error;
+								bestPos = pos;
+							}
+						}
 					}
 				}
 			}
+			
+			if(bestPos!=-1) {
+				//the closest any color outside of these shells can be:
+				int outside = Integer.MAX_VALUE;
+				if(minI>0) outside = Math.min(outside, red - (minI << CELL_SHIFT) + 1);
+				if(maxI<divisions-1) outside = Math.min(outside, ((maxI+1) << CELL_SHIFT) - red);
+				if(minJ>0) outside = Math.min(outside, green - (minJ << CELL_SHIFT) + 1);
+				if(maxJ<divisions-1) outside = Math.min(outside, ((maxJ+1) << CELL_SHIFT) - green);
+				if(minK>0) outside = Math.min(outside, blue - (minK << CELL_SHIFT) + 1);
+				if(maxK<divisions-1) outside = Math.min(outside, ((maxK+1) << CELL_SHIFT) - blue);
+				if(outside==Integer.MAX_VALUE || bestError<=outside*outside)
+					return bestPos;
+			}
 		}
+		if(bestPos!=-1)
+			return bestPos;
+		
+		throw new RuntimeException("unexpected condition: regressed "+divisions+" times with no matches");
 	}
-}
\ No newline at end of file
+}
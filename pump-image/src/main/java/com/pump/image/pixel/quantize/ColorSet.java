@@ -19,9 +19,9 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 import com.pump.image.pixel.BufferedImageIterator;
 import com.pump.image.pixel.IntARGBConverter;
@@ -53,8 +53,8 @@ public class ColorSet implements Serializable {
 		}
 		
 		public int compare(Integer rgb1, Integer rgb2) {
-			int p1 = set.tree.get(rgb1);
-			int p2 = set.tree.get(rgb2);
+			int p1 = set.getCount(rgb1);
+			int p2 = set.getCount(rgb2);
 			if(ascending) {
 				if (p1 < p2) {
 					return -1;
@@ -122,11 +122,22 @@ public class ColorSet implements Serializable {
 	
 	private static Comparator<Integer> redComparator = new RGBChannelComparator(16, 8, 0);
 		
-	/** Map RGB values to the number of occurrences. */
-	TreeMap<Integer, Integer> tree = new TreeMap<Integer, Integer>(redComparator);
+	/** Map RGB values to the number of occurrences.
+	 * <p>Exactly one of <code>histogram</code> or <code>tree</code> is non-null.
+	 * The histogram is used while colors are being added, because it is much
+	 * less expensive. The tree is only created when {@link #getRGBtoFrequencyMap(boolean)}
+	 * exposes this data to a caller (who may modify it), and from then on it is the
+	 * authoritative copy until another color is added.
+	 */
+	private ColorHistogram histogram = new ColorHistogram();
+	
+	/** Map RGB values to the number of occurrences. This is null unless it has been
+	 * requested by {@link #getRGBtoFrequencyMap(boolean)}.
+	 */
+	private TreeMap<Integer, Integer> tree = null;
 	
 	/** A cached value of the number of pixels. This is equivalent to the sum of 
-	 * all the values in <code>tree</code>.
+	 * all the occurrences added to this set.
 	 */
 	private long pixelCount = 0;
 
@@ -180,7 +191,7 @@ public class ColorSet implements Serializable {
 				count = 1;
 			}
 			int rgb = r << 16 + (g << 8) + b;
-			tree.put(rgb, count);
+			histogram.set(rgb, count);
 			i = i3 + 1;
 		}
 	}
@@ -192,14 +203,57 @@ public class ColorSet implements Serializable {
 	 * This may help the efficiency of some algorithms, but of course it needs to be done with
 	 * caution.
 	 */
-	public Map<Integer, Integer> getRGBtoFrequencyMap(boolean cloneData) {
+	public synchronized Map<Integer, Integer> getRGBtoFrequencyMap(boolean cloneData) {
 		if(cloneData) {
-			TreeMap<Integer, Integer> newCopy = new TreeMap<Integer, Integer>(redComparator);
-			newCopy.putAll(tree);
-			return newCopy;
+			if(tree!=null) {
+				TreeMap<Integer, Integer> newCopy = new TreeMap<Integer, Integer>(redComparator);
+				newCopy.putAll(tree);
+				return newCopy;
+			}
+			return createTree(histogram);
+		}
+		return getTree();
+	}
+	
+	/** Return the TreeMap that backs this set, converting the histogram if necessary. */
+	private TreeMap<Integer, Integer> getTree() {
+		if(tree==null) {
+			tree = createTree(histogram);
+			histogram = null;
 		}
 		return tree;
 	}
+	
+	/** Return the histogram that backs this set, converting the TreeMap if necessary. */
+	private ColorHistogram getHistogram() {
+		if(histogram==null) {
+			ColorHistogram h = new ColorHistogram(tree.size());
+			for(Map.Entry<Integer, Integer> entry : tree.entrySet()) {
+				h.set(entry.getKey(), entry.getValue());
+			}
+			histogram = h;
+			tree = null;
+		}
+		return histogram;
+	}
+	
+	private static TreeMap<Integer, Integer> createTree(ColorHistogram h) {
+		TreeMap<Integer, Integer> t = new TreeMap<Integer, Integer>(redComparator);
+		for(int rgb : h.getRGBs()) {
+			t.put(rgb, h.get(rgb));
+		}
+		return t;
+	}
+	
+	/** Return the number of occurrences of an RGB value. */
+	synchronized int getCount(int rgb) {
+		if(tree!=null) {
+			Integer count = tree.get(rgb);
+			if(count==null) return 0;
+			return count;
+		}
+		return histogram.get(rgb);
+	}
 
 	/** @param c the color to search for.
 	 * @return the number of times this color is represented. */
@@ -213,9 +267,7 @@ public class ColorSet implements Serializable {
 	 * @return the number of times this color is represented. */
 	public int getOccurrences(int red,int green,int blue) {
 		int rgb = (red << 16) + (green << 8) + blue;
-		Integer count = tree.get(rgb);
-		if(count==null) return 0;
-		return count;
+		return getCount(rgb);
 	}
 
 	public boolean equals(Object obj) {
@@ -237,17 +289,21 @@ public class ColorSet implements Serializable {
 	 */
 	public synchronized boolean equals(ColorSet l, boolean compareColorsOnly) {
 		synchronized (l) {
-			if (l.tree.size() != tree.size())
+			if (l.getColorCount() != getColorCount())
 				return false;
 			if (compareColorsOnly) {
-				return tree.keySet().equals(l.tree.keySet());
+				return Arrays.equals(getRGBs(), l.getRGBs());
+			}
+			for(int rgb : getRGBs()) {
+				if(getCount(rgb)!=l.getCount(rgb))
+					return false;
 			}
-			return tree.equals(l.tree);
+			return true;
 		}
 	}
 
 	public String toString() {
-		StringWriter s = new StringWriter(tree.size() * 18);
+		StringWriter s = new StringWriter(getColorCount() * 18);
 		try {
 			write(s);
 		} catch (IOException e) {
@@ -259,13 +315,13 @@ public class ColorSet implements Serializable {
 
 	public synchronized void write(Writer out) throws IOException {
 		out.write(ColorSet.class.getName()+"[");
-		Iterator<Integer> keyIter = tree.keySet().iterator();
-		while(keyIter.hasNext()) {
-			int rgb = keyIter.next();
+		int[] rgbs = getRGBs();
+		for(int index = 0; index<rgbs.length; index++) {
+			int rgb = rgbs[index];
 			int r = (rgb >> 16) & 0xff;
 			int g = (rgb >> 8) & 0xff;
 			int b = (rgb >> 0) & 0xff;
-			int count = tree.get(rgb);
+			int count = getCount(rgb);
 
 			out.write('(');
 			out.write(r+"");
@@ -278,7 +334,7 @@ public class ColorSet implements Serializable {
 				out.write('x');
 				out.write(count+"");
 			}
-			if (keyIter.hasNext()) {
+			if (index+1<rgbs.length) {
 				out.write(',');
 			}
 		}
@@ -305,13 +361,7 @@ public class ColorSet implements Serializable {
 			throw new IllegalArgumentException("b must be between 0 and 255");
 		int rgb = (r << 16) + (g << 8) + b;
 
-		Integer count = tree.get(rgb);
-		if(count==null) {
-			tree.put(rgb, occurrence);
-		} else {
-			tree.put(rgb, count+occurrence);
-		}
-		
+		getHistogram().add(rgb, occurrence);
 		pixelCount += occurrence;
 	}
 
@@ -319,7 +369,21 @@ public class ColorSet implements Serializable {
 	 * @return the number of colors represented in this <code>ColorSet</code>.
 	 */
 	public synchronized int getColorCount() {
-		return tree.size();
+		if(tree!=null)
+			return tree.size();
+		return histogram.size();
+	}
+	
+	/** @return all the RGB values in this set, in ascending order. */
+	private synchronized int[] getRGBs() {
+		if(histogram!=null)
+			return histogram.getRGBs();
+		int[] returnValue = new int[tree.size()];
+		int ctr = 0;
+		for(Integer rgb : tree.keySet()) {
+			returnValue[ctr++] = rgb;
+		}
+		return returnValue;
 	}
 
 	/**
@@ -361,7 +425,11 @@ public class ColorSet implements Serializable {
 		if(colorCount>256)
 			throw new IllegalStateException("There are too many colors ("+colorCount+") to make an IndexColorModel (max is 256)");
 		
-		Integer[] allColors = tree.keySet().toArray(new Integer[tree.size()]);
+		int[] rgbs = getRGBs();
+		Integer[] allColors = new Integer[rgbs.length];
+		for(int a = 0; a<rgbs.length; a++) {
+			allColors[a] = rgbs[a];
+		}
 
 		int offset = includeTransparentPixel ? 1 : 0;
 		if (optimizeForGifs == false) {
@@ -485,8 +553,18 @@ public class ColorSet implements Serializable {
 	 * @param i the image to process.
 	 */
 	public void addColors(BufferedImage i) {
-		IntARGBConverter g = new IntARGBConverter(BufferedImageIterator.get(i));
-		addColors(g);
+		addColors(i, null);
+	}
+
+	/** Add all the pixels in this iterator that are more than 50% opaque.
+	 * This does not account for premultiplied alpha.
+	 * @param i the image to process.
+	 * @param pool an optional pool used to count separate bands of the
+	 * image in parallel. If this is null then the image is processed on
+	 * the calling thread.
+	 */
+	public void addColors(BufferedImage i,ForkJoinPool pool) {
+		addColors(ColorHistogram.create(i, pool));
 	}
 
 	/** Add all the pixels in this iterator that are more than 50% opaque.
@@ -494,23 +572,23 @@ public class ColorSet implements Serializable {
 	 * @param i the pixel data to process.
 	 */
 	public void addColors(IntARGBConverter i) {
-		
+		//count the pixels without holding this object's lock, and then merge them all at once:
+		ColorHistogram h = new ColorHistogram();
 		int w = i.getWidth();
-		
-		int r, g, b, alpha;
 		int[] t = new int[i.getMinimumArrayLength()];
 		while (i.isDone() == false) {
 			i.next(t);
-			for (int a = 0; a < w; a++) {
-				alpha = ((t[a] >> 24) & 0xff);
-				if (alpha > 128) {
-					r = ((t[a] >> 16) & 0xff);
-					g = ((t[a] >> 8) & 0xff);
-					b = ((t[a]) & 0xff);
-					addColor(r, g, b, 1);
-				}
-			}
+			h.addARGB(t, 0, w);
 		}
+		addColors(h);
+	}
+	
+	/** Add all the colors in a histogram to this ColorSet.
+	 * @param h the histogram to add. This histogram is not modified.
+	 */
+	public synchronized void addColors(ColorHistogram h) {
+		getHistogram().addAll(h);
+		pixelCount += h.getPixelCount();
 	}
 
 	/** Add one occurrence of this  of this color.
@@ -533,8 +611,8 @@ public class ColorSet implements Serializable {
 	 * @param l the incoming ColorSet to add to this set.
 	*/
 	public synchronized void addColors(ColorSet l) {
-		for(Integer rgb : l.tree.keySet()) {
-			int count = l.tree.get(rgb);
+		for(int rgb : l.getRGBs()) {
+			int count = l.getCount(rgb);
 			int r = (rgb >> 16) & 0xff;
 			int g = (rgb >> 8) & 0xff;
 			int b = (rgb >> 0) & 0xff;
@@ -549,12 +627,13 @@ public class ColorSet implements Serializable {
 	 */
 	public synchronized Color[] getColors(boolean prependTransparentPixel) {
 		int extra = prependTransparentPixel ? 1 : 0;
-		Color[] array = new Color[tree.size() + extra];
+		int[] rgbs = getRGBs();
+		Color[] array = new Color[rgbs.length + extra];
 		int ctr = 0;
 		if(prependTransparentPixel) {
 			array[ctr++] = new Color(0,0,0,0);
 		}
-		for(Integer rgb : tree.keySet()) {
+		for(int rgb : rgbs) {
 			int r = (rgb >> 16) & 0xff;
 			int g = (rgb >> 8) & 0xff;
 			int b = (rgb >> 0) & 0xff;
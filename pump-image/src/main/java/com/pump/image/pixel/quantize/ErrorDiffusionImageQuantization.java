@@ -16,7 +16,7 @@ import java.util.Arrays;
 import com.pump.image.pixel.BufferedImageIterator;
 import com.pump.image.pixel.IndexedBytePixelIterator;
 import com.pump.image.pixel.IntARGBConverter;
-import com.pump.image.pixel.quantize.ColorLUT.Match;
+import com.pump.image.pixel.quantize.ColorLUT.ColorNode;
 
 
 /** This applies <a href="http://en.wikipedia.org/wiki/Error_diffusion">error diffusion</a>
@@ -56,17 +56,17 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 					int g = (incomingRow[x] >> 8) & 0xff;
 					int b = (incomingRow[x] >> 0) & 0xff;
 					
-					Match match;
+					ColorNode match;
 					
 					r = Math.min(Math.max(r + diffusionR[0][x]/kernelSum, 0), 255);
 					g = Math.min(Math.max(g + diffusionG[0][x]/kernelSum, 0), 255);
 					b = Math.min(Math.max(b + diffusionB[0][x]/kernelSum, 0), 255);
 						
-					match = lut.getMatch(r, g, b);
+					match = lut.getNodeMatch(r, g, b);
 					
-					int dr = r - match.node.red;
-					int dg = g - match.node.green;
-					int db = b - match.node.blue;
+					int dr = r - match.red;
+					int dg = g - match.green;
+					int db = b - match.blue;
 					for(int ky = 0; ky<kernel.length; ky++) {
 						for(int kx = 0; kx<kernel[ky].length; kx++) {
 							if(x+kx-z>=0 && x+kx-z<iter.getWidth()) {
@@ -77,7 +77,7 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 						}
 					}
 					
-					dest[x] = (byte)( match.node.index );
+					dest[x] = (byte)( match.index );
 				}
 				
 				iterateDiffusionData(diffusionR);
@@ -94,17 +94,17 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 						int g = (incomingRow[x] >> 8) & 0xff;
 						int b = (incomingRow[x] >> 0) & 0xff;
 						
-						Match match;
+						ColorNode match;
 						
 						r = Math.min(Math.max(r + diffusionR[0][x]/kernelSum, 0), 255);
 						g = Math.min(Math.max(g + diffusionG[0][x]/kernelSum, 0), 255);
 						b = Math.min(Math.max(b + diffusionB[0][x]/kernelSum, 0), 255);
 							
-						match = lut.getMatch(r, g, b);
+						match = lut.getNodeMatch(r, g, b);
 						
-						int dr = r - match.node.red;
-						int dg = g - match.node.green;
-						int db = b - match.node.blue;
+						int dr = r - match.red;
+						int dg = g - match.green;
+						int db = b - match.blue;
 						for(int ky = 0; ky<kernel.length; ky++) {
 							for(int kx = 0; kx<kernel[ky].length; kx++) {
 								if(x+kx-z>=0 && x+kx-z<iter.getWidth()) {
@@ -114,7 +114,7 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 								}
 							}
 						}
-						dest[x] = (byte)( match.node.index );
+						dest[x] = (byte)( match.index );
 					}
 				}
 				
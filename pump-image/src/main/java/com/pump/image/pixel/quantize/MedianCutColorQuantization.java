@@ -50,7 +50,7 @@ public class MedianCutColorQuantization extends ColorQuantization {
 		}
 		ColorSet newGuy = new ColorSet();
 		Map<Integer, Integer> frequencyMap = originalSet.getRGBtoFrequencyMap(false);
-		Integer[] rgb = frequencyMap.keySet().toArray(new Integer[originalSet.tree.size()]);
+		Integer[] rgb = frequencyMap.keySet().toArray(new Integer[frequencyMap.size()]);
 		split(rgb, frequencyMap, 0, rgb.length, maximumColorCount, 0, newGuy);			
 		return newGuy;
 	}
@@ -0,0 +1,640 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.thumbnail;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * This caches thumbnails of image files in memory and on disk.
+ * <p>
+ * Thumbnails are identified by the file's path, last-modified date and length
+ * and the requested maximum size. If a file changes then its old thumbnails
+ * are simply never requested again, and they are eventually evicted.
+ * Optionally the path can be replaced by a hash of the file's contents: this
+ * costs a full read of the file for every lookup, but a thumbnail can then be
+ * shared by copies of the same file (or found again after the file is moved).
+ * <p>
+ * There are two tiers:
+ * <ul>
+ * <li>The most recently used thumbnails are kept in memory until their
+ * combined size (in uncompressed ARGB pixels) exceeds a limit. This limit is
+ * "soft": it is enforced after each thumbnail is added, so it may briefly be
+ * exceeded by one thumbnail.</li>
+ * <li>Every thumbnail is written to disk as a PNG. Thumbnails are small, so
+ * instead of one file per thumbnail they are appended to a few large segment
+ * files, and an index file records where each thumbnail is stored. When the
+ * segments exceed their limit the oldest segment is deleted.</li>
+ * </ul>
+ * <p>
+ * This class does not decide where the cache lives. For example, in a desktop
+ * application you might use
+ * <code>new File(CacheManager.get().getDirectory(true), "thumbnails")</code>.
+ * The directory should not be shared by two <code>ThumbnailCaches</code> (in
+ * this session or in another process).
+ * <p>
+ * All methods are thread-safe. Thumbnails are created outside of this
+ * object's lock, so two threads that request the same missing thumbnail may
+ * both create it.
+ */
+public class ThumbnailCache {
+
+	/**
+	 * A snapshot of the counters of a <code>ThumbnailCache</code>.
+	 */
+	public static class Stats {
+		/** The number of requests that were found in memory. */
+		public final long memoryHits;
+
+		/** The number of requests that were found on disk. */
+		public final long diskHits;
+
+		/** The number of requests that were not cached. */
+		public final long misses;
+
+		/** The number of thumbnails removed from memory to honor its limit. */
+		public final long memoryEvictions;
+
+		/** The number of segments deleted to honor the disk limit. */
+		public final long segmentEvictions;
+
+		/** The number of thumbnails currently in memory. */
+		public final int memoryCount;
+
+		/** The approximate number of bytes used by thumbnails in memory. */
+		public final long memoryBytes;
+
+		/** The number of thumbnails currently on disk. */
+		public final int diskCount;
+
+		/** The number of bytes used by the segment files. */
+		public final long diskBytes;
+
+		Stats(long memoryHits, long diskHits, long misses,
+				long memoryEvictions, long segmentEvictions, int memoryCount,
+				long memoryBytes, int diskCount, long diskBytes) {
+			this.memoryHits = memoryHits;
+			this.diskHits = diskHits;
+			this.misses = misses;
+			this.memoryEvictions = memoryEvictions;
+			this.segmentEvictions = segmentEvictions;
+			this.memoryCount = memoryCount;
+			this.memoryBytes = memoryBytes;
+			this.diskCount = diskCount;
+			this.diskBytes = diskBytes;
+		}
+
+		@Override
+		public String toString() {
+			return "Stats[ memoryHits=" + memoryHits + ", diskHits=" + diskHits
+					+ ", misses=" + misses + ", memoryEvictions="
+					+ memoryEvictions + ", segmentEvictions="
+					+ segmentEvictions + ", memoryCount=" + memoryCount
+					+ ", memoryBytes=" + memoryBytes + ", diskCount="
+					+ diskCount + ", diskBytes=" + diskBytes + "]";
+		}
+	}
+
+	/** The location of a thumbnail in a segment file. */
+	private static class DiskEntry {
+		final int segment;
+		final long offset;
+		final int length;
+
+		DiskEntry(int segment, long offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private static final int INDEX_MAGIC = 0x54686d62; // "Thmb"
+	private static final int INDEX_VERSION = 1;
+	private static final String INDEX_NAME = "index.dat";
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".dat";
+
+	/** The default maximum size of the memory tier: 32 MB. */
+	public static final long DEFAULT_MEMORY_LIMIT = 32L * 1024L * 1024L;
+
+	/** The default maximum size of the disk tier: 256 MB. */
+	public static final long DEFAULT_DISK_LIMIT = 256L * 1024L * 1024L;
+
+	protected final Thumbnail format;
+	protected final File directory;
+	protected final long memoryLimit;
+	protected final long diskLimit;
+	protected final long segmentLimit;
+	protected final boolean hashContents;
+
+	private final LinkedHashMap<String, BufferedImage> memory = new LinkedHashMap<>(
+			16, .75f, true);
+	private long memoryBytes = 0;
+
+	private final Map<String, DiskEntry> diskIndex = new HashMap<>();
+
+	/** The size of each segment file, keyed by segment number. */
+	private final TreeMap<Integer, Long> segments = new TreeMap<>();
+	private long diskBytes = 0;
+
+	private RandomAccessFile currentSegment;
+	private int currentSegmentNumber;
+	private DataOutputStream indexOut;
+
+	/** The number of records in the index file, including stale records. */
+	private int indexRecordCount = 0;
+
+	private long memoryHits = 0;
+	private long diskHits = 0;
+	private long misses = 0;
+	private long memoryEvictions = 0;
+	private long segmentEvictions = 0;
+
+	/**
+	 * Create a <code>ThumbnailCache</code> with the default limits that
+	 * identifies files by their path.
+	 * 
+	 * @param format
+	 *            the format used to create thumbnails.
+	 * @param directory
+	 *            the directory to store thumbnails in. This is created if
+	 *            necessary.
+	 * @throws IOException
+	 *             if the directory or its existing index can't be read or
+	 *             written.
+	 */
+	public ThumbnailCache(Thumbnail format, File directory) throws IOException {
+		this(format, directory, DEFAULT_MEMORY_LIMIT, DEFAULT_DISK_LIMIT,
+				false);
+	}
+
+	/**
+	 * Create a <code>ThumbnailCache</code>.
+	 * 
+	 * @param format
+	 *            the format used to create thumbnails.
+	 * @param directory
+	 *            the directory to store thumbnails in. This is created if
+	 *            necessary.
+	 * @param memoryLimit
+	 *            the approximate number of bytes the thumbnails in memory may
+	 *            use. Each pixel is counted as 4 bytes. If this is zero then
+	 *            thumbnails are only cached on disk.
+	 * @param diskLimit
+	 *            the maximum number of bytes the segment files may use.
+	 * @param hashContents
+	 *            if true then files are identified by a hash of their
+	 *            contents instead of their path.
+	 * @throws IOException
+	 *             if the directory or its existing index can't be read or
+	 *             written.
+	 */
+	public ThumbnailCache(Thumbnail format, File directory, long memoryLimit,
+			long diskLimit, boolean hashContents) throws IOException {
+		if (format == null)
+			throw new NullPointerException();
+		if (memoryLimit < 0)
+			throw new IllegalArgumentException("memoryLimit (" + memoryLimit
+					+ ") must not be negative");
+		if (diskLimit <= 0)
+			throw new IllegalArgumentException("diskLimit (" + diskLimit
+					+ ") must be positive");
+		this.format = format;
+		this.directory = directory;
+		this.memoryLimit = memoryLimit;
+		this.diskLimit = diskLimit;
+		this.hashContents = hashContents;
+
+		// a few segments, so evicting one doesn't lose too much
+		segmentLimit = Math.max(diskLimit / 8, 1024 * 1024);
+
+		if (!directory.exists() && !directory.mkdirs())
+			throw new IOException("mkdirs failed for "
+					+ directory.getAbsolutePath());
+		openDisk();
+	}
+
+	/**
+	 * Return a thumbnail of a file, creating it if it isn't cached.
+	 * 
+	 * @param file
+	 *            a PNG, JPG, GIF or BMP image.
+	 * @param maxSize
+	 *            the maximum dimensions of the thumbnail. See
+	 *            {@link Thumbnail#create(File, Dimension)}.
+	 * @return the thumbnail. The same image may be returned to several
+	 *         callers, so it should not be modified.
+	 * @throws IOException
+	 *             if an IO problem occurs reading the file.
+	 */
+	public BufferedImage get(File file, Dimension maxSize) throws IOException {
+		String key = getKey(file, maxSize);
+		BufferedImage bi = getCached(key);
+		if (bi == null) {
+			bi = format.create(file, maxSize);
+			put(key, bi);
+		}
+		return bi;
+	}
+
+	/**
+	 * Return a cached thumbnail of a file, or null if it isn't cached. A
+	 * damaged cache entry is discarded and also returns null.
+	 * 
+	 * @param file
+	 *            the file the thumbnail was created from.
+	 * @param maxSize
+	 *            the maximum dimensions of the thumbnail.
+	 * @throws IOException
+	 *             if an IO problem occurs reading the file (when hashing its
+	 *             contents).
+	 */
+	public BufferedImage getCached(File file, Dimension maxSize)
+			throws IOException {
+		return getCached(getKey(file, maxSize));
+	}
+
+	/**
+	 * Store a thumbnail of a file. Usually {@link #get(File, Dimension)} takes
+	 * care of this, but this is useful if the thumbnail came from somewhere
+	 * else (such as a thumbnail embedded in the file).
+	 * 
+	 * @param file
+	 *            the file the thumbnail was created from.
+	 * @param maxSize
+	 *            the maximum dimensions of the thumbnail.
+	 * @param thumbnail
+	 *            the thumbnail to store. This should not be modified later.
+	 * @throws IOException
+	 *             if an IO problem occurs reading the file (when hashing its
+	 *             contents) or writing the cache.
+	 */
+	public void put(File file, Dimension maxSize, BufferedImage thumbnail)
+			throws IOException {
+		put(getKey(file, maxSize), thumbnail);
+	}
+
+	private BufferedImage getCached(String key) throws IOException {
+		DiskEntry entry;
+		byte[] data;
+		synchronized (this) {
+			BufferedImage bi = memory.get(key);
+			if (bi != null) {
+				memoryHits++;
+				return bi;
+			}
+			entry = diskIndex.get(key);
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			try {
+				data = readEntry(entry);
+			} catch (IOException e) {
+				// the segment was truncated (for example by a crash)
+				data = null;
+			}
+		}
+
+		BufferedImage bi = null;
+		if (data != null) {
+			try {
+				bi = ImageIO.read(new ByteArrayInputStream(data));
+			} catch (IOException e) {
+				// the PNG data is corrupt
+			}
+		}
+		synchronized (this) {
+			if (bi == null) {
+				// the entry was corrupt (or the segment was deleted), so
+				// forget it and let the caller create this thumbnail again
+				diskIndex.remove(key, entry);
+				misses++;
+				return null;
+			}
+			diskHits++;
+			putInMemory(key, bi);
+		}
+		return bi;
+	}
+
+	private void put(String key, BufferedImage bi) throws IOException {
+		ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+		if (!ImageIO.write(bi, "png", byteOut))
+			throw new IOException("no PNG writer is available");
+		byte[] data = byteOut.toByteArray();
+
+		synchronized (this) {
+			putInMemory(key, bi);
+			writeEntry(key, data);
+		}
+	}
+
+	/**
+	 * Return a snapshot of this cache's counters.
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(memoryHits, diskHits, misses,
+				memoryEvictions, segmentEvictions, memory.size(), memoryBytes,
+				diskIndex.size(), diskBytes);
+	}
+
+	/**
+	 * Remove all thumbnails from memory. The thumbnails on disk are not
+	 * affected.
+	 */
+	public synchronized void clearMemory() {
+		memory.clear();
+		memoryBytes = 0;
+	}
+
+	/**
+	 * Write any buffered index records to disk.
+	 */
+	public synchronized void flush() throws IOException {
+		if (indexOut != null)
+			indexOut.flush();
+	}
+
+	/**
+	 * Write the index to disk and close the files this cache uses. After this
+	 * is called this cache can't be used.
+	 */
+	public synchronized void close() throws IOException {
+		if (indexOut == null)
+			return;
+		if (indexRecordCount > 2 * diskIndex.size() + 100) {
+			rewriteIndex();
+		}
+		indexOut.close();
+		indexOut = null;
+		currentSegment.close();
+		currentSegment = null;
+	}
+
+	/**
+	 * Return the key that identifies a thumbnail.
+	 */
+	protected String getKey(File file, Dimension maxSize) throws IOException {
+		String id;
+		if (hashContents) {
+			id = "#" + getContentHash(file);
+		} else {
+			id = file.getCanonicalPath() + "|" + file.lastModified() + "|"
+					+ file.length();
+		}
+		return id + "|" + maxSize.width + "x" + maxSize.height;
+	}
+
+	private static String getContentHash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] buffer = new byte[64 * 1024];
+			int k = in.read(buffer);
+			while (k != -1) {
+				digest.update(buffer, 0, k);
+				k = in.read(buffer);
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	private void putInMemory(String key, BufferedImage bi) {
+		if (memoryLimit == 0)
+			return;
+		BufferedImage old = memory.put(key, bi);
+		if (old != null)
+			memoryBytes -= getByteCount(old);
+		memoryBytes += getByteCount(bi);
+
+		Iterator<BufferedImage> iter = memory.values().iterator();
+		while (memoryBytes > memoryLimit && memory.size() > 1) {
+			BufferedImage eldest = iter.next();
+			iter.remove();
+			memoryBytes -= getByteCount(eldest);
+			memoryEvictions++;
+		}
+	}
+
+	private static long getByteCount(BufferedImage bi) {
+		return 4L * bi.getWidth() * bi.getHeight();
+	}
+
+	private File getSegmentFile(int segment) {
+		return new File(directory, SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Read the index (if it exists) and open the files we append to.
+	 */
+	private void openDisk() throws IOException {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.startsWith(SEGMENT_PREFIX)
+						&& name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						int segment = Integer.parseInt(name.substring(
+								SEGMENT_PREFIX.length(), name.length()
+										- SEGMENT_SUFFIX.length()));
+						segments.put(segment, file.length());
+						diskBytes += file.length();
+					} catch (NumberFormatException e) {
+						// not one of our files
+					}
+				}
+			}
+		}
+
+		File indexFile = new File(directory, INDEX_NAME);
+		boolean validIndex = false;
+		if (indexFile.exists()) {
+			try (DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(indexFile)))) {
+				validIndex = readIndex(in);
+			}
+		}
+
+		if (!validIndex) {
+			// without an index the segments are useless
+			for (Integer segment : segments.keySet()) {
+				getSegmentFile(segment).delete();
+			}
+			segments.clear();
+			diskIndex.clear();
+			diskBytes = 0;
+		}
+
+		currentSegmentNumber = segments.isEmpty() ? 0 : segments.lastKey();
+		openSegment(currentSegmentNumber);
+		if (validIndex) {
+			indexOut = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(indexFile, true)));
+		} else {
+			rewriteIndex();
+		}
+	}
+
+	/**
+	 * Read the records in the index.
+	 * 
+	 * @return false if the index is not in a format this class recognizes.
+	 */
+	private boolean readIndex(DataInputStream in) throws IOException {
+		try {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+				return false;
+		} catch (EOFException e) {
+			return false;
+		}
+		while (true) {
+			String key;
+			DiskEntry entry;
+			try {
+				key = in.readUTF();
+				entry = new DiskEntry(in.readInt(), in.readLong(),
+						in.readInt());
+			} catch (EOFException e) {
+				// the last record may be incomplete if we were interrupted
+				return true;
+			}
+			indexRecordCount++;
+			Long segmentSize = segments.get(entry.segment);
+			if (segmentSize != null
+					&& entry.offset + entry.length <= segmentSize) {
+				diskIndex.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * Replace the index file with one that only contains live records.
+	 */
+	private void rewriteIndex() throws IOException {
+		if (indexOut != null)
+			indexOut.close();
+		File indexFile = new File(directory, INDEX_NAME);
+		indexOut = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(indexFile, false)));
+		indexOut.writeInt(INDEX_MAGIC);
+		indexOut.writeInt(INDEX_VERSION);
+		indexRecordCount = 0;
+		for (Map.Entry<String, DiskEntry> entry : diskIndex.entrySet()) {
+			writeIndexRecord(entry.getKey(), entry.getValue());
+		}
+		indexOut.flush();
+	}
+
+	private void writeIndexRecord(String key, DiskEntry entry)
+			throws IOException {
+		indexOut.writeUTF(key);
+		indexOut.writeInt(entry.segment);
+		indexOut.writeLong(entry.offset);
+		indexOut.writeInt(entry.length);
+		indexRecordCount++;
+	}
+
+	private void openSegment(int segment) throws IOException {
+		currentSegmentNumber = segment;
+		currentSegment = new RandomAccessFile(getSegmentFile(segment), "rw");
+		if (!segments.containsKey(segment))
+			segments.put(segment, currentSegment.length());
+	}
+
+	private byte[] readEntry(DiskEntry entry) throws IOException {
+		if (indexOut == null)
+			throw new IllegalStateException("this cache has been closed");
+		if (entry.segment == currentSegmentNumber) {
+			byte[] data = new byte[entry.length];
+			currentSegment.seek(entry.offset);
+			currentSegment.readFully(data);
+			return data;
+		}
+		File file = getSegmentFile(entry.segment);
+		if (!file.exists())
+			return null;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			byte[] data = new byte[entry.length];
+			raf.seek(entry.offset);
+			raf.readFully(data);
+			return data;
+		}
+	}
+
+	private void writeEntry(String key, byte[] data) throws IOException {
+		if (indexOut == null)
+			throw new IllegalStateException("this cache has been closed");
+		long offset = segments.get(currentSegmentNumber);
+		if (offset > 0 && offset + data.length > segmentLimit) {
+			currentSegment.close();
+			openSegment(currentSegmentNumber + 1);
+			offset = 0;
+		}
+		currentSegment.seek(offset);
+		currentSegment.write(data);
+		segments.put(currentSegmentNumber, offset + data.length);
+		diskBytes += data.length;
+
+		DiskEntry entry = new DiskEntry(currentSegmentNumber, offset,
+				data.length);
+		diskIndex.put(key, entry);
+		writeIndexRecord(key, entry);
+
+		boolean evicted = false;
+		while (diskBytes > diskLimit && segments.size() > 1) {
+			int oldest = segments.firstKey();
+			diskBytes -= segments.remove(oldest);
+			getSegmentFile(oldest).delete();
+			Iterator<DiskEntry> iter = diskIndex.values().iterator();
+			while (iter.hasNext()) {
+				if (iter.next().segment == oldest)
+					iter.remove();
+			}
+			segmentEvictions++;
+			evicted = true;
+		}
+		if (evicted)
+			rewriteIndex();
+	}
+}
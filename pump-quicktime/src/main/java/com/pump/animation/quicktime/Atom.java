@@ -101,10 +101,13 @@ abstract class Atom implements TreeNode {
 		}
 	}
 
-	static byte[] array32 = new byte[32];
-	static byte[] array36 = new byte[36];
-	static double[][] matrix = new double[3][3];
-	protected synchronized static final PerspectiveTransform readMatrix(InputStream in) throws IOException {
+	/* The following helpers each allocate their own small arrays (instead
+	 * of sharing static buffers) so they do not need to be synchronized:
+	 * any number of threads can read and write atoms at once.
+	 */
+	
+	protected static final PerspectiveTransform readMatrix(InputStream in) throws IOException {
+		double[][] matrix = new double[3][3];
 		matrix[0][0] = read16_16Float(in);
 		matrix[0][1] = read16_16Float(in);
 		matrix[0][2] = read2_30Float(in);
@@ -118,7 +121,8 @@ abstract class Atom implements TreeNode {
 		return new PerspectiveTransform(matrix);
 	}
 	
-	protected synchronized static final void writeMatrix(OutputStream out,PerspectiveTransform transform) throws IOException {
+	protected static final void writeMatrix(OutputStream out,PerspectiveTransform transform) throws IOException {
+		double[][] matrix = new double[3][3];
 		transform.getMatrix(matrix);
 		write16_16Float(out,(float)matrix[0][0]);
 		write16_16Float(out,(float)matrix[0][1]);
@@ -143,23 +147,21 @@ abstract class Atom implements TreeNode {
 			throw new EOFException();
 	}
 
-	static byte[] array1 = new byte[1];
-	static byte[] array2 = new byte[2];
-	static byte[] array3 = new byte[3];
-	static byte[] array4 = new byte[4];
-	static byte[] array6 = new byte[6];
-	protected synchronized static final int read16Int(InputStream in) throws IOException {
+	protected static final int read16Int(InputStream in) throws IOException {
+		byte[] array2 = new byte[2];
 		read(in,array2);
         return ((array2[0] & 0xff) << 8) + (array2[1] & 0xff);
 	}
 	
-	protected synchronized static final void write16Int(OutputStream out,long i) throws IOException {
+	protected static final void write16Int(OutputStream out,long i) throws IOException {
+		byte[] array2 = new byte[2];
 		array2[0] = (byte)((i >> 8) & 0xff);
 		array2[1] = (byte)(i & 0xff);
 		out.write(array2);
 	}
 	
-	protected synchronized static final void write48Int(OutputStream out,long i) throws IOException {
+	protected static final void write48Int(OutputStream out,long i) throws IOException {
+		byte[] array6 = new byte[6];
 		array6[0] = (byte)((i >> 40) & 0xff);
 		array6[1] = (byte)((i >> 32) & 0xff);		
 		array6[2] = (byte)((i >> 24) & 0xff);
@@ -169,19 +171,20 @@ abstract class Atom implements TreeNode {
 		out.write(array6);
 	}
 	
-	protected synchronized static final void write8Int(OutputStream out,int i) throws IOException {
-		array1[0] = (byte)(i & 0xff);
-		out.write(array1);
+	protected static final void write8Int(OutputStream out,int i) throws IOException {
+		out.write(i & 0xff);
 	}
 	
-	protected synchronized static final void write24Int(OutputStream out,int i) throws IOException {
+	protected static final void write24Int(OutputStream out,int i) throws IOException {
+		byte[] array3 = new byte[3];
 		array3[0] = (byte)((i >> 16) & 0xff);
 		array3[1] = (byte)((i >> 8) & 0xff);
 		array3[2] = (byte)(i & 0xff);
 		out.write(array3);
 	}
 	
-	protected synchronized static final void write32Int(OutputStream out,long i) throws IOException {
+	protected static final void write32Int(OutputStream out,long i) throws IOException {
+		byte[] array4 = new byte[4];
 		array4[0] = (byte)((i >> 24) & 0xff);
 		array4[1] = (byte)((i >> 16) & 0xff);
 		array4[2] = (byte)((i >> 8) & 0xff);
@@ -189,13 +192,9 @@ abstract class Atom implements TreeNode {
 		out.write(array4);
 	}
 	
-	protected synchronized static final void write32String(OutputStream out,String s) throws IOException {
-		if(s.length()==0) {
-			array4[0] = 0;
-			array4[1] = 0;
-			array4[2] = 0;
-			array4[3] = 0;
-		} else {
+	protected static final void write32String(OutputStream out,String s) throws IOException {
+		byte[] array4 = new byte[4];
+		if(s.length()!=0) {
 			array4[0] = (byte)(s.charAt(0));
 			array4[1] = (byte)(s.charAt(1));
 			array4[2] = (byte)(s.charAt(2));
@@ -204,7 +203,8 @@ abstract class Atom implements TreeNode {
 		out.write(array4);
 	}
 	
-	protected synchronized static final int read24Int(InputStream in) throws IOException {
+	protected static final int read24Int(InputStream in) throws IOException {
+		byte[] array3 = new byte[3];
 		read(in,array3);
 		long k = (((long)(array3[0] & 0xff)) << 16) +
 		(((long)(array3[1] & 0xff)) << 8) +
@@ -212,12 +212,15 @@ abstract class Atom implements TreeNode {
 		return (int)k;
 	}
 
-	protected synchronized static final int read8Int(InputStream in) throws IOException {
-		read(in,array1);
-		return (((array1[0] & 0xff)));
+	protected static final int read8Int(InputStream in) throws IOException {
+		int k = in.read();
+		if(k==-1)
+			throw new EOFException();
+		return k;
 	}
 	
-	protected synchronized static final long read32Int(InputStream in) throws IOException {
+	protected static final long read32Int(InputStream in) throws IOException {
+		byte[] array4 = new byte[4];
 		read(in,array4);
 		return create32Int(array4);
 	}
@@ -230,7 +233,8 @@ abstract class Atom implements TreeNode {
         }
         return value;
 	}
-	protected synchronized static final String read32String(InputStream in) throws IOException {
+	protected static final String read32String(InputStream in) throws IOException {
+		byte[] array4 = new byte[4];
 		read(in,array4);
 		StringBuffer sb = new StringBuffer(4);
 		sb.append( ((char)array4[0]) );
@@ -241,7 +245,8 @@ abstract class Atom implements TreeNode {
 	}
 	
 	
-	protected synchronized static final String read32BytePascalString(InputStream in) throws IOException {
+	protected static final String read32BytePascalString(InputStream in) throws IOException {
+		byte[] array32 = new byte[32];
 		read(in,array32);
 		int size = array32[0] & 0xff;
 		StringBuffer sb = new StringBuffer();
@@ -251,20 +256,20 @@ abstract class Atom implements TreeNode {
 		return sb.toString();
 	}
 	
-	protected synchronized static final void write32BytePascalString(OutputStream out,String s) throws IOException {
+	protected static final void write32BytePascalString(OutputStream out,String s) throws IOException {
+		byte[] array32 = new byte[32];
 		for(int a = 0; a<32; a++) {
 			if(a==0) {
 				array32[a] = (byte)s.length();
 			} else if(a<=s.length()) {
 				array32[a] = (byte)s.charAt(a-1);
-			} else {
-				array32[a] = 0;
 			}
 		}
 		out.write(array32);
 	}
 	
-	protected synchronized static final long read48Int(InputStream in) throws IOException {
+	protected static final long read48Int(InputStream in) throws IOException {
+		byte[] array6 = new byte[6];
 		read(in,array6);
 		return (((long)(array6[0] & 0xff)) << 40) +
 		(((long)(array6[1] & 0xff)) << 32) +
@@ -274,7 +279,21 @@ abstract class Atom implements TreeNode {
 		(((long)(array6[5] & 0xff)) << 0);
 	}
 
-	protected synchronized static final float read16_16Float(InputStream in) throws IOException {
+	/** Read an 8-byte unsigned integer. */
+	protected static final long read64Int(InputStream in) throws IOException {
+		byte[] array8 = new byte[8];
+		read(in,array8);
+		return (((long)(array8[0] & 0xff)) << 56) +
+		(((long)(array8[1] & 0xff)) << 48) +
+		(((long)(array8[2] & 0xff)) << 40) +
+		(((long)(array8[3] & 0xff)) << 32) +
+		(((long)(array8[4] & 0xff)) << 24) +
+		(((long)(array8[5] & 0xff)) << 16) +
+		(((long)(array8[6] & 0xff)) << 8) +
+		(((long)(array8[7] & 0xff)) << 0);
+	}
+
+	protected static final float read16_16Float(InputStream in) throws IOException {
 		long value = read32Int(in);
 		float multiplier = 1;
 		if( (value & 0x80000000) > 0) {
@@ -291,7 +310,7 @@ abstract class Atom implements TreeNode {
 		return floatValue*multiplier;
 	}
 
-	protected synchronized static final float read16_16UnsignedFloat(InputStream in) throws IOException {
+	protected static final float read16_16UnsignedFloat(InputStream in) throws IOException {
 		int integerPart = read16Int(in);
 		int fractionPart = read16Int(in);
 		
@@ -299,7 +318,7 @@ abstract class Atom implements TreeNode {
 		return floatValue;
 	}
 	
-	protected synchronized static final float read2_30Float(InputStream in) throws IOException {
+	protected static final float read2_30Float(InputStream in) throws IOException {
 		long value = read32Int(in);
 		long w = (value >> 30) & 0xff;
 		float multiplier = 1;
@@ -320,7 +339,7 @@ abstract class Atom implements TreeNode {
 		return floatValue*multiplier;
 	}
 		
-	protected synchronized static final float read8_8Float(InputStream in) throws IOException {
+	protected static final float read8_8Float(InputStream in) throws IOException {
 		long value = read16Int(in);
 		float multiplier = 1;
 		if( (value & 0x8000) > 0) {
@@ -336,7 +355,7 @@ abstract class Atom implements TreeNode {
 
 		return floatValue*multiplier;
 	}
-	protected synchronized static final void write16_16Float(OutputStream out,float f) throws IOException {
+	protected static final void write16_16Float(OutputStream out,float f) throws IOException {
 		float v = (f>=0) ? f : -f;
 	
 		long wholePart = (long)v;
@@ -349,7 +368,7 @@ abstract class Atom implements TreeNode {
 		write32Int(out,t);
 	}
 
-	protected synchronized static final void write16_16UnsignedFloat(OutputStream out,float f) throws IOException {
+	protected static final void write16_16UnsignedFloat(OutputStream out,float f) throws IOException {
 		if(f<0) throw new IllegalArgumentException(f+"<0");
 		long wholePart = (long)f;
 		long fractionPart = (long)((f-wholePart)*65536); 
@@ -357,7 +376,7 @@ abstract class Atom implements TreeNode {
 		write32Int(out,t);
 	}
 	
-	protected synchronized static final void write8_8Float(OutputStream out,float f) throws IOException {
+	protected static final void write8_8Float(OutputStream out,float f) throws IOException {
 		float v = (f>=0) ? f : -f;
 	
 		long wholePart = (long)v;
@@ -370,7 +389,7 @@ abstract class Atom implements TreeNode {
 		write16Int(out,t);
 	}
 
-	protected synchronized static final void write2_30Float(OutputStream out,float f) throws IOException {
+	protected static final void write2_30Float(OutputStream out,float f) throws IOException {
 		float v = (f>=0) ? f : -f;
 	
 		long wholePart = (long)v;
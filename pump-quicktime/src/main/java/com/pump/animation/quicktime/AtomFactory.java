@@ -12,6 +12,7 @@ package com.pump.animation.quicktime;
 
 import java.awt.FileDialog;
 import java.awt.Frame;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -74,10 +75,13 @@ class AtomFactory {
 		System.out.println("finished");
 	}
 
-	public static synchronized Atom[] readAll(File file) throws IOException {
+	/** Read all the atoms in a file.
+	 * <P>This is safe to call from several threads at once.
+	 */
+	public static Atom[] readAll(File file) throws IOException {
 		InputStream in = null;
 		try {
-			in = new FileInputStream(file);
+			in = new BufferedInputStream(new FileInputStream(file));
 			MeasuredInputStream in2 = new MeasuredInputStream(in);
 			List<Atom> v = new ArrayList<Atom>();
 			while(in2.getReadBytes()<file.length()) {
@@ -92,8 +96,6 @@ class AtomFactory {
 		}
 	}
 	
-	static byte[] sizeArray = new byte[4];
-	static byte[] bigSizeArray = new byte[8];
 	static List<String> parentTypes = new ArrayList<String>();
 	private static final String[] PARENT_NODES = new String[] {
 		"moov", "udta", "trak", "edts", "mdia", "minf", "dinf", "stbl", "tref", "tapt"
@@ -103,9 +105,13 @@ class AtomFactory {
 			parentTypes.add(PARENT_NODES[a]);
 		}
 	}
+	
+	/** The indentation of debugging output, which reflects how deeply nested
+	 * the atom being read is. This is only used when <code>debug</code> is true.
+	 */
 	private static String padding = "";
 		
-	public static synchronized Atom read(Atom parent,InputStream in) throws IOException {
+	public static Atom read(Atom parent,InputStream in) throws IOException {
 		long size = Atom.read32Int(in);
 		if(in instanceof GuardedInputStream) {
 			GuardedInputStream gis = (GuardedInputStream)in;
@@ -149,27 +155,27 @@ class AtomFactory {
 		
 		
 		if(size==1) { //this is a special code indicating the size won't fit in 4 bytes
-			Atom.read(in,bigSizeArray);
-			size = ((sizeArray[0] & 0xff) << 56) + ((sizeArray[1] & 0xff) << 48) + 
-			((sizeArray[2] & 0xff) << 40) + ((sizeArray[3] & 0xff) << 32) +
-			((sizeArray[4] & 0xff) << 24) + ((sizeArray[5] & 0xff) << 16) + 
-			((sizeArray[6] & 0xff) << 8) + ((sizeArray[7] & 0xff) << 0);
+			size = Atom.read64Int(in) - 8;
 		}
 	
 
 		Atom atom = null;
 		
-		if(parentTypes.contains(type)) {
+		if(debug && parentTypes.contains(type)) {
 			System.out.println(padding+type+", "+size);
 		}
 		
 		GuardedInputStream atomIn = new GuardedInputStream(in, size-8,false);
 		
 		if(parentTypes.contains(type)) {
-			String oldPadding = padding;
-			padding = padding+"\t";
-			atom = new ParentAtom(parent,type,atomIn);
-			padding = oldPadding;
+			if(debug) {
+				String oldPadding = padding;
+				padding = padding+"\t";
+				atom = new ParentAtom(parent,type,atomIn);
+				padding = oldPadding;
+			} else {
+				atom = new ParentAtom(parent,type,atomIn);
+			}
 		} else if(type.equals("mvhd")) {
 			atom = new MovieHeaderAtom(parent,atomIn);
 		} else if(type.equals("mdhd")) {
@@ -251,7 +257,7 @@ class AtomFactory {
 			}
 		}
 
-		if(parentTypes.contains(type)==false) {
+		if(debug && parentTypes.contains(type)==false) {
 			System.out.println(padding+type+", "+size+", "+atom);
 		}
 		
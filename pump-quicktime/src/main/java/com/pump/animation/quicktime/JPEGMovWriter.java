@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
@@ -57,6 +58,22 @@ public class JPEGMovWriter extends MovWriter {
 		super(file);
 		this.defaultQuality = defaultQuality;
 	}
+	
+	/**
+	 * 
+	 * @param file the destination file to write to.
+	 * @param defaultQuality the default JPEG quality (from [0,1]) to use
+	 * if a frame is added without otherwise specifying this value.
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then each frame is encoded on the thread that adds it.
+	 * @param maxFramesInFlight the maximum number of frames that may be encoded
+	 * on the executor at once.
+	 * @throws IOException
+	 */
+	public JPEGMovWriter(File file,float defaultQuality,Executor executor,int maxFramesInFlight) throws IOException {
+		super(file, executor, maxFramesInFlight);
+		this.defaultQuality = defaultQuality;
+	}
 
 	@Override
 	protected VideoSampleDescriptionEntry getVideoSampleDescriptionEntry() {
@@ -12,6 +12,8 @@ package com.pump.animation.quicktime;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -20,8 +22,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -47,6 +54,10 @@ import com.pump.io.MeasuredOutputStream;
  * <code>FileOutputStream</code>. When <code>close()</code> is called, 
  * the movie structure is added and a <code>RandomAccessFile</code> is
  * used to correctly set the size headers.
+ * <P>If this writer is constructed with an <code>Executor</code>, then
+ * <code>addFrame(float, BufferedImage, Map)</code> encodes frames on that
+ * executor. Several frames can be encoded at once, but they are always
+ * written to the movie in the order they were added.
  *
  */
 @Blurb (
@@ -376,6 +387,55 @@ public abstract class MovWriter {
 	
 	/** The audio tracks to include. */
 	protected AudioTrack[] audioTracks = new AudioTrack[] {};
+	
+	/** An image frame that is being encoded on the executor. */
+	private class PendingFrame {
+		final int duration;
+		final FutureTask<ByteArrayOutputStream> encodedFrame;
+		
+		PendingFrame(int duration,final BufferedImage image,final Map<String, Object> settings) {
+			this.duration = duration;
+			encodedFrame = new FutureTask<ByteArrayOutputStream>(new Callable<ByteArrayOutputStream>() {
+				public ByteArrayOutputStream call() throws IOException {
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					writeFrame(bytes, image, settings);
+					return bytes;
+				}
+			});
+		}
+		
+		/** Write the encoded frame to the movie, waiting for it if necessary. */
+		void commit() throws IOException {
+			ByteArrayOutputStream bytes;
+			try {
+				bytes = encodedFrame.get();
+			} catch(InterruptedException e) {
+				throw new RuntimeException(e);
+			} catch(ExecutionException e) {
+				Throwable cause = e.getCause();
+				if(cause instanceof IOException)
+					throw (IOException)cause;
+				if(cause instanceof RuntimeException)
+					throw (RuntimeException)cause;
+				if(cause instanceof Error)
+					throw (Error)cause;
+				throw new RuntimeException(cause);
+			}
+			long startPosition = out.getBytesWritten();
+			bytes.writeTo(out);
+			VideoSample sample = new VideoSample(duration, startPosition, bytes.size());
+			videoTrack.addSample(sample);
+		}
+	}
+	
+	/** An optional executor to encode frames on. */
+	private final Executor executor;
+	
+	/** The maximum number of frames that may be encoded on the executor at once. */
+	private final int maxFramesInFlight;
+	
+	/** Frames that are being encoded on the executor, in the order they must be written. */
+	private LinkedList<PendingFrame> pendingFrames = new LinkedList<PendingFrame>();
 
 	/** Constructs a new <code>MovWriter</code>.
 	 * <P>By constructing this object a <code>FileOutputStream</code>
@@ -387,9 +447,32 @@ public abstract class MovWriter {
 	 * @throws IOException
 	 */
 	public MovWriter(File file) throws IOException {
+		this(file, null, 0);
+	}
+
+	/** Constructs a new <code>MovWriter</code> that encodes several frames at once.
+	 * <P>By constructing this object a <code>FileOutputStream</code>
+	 * is opened for the destination file.  It remains open until
+	 * <code>close()</code> is called or this object is finalized.
+	 * @param file the file data is written to.  It is strongly
+	 * recommended that this file name end with ".mov" (or ".MOV"), although
+	 * this is not required.
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then each frame is encoded on the thread that adds it.
+	 * @param maxFramesInFlight the maximum number of frames that may be encoded
+	 * on the executor at once. When this limit is reached <code>addFrame()</code>
+	 * blocks until the oldest frame is written. This bounds the memory this
+	 * writer uses.
+	 * @throws IOException
+	 */
+	public MovWriter(File file,Executor executor,int maxFramesInFlight) throws IOException {
+		if(executor!=null && maxFramesInFlight<1)
+			throw new IllegalArgumentException("maxFramesInFlight ("+maxFramesInFlight+") must be at least 1");
+		this.executor = executor;
+		this.maxFramesInFlight = maxFramesInFlight;
 		dest = file;
 		file.createNewFile();
-		out = new MeasuredOutputStream(new FileOutputStream(file));
+		out = new MeasuredOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
 		
 		Atom.write32Int(out, 1); //an extended size field
 		Atom.write32String(out, "mdat");
@@ -446,7 +529,7 @@ public abstract class MovWriter {
 	public synchronized void addAudioTrack(AudioInputStream audio,float startTime,float endTime) throws IOException {
 		if(closed) throw new RuntimeException("this writer has already been closed");
 
-		if(videoTrack.isEmpty()==false)
+		if(videoTrack.isEmpty()==false || pendingFrames.size()>0)
 			throw new RuntimeException("cannot add audio after video data has been started");
 		AudioTrack newTrack;
 		
@@ -479,6 +562,10 @@ public abstract class MovWriter {
 	/** Adds an image to this animation.
 	 * <P>All images must be the same dimensions; if this image is
 	 * a different size from previously added images an exception is thrown.
+	 * <P>If this writer has an executor then this copies the image and
+	 * encodes the copy on the executor, so the caller may immediately reuse
+	 * <code>bi</code>. Encoding errors are thrown by a later call to
+	 * <code>addFrame()</code> or <code>close()</code>.
 	 * 
 	 * @param duration the duration (in seconds) this frame should
 	 * show.  (This value is converted to a timescale of DEFAULT_TIME_SCALE.)
@@ -493,6 +580,19 @@ public abstract class MovWriter {
 		int relativeDuration = (int)(duration*DEFAULT_TIME_SCALE+.5);
 
 		videoTrack.validateSize(bi.getWidth(), bi.getHeight());
+		if(executor!=null) {
+			if(relativeDuration<=0) throw new InvalidDurationException("duration ("+relativeDuration+") must be greater than zero.");
+			BufferedImage copy = new BufferedImage(bi.getColorModel(), bi.copyData(null), bi.isAlphaPremultiplied(), null);
+			PendingFrame frame = new PendingFrame(relativeDuration, copy, settings);
+			pendingFrames.add(frame);
+			executor.execute(frame.encodedFrame);
+			
+			while(pendingFrames.size()>0 && 
+					(pendingFrames.size()>maxFramesInFlight || pendingFrames.peek().encodedFrame.isDone())) {
+				pendingFrames.pop().commit();
+			}
+			return;
+		}
 		long startPosition = out.getBytesWritten();
 		writeFrame(out, bi, settings);
 		long byteSize = out.getBytesWritten() - startPosition;
@@ -500,7 +600,24 @@ public abstract class MovWriter {
 		videoTrack.addSample(sample);
 	}
 	
+	/** Encode an image.
+	 * <P>If this writer has an executor then this may be called on several
+	 * threads at once, so implementations should not modify shared state.
+	 * 
+	 * @param out the stream to write the encoded image to.
+	 * @param image the image to encode.
+	 * @param settings an optional map of settings passed to <code>addFrame()</code>.
+	 * @throws IOException
+	 */
 	protected abstract void writeFrame(OutputStream out,BufferedImage image,Map<String, Object> settings) throws IOException;
+	
+	/** Write all frames that are being encoded on the executor.
+	 */
+	private void commitPendingFrames() throws IOException {
+		while(pendingFrames.size()>0) {
+			pendingFrames.pop().commit();
+		}
+	}
 
 	/** Adds an image to this animation.
 	 * <P>All images must be the same dimensions; if this image is
@@ -520,6 +637,7 @@ public abstract class MovWriter {
 		if(closed) throw new IllegalArgumentException("this writer has already been closed");
 		
 		int relativeTime = (int)(duration*DEFAULT_TIME_SCALE+.5);
+		commitPendingFrames();
 		videoTrack.addFrame(relativeTime, image);
 	}
 	
@@ -545,6 +663,7 @@ public abstract class MovWriter {
 		
 		long mdatSize;
 		try {
+			commitPendingFrames();
 			videoTrack.close();
 			if( writeRemainingAudio ) {
 				writeAudioLoop : while(true) {
@@ -611,7 +730,7 @@ public abstract class MovWriter {
 	 * @return the number of bytes written.
 	 * @throws IOException
 	 */
-	protected static synchronized long write(OutputStream out,File file) throws IOException {
+	protected static long write(OutputStream out,File file) throws IOException {
 		FileInputStream in = null;
 		try {
 			in = new FileInputStream(file);
@@ -633,7 +752,7 @@ public abstract class MovWriter {
 	 * @return the number of bytes written.
 	 * @throws IOException
 	 */
-	protected static synchronized long write(OutputStream out,InputStream in,boolean reverseBytePairs) throws IOException {
+	protected static long write(OutputStream out,InputStream in,boolean reverseBytePairs) throws IOException {
 		byte[] block = new byte[4096];
 		
 		long written = 0;
@@ -659,7 +778,7 @@ public abstract class MovWriter {
 	 * @return the number of bytes written.
 	 * @throws IOException
 	 */
-	protected static synchronized long write(OutputStream out,InputStream in,long maxBytes,boolean reverseBytePairs) throws IOException {
+	protected static long write(OutputStream out,InputStream in,long maxBytes,boolean reverseBytePairs) throws IOException {
 		byte[] block = new byte[4096];
 		
 		long written = 0;
@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.imageio.ImageIO;
 
@@ -26,6 +27,19 @@ public class PNGMovWriter extends MovWriter {
 		super(file);
 	}
 
+	/**
+	 * 
+	 * @param file the destination file to write to.
+	 * @param executor an optional executor to encode frames on. If this is null
+	 * then each frame is encoded on the thread that adds it.
+	 * @param maxFramesInFlight the maximum number of frames that may be encoded
+	 * on the executor at once.
+	 * @throws IOException
+	 */
+	public PNGMovWriter(File file,Executor executor,int maxFramesInFlight) throws IOException {
+		super(file, executor, maxFramesInFlight);
+	}
+
 	@Override
 	protected VideoSampleDescriptionEntry getVideoSampleDescriptionEntry() {
 		return VideoSampleDescriptionEntry.createPNGDescription( videoTrack.w, videoTrack.h);
@@ -47,11 +47,17 @@ public class JavaTextComponentHighlighter extends TextComponentHighlighter {
 	protected SimpleAttributeSet importantPunctuationAttributes;
 
 	/** Create a new JavaTextComponentHighlighter.
+	 * <p>This turns on incremental mode (see {@link #setIncremental(boolean)}),
+	 * unless this is a subclass: a subclass may tokenize text differently, or style
+	 * a token based on tokens from other lines, so it has to opt in itself.
 	 * 
 	 * @param jtc the text component to apply formatting to.
 	 */
 	public JavaTextComponentHighlighter(JTextComponent jtc) {
 		super(jtc);
+		// our attributes only depend on each token, so we can restyle one line at a time
+		if(getClass()==JavaTextComponentHighlighter.class)
+			setIncremental(true);
 
 		jtc.putClientProperty("caretWidth", new Integer(3));
 		jtc.getCaret().setBlinkRate(500);
@@ -12,6 +12,8 @@ package com.pump.text;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -19,6 +21,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -29,6 +35,7 @@ import javax.swing.event.DocumentListener;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
+import javax.swing.text.Highlighter;
 import javax.swing.text.Highlighter.HighlightPainter;
 import javax.swing.text.JTextComponent;
 import javax.swing.text.SimpleAttributeSet;
@@ -37,10 +44,18 @@ import javax.swing.text.StyledDocument;
 
 import com.pump.io.Token;
 import com.pump.io.java.JavaParser;
+import com.pump.io.java.JavaParser.CommentToken;
 import com.pump.io.java.JavaParser.WhitespaceToken;
+import com.pump.util.BasicReceiver;
 
 /** This abstract helper class triggers certain methods as a <code>JTextComponent</code>
  * is updated and constantly reapplies formatting rules and highlights.
+ * <p>
+ * By default every change to the document parses the entire document again and
+ * replaces every highlight and attribute. For large documents you should consider
+ * calling {@link #setIncremental(boolean)}: then each line is parsed separately on
+ * a background thread, and an edit only parses (and restyles) the lines it
+ * changed.
  */
 public abstract class TextComponentHighlighter {
 	protected JTextComponent jtc;
@@ -49,12 +64,42 @@ public abstract class TextComponentHighlighter {
 
 		@Override
 		public void insertUpdate(DocumentEvent e) {
-			refresh(true);
+			synchronized (docListener)
+			{
+				int start = e.getOffset();
+				int end = start + e.getLength();
+				if(dirtyEnd!=-1) {
+					if(dirtyEnd>start)
+						dirtyEnd += e.getLength();
+					start = Math.min(start, dirtyStart);
+					end = Math.max(end, dirtyEnd);
+				}
+				dirtyStart = start;
+				dirtyEnd = end;
+				editCount.incrementAndGet();
+			}
+			requestRehighlight();
 		}
 
 		@Override
 		public void removeUpdate(DocumentEvent e) {
-			refresh(true);
+			synchronized (docListener)
+			{
+				int start = e.getOffset();
+				int end = start;
+				if(dirtyEnd!=-1) {
+					if(dirtyEnd>=start + e.getLength()) {
+						end = Math.max(end, dirtyEnd - e.getLength());
+					} else {
+						end = Math.max(end, Math.min(dirtyEnd, start));
+					}
+					start = Math.min(start, dirtyStart);
+				}
+				dirtyStart = start;
+				dirtyEnd = end;
+				editCount.incrementAndGet();
+			}
+			requestRehighlight();
 		}
 
 		@Override
@@ -92,25 +137,33 @@ public abstract class TextComponentHighlighter {
 	 * @param invokeLater if true then this refresh is queued up
 	 * via {@code SwingUtilities.invokeLater()}, which may have the added
 	 * benefit of coalescing redundant calls. If false then this is
-	 * executed immediately. When in doubt, I recommend passing "true" here.
+	 * executed immediately, except in incremental mode: then the document is
+	 * parsed again on the background thread, and the new formatting is applied
+	 * later on the EDT. When in doubt, I recommend passing "true" here.
+	 * @see #setIncremental(boolean)
 	 */
 	public void refresh(boolean invokeLater) {
+		fullRelexNeeded = true;
 		if(invokeLater) {
-			/**
-			 * Note: when you call textComponent.setText(..) for several lines of text, each line is added
-			 * separately, so a 500-line block of text calls this method 500 times as each line is added. So
-			 * this model waits until the EDT is responsive again to call documentUpdated().
-			 */
-			synchronized (docListener)
-			{
-				dirty = true;
-				SwingUtilities.invokeLater(rehighlightRunnable);
-			}
+			requestRehighlight();
 		} else {
 			rehighlightRunnable.run();
 		}
 	}
 	
+	private void requestRehighlight() {
+		/**
+		 * Note: when you call textComponent.setText(..) for several lines of text, each line is added
+		 * separately, so a 500-line block of text calls this method 500 times as each line is added. So
+		 * this model waits until the EDT is responsive again to call documentUpdated().
+		 */
+		synchronized (docListener)
+		{
+			dirty = true;
+			SwingUtilities.invokeLater(rehighlightRunnable);
+		}
+	}
+	
 	CaretListener caretListener = new CaretListener() {
 		boolean		dirty				= false;
 		Runnable	rehighlightRunnable	= new Runnable()
@@ -248,6 +301,10 @@ public abstract class TextComponentHighlighter {
 	protected void documentTextChanged(boolean onlyCaretChanged) {
 		if(onlyCaretChanged)
 			return;
+		if(incremental && active) {
+			relex(jtc.getText(), jtc.getSelectionStart(), jtc.getSelectionEnd());
+			return;
+		}
 		rehighlightText(jtc.getText(), jtc.getSelectionStart(), jtc.getSelectionEnd());
 	}
 	
@@ -274,6 +331,66 @@ public abstract class TextComponentHighlighter {
 		return true;
 	}
 	
+	/**
+	 * Return true if edits only parse and restyle the lines they affect.
+	 * 
+	 * @return true if edits only parse and restyle the lines they affect.
+	 * @see #setIncremental(boolean)
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+	
+	/**
+	 * Toggle whether edits only parse and restyle the lines they affect.
+	 * <p>
+	 * In incremental mode this records which lines start inside a block comment. When
+	 * the document changes, the edited lines are parsed again on a background thread,
+	 * and parsing continues until a line starts in the same state it used to. The
+	 * highlights and attributes of just those lines are then replaced on the EDT. If
+	 * the document changes again before that happens, that result is discarded and the
+	 * latest text is parsed instead.
+	 * <p>
+	 * Because each line is parsed separately, the <code>Token</code> arrays passed to
+	 * {@link #getHighlightPainter(Token[], int, int, int)} and
+	 * {@link #getAttributes(Token[], int, int, int)} only contain the tokens of one
+	 * line, and a block comment (or whitespace) that spans several lines is split into
+	 * one token per line. So subclasses should only use this mode if they format each
+	 * token based on the token itself and its neighbors on the same line.
+	 * <p>
+	 * Lines are parsed by {@link #getLineTokens(String, int, int, int, BasicReceiver)}
+	 * instead of {@link #getTokens(String, boolean)}, so a subclass that overrides
+	 * <code>getTokens(..)</code> must also override <code>getLineTokens(..)</code>.
+	 * 
+	 * @param b the new incremental state
+	 * @return true if this changed anything.
+	 * @throws IllegalStateException if this subclass overrides
+	 * <code>getTokens(..)</code> but not <code>getLineTokens(..)</code>.
+	 */
+	public boolean setIncremental(boolean b) {
+		if(incremental==b)
+			return false;
+		if(b && isOverridden("getTokens", String.class, Boolean.TYPE) && 
+				!isOverridden("getLineTokens", String.class, Integer.TYPE, Integer.TYPE, Integer.TYPE, BasicReceiver.class))
+			throw new IllegalStateException(getClass().getName()+" overrides getTokens(String, boolean) but not getLineTokens(..)");
+		incremental = b;
+		refresh(true);
+		return true;
+	}
+	
+	/** Return true if a subclass of TextComponentHighlighter declares a method. */
+	private boolean isOverridden(String methodName,Class<?>... parameterTypes) {
+		for(Class<?> c = getClass(); c!=TextComponentHighlighter.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(methodName, parameterTypes);
+				return true;
+			} catch(NoSuchMethodException e) {
+				//keep looking
+			}
+		}
+		return false;
+	}
+	
 	/** This reapplies highlights and AttributeSets to this text component.
 	 * 
 	 * @param text the text to format.
@@ -281,10 +398,13 @@ public abstract class TextComponentHighlighter {
 	 * @param selectionEnd the current selection end.
 	 */
 	protected void rehighlightText(String text,int selectionStart,int selectionEnd) {
-		for(Object oldHighlight : allHighlights) {
-			jtc.getHighlighter().removeHighlight(oldHighlight);
+		if(incremental && active) {
+			fullRelexNeeded = true;
+			relex(text, selectionStart, selectionEnd);
+			return;
 		}
-		allHighlights.clear();
+		removeAllHighlights();
+		fullRelexNeeded = true;
 		
 		Token[] tokens = getTokens(text, true);
 		final Map<Token, AttributeSet> tokenAttributes = new TreeMap<Token, AttributeSet>();
@@ -333,6 +453,347 @@ public abstract class TextComponentHighlighter {
 		}
 	}
 	
+	/** Remove every highlight this object added. */
+	private void removeAllHighlights() {
+		Highlighter highlighter = jtc.getHighlighter();
+		for(Object oldHighlight : allHighlights) {
+			highlighter.removeHighlight(oldHighlight);
+		}
+		allHighlights.clear();
+		if(lineModel!=null) {
+			for(Object[] lineHighlights : lineModel.highlights) {
+				removeHighlights(highlighter, lineHighlights);
+			}
+			lineModel = null;
+		}
+	}
+	
+	private static void removeHighlights(Highlighter highlighter,Object[] highlights) {
+		if(highlights==null)
+			return;
+		for(Object highlight : highlights) {
+			highlighter.removeHighlight(highlight);
+		}
+	}
+	
+	private boolean incremental = false;
+	
+	/** This is incremented every time the document's text changes. */
+	private final AtomicInteger editCount = new AtomicInteger();
+	
+	/** The range of the document that changed since the last incremental pass was applied,
+	 * or -1 if nothing changed. Inserted text may not have the attributes it needs,
+	 * even if the lines around it look unchanged.
+	 */
+	private int dirtyStart = -1, dirtyEnd = -1;
+	
+	/** The lines of the document as of the last incremental pass that was applied.
+	 * This is only replaced on the EDT.
+	 */
+	private LineModel lineModel;
+	
+	/** True if the next incremental pass should parse and restyle every line
+	 * (because the rules for formatting tokens may have changed).
+	 */
+	private boolean fullRelexNeeded = true;
+	
+	private static ExecutorService lexingExecutor;
+	
+	private static synchronized ExecutorService getLexingExecutor() {
+		if(lexingExecutor==null) {
+			lexingExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "TextComponentHighlighter");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return lexingExecutor;
+	}
+	
+	/** Parse the lines that changed on a background thread, and then restyle them on the EDT.
+	 * 
+	 * @param text the current text of the document.
+	 * @param selectionStart the current selection start.
+	 * @param selectionEnd the current selection end.
+	 */
+	private void relex(final String text,final int selectionStart,final int selectionEnd) {
+		final int edit, changeStart, changeEnd;
+		synchronized (docListener)
+		{
+			edit = editCount.get();
+			changeStart = dirtyStart;
+			changeEnd = dirtyEnd;
+		}
+		final LineModel oldModel = fullRelexNeeded ? null : lineModel;
+		getLexingExecutor().execute(new Runnable() {
+			public void run() {
+				// if the text changed again then another pass is already queued
+				if(edit!=editCount.get())
+					return;
+				final Relex relex = new Relex(oldModel, text, changeStart, changeEnd);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(edit!=editCount.get() || !incremental || !active)
+							return;
+						if(oldModel!=null && (fullRelexNeeded || oldModel!=lineModel))
+							return;
+						applyRelex(relex, selectionStart, selectionEnd);
+					}
+				});
+			}
+		});
+	}
+	
+	/** Replace the highlights and attributes of the lines a <code>Relex</code> parsed.
+	 * This must be called on the EDT.
+	 */
+	private void applyRelex(Relex relex,int selectionStart,int selectionEnd) {
+		Highlighter highlighter = jtc.getHighlighter();
+		if(relex.oldModel==null) {
+			removeAllHighlights();
+		} else {
+			for(int line = relex.startLine; line<relex.oldEndLine; line++) {
+				removeHighlights(highlighter, relex.oldModel.highlights[line]);
+			}
+		}
+		
+		List<Token> styledTokens = new ArrayList<>();
+		List<AttributeSet> styles = new ArrayList<>();
+		try {
+			for(int a = 0; a<relex.tokens.length; a++) {
+				Token[] tokens = relex.tokens[a];
+				List<Object> lineHighlights = null;
+				for(int index = 0; index<tokens.length; index++) {
+					HighlightPainter painter = getHighlightPainter(tokens, index, selectionStart, selectionEnd);
+					if(painter!=null) {
+						if(lineHighlights==null)
+							lineHighlights = new ArrayList<>();
+						lineHighlights.add(
+								highlighter.addHighlight( tokens[index].getDocumentStartIndex(), 
+										tokens[index].getDocumentEndIndex(), painter) );
+					}
+					AttributeSet attributes = getAttributes(tokens, index, selectionStart, selectionEnd);
+					if(attributes!=null) {
+						styledTokens.add(tokens[index]);
+						styles.add(attributes);
+					}
+				}
+				relex.newModel.highlights[relex.startLine + a] = lineHighlights==null ? null : lineHighlights.toArray();
+			}
+		} catch(BadLocationException e) {
+			throw new RuntimeException(e);
+		}
+		lineModel = relex.newModel;
+		if(relex.oldModel==null)
+			fullRelexNeeded = false;
+		synchronized (docListener)
+		{
+			dirtyStart = -1;
+			dirtyEnd = -1;
+		}
+		
+		Document doc = jtc.getDocument();
+		if(! (doc instanceof StyledDocument)) {
+			if(!styledTokens.isEmpty())
+				printOnce("TextComponentHighlighter: Attributes were provided but the document does not support styled attributes.");
+			return;
+		}
+		StyledDocument d = (StyledDocument)doc;
+		removeDocumentListeners();
+		try {
+			int start = relex.oldModel==null ? 0 : relex.startIndex;
+			int end = relex.oldModel==null ? d.getLength() : relex.endIndex;
+			d.setCharacterAttributes(start, end - start, getDefaultAttributes(), true);
+			for(int a = 0; a<styledTokens.size(); a++) {
+				Token token = styledTokens.get(a);
+				d.setCharacterAttributes(token.getDocumentStartIndex(), token.getLength(), styles.get(a), true);
+			}
+		} finally {
+			addDocumentListeners();
+		}
+	}
+	
+	/** The lines of a document, and the highlights added to each line. */
+	private static class LineModel {
+		/** The text of each line, including its line break. */
+		final String[] lines;
+		/** The state each line starts in (see {@link TextComponentHighlighter#getLineTokens(String, int, int, int, BasicReceiver)}).
+		 * This has one more element than <code>lines</code>: the last element describes the end of the document.
+		 */
+		final int[] lineStates;
+		/** The highlights added to each line, or null for lines without highlights. */
+		final Object[][] highlights;
+		
+		LineModel(String[] lines,int[] lineStates) {
+			this.lines = lines;
+			this.lineStates = lineStates;
+			highlights = new Object[lines.length][];
+		}
+	}
+	
+	/** This parses the lines of a document that changed since a <code>LineModel</code> was created. */
+	private class Relex {
+		final LineModel oldModel;
+		final LineModel newModel;
+		/** The first line (in both models) that was parsed. */
+		final int startLine;
+		/** The line in the new model after the last line that was parsed. */
+		final int endLine;
+		/** The line in the old model that corresponds to <code>endLine</code>. */
+		final int oldEndLine;
+		/** The index in the document where <code>startLine</code> starts. */
+		final int startIndex;
+		/** The index in the document where <code>endLine</code> starts. */
+		final int endIndex;
+		/** The tokens of each line that was parsed. */
+		final Token[][] tokens;
+		
+		/**
+		 * @param oldModel the model to compare the text against, or null to parse every line.
+		 * @param text the new text of the document.
+		 * @param changeStart the index in the new text where changes start, or -1 if nothing changed.
+		 * @param changeEnd the index in the new text where changes end, or -1 if nothing changed.
+		 */
+		Relex(LineModel oldModel,String text,int changeStart,int changeEnd) {
+			this.oldModel = oldModel;
+			String[] lines = splitLines(text);
+			int oldLineCount = oldModel==null ? 0 : oldModel.lines.length;
+			
+			if(changeEnd==-1) {
+				changeStart = text.length();
+				changeEnd = text.length();
+			}
+			
+			int start = 0;
+			int index = 0;
+			int sharedSuffix = 0;
+			if(oldModel!=null) {
+				int max = Math.min(oldLineCount, lines.length);
+				while(start<max && index + lines[start].length()<=changeStart && 
+						lines[start].equals(oldModel.lines[start])) {
+					index += lines[start].length();
+					start++;
+				}
+				int suffixIndex = text.length();
+				while(sharedSuffix<max - start) {
+					String line = lines[lines.length - 1 - sharedSuffix];
+					if(suffixIndex - line.length()<changeEnd || 
+							!line.equals(oldModel.lines[oldLineCount - 1 - sharedSuffix]))
+						break;
+					suffixIndex -= line.length();
+					sharedSuffix++;
+				}
+			}
+			int shift = lines.length - oldLineCount;
+			startIndex = index;
+			
+			int[] lineStates = new int[lines.length + 1];
+			if(oldModel!=null)
+				System.arraycopy(oldModel.lineStates, 0, lineStates, 0, start + 1);
+			
+			List<Token[]> parsedLines = new ArrayList<>();
+			int line = start;
+			int state = lineStates[start];
+			while(line<lines.length) {
+				if(oldModel!=null && line>=lines.length - sharedSuffix && 
+						state==oldModel.lineStates[line - shift]) {
+					// the rest of the document is unchanged
+					break;
+				}
+				BasicReceiver<Token> receiver = new BasicReceiver<>();
+				state = getLineTokens(lines[line], index, line, state, receiver);
+				parsedLines.add(receiver.toArray(new Token[receiver.getSize()]));
+				index += lines[line].length();
+				line++;
+				lineStates[line] = state;
+			}
+			
+			startLine = start;
+			endLine = line;
+			oldEndLine = line - shift;
+			endIndex = index;
+			tokens = parsedLines.toArray(new Token[parsedLines.size()][]);
+			newModel = new LineModel(lines, lineStates);
+			if(oldModel!=null) {
+				System.arraycopy(oldModel.lineStates, oldEndLine, lineStates, endLine, oldLineCount + 1 - oldEndLine);
+				System.arraycopy(oldModel.highlights, 0, newModel.highlights, 0, startLine);
+				System.arraycopy(oldModel.highlights, oldEndLine, newModel.highlights, endLine, oldLineCount - oldEndLine);
+			}
+		}
+	}
+	
+	/** Split text into lines. Each line includes its line break, and the last line may be empty. */
+	private static String[] splitLines(String text) {
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		for(int a = 0; a<text.length(); a++) {
+			if(text.charAt(a)=='\n') {
+				lines.add(text.substring(start, a + 1));
+				start = a + 1;
+			}
+		}
+		lines.add(text.substring(start));
+		return lines.toArray(new String[lines.size()]);
+	}
+	
+	/** The line state of Java source code outside of a block comment. */
+	private static final int STATE_DEFAULT = 0;
+	
+	/** The line state of Java source code inside a block comment. */
+	private static final int STATE_IN_COMMENT = 1;
+	
+	/** Parse one line of text in incremental mode. This is the incremental
+	 * counterpart of {@link #getTokens(String, boolean)}, and subclasses that
+	 * parse a different language should override both methods.
+	 * <p>
+	 * The state is an arbitrary value that describes how the previous line ended
+	 * (for example: inside a block comment). The first line starts in state zero,
+	 * and when an edit is parsed no further lines are parsed once a line ends
+	 * in the same state as before.
+	 * <p>
+	 * This is called on a background thread. The default implementation parses Java source code.
+	 * 
+	 * @param line the text of the line, including its line break.
+	 * @param lineStart the index in the document where this line starts.
+	 * @param lineNumber the line number of this line.
+	 * @param state the state this line starts in.
+	 * @param receiver the object that receives the tokens of this line. The
+	 * document indices of these tokens should be offset by <code>lineStart</code>.
+	 * @return the state the next line starts in.
+	 * @see #setIncremental(boolean)
+	 */
+	protected int getLineTokens(String line,int lineStart,int lineNumber,int state,BasicReceiver<Token> receiver) {
+		int offset = 0;
+		if(state==STATE_IN_COMMENT) {
+			int commentEnd = line.indexOf("*/");
+			if(commentEnd==-1) {
+				receiver.add(new CommentToken(line, 0, lineNumber, lineStart));
+				return STATE_IN_COMMENT;
+			}
+			offset = commentEnd + 2;
+			receiver.add(new CommentToken(line.substring(0, offset), 0, lineNumber, lineStart));
+		}
+		int firstToken = receiver.getSize();
+		try {
+			JavaParser.parse(new StringReader(line.substring(offset)), true, lineStart + offset, lineNumber, lineStart, receiver);
+		} catch (IOException e) {
+			//we shouldn't have an IOException for a String
+			throw new RuntimeException(e);
+		}
+		boolean inComment = false;
+		for(int a = firstToken; a<receiver.getSize(); a++) {
+			Token token = receiver.getElementAt(a);
+			if(token instanceof CommentToken) {
+				//JavaParser flags block comments that don't close
+				inComment = token.getText().startsWith("/*") && token.getException()!=null;
+			}
+		}
+		return inComment ? STATE_IN_COMMENT : STATE_DEFAULT;
+	}
+	
 	private boolean hasDocListener = false;
 
 	/** Remove document listeners. This should be followed by a call